@@ -0,0 +1,24 @@
+package com.example.tdd.benchmark;
+
+import com.example.tdd.TddApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+// Arranca la aplicación real (Netty en puerto aleatorio + H2 en memoria) para los benchmarks:
+// así se miden los mismos beans y la misma configuración que en producción.
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(String... profiles) {
+        return new SpringApplicationBuilder(TddApplication.class)
+                .profiles(profiles)
+                .properties(
+                        "server.port=0",
+                        // El log DEBUG de cada query distorsionaría las medidas
+                        "logging.level.org.springframework.r2dbc=INFO",
+                        "logging.level.io.r2dbc.h2=INFO")
+                .run();
+    }
+}
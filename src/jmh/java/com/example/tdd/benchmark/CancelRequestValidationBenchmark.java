@@ -0,0 +1,66 @@
+package com.example.tdd.benchmark;
+
+import com.example.tdd.presentation.handler.TransactionHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+// Validación de header y path en TransactionHandler.cancelTransaction: son los caminos que
+// rechazan la petición antes de llegar al servicio.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CancelRequestValidationBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private TransactionHandler handler;
+
+    private MockServerRequest missingHeader;
+    private MockServerRequest nonNumericId;
+    private MockServerRequest nonPositiveId;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        handler = context.getBean(TransactionHandler.class);
+        missingHeader = MockServerRequest.builder().pathVariable("id", "1").build();
+        nonNumericId = MockServerRequest.builder().header("idMensaje", "bench").pathVariable("id", "abc").build();
+        nonPositiveId = MockServerRequest.builder().header("idMensaje", "bench").pathVariable("id", "0").build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void missingHeader(Blackhole blackhole) {
+        consume(handler.cancelTransaction(missingHeader), blackhole);
+    }
+
+    @Benchmark
+    public void nonNumericId(Blackhole blackhole) {
+        consume(handler.cancelTransaction(nonNumericId), blackhole);
+    }
+
+    @Benchmark
+    public void nonPositiveId(Blackhole blackhole) {
+        consume(handler.cancelTransaction(nonPositiveId), blackhole);
+    }
+
+    private static void consume(Mono<ServerResponse> response, Blackhole blackhole) {
+        response.subscribe(blackhole::consume, blackhole::consume);
+    }
+}
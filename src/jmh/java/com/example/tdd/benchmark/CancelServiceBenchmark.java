@@ -0,0 +1,86 @@
+package com.example.tdd.benchmark;
+
+import com.example.tdd.domain.service.CancellationOperations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.util.concurrent.TimeUnit;
+
+// Cancelación completa contra H2 en memoria, en los dos modos: "r2dbc" (TransactionService, por defecto)
+// y "jdbc" (JdbcTransactionService: JDBC/HikariCP sobre hilos virtuales). Con -prof gc se comparan también
+// los bytes asignados por cancelación.
+// Antes de cada iteración se siembra un bloque de transacciones PENDING para que cada invocación
+// cancele una transacción distinta y se mida siempre el camino de éxito.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CancelServiceBenchmark {
+
+    private static final int TRANSACTIONS_PER_ITERATION = 200_000;
+
+    private ConfigurableApplicationContext context;
+    @Param({"r2dbc", "jdbc"})
+    public String mode;
+
+    private CancellationOperations cancellationOperations;
+    private DatabaseClient databaseClient;
+
+    private long nextId;
+    private long lastId;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = "jdbc".equals(mode) ? BenchmarkApplication.start("jdbc") : BenchmarkApplication.start();
+        cancellationOperations = context.getBean(CancellationOperations.class);
+        databaseClient = context.getBean(DatabaseClient.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void seedTransactions() {
+        long maxId = databaseClient.sql("SELECT COALESCE(MAX(id), 0) FROM transaction")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+        databaseClient.sql("INSERT INTO transaction (status, amount, currency) " +
+                        "SELECT 'PENDING', 100.00, 'USD' FROM SYSTEM_RANGE(1, " + TRANSACTIONS_PER_ITERATION + ")")
+                .fetch()
+                .rowsUpdated()
+                .block();
+        nextId = maxId + 1;
+        lastId = maxId + TRANSACTIONS_PER_ITERATION;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object cancelPendingTransaction() {
+        if (nextId > lastId) {
+            throw new IllegalStateException("Seeded transactions exhausted; raise TRANSACTIONS_PER_ITERATION");
+        }
+        return cancellationOperations.cancelTransaction(nextId++).block();
+    }
+
+    // Camino de rechazo: el UPDATE condicional no encuentra la fila y se consulta su existencia
+    @Benchmark
+    public void cancelMissingTransaction(Blackhole blackhole) {
+        try {
+            blackhole.consume(cancellationOperations.cancelTransaction(Long.MAX_VALUE).block());
+        } catch (RuntimeException e) {
+            blackhole.consume(e);
+        }
+    }
+}
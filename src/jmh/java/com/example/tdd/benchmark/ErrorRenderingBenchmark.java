@@ -0,0 +1,65 @@
+package com.example.tdd.benchmark;
+
+import com.example.tdd.common.CustomWebExceptionHandler;
+import com.example.tdd.shared.exception.InvalidInputException;
+import com.example.tdd.shared.exception.MissingHeaderException;
+import com.example.tdd.shared.exception.ResourceNotFoundException;
+import com.example.tdd.shared.exception.TransactionProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.util.concurrent.TimeUnit;
+
+// Renderizado completo de la respuesta de error (CustomWebExceptionHandler.renderErrorResponse)
+// por tipo de excepción, incluyendo la creación de la excepción como ocurre en cada petición.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ErrorRenderingBenchmark {
+
+    @Param({"MISSING_HEADER", "INVALID_INPUT", "NOT_FOUND", "CONFLICT", "UNEXPECTED"})
+    public String errorType;
+
+    private ConfigurableApplicationContext context;
+    private CustomWebExceptionHandler exceptionHandler;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        exceptionHandler = context.getBean(CustomWebExceptionHandler.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String renderError() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.patch("/transacciones/1/cancelar").accept(MediaType.APPLICATION_JSON));
+        exceptionHandler.handle(exchange, newError()).block();
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    private RuntimeException newError() {
+        return switch (errorType) {
+            case "MISSING_HEADER" -> new MissingHeaderException("Header 'idMensaje' is mandatory.");
+            case "INVALID_INPUT" -> new InvalidInputException("Transaction ID must be a numeric value.");
+            case "NOT_FOUND" -> new ResourceNotFoundException("Transaction not found with id: 1");
+            case "CONFLICT" -> new TransactionProcessingException("Transaction already cancelled.");
+            default -> new IllegalStateException("Unexpected failure");
+        };
+    }
+}
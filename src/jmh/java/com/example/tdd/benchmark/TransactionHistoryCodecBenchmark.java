@@ -0,0 +1,86 @@
+package com.example.tdd.benchmark;
+
+import com.example.tdd.common.codec.TransactionCbor;
+import com.example.tdd.common.codec.TransactionCborEncoder;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeType;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// JSON (Jackson2JsonEncoder con el ObjectMapper de Spring Boot) frente al formato binario (TransactionCborEncoder)
+// para la respuesta de una cancelación, escribiendo en buffers pooled de Netty como hace el servidor.
+// ns/op es el coste de codificar; los bytes por respuesta de cada formato se imprimen en el setup.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionHistoryCodecBenchmark {
+
+    private static final ResolvableType HISTORY_TYPE = ResolvableType.forClass(TransactionHistory.class);
+
+    @Param({"json", "cbor"})
+    private String format;
+
+    private ConfigurableApplicationContext context;
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+    private Encoder<Object> encoder;
+    private MimeType mimeType;
+    private TransactionHistory history;
+
+    @Setup
+    public void setUp() {
+        history = TransactionHistory.builder()
+                .id(123_456L)
+                .transactionId(987_654L)
+                .previousStatus(TransactionStatus.PENDING)
+                .newStatus(TransactionStatus.CANCELLED)
+                .changeDate(LocalDateTime.of(2024, 5, 17, 10, 15, 30, 123_456_000))
+                .userPerformingAction("SYSTEM")
+                .build();
+        if ("json".equals(format)) {
+            context = BenchmarkApplication.start();
+            encoder = new Jackson2JsonEncoder(context.getBean(ObjectMapper.class));
+            mimeType = MediaType.APPLICATION_JSON;
+        } else {
+            encoder = new TransactionCborEncoder();
+            mimeType = TransactionCbor.MEDIA_TYPE;
+        }
+        System.out.printf("%n%s: %d bytes per cancel response%n", format, encode());
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int encode() {
+        DataBuffer buffer = encoder.encodeValue(history, bufferFactory, HISTORY_TYPE, mimeType, Collections.emptyMap());
+        int size = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return size;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.tdd.benchmark;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// Codificación JSON de TransactionHistory con el ObjectMapper que configura Spring Boot,
+// tanto directa como a través del Jackson2JsonEncoder que usa WebFlux al escribir la respuesta.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionHistoryJsonBenchmark {
+
+    private static final ResolvableType HISTORY_TYPE = ResolvableType.forClass(TransactionHistory.class);
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+    private Jackson2JsonEncoder encoder;
+    private TransactionHistory history;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        objectMapper = context.getBean(ObjectMapper.class);
+        encoder = new Jackson2JsonEncoder(objectMapper);
+        history = TransactionHistory.builder()
+                .id(123_456L)
+                .transactionId(987_654L)
+                .previousStatus(TransactionStatus.PENDING)
+                .newStatus(TransactionStatus.CANCELLED)
+                .changeDate(LocalDateTime.of(2024, 5, 17, 10, 15, 30, 123_456_000))
+                .userPerformingAction("SYSTEM")
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] objectMapper() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public int webFluxEncoder() {
+        DataBuffer buffer = encoder.encodeValue(history, DefaultDataBufferFactory.sharedInstance, HISTORY_TYPE,
+                MediaType.APPLICATION_JSON, Collections.emptyMap());
+        int size = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return size;
+    }
+}
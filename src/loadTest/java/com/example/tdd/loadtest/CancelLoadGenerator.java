@@ -0,0 +1,230 @@
+package com.example.tdd.loadtest;
+
+import com.example.tdd.TddApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Benchmark macro de PATCH /transacciones/{id}/cancelar:
+// 1. arranca TddApplication en un puerto aleatorio y siembra N transacciones PENDING (y algunas CANCELLED),
+// 2. envía peticiones a ritmo constante (modelo abierto: el envío no espera a las respuestas),
+//    mezclando casos de éxito, 404, 409 y 400,
+// 3. imprime y guarda un informe HdrHistogram (p50/p99/p99.9, throughput y reparto de respuestas)
+//    junto con el coste de memoria, y un resumen por modo (r2dbc | jdbc) para la tarea loadTestCompare.
+public final class CancelLoadGenerator {
+
+    private static final String CANCEL_PATH = "/transacciones/{id}/cancelar";
+    private static final int CANCELLED_SEED = 10_000;
+
+    private final LoadTestConfig config;
+    private final LoadTestReport report = new LoadTestReport();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong messageSequence = new AtomicLong();
+    private final LongAdder completed = new LongAdder();
+
+    private long nextPendingId;
+    private long lastPendingId;
+    private long firstCancelledId;
+
+    private CancelLoadGenerator(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        String[] appArgs = new String[config.appArgs().length + 3];
+        appArgs[0] = "--server.port=0";
+        appArgs[1] = "--logging.level.root=WARN";
+        appArgs[2] = "--logging.level.com.example.tdd=WARN";
+        System.arraycopy(config.appArgs(), 0, appArgs, 3, config.appArgs().length);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(TddApplication.class).run(appArgs)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            // Modo de ejecución de la cancelación: perfil "jdbc" o R2DBC por defecto
+            String mode = Arrays.asList(context.getEnvironment().getActiveProfiles()).contains("jdbc") ? "jdbc" : "r2dbc";
+            CancelLoadGenerator generator = new CancelLoadGenerator(config);
+            generator.seed(context.getBean(DatabaseClient.class));
+            Properties summary = new Properties();
+            summary.setProperty("mode", mode);
+            String result = generator.run(port, summary);
+            System.out.println(result);
+            Path reportFile = writeReport(config, result, mode, summary);
+            System.out.println("Report written to " + reportFile);
+        }
+    }
+
+    private void seed(DatabaseClient databaseClient) {
+        long firstPending = insert(databaseClient, "PENDING", config.transactions());
+        nextPendingId = firstPending;
+        lastPendingId = firstPending + config.transactions() - 1;
+        firstCancelledId = insert(databaseClient, "CANCELLED", CANCELLED_SEED);
+        System.out.printf("Seeded %d PENDING and %d CANCELLED transactions%n", config.transactions(), CANCELLED_SEED);
+    }
+
+    private static long insert(DatabaseClient databaseClient, String status, int count) {
+        long maxId = databaseClient.sql("SELECT COALESCE(MAX(id), 0) FROM transaction")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .block();
+        databaseClient.sql("INSERT INTO transaction (status, amount, currency) " +
+                        "SELECT '" + status + "', 100.00, 'USD' FROM SYSTEM_RANGE(1, " + count + ")")
+                .fetch()
+                .rowsUpdated()
+                .block();
+        return maxId + 1;
+    }
+
+    private String run(int port, Properties summary) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("loadtest")
+                .maxConnections(Math.max(16, Math.min(config.maxInFlight(), 2_000)))
+                .pendingAcquireMaxCount(-1)
+                .build();
+        WebClient webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(
+                        HttpClient.create(connectionProvider)))
+                .build();
+
+        try {
+            long periodNanos = 1_000_000_000L / config.ratePerSecond();
+            System.out.printf("Warming up for %ds...%n", config.warmup().toSeconds());
+            drive(webClient, periodNanos, config.warmup());
+            awaitInFlight(Duration.ofSeconds(10));
+            report.reset();
+            completed.reset();
+
+            System.out.printf("Measuring for %ds at %d req/s...%n", config.duration().toSeconds(), config.ratePerSecond());
+            HeapSampler heapSampler = new HeapSampler(inFlight::get);
+            heapSampler.start();
+            long start = System.nanoTime();
+            drive(webClient, periodNanos, config.duration());
+            awaitInFlight(Duration.ofSeconds(30));
+            Duration measured = Duration.ofNanos(System.nanoTime() - start);
+            String memory = heapSampler.stop(completed.sum(), summary);
+            return "Mode               : " + summary.getProperty("mode") + System.lineSeparator()
+                    + report.render(config, measured, summary)
+                    + System.lineSeparator() + memory + System.lineSeparator();
+        } finally {
+            connectionProvider.disposeLater().block();
+        }
+    }
+
+    // Modelo abierto: cada petición tiene un instante de envío previsto (start + i * periodo) y se lanza
+    // aunque las anteriores no hayan terminado; la latencia se mide desde ese instante previsto.
+    private void drive(WebClient webClient, long periodNanos, Duration phase) {
+        long start = System.nanoTime();
+        long end = start + phase.toNanos();
+        for (long i = 0; ; i++) {
+            long intendedStart = start + i * periodNanos;
+            if (intendedStart >= end) {
+                return;
+            }
+            long wait = intendedStart - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            if (inFlight.get() >= config.maxInFlight()) {
+                report.dropped();
+                continue;
+            }
+            send(webClient, nextCase(), intendedStart);
+        }
+    }
+
+    private void send(WebClient webClient, int requestCase, long intendedStart) {
+        WebClient.RequestHeadersSpec<?> request = switch (requestCase) {
+            case LoadTestConfig.SUCCESS -> cancel(webClient, nextPendingIdOrConflict());
+            case LoadTestConfig.NOT_FOUND -> cancel(webClient, String.valueOf(Long.MAX_VALUE - ThreadLocalRandom.current().nextInt(1_000_000)));
+            case LoadTestConfig.CONFLICT -> cancel(webClient, String.valueOf(firstCancelledId + ThreadLocalRandom.current().nextInt(CANCELLED_SEED)));
+            default -> webClient.patch()
+                    .uri(CANCEL_PATH, "abc")
+                    .header("idMensaje", nextMessageId())
+                    .accept(MediaType.APPLICATION_JSON);
+        };
+        int expectedStatus = switch (requestCase) {
+            case LoadTestConfig.SUCCESS -> 200;
+            case LoadTestConfig.NOT_FOUND -> 404;
+            case LoadTestConfig.CONFLICT -> 409;
+            default -> 400;
+        };
+
+        inFlight.incrementAndGet();
+        request.exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .subscribe(
+                        status -> complete(requestCase, String.valueOf(status), status == expectedStatus, intendedStart),
+                        error -> complete(requestCase, error.getClass().getSimpleName(), false, intendedStart));
+    }
+
+    private WebClient.RequestHeadersSpec<?> cancel(WebClient webClient, String id) {
+        return webClient.patch()
+                .uri(CANCEL_PATH, id)
+                .header("idMensaje", nextMessageId())
+                .accept(MediaType.APPLICATION_JSON);
+    }
+
+    private void complete(int requestCase, String outcome, boolean expected, long intendedStart) {
+        report.record(requestCase, outcome, expected, System.nanoTime() - intendedStart);
+        completed.increment();
+        inFlight.decrementAndGet();
+    }
+
+    private int nextCase() {
+        int[] mix = config.mix();
+        int roll = ThreadLocalRandom.current().nextInt(mix[0] + mix[1] + mix[2] + mix[3]);
+        for (int i = 0; i < mix.length; i++) {
+            if (roll < mix[i]) {
+                return i;
+            }
+            roll -= mix[i];
+        }
+        return LoadTestConfig.BAD_REQUEST;
+    }
+
+    // Si se agotan las transacciones sembradas, el "éxito" acabará en 409 y se contará como inesperado
+    private String nextPendingIdOrConflict() {
+        long id = nextPendingId <= lastPendingId ? nextPendingId++ : firstCancelledId;
+        return String.valueOf(id);
+    }
+
+    private String nextMessageId() {
+        return "load-" + messageSequence.incrementAndGet();
+    }
+
+    private void awaitInFlight(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+
+    private static Path writeReport(LoadTestConfig config, String result, String mode, Properties summary) throws IOException {
+        Path directory = Path.of(config.reportDir());
+        Files.createDirectories(directory);
+        // Último resumen de cada modo, con nombre fijo para que loadTestCompare lo encuentre
+        try (var writer = Files.newBufferedWriter(directory.resolve("cancel-" + mode + "-summary.properties"))) {
+            summary.store(writer, "Cancel load test summary");
+        }
+        Path file = directory.resolve("cancel-" + mode + "-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt");
+        return Files.writeString(file, result);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.tdd.loadtest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+// Coste de memoria de la fase medida, para comparar los modos r2dbc y jdbc:
+// - heap por petición en vuelo: heap usado medio por encima de la línea base / peticiones en vuelo medias,
+// - bytes asignados por petición completada (todos los hilos, incluidos los del generador, igual en ambos modos).
+// El generador comparte JVM con la aplicación, así que las cifras son aproximadas pero comparables entre sí.
+final class HeapSampler {
+
+    private static final long SAMPLE_PERIOD_MILLIS = 50;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final IntSupplier inFlight;
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "loadtest-heap-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long baselineHeap;
+    private long allocatedAtStart;
+    private double heapAboveBaselineSum;
+    private double inFlightSum;
+    private long samples;
+
+    HeapSampler(IntSupplier inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    void start() {
+        System.gc(); // Línea base tras el calentamiento: lo que ya vive en el heap no cuenta
+        baselineHeap = memory.getHeapMemoryUsage().getUsed();
+        allocatedAtStart = threads.getTotalThreadAllocatedBytes();
+        sampler.scheduleAtFixedRate(this::sample, SAMPLE_PERIOD_MILLIS, SAMPLE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void sample() {
+        heapAboveBaselineSum += Math.max(0, memory.getHeapMemoryUsage().getUsed() - baselineHeap);
+        inFlightSum += inFlight.getAsInt();
+        samples++;
+    }
+
+    synchronized String stop(long completedRequests, Properties summary) {
+        sampler.shutdownNow();
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedAtStart;
+        double averageInFlight = samples == 0 ? 0 : inFlightSum / samples;
+        double heapPerInFlight = averageInFlight == 0 ? 0 : heapAboveBaselineSum / samples / averageInFlight;
+        double allocatedPerRequest = completedRequests == 0 ? 0 : (double) allocated / completedRequests;
+        summary.setProperty("averageInFlight", String.format("%.1f", averageInFlight));
+        summary.setProperty("heapPerInFlightBytes", String.format("%.0f", heapPerInFlight));
+        summary.setProperty("allocatedPerRequestBytes", String.format("%.0f", allocatedPerRequest));
+        return String.format("Memory%n  average in-flight          %10.1f%n  heap per in-flight request %10.1f KB%n  allocated per request      %10.1f KB",
+                averageInFlight, heapPerInFlight / 1024, allocatedPerRequest / 1024);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.tdd.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+// Parámetros del generador de carga, leídos de las propiedades de sistema loadtest.* que fija la tarea Gradle
+record LoadTestConfig(int ratePerSecond,
+                      Duration duration,
+                      Duration warmup,
+                      int transactions,
+                      int[] mix,
+                      int maxInFlight,
+                      String[] appArgs,
+                      String reportDir) {
+
+    // Orden del mix: éxito (200), no encontrada (404), ya cancelada (409), petición inválida (400)
+    static final int SUCCESS = 0;
+    static final int NOT_FOUND = 1;
+    static final int CONFLICT = 2;
+    static final int BAD_REQUEST = 3;
+
+    static LoadTestConfig fromSystemProperties() {
+        int rate = Integer.getInteger("loadtest.rate", 500);
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup", 5));
+        int[] mix = Arrays.stream(System.getProperty("loadtest.mix", "70,10,10,10").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        if (mix.length != 4 || Arrays.stream(mix).sum() <= 0) {
+            throw new IllegalArgumentException("loadtest.mix must be 4 weights: success,notFound,conflict,badRequest");
+        }
+        // Por defecto se siembran las transacciones justas para que todo el test sea de éxitos reales
+        int transactions = Integer.getInteger("loadtest.transactions", 0);
+        if (transactions <= 0) {
+            long totalRequests = (long) rate * (duration.toSeconds() + warmup.toSeconds());
+            transactions = (int) Math.min(Integer.MAX_VALUE, totalRequests * mix[SUCCESS] / Arrays.stream(mix).sum() + 1_000);
+        }
+        String appArgs = System.getProperty("loadtest.appArgs", "").trim();
+        return new LoadTestConfig(
+                rate,
+                duration,
+                warmup,
+                transactions,
+                mix,
+                Integer.getInteger("loadtest.maxInFlight", 10_000),
+                appArgs.isEmpty() ? new String[0] : appArgs.split("\\s+"),
+                System.getProperty("loadtest.reportDir", "build/reports/loadtest"));
+    }
+}
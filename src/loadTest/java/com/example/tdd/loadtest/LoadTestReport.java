@@ -0,0 +1,95 @@
+package com.example.tdd.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Acumula latencias (en microsegundos, desde el instante PREVISTO de envío para no caer en
+// coordinated omission) y el reparto de códigos de respuesta durante la fase medida.
+final class LoadTestReport {
+
+    private static final String[] CASES = {"success", "notFound", "conflict", "badRequest"};
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Recorder overall = new Recorder(MAX_LATENCY_MICROS, 3);
+    private final Recorder[] perCase = new Recorder[CASES.length];
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final LongAdder unexpected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    LoadTestReport() {
+        for (int i = 0; i < perCase.length; i++) {
+            perCase[i] = new Recorder(MAX_LATENCY_MICROS, 3);
+        }
+    }
+
+    void record(int requestCase, String outcome, boolean expected, long latencyNanos) {
+        long micros = Math.min(MAX_LATENCY_MICROS, Math.max(1, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        overall.recordValue(micros);
+        perCase[requestCase].recordValue(micros);
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        if (!expected) {
+            unexpected.increment();
+        }
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    // Descarta lo registrado durante el calentamiento
+    void reset() {
+        overall.reset();
+        for (Recorder recorder : perCase) {
+            recorder.reset();
+        }
+        outcomes.clear();
+        unexpected.reset();
+        dropped.reset();
+    }
+
+    // summary recibe las cifras principales para comparar ejecuciones (ver la tarea loadTestCompare)
+    String render(LoadTestConfig config, Duration measured, Properties summary) {
+        Histogram total = overall.getIntervalHistogram();
+        summary.setProperty("throughput", String.format("%.1f", total.getTotalCount() / (measured.toNanos() / 1e9)));
+        summary.setProperty("p50Millis", String.valueOf(total.getValueAtPercentile(50) / 1000.0));
+        summary.setProperty("p99Millis", String.valueOf(total.getValueAtPercentile(99) / 1000.0));
+        summary.setProperty("p999Millis", String.valueOf(total.getValueAtPercentile(99.9) / 1000.0));
+        summary.setProperty("unexpected", String.valueOf(unexpected.sum()));
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Target rate        : %d req/s (open model) for %ds after %ds warm-up%n",
+                config.ratePerSecond(), config.duration().toSeconds(), config.warmup().toSeconds()));
+        report.append(String.format("Completed requests : %d%n", total.getTotalCount()));
+        report.append(String.format("Throughput         : %.1f req/s%n", total.getTotalCount() / (measured.toNanos() / 1e9)));
+        report.append(String.format("Dropped (in-flight limit %d): %d%n", config.maxInFlight(), dropped.sum()));
+        report.append(String.format("Unexpected status  : %d%n", unexpected.sum()));
+        report.append(String.format("%nLatency (ms)       %10s %10s %10s %10s %10s %10s%n", "count", "p50", "p90", "p99", "p99.9", "max"));
+        appendRow(report, "all", total);
+        for (int i = 0; i < CASES.length; i++) {
+            appendRow(report, CASES[i], perCase[i].getIntervalHistogram());
+        }
+        report.append(String.format("%nResponse mix%n"));
+        new TreeMap<>(outcomes).forEach((outcome, count) ->
+                report.append(String.format("  %-16s %10d (%.1f%%)%n", outcome, count.sum(),
+                        total.getTotalCount() == 0 ? 0.0 : count.sum() * 100.0 / total.getTotalCount())));
+        return report.toString();
+    }
+
+    private static void appendRow(StringBuilder report, String name, Histogram histogram) {
+        report.append(String.format("  %-16s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                name,
+                histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0));
+    }
+}
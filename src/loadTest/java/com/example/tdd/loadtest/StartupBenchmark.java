@@ -0,0 +1,222 @@
+package com.example.tdd.loadtest;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+// Benchmark de arranque en frío: lanza la aplicación como proceso nuevo (igual que un pod recién creado)
+// en cada modo de ejecución y mide
+// - el tiempo hasta la primera cancelación correcta (PATCH /transacciones/1/cancelar con 200), desde el fork,
+// - la memoria residente (RSS) en ese momento y el pico (VmHWM), leídos de /proc (solo Linux).
+// Modos: jar (java -jar), aot (jar con spring.aot.enabled), cds (jar extraído + archivo CDS),
+// lazy (jar con el perfil "lazy") y native (imagen nativa de GraalVM). Los que no tienen su artefacto se omiten.
+public final class StartupBenchmark {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration POLL_PERIOD = Duration.ofMillis(5);
+
+    private final Properties config;
+    private final Path workDirectory;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    private StartupBenchmark(Properties config, Path workDirectory) {
+        this.config = config;
+        this.workDirectory = workDirectory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path reportDirectory = Path.of(System.getProperty("startup.reportDir", "build/reports/startup"));
+        Path workDirectory = Files.createDirectories(reportDirectory.resolve("work"));
+        StartupBenchmark benchmark = new StartupBenchmark(System.getProperties(), workDirectory);
+        int runs = Integer.getInteger("startup.runs", 5);
+        List<String> modes = Arrays.stream(System.getProperty("startup.modes", "jar,cds").split(","))
+                .map(String::trim)
+                .filter(mode -> !mode.isEmpty())
+                .toList();
+
+        Properties summary = new Properties();
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Cold start, %d runs per mode (median / min)%n", runs));
+        report.append(String.format("%-8s %22s %18s %18s%n", "mode", "first cancel (ms)", "RSS (MiB)", "peak RSS (MiB)"));
+        for (String mode : modes) {
+            List<String> command = benchmark.command(mode);
+            if (command == null) {
+                report.append(String.format("%-8s %22s%n", mode, "skipped (artifact not built)"));
+                continue;
+            }
+            long[] millis = new long[runs];
+            long[] rss = new long[runs];
+            long[] peak = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                Sample sample = benchmark.measure(mode, command, run);
+                millis[run] = sample.firstCancelMillis();
+                rss[run] = sample.rssKib();
+                peak[run] = sample.peakRssKib();
+            }
+            report.append(String.format("%-8s %12d / %7d %9.1f / %6.1f %9.1f / %6.1f%n", mode,
+                    median(millis), min(millis),
+                    median(rss) / 1024.0, min(rss) / 1024.0,
+                    median(peak) / 1024.0, min(peak) / 1024.0));
+            summary.setProperty(mode + ".firstCancelMillis", String.valueOf(median(millis)));
+            summary.setProperty(mode + ".rssKib", String.valueOf(median(rss)));
+            summary.setProperty(mode + ".peakRssKib", String.valueOf(median(peak)));
+        }
+        System.out.print(report);
+
+        try (var writer = Files.newBufferedWriter(reportDirectory.resolve("startup-summary.properties"))) {
+            summary.store(writer, "Startup benchmark summary (medians)");
+        }
+        Path file = reportDirectory.resolve("startup-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".txt");
+        Files.writeString(file, report);
+        System.out.println("Report written to " + file);
+    }
+
+    // Línea de comandos de cada modo, sin los argumentos de la aplicación; null si falta el artefacto
+    private List<String> command(String mode) {
+        String java = config.getProperty("startup.java", "java");
+        String jar = config.getProperty("startup.jar");
+        boolean aot = Boolean.parseBoolean(config.getProperty("startup.aot", "false"));
+        return switch (mode) {
+            case "jar" -> exists(jar) ? List.of(java, "-jar", jar) : null;
+            case "aot" -> aot && exists(jar) ? List.of(java, "-Dspring.aot.enabled=true", "-jar", jar) : null;
+            case "lazy" -> exists(jar) ? List.of(java, "-Dspring.profiles.active=lazy", "-jar", jar) : null;
+            case "cds" -> {
+                String extracted = config.getProperty("startup.cdsJar");
+                String archive = config.getProperty("startup.cdsArchive");
+                if (!exists(extracted) || !exists(archive)) {
+                    yield null;
+                }
+                // Mismas opciones que en el entrenamiento (tarea cdsArchive): si no coinciden, la JVM ignora el archivo
+                List<String> command = new ArrayList<>(List.of(java, "-XX:SharedArchiveFile=" + archive));
+                if (aot) {
+                    command.add("-Dspring.aot.enabled=true");
+                }
+                command.addAll(List.of("-jar", extracted));
+                yield command;
+            }
+            case "native" -> {
+                String image = config.getProperty("startup.nativeImage");
+                yield exists(image) ? List.of(image) : null;
+            }
+            default -> throw new IllegalArgumentException("Unknown startup mode: " + mode + " (jar, aot, cds, lazy, native)");
+        };
+    }
+
+    private Sample measure(String mode, List<String> baseCommand, int run) throws IOException, InterruptedException {
+        int port = freePort();
+        Path runDirectory = Files.createDirectories(workDirectory.resolve(mode + "-" + run));
+        // Una transacción PENDING sembrada por spring.sql.init (no hay ruta de alta)
+        Path seed = Files.writeString(runDirectory.resolve("seed.sql"),
+                "INSERT INTO transaction (id, status, amount, currency) VALUES (1, 'PENDING', 100.00, 'USD');\n");
+        List<String> command = new ArrayList<>(baseCommand);
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--spring.sql.init.data-locations=file:" + seed.toAbsolutePath(),
+                "--tdd.outbox.file=" + runDirectory.resolve("outbox.ndjson").toAbsolutePath(),
+                "--tdd.history.archive-directory=" + runDirectory.resolve("archive").toAbsolutePath(),
+                "--logging.level.root=WARN",
+                "--logging.level.com.example.tdd=WARN"));
+
+        HttpRequest cancel = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/transacciones/1/cancelar"))
+                .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                .header("idMensaje", "startup-" + run)
+                .timeout(Duration.ofSeconds(10))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(runDirectory.resolve("app.log").toFile())
+                .start();
+        try {
+            long deadline = start + STARTUP_TIMEOUT.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Application exited with code " + process.exitValue()
+                            + " in mode " + mode + "; see " + runDirectory.resolve("app.log"));
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException("No successful cancel within " + STARTUP_TIMEOUT + " in mode " + mode);
+                }
+                try {
+                    int status = httpClient.send(cancel, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    if (status == 200) {
+                        break;
+                    }
+                    throw new IllegalStateException("First cancel answered " + status + " in mode " + mode);
+                } catch (ConnectException notListeningYet) {
+                    TimeUnit.NANOSECONDS.sleep(POLL_PERIOD.toNanos());
+                }
+            }
+            long firstCancelMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            long[] memory = residentMemoryKib(process.pid());
+            System.out.printf("%s run %d: first cancel after %d ms, RSS %d KiB%n", mode, run + 1, firstCancelMillis, memory[0]);
+            return new Sample(firstCancelMillis, memory[0], memory[1]);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    // {VmRSS, VmHWM} en KiB; -1 fuera de Linux
+    private static long[] residentMemoryKib(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        long[] memory = {-1, -1};
+        if (!Files.isReadable(status)) {
+            return memory;
+        }
+        for (String line : Files.readAllLines(status)) {
+            if (line.startsWith("VmRSS:")) {
+                memory[0] = kib(line);
+            } else if (line.startsWith("VmHWM:")) {
+                memory[1] = kib(line);
+            }
+        }
+        return memory;
+    }
+
+    private static long kib(String statusLine) {
+        return Long.parseLong(statusLine.replaceAll("[^0-9]", ""));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static boolean exists(String path) {
+        return path != null && !path.isBlank() && Files.exists(Path.of(path));
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static long min(long[] values) {
+        return Arrays.stream(values).min().orElse(-1);
+    }
+
+    private record Sample(long firstCancelMillis, long rssKib, long peakRssKib) {
+    }
+}
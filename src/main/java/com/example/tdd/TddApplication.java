@@ -2,12 +2,18 @@ package com.example.tdd;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
-@SpringBootApplication
+// Sin DataSource ni DataSourceTransactionManager automáticos: el único gestor de transacciones es el de R2DBC
+// y el modo JDBC (perfil "jdbc") declara su propio pool en JdbcModeConfig.
+@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class})
 @EnableR2dbcRepositories // Habilita repositorios R2DBC
 @EnableTransactionManagement // Habilita la gestión de transacciones (para @Transactional)
+@ConfigurationPropertiesScan // Registra las clases @ConfigurationProperties (prefijo tdd.*)
 public class TddApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,106 @@
+package com.example.tdd.common;
+
+import com.example.tdd.config.ConcurrencyLimitProperties;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Límite de concurrencia por gradiente (estilo Gradient2 / TCP Vegas), sin configurar un máximo fijo:
+// - la latencia de referencia es una media móvil larga de las muestras (longWindow);
+// - gradiente = tolerancia * referencia / latencia actual, acotado a [0.5, 1]: con latencia estable el
+//   límite crece sqrt(límite) por muestra, y en cuanto aparece cola (la latencia sube) se reduce;
+// - si hay menos de límite/2 peticiones en vuelo la carga no está limitada por nosotros y no se crece;
+// - un fallo del servidor (5xx, timeout) recorta el límite un 10 %.
+// tryAcquire es un CAS sobre el contador de peticiones en vuelo; la actualización del límite, un bloque
+// sincronizado corto por muestra.
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final ConcurrencyLimitProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private double longRttNanos;
+    private long samples;
+
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitProperties properties) {
+        this.properties = properties;
+        this.limit = properties.initialLimit();
+    }
+
+    // null si no hay hueco: la petición debe rechazarse sin llegar al servicio
+    public Permit tryAcquire() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1, System.nanoTime());
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public synchronized void onSample(long rttNanos, int inFlightAtStart) {
+        samples++;
+        // Arranque: media simple de las primeras muestras; después, media exponencial de la ventana larga
+        double alpha = samples < properties.longWindow() ? 1.0 / samples : 2.0 / (properties.longWindow() + 1);
+        longRttNanos += (rttNanos - longRttNanos) * alpha;
+        // Si la referencia queda muy por encima (pasó una racha lenta) se acerca a la actual para recuperar rápido
+        if (longRttNanos > 2.0 * rttNanos) {
+            longRttNanos *= 0.95;
+        }
+        if (inFlightAtStart < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, properties.rttTolerance() * longRttNanos / Math.max(1, rttNanos)));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - properties.smoothing()) + newLimit * properties.smoothing());
+    }
+
+    public synchronized void onDropped() {
+        limit = clamp(limit * BACKOFF_RATIO);
+    }
+
+    private double clamp(double value) {
+        return Math.max(properties.minLimit(), Math.min(properties.maxLimit(), value));
+    }
+
+    // Una petición admitida: al terminar aporta una muestra de latencia, recorta el límite (fallo del servidor)
+    // o no aporta nada (el cliente canceló)
+    public final class Permit {
+
+        private final int inFlightAtStart;
+        private final long startNanos;
+        private boolean dropped;
+
+        private Permit(int inFlightAtStart, long startNanos) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.startNanos = startNanos;
+        }
+
+        public void markDropped() {
+            dropped = true;
+        }
+
+        public void release(SignalType signal) {
+            inFlight.decrementAndGet();
+            if (signal == SignalType.CANCEL) {
+                return;
+            }
+            if (dropped) {
+                onDropped();
+            } else {
+                onSample(System.nanoTime() - startNanos, inFlightAtStart);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.tdd.common;
+
+import com.example.tdd.config.ConcurrencyLimitProperties;
+import com.example.tdd.shared.exception.ClientErrorException;
+import com.example.tdd.shared.exception.ServiceUnavailableException;
+import com.example.tdd.shared.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+// Protección de carga en las rutas de cambio de estado de una transacción (TransactionRouter): cuando el límite adaptativo
+// está lleno la petición se rechaza al instante con 503 + Retry-After, antes de pedir una conexión al pool.
+// Así la cola de adquisiciones R2DBC no crece sin control y la latencia de las peticiones admitidas se mantiene.
+// El permiso se libera al emitirse el ServerResponse: solo sirve para rutas cuyo trabajo termina antes de
+// responder, no para respuestas en streaming.
+@Component
+public class ConcurrencyLimitFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    public static final String LIMIT_GAUGE = "tdd.concurrency.limit";
+    public static final String IN_FLIGHT_GAUGE = "tdd.concurrency.inflight";
+    public static final String REJECTED_COUNTER = "tdd.concurrency.rejected";
+
+    private final ConcurrencyLimitProperties properties;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ServiceUnavailableException overloaded;
+    private final Counter rejectedCounter;
+
+    public ConcurrencyLimitFilter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.limiter = new AdaptiveConcurrencyLimiter(properties);
+        this.overloaded = new ServiceUnavailableException("Service is overloaded, retry later.", properties.retryAfter());
+        this.rejectedCounter = Counter.builder(REJECTED_COUNTER).register(meterRegistry);
+        Gauge.builder(LIMIT_GAUGE, limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder(IN_FLIGHT_GAUGE, limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        if (!properties.enabled()) {
+            return next.handle(request);
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            rejectedCounter.increment();
+            return Mono.error(overloaded);
+        }
+        return Mono.defer(() -> next.handle(request))
+                .doOnError(error -> {
+                    if (isServerFailure(error)) {
+                        permit.markDropped();
+                    }
+                })
+                .doFinally(permit::release);
+    }
+
+    // Los errores de negocio (400/404/409/429) son respuestas normales y cuentan como muestra de latencia;
+    // un TransactionFailureException (409 que envuelve un fallo técnico) sí es un fallo
+    private static boolean isServerFailure(Throwable error) {
+        return !(error instanceof ClientErrorException || error instanceof TooManyRequestsException);
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.tdd.common;
 
+import com.example.tdd.common.metrics.CancelFlowMetrics;
+import com.example.tdd.config.ErrorHandlingProperties;
 import com.example.tdd.presentation.dto.ErrorResponse;
 import com.example.tdd.shared.exception.InvalidInputException;
 import com.example.tdd.shared.exception.MissingHeaderException;
 import com.example.tdd.shared.exception.ResourceNotFoundException;
+import com.example.tdd.shared.exception.ServiceUnavailableException;
+import com.example.tdd.shared.exception.TooManyRequestsException;
+import com.example.tdd.shared.exception.TransactionFailureException;
 import com.example.tdd.shared.exception.TransactionProcessingException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.web.WebProperties;
@@ -11,6 +16,7 @@ import org.springframework.boot.autoconfigure.web.reactive.error.AbstractErrorWe
 import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerCodecConfigurer;
@@ -19,6 +25,7 @@ import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.*;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Map;
 
@@ -27,10 +34,17 @@ import java.util.Map;
 @Slf4j
 public class CustomWebExceptionHandler extends AbstractErrorWebExceptionHandler {
 
+    private final CancelFlowMetrics cancelFlowMetrics;
+    private final LogRateLimiter clientErrorLogLimiter;
+
     public CustomWebExceptionHandler(ErrorAttributes errorAttributes,
                                      ApplicationContext applicationContext,
-                                     ServerCodecConfigurer serverCodecConfigurer) {
+                                     ServerCodecConfigurer serverCodecConfigurer,
+                                     CancelFlowMetrics cancelFlowMetrics,
+                                     ErrorHandlingProperties errorHandlingProperties) {
         super(errorAttributes, new WebProperties.Resources(), applicationContext);
+        this.cancelFlowMetrics = cancelFlowMetrics;
+        this.clientErrorLogLimiter = new LogRateLimiter(errorHandlingProperties.clientErrorLogsPerSecond());
         super.setMessageWriters(serverCodecConfigurer.getWriters());
         super.setMessageReaders(serverCodecConfigurer.getReaders());
     }
@@ -42,7 +56,6 @@ public class CustomWebExceptionHandler extends AbstractErrorWebExceptionHandler
 
     private Mono<ServerResponse> renderErrorResponse(ServerRequest request) {
         Throwable error = getError(request);
-        log.error("Handling error: {} for request {}", error.getMessage(), request.path(), error);
 
         HttpStatus httpStatus = HttpStatus.INTERNAL_SERVER_ERROR; // Default
         String message = "An unexpected error occurred.";
@@ -53,21 +66,68 @@ public class CustomWebExceptionHandler extends AbstractErrorWebExceptionHandler
         } else if (error instanceof ResourceNotFoundException) {
             httpStatus = HttpStatus.NOT_FOUND;
             message = error.getMessage();
-        } else if (error instanceof TransactionProcessingException) {
+        } else if (error instanceof TransactionProcessingException || error instanceof TransactionFailureException) {
             httpStatus = HttpStatus.CONFLICT; // O podría ser UNPROCESSABLE_ENTITY (422)
             message = error.getMessage();
+        } else if (error instanceof TooManyRequestsException) {
+            httpStatus = HttpStatus.TOO_MANY_REQUESTS;
+            message = error.getMessage();
+        } else if (error instanceof ServiceUnavailableException) {
+            httpStatus = HttpStatus.SERVICE_UNAVAILABLE;
+            message = error.getMessage();
         }
         // Puedes añadir más mapeos de excepciones aquí
 
-        ErrorResponse errorResponse = new ErrorResponse(
-                message,
-                request.path(),
-                httpStatus.value(),
-                LocalDateTime.now()
-        );
+        // El mapeo excepción -> status también se publica como métrica
+        cancelFlowMetrics.recordHttpError(httpStatus.value(), error);
+
+        // Los fallos técnicos (5xx, o un 409 que envuelve un error de infraestructura) se registran con su traza;
+        // los errores del cliente y los rechazos por carga (503), sin stack y limitados por segundo
+        // (las métricas los cuentan todos).
+        boolean failure = httpStatus.is5xxServerError() && !(error instanceof ServiceUnavailableException);
+        if (failure || error.getCause() != null) {
+            log.error("Handling error: {} for request {}", error.getMessage(), request.path(), error);
+        } else {
+            logClientError(httpStatus, error, request);
+        }
+
+        if (failure) {
+            ErrorResponse errorResponse = new ErrorResponse(message, request.path(), httpStatus.value(), LocalDateTime.now());
+            return ServerResponse.status(httpStatus)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromValue(errorResponse));
+        }
 
+        // Camino rápido para 400/404/409/429/503: el cuerpo se escribe directamente en un DataBuffer
         return ServerResponse.status(httpStatus)
+                .headers(headers -> retryAfter(error, headers))
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(errorResponse));
+                .body(ErrorBodyWriter.json(message, request.path(), httpStatus.value(), LocalDateTime.now()));
+    }
+
+    // Retry-After en segundos enteros (mínimo 1) para los rechazos por sobrecarga
+    private static void retryAfter(Throwable error, HttpHeaders headers) {
+        Duration retryAfter = null;
+        if (error instanceof TooManyRequestsException tooManyRequests) {
+            retryAfter = tooManyRequests.getRetryAfter();
+        } else if (error instanceof ServiceUnavailableException serviceUnavailable) {
+            retryAfter = serviceUnavailable.getRetryAfter();
+        }
+        if (retryAfter != null) {
+            headers.set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000)));
+        }
+    }
+
+    private void logClientError(HttpStatus httpStatus, Throwable error, ServerRequest request) {
+        long suppressed = clientErrorLogLimiter.tryAcquire();
+        if (suppressed < 0) {
+            return;
+        }
+        if (suppressed > 0) {
+            log.warn("Client error {}: {} for request {} ({} similar messages suppressed)",
+                    httpStatus.value(), error.getMessage(), request.path(), suppressed);
+        } else {
+            log.warn("Client error {}: {} for request {}", httpStatus.value(), error.getMessage(), request.path());
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.example.tdd.common;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.web.reactive.function.BodyInserter;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+// Serializa el JSON de ErrorResponse directamente en un DataBuffer del servidor (pooled en Netty),
+// sin pasar por Jackson ni por la negociación de codecs de BodyInserters.fromValue.
+// Mismos campos y formato que produciría Jackson: {"message","path","statusCode","timestamp"}.
+public final class ErrorBodyWriter {
+
+    private ErrorBodyWriter() {
+    }
+
+    public static BodyInserter<String, ReactiveHttpOutputMessage> json(String message, String path,
+                                                                         int statusCode, LocalDateTime timestamp) {
+        return (outputMessage, context) -> {
+            byte[] json = encode(message, path, statusCode, timestamp);
+            DataBuffer buffer = outputMessage.bufferFactory().allocateBuffer(json.length);
+            buffer.write(json);
+            return outputMessage.writeWith(Mono.just(buffer));
+        };
+    }
+
+    public static byte[] encode(String message, String path, int statusCode, LocalDateTime timestamp) {
+        StringBuilder json = new StringBuilder(96 + message.length() + path.length());
+        json.append("{\"message\":\"");
+        appendEscaped(json, message);
+        json.append("\",\"path\":\"");
+        appendEscaped(json, path);
+        json.append("\",\"statusCode\":").append(statusCode);
+        json.append(",\"timestamp\":\"");
+        DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(timestamp, json);
+        json.append("\"}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // El path y algunos mensajes incluyen entrada del cliente: se escapan comillas, barras y caracteres de control
+    private static void appendEscaped(StringBuilder json, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.tdd.common;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Limita las trazas a N por ventana de un segundo, sin bloqueos: una avalancha de peticiones
+// inválidas no puede convertir el log en el cuello de botella.
+public class LogRateLimiter {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int permitsPerWindow;
+    private final AtomicLong windowStart;
+    private final AtomicInteger used = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    public LogRateLimiter(int permitsPerWindow) {
+        this.permitsPerWindow = permitsPerWindow;
+        this.windowStart = new AtomicLong(System.nanoTime());
+    }
+
+    // -1 si hay que omitir la traza; en otro caso, cuántas se omitieron desde la última registrada
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            used.set(0);
+        }
+        if (used.incrementAndGet() > permitsPerWindow) {
+            suppressed.increment();
+            return -1;
+        }
+        return suppressed.sumThenReset();
+    }
+}
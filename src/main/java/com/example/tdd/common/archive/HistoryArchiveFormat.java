@@ -0,0 +1,86 @@
+package com.example.tdd.common.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Formato de los ficheros de archivo del historial (.tha), una partición mensual por fichero:
+//
+//   cabecera   MAGIC (int) | VERSION (int)
+//   bloques    N bloques comprimidos con Deflate; cada bloque es columnar (todas las filas de una columna seguidas):
+//              filas (varint) | transaction_id (delta zigzag) | id (delta) | change_date en µs (delta zigzag)
+//              | previous_status (código de diccionario, 1 byte) | new_status (1 byte) | usuario (código varint)
+//   pie        diccionario de estados | diccionario de usuarios | índice de bloques (offset, tamaños, filas,
+//              rango de id, de transaction_id y de change_date) | total de filas
+//   cola       offset del pie (long) | MAGIC (int)
+//
+// Las filas van ordenadas por id, el mismo orden que la consulta del historial: los bloques se leen de uno en uno
+// sin reordenar, la paginación keyset salta por bisección al primer bloque con id > afterId y el índice descarta
+// sin descomprimirlos los bloques que no contienen la transacción o no solapan el rango de fechas.
+final class HistoryArchiveFormat {
+
+    static final int MAGIC = 0x54444841; // "TDHA"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 8;
+    static final int TRAILER_BYTES = 12;
+
+    private HistoryArchiveFormat() {
+    }
+
+    static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    static void writeZigZag(ByteArrayOutputStream out, long value) {
+        writeVarLong(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readZigZag(ByteBuffer in) {
+        long raw = readVarLong(in);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Entrada del índice de bloques (en el pie del fichero)
+    record Block(long offset, int compressedLength, int rawLength, int rows, long minId, long maxId,
+                 long minTransactionId, long maxTransactionId, long minChangeDate, long maxChangeDate) {
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.tdd.common.archive;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.TransactionHistory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.example.tdd.common.archive.HistoryArchiveFormat.Block;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.fromMicros;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.readString;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.readVarLong;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.readZigZag;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.toMicros;
+
+// Lee un fichero de archivo proyectado en memoria (mmap, solo lectura): el sistema operativo pagina bajo demanda
+// únicamente los bloques que se descomprimen. Solo se decodifican los bloques cuyo rango de id, de transaction_id y
+// de change_date solapa la consulta; el índice está ordenado por id y se busca por bisección.
+// Un MappedByteBuffer no pasa de Integer.MAX_VALUE bytes: el fichero se proyecta en ventanas de bloques completos
+// de hasta 'windowBytes', así que un mes de más de 2 GiB se sigue pudiendo leer.
+public final class HistoryArchiveReader implements Closeable {
+
+    public static final long DEFAULT_WINDOW_BYTES = 1L << 30;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final TransactionStatus[] statuses;
+    private final String[] users;
+    private final List<Block> blocks;
+    private final long rows;
+    // Ventana de cada bloque y offset en el fichero de cada ventana
+    private final List<ByteBuffer> windows = new ArrayList<>();
+    private final List<Long> windowOffsets = new ArrayList<>();
+    private final int[] blockWindows;
+
+    private HistoryArchiveReader(Path file, long windowBytes) throws IOException {
+        if (windowBytes <= 0 || windowBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window size must be in (0, " + Integer.MAX_VALUE + "]: " + windowBytes);
+        }
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HistoryArchiveFormat.HEADER_BYTES + HistoryArchiveFormat.TRAILER_BYTES) {
+                throw new IOException("Unsupported archive size " + size + " for " + file);
+            }
+            ByteBuffer header = read(0, HistoryArchiveFormat.HEADER_BYTES);
+            ByteBuffer trailer = read(size - HistoryArchiveFormat.TRAILER_BYTES, HistoryArchiveFormat.TRAILER_BYTES);
+            if (header.getInt(0) != HistoryArchiveFormat.MAGIC || trailer.getInt(Long.BYTES) != HistoryArchiveFormat.MAGIC) {
+                throw new IOException("Not a history archive: " + file);
+            }
+            if (header.getInt(Integer.BYTES) != HistoryArchiveFormat.VERSION) {
+                throw new IOException("Unsupported archive version in " + file);
+            }
+
+            long footerOffset = trailer.getLong(0);
+            long footerLength = size - HistoryArchiveFormat.TRAILER_BYTES - footerOffset;
+            if (footerOffset < HistoryArchiveFormat.HEADER_BYTES || footerLength < 0 || footerLength > Integer.MAX_VALUE) {
+                throw new IOException("Corrupted footer offset " + footerOffset + " in " + file);
+            }
+            ByteBuffer footer = read(footerOffset, (int) footerLength);
+            // Los códigos de estado se resuelven por nombre: el fichero no depende del orden actual del enum
+            this.statuses = new TransactionStatus[(int) readVarLong(footer)];
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = TransactionStatus.valueOf(readString(footer));
+            }
+            this.users = new String[(int) readVarLong(footer)];
+            for (int i = 0; i < users.length; i++) {
+                users[i] = readString(footer);
+            }
+            int blockCount = (int) readVarLong(footer);
+            this.blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(new Block(readVarLong(footer), (int) readVarLong(footer), (int) readVarLong(footer),
+                        (int) readVarLong(footer), readZigZag(footer), readZigZag(footer),
+                        readZigZag(footer), readZigZag(footer), readZigZag(footer), readZigZag(footer)));
+            }
+            this.rows = readVarLong(footer);
+            this.blockWindows = mapWindows(windowBytes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static HistoryArchiveReader open(Path file) throws IOException {
+        return new HistoryArchiveReader(file, DEFAULT_WINDOW_BYTES);
+    }
+
+    public static HistoryArchiveReader open(Path file, long windowBytes) throws IOException {
+        return new HistoryArchiveReader(file, windowBytes);
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public int blockCount() {
+        return blocks.size();
+    }
+
+    public int windowCount() {
+        return windows.size();
+    }
+
+    // Filas en orden de id con id > afterId, el transaction_id indicado y change_date en [from, to) (todos los filtros
+    // son opcionales). Se descomprime un bloque por petición: la memoria no depende del tamaño del fichero. El
+    // lector debe seguir abierto hasta que el Flux termine
+    public Flux<TransactionHistory> scan(Long transactionId, LocalDateTime from, LocalDateTime to, Long afterId) {
+        long fromMicros = from != null ? toMicros(from) : Long.MIN_VALUE;
+        long toMicros = to != null ? toMicros(to) : Long.MAX_VALUE;
+        long minId = afterId != null ? afterId : Long.MIN_VALUE;
+        int first = firstBlockAfter(minId);
+        return Flux.using(Inflater::new,
+                inflater -> Flux.range(first, blocks.size() - first)
+                        .filter(index -> overlaps(blocks.get(index), transactionId, fromMicros, toMicros))
+                        .concatMapIterable(index -> decode(index, inflater, transactionId, fromMicros, toMicros, minId), 1),
+                Inflater::end);
+    }
+
+    // Primer bloque cuyo maxId supera el indicado
+    private int firstBlockAfter(long id) {
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).maxId() <= id) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean overlaps(Block block, Long transactionId, long fromMicros, long toMicros) {
+        return (transactionId == null
+                || (block.minTransactionId() <= transactionId && block.maxTransactionId() >= transactionId))
+                && block.maxChangeDate() >= fromMicros && block.minChangeDate() < toMicros;
+    }
+
+    // Agrupa bloques consecutivos en ventanas de hasta windowBytes (un bloque mayor ocupa una ventana propia) y
+    // las proyecta; devuelve la ventana de cada bloque
+    private int[] mapWindows(long windowBytes) throws IOException {
+        int[] blockWindows = new int[blocks.size()];
+        long start = 0;
+        long end = 0;
+        for (int i = 0; i < blocks.size(); i++) {
+            Block block = blocks.get(i);
+            long blockEnd = block.offset() + block.compressedLength();
+            if (i > 0 && blockEnd - start > windowBytes) {
+                mapWindow(start, end);
+            }
+            if (i == 0 || blockEnd - start > windowBytes) {
+                start = block.offset();
+            }
+            end = blockEnd;
+            blockWindows[i] = windows.size();
+        }
+        if (!blocks.isEmpty()) {
+            mapWindow(start, end);
+        }
+        return blockWindows;
+    }
+
+    private void mapWindow(long start, long end) throws IOException {
+        windows.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+        windowOffsets.add(start);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive " + file);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private List<TransactionHistory> decode(int index, Inflater inflater, Long transactionId, long fromMicros,
+                                            long toMicros, long minId) {
+        Block block = blocks.get(index);
+        ByteBuffer raw = ByteBuffer.allocate(block.rawLength());
+        inflater.reset();
+        int window = blockWindows[index];
+        inflater.setInput(windows.get(window).slice((int) (block.offset() - windowOffsets.get(window)),
+                block.compressedLength()));
+        try {
+            while (raw.hasRemaining() && !inflater.finished()) {
+                inflater.inflate(raw);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted block at offset " + block.offset() + " in " + file, e);
+        }
+        raw.flip();
+
+        int count = (int) readVarLong(raw);
+        long[] transactionIds = new long[count];
+        long[] ids = new long[count];
+        long[] changeDates = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readZigZag(raw);
+            transactionIds[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readVarLong(raw);
+            ids[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readZigZag(raw);
+            changeDates[i] = previous;
+        }
+        int previousStatusStart = raw.position();
+        int newStatusStart = previousStatusStart + count;
+        raw.position(newStatusStart + count);
+        List<TransactionHistory> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String user = users[(int) readVarLong(raw)];
+            if (ids[i] <= minId || (transactionId != null && transactionIds[i] != transactionId)
+                    || changeDates[i] < fromMicros || changeDates[i] >= toMicros) {
+                continue;
+            }
+            result.add(TransactionHistory.builder()
+                    .id(ids[i])
+                    .transactionId(transactionIds[i])
+                    .previousStatus(statuses[raw.get(previousStatusStart + i)])
+                    .newStatus(statuses[raw.get(newStatusStart + i)])
+                    .changeDate(fromMicros(changeDates[i]))
+                    .userPerformingAction(user)
+                    .build());
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // El mapeo se libera cuando el buffer deja de estar referenciado; cerrar el canal no lo invalida
+        channel.close();
+    }
+}
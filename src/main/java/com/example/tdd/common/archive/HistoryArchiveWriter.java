@@ -0,0 +1,197 @@
+package com.example.tdd.common.archive;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.TransactionHistory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import static com.example.tdd.common.archive.HistoryArchiveFormat.Block;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.toMicros;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.writeString;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.writeVarLong;
+import static com.example.tdd.common.archive.HistoryArchiveFormat.writeZigZag;
+
+// Escribe un fichero de archivo (ver HistoryArchiveFormat) por bloques de filas ordenadas por id.
+// Se escribe en un fichero temporal y finish() hace force() y lo mueve atómicamente a su nombre definitivo:
+// un fichero con el nombre final siempre está completo. close() sin finish() descarta el temporal.
+public final class HistoryArchiveWriter implements Closeable {
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final List<Block> blocks = new ArrayList<>();
+    private final Map<String, Integer> users = new HashMap<>();
+    private final List<String> userDictionary = new ArrayList<>();
+    private long position;
+    private long rows;
+    private long lastId = Long.MIN_VALUE;
+    private boolean finished;
+
+    private HistoryArchiveWriter(Path target) throws IOException {
+        this.target = target;
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HistoryArchiveFormat.HEADER_BYTES)
+                .putInt(HistoryArchiveFormat.MAGIC)
+                .putInt(HistoryArchiveFormat.VERSION)
+                .flip();
+        write(header);
+    }
+
+    public static HistoryArchiveWriter create(Path target) throws IOException {
+        return new HistoryArchiveWriter(target);
+    }
+
+    // Cada llamada produce un bloque; el tamaño de bloque lo decide el llamante (p. ej. Flux.buffer(n))
+    public void appendBlock(List<TransactionHistory> histories) throws IOException {
+        if (histories.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(histories.size() * 12);
+        writeVarLong(raw, histories.size());
+
+        long previous = 0;
+        long minTransactionId = Long.MAX_VALUE;
+        long maxTransactionId = Long.MIN_VALUE;
+        for (TransactionHistory history : histories) {
+            long transactionId = history.getTransactionId();
+            writeZigZag(raw, transactionId - previous);
+            previous = transactionId;
+            minTransactionId = Math.min(minTransactionId, transactionId);
+            maxTransactionId = Math.max(maxTransactionId, transactionId);
+        }
+        previous = 0;
+        for (TransactionHistory history : histories) {
+            long id = history.getId();
+            if (id <= lastId) {
+                throw new IllegalArgumentException("Archive rows must be sorted by id");
+            }
+            lastId = id;
+            writeVarLong(raw, id - previous);
+            previous = id;
+        }
+        previous = 0;
+        long minChangeDate = Long.MAX_VALUE;
+        long maxChangeDate = Long.MIN_VALUE;
+        for (TransactionHistory history : histories) {
+            long micros = toMicros(history.getChangeDate());
+            writeZigZag(raw, micros - previous);
+            previous = micros;
+            minChangeDate = Math.min(minChangeDate, micros);
+            maxChangeDate = Math.max(maxChangeDate, micros);
+        }
+        for (TransactionHistory history : histories) {
+            raw.write(history.getPreviousStatus().ordinal());
+        }
+        for (TransactionHistory history : histories) {
+            raw.write(history.getNewStatus().ordinal());
+        }
+        for (TransactionHistory history : histories) {
+            writeVarLong(raw, userCode(history.getUserPerformingAction()));
+        }
+
+        byte[] compressed = deflate(raw.toByteArray());
+        blocks.add(new Block(position, compressed.length, raw.size(), histories.size(),
+                histories.get(0).getId(), histories.get(histories.size() - 1).getId(),
+                minTransactionId, maxTransactionId, minChangeDate, maxChangeDate));
+        write(ByteBuffer.wrap(compressed));
+        rows += histories.size();
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    public Path finish() throws IOException {
+        ByteArrayOutputStream footer = new ByteArrayOutputStream(256 + blocks.size() * 48);
+        TransactionStatus[] statuses = TransactionStatus.values();
+        writeVarLong(footer, statuses.length);
+        for (TransactionStatus status : statuses) {
+            writeString(footer, status.name());
+        }
+        writeVarLong(footer, userDictionary.size());
+        for (String user : userDictionary) {
+            writeString(footer, user);
+        }
+        writeVarLong(footer, blocks.size());
+        for (Block block : blocks) {
+            writeVarLong(footer, block.offset());
+            writeVarLong(footer, block.compressedLength());
+            writeVarLong(footer, block.rawLength());
+            writeVarLong(footer, block.rows());
+            writeZigZag(footer, block.minId());
+            writeZigZag(footer, block.maxId());
+            writeZigZag(footer, block.minTransactionId());
+            writeZigZag(footer, block.maxTransactionId());
+            writeZigZag(footer, block.minChangeDate());
+            writeZigZag(footer, block.maxChangeDate());
+        }
+        writeVarLong(footer, rows);
+
+        long footerOffset = position;
+        write(ByteBuffer.wrap(footer.toByteArray()));
+        write(ByteBuffer.allocate(HistoryArchiveFormat.TRAILER_BYTES)
+                .putLong(footerOffset)
+                .putInt(HistoryArchiveFormat.MAGIC)
+                .flip());
+        channel.force(true);
+        channel.close();
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+        return target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        deflater.end();
+        if (!finished) {
+            channel.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private int userCode(String user) {
+        return users.computeIfAbsent(user, key -> {
+            userDictionary.add(key);
+            return userDictionary.size() - 1;
+        });
+    }
+
+    private byte[] deflate(byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            int length = deflater.deflate(chunk);
+            compressed.write(chunk, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer);
+        }
+    }
+}
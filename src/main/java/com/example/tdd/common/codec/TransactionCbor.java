@@ -0,0 +1,280 @@
+package com.example.tdd.common.codec;
+
+import com.example.tdd.domain.enums.CancellationOutcome;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.presentation.dto.StatusChangeRequest;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Formato binario de las APIs de cancelación e historial (application/vnd.tdd.transaction+cbor).
+// Cada valor es un único elemento CBOR (RFC 8949) y un Flux es una secuencia CBOR (RFC 8742): elementos seguidos,
+// sin separadores. Los objetos son arrays posicionales, sin nombres de campo:
+//
+//   TransactionHistory   [id, transactionId, previousStatus, newStatus, changeDate, userPerformingAction]
+//   CancellationResult   [transactionId, outcome, history | null, reason | null]
+//   StatusChangeRequest  [status]
+//   Long                 entero (cuerpo de POST /transacciones/cancelar)
+//
+// Los enums van como su ordinal (añadir valores solo al final) y las fechas como microsegundos epoch en UTC,
+// igual que el archivo del historial. Los campos ausentes se codifican como null de CBOR.
+public final class TransactionCbor {
+
+    public static final MediaType MEDIA_TYPE = new MediaType("application", "vnd.tdd.transaction+cbor");
+
+    // Tipos mayores de CBOR que usa el formato (3 bits altos de la cabecera)
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1 << 5;
+    private static final int TEXT = 3 << 5;
+    private static final int ARRAY = 4 << 5;
+    private static final int MAJOR_TYPE_MASK = 0xE0;
+    private static final int NULL = 0xF6;
+
+    private static final int HISTORY_FIELDS = 6;
+    private static final int RESULT_FIELDS = 4;
+    private static final int STATUS_CHANGE_FIELDS = 1;
+
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final CancellationOutcome[] OUTCOMES = CancellationOutcome.values();
+
+    private TransactionCbor() {
+    }
+
+    static boolean supports(Class<?> type) {
+        return type == TransactionHistory.class || type == CancellationResult.class
+                || type == StatusChangeRequest.class || type == Long.class;
+    }
+
+    // Tamaño inicial del buffer: lo habitual cabe sin crecer (el DataBuffer se amplía si hace falta)
+    static int estimateSize(Object value) {
+        return value instanceof Long ? 9 : 64;
+    }
+
+    static void write(DataBuffer out, Object value) {
+        if (value instanceof TransactionHistory history) {
+            writeHistory(out, history);
+        } else if (value instanceof CancellationResult result) {
+            writeHead(out, ARRAY, RESULT_FIELDS);
+            writeLong(out, result.transactionId());
+            writeEnum(out, result.outcome());
+            if (result.history() == null) {
+                out.write((byte) NULL);
+            } else {
+                writeHistory(out, result.history());
+            }
+            writeText(out, result.reason());
+        } else if (value instanceof StatusChangeRequest request) {
+            writeHead(out, ARRAY, STATUS_CHANGE_FIELDS);
+            writeEnum(out, request.status());
+        } else if (value instanceof Long number) {
+            writeLong(out, number);
+        } else {
+            throw new IllegalArgumentException("Unsupported type for CBOR encoding: " + value.getClass().getName());
+        }
+    }
+
+    // Lee un elemento completo; si faltan bytes lanza BufferUnderflowException con la posición a medias
+    static Object read(ByteBuffer in, Class<?> type) {
+        if (type == TransactionHistory.class) {
+            return readHistory(in);
+        }
+        if (type == CancellationResult.class) {
+            readArrayHead(in, RESULT_FIELDS);
+            Long transactionId = readLong(in);
+            CancellationOutcome outcome = readEnum(in, OUTCOMES);
+            TransactionHistory history = peekNull(in) ? null : readHistory(in);
+            return new CancellationResult(transactionId, outcome, history, readText(in));
+        }
+        if (type == StatusChangeRequest.class) {
+            readArrayHead(in, STATUS_CHANGE_FIELDS);
+            return new StatusChangeRequest(readEnum(in, STATUSES));
+        }
+        if (type == Long.class) {
+            return readLong(in);
+        }
+        throw new DecodingException("Unsupported type for CBOR decoding: " + type.getName());
+    }
+
+    private static void writeHistory(DataBuffer out, TransactionHistory history) {
+        writeHead(out, ARRAY, HISTORY_FIELDS);
+        writeLong(out, history.getId());
+        writeLong(out, history.getTransactionId());
+        writeEnum(out, history.getPreviousStatus());
+        writeEnum(out, history.getNewStatus());
+        writeLong(out, history.getChangeDate() == null ? null : toMicros(history.getChangeDate()));
+        writeText(out, history.getUserPerformingAction());
+    }
+
+    private static TransactionHistory readHistory(ByteBuffer in) {
+        readArrayHead(in, HISTORY_FIELDS);
+        Long id = readLong(in);
+        Long transactionId = readLong(in);
+        TransactionStatus previousStatus = readEnum(in, STATUSES);
+        TransactionStatus newStatus = readEnum(in, STATUSES);
+        Long changeDate = readLong(in);
+        String user = readText(in);
+        return new TransactionHistory(id, transactionId, previousStatus, newStatus,
+                changeDate == null ? null : fromMicros(changeDate), user);
+    }
+
+    static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    // Cabecera CBOR: tipo mayor + argumento en la forma más corta (0-23 en la propia cabecera, si no 1/2/4/8 bytes)
+    private static void writeHead(DataBuffer out, int majorType, long argument) {
+        if (argument < 24) {
+            out.write((byte) (majorType | argument));
+        } else if (argument < 0x100) {
+            out.write((byte) (majorType | 24));
+            out.write((byte) argument);
+        } else if (argument < 0x1_0000) {
+            out.write((byte) (majorType | 25));
+            writeBigEndian(out, argument, 2);
+        } else if (argument < 0x1_0000_0000L) {
+            out.write((byte) (majorType | 26));
+            writeBigEndian(out, argument, 4);
+        } else {
+            out.write((byte) (majorType | 27));
+            writeBigEndian(out, argument, 8);
+        }
+    }
+
+    private static void writeBigEndian(DataBuffer out, long value, int bytes) {
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((byte) (value >>> shift));
+        }
+    }
+
+    private static void writeLong(DataBuffer out, Long value) {
+        if (value == null) {
+            out.write((byte) NULL);
+        } else if (value >= 0) {
+            writeHead(out, UNSIGNED, value);
+        } else {
+            writeHead(out, NEGATIVE, -1 - value);
+        }
+    }
+
+    private static void writeEnum(DataBuffer out, Enum<?> value) {
+        if (value == null) {
+            out.write((byte) NULL);
+        } else {
+            writeHead(out, UNSIGNED, value.ordinal());
+        }
+    }
+
+    // Los usuarios son ASCII casi siempre: se escriben carácter a carácter sin pasar por un byte[] intermedio
+    private static void writeText(DataBuffer out, String value) {
+        if (value == null) {
+            out.write((byte) NULL);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                writeHead(out, TEXT, utf8.length);
+                out.write(utf8);
+                return;
+            }
+        }
+        writeHead(out, TEXT, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            out.write((byte) value.charAt(i));
+        }
+    }
+
+    private static boolean peekNull(ByteBuffer in) {
+        // La lectura absoluta no comprueba el límite: sin bytes pendientes es un elemento cortado, como en get()
+        if (!in.hasRemaining()) {
+            throw new BufferUnderflowException();
+        }
+        if ((in.get(in.position()) & 0xFF) == NULL) {
+            in.get();
+            return true;
+        }
+        return false;
+    }
+
+    private static long readArgument(ByteBuffer in, int head) {
+        int additional = head & 0x1F;
+        if (additional < 24) {
+            return additional;
+        }
+        return switch (additional) {
+            case 24 -> in.get() & 0xFFL;
+            case 25 -> in.getShort() & 0xFFFFL;
+            case 26 -> in.getInt() & 0xFFFF_FFFFL;
+            case 27 -> in.getLong();
+            default -> throw new DecodingException("Unsupported CBOR additional information: " + additional);
+        };
+    }
+
+    private static void readArrayHead(ByteBuffer in, int expectedFields) {
+        int head = in.get() & 0xFF;
+        if ((head & MAJOR_TYPE_MASK) != ARRAY) {
+            throw new DecodingException("Expected a CBOR array.");
+        }
+        long fields = readArgument(in, head);
+        if (fields != expectedFields) {
+            throw new DecodingException("Expected a CBOR array of " + expectedFields + " elements but found " + fields + ".");
+        }
+    }
+
+    private static Long readLong(ByteBuffer in) {
+        int head = in.get() & 0xFF;
+        if (head == NULL) {
+            return null;
+        }
+        int majorType = head & MAJOR_TYPE_MASK;
+        long argument = readArgument(in, head);
+        if ((majorType != UNSIGNED && majorType != NEGATIVE) || argument < 0) {
+            throw new DecodingException("Expected a CBOR integer within the signed 64-bit range.");
+        }
+        return majorType == UNSIGNED ? argument : -1 - argument;
+    }
+
+    private static <E extends Enum<E>> E readEnum(ByteBuffer in, E[] values) {
+        Long ordinal = readLong(in);
+        if (ordinal == null) {
+            return null;
+        }
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new DecodingException("Unknown " + values[0].getDeclaringClass().getSimpleName() + " ordinal: " + ordinal);
+        }
+        return values[ordinal.intValue()];
+    }
+
+    private static String readText(ByteBuffer in) {
+        int head = in.get() & 0xFF;
+        if (head == NULL) {
+            return null;
+        }
+        if ((head & MAJOR_TYPE_MASK) != TEXT) {
+            throw new DecodingException("Expected a CBOR text string.");
+        }
+        long length = readArgument(in, head);
+        if (length < 0 || length > in.remaining()) {
+            if (length >= 0 && length <= TransactionCborDecoder.MAX_ITEM_BYTES) {
+                throw new BufferUnderflowException();
+            }
+            throw new DecodingException("CBOR text string too long: " + length + " bytes.");
+        }
+        byte[] utf8 = new byte[(int) length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
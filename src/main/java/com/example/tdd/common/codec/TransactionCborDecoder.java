@@ -0,0 +1,119 @@
+package com.example.tdd.common.codec;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Lee valores del formato de TransactionCbor. Un Flux (p. ej. los ids de la cancelación masiva) se decodifica
+// en streaming: cada DataBuffer entrega los elementos completos que contiene y el resto espera al siguiente,
+// así que un elemento partido entre dos buffers no obliga a acumular el cuerpo entero.
+public class TransactionCborDecoder extends AbstractDecoder<Object> {
+
+    // Ningún elemento del formato se acerca a este tamaño: un valor mayor es un cuerpo malformado
+    static final int MAX_ITEM_BYTES = 64 * 1024;
+
+    public TransactionCborDecoder() {
+        super(TransactionCbor.MEDIA_TYPE);
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null && TransactionCbor.MEDIA_TYPE.equalsTypeAndSubtype(mimeType)
+                && TransactionCbor.supports(elementType.toClass());
+    }
+
+    @Override
+    public Flux<Object> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                               MimeType mimeType, Map<String, Object> hints) {
+        Class<?> type = elementType.toClass();
+        return Flux.defer(() -> {
+            Sequence sequence = new Sequence(type);
+            return Flux.from(inputStream)
+                    .concatMapIterable(sequence::items)
+                    .concatWith(Mono.fromRunnable(sequence::complete));
+        });
+    }
+
+    @Override
+    public Mono<Object> decodeToMono(Publisher<DataBuffer> inputStream, ResolvableType elementType,
+                                     MimeType mimeType, Map<String, Object> hints) {
+        return DataBufferUtils.join(inputStream, MAX_ITEM_BYTES)
+                .map(buffer -> decode(buffer, elementType, mimeType, hints));
+    }
+
+    @Override
+    public Object decode(DataBuffer buffer, ResolvableType targetType, MimeType mimeType, Map<String, Object> hints) {
+        try {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            Object value = TransactionCbor.read(in, targetType.toClass());
+            if (in.hasRemaining()) {
+                throw new DecodingException("Unexpected bytes after the CBOR item.");
+            }
+            return value;
+        } catch (BufferUnderflowException e) {
+            throw new DecodingException("Truncated CBOR item.");
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    // Bytes pendientes de un elemento incompleto entre un DataBuffer y el siguiente (una instancia por suscripción)
+    private static final class Sequence {
+
+        private final Class<?> type;
+        private byte[] pending = new byte[0];
+
+        Sequence(Class<?> type) {
+            this.type = type;
+        }
+
+        List<Object> items(DataBuffer buffer) {
+            byte[] bytes;
+            try {
+                int offset = pending.length;
+                bytes = Arrays.copyOf(pending, offset + buffer.readableByteCount());
+                buffer.read(bytes, offset, bytes.length - offset);
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            List<Object> items = new ArrayList<>();
+            while (in.hasRemaining()) {
+                int start = in.position();
+                try {
+                    items.add(TransactionCbor.read(in, type));
+                } catch (BufferUnderflowException incomplete) {
+                    in.position(start);
+                    break;
+                }
+            }
+            pending = Arrays.copyOfRange(bytes, in.position(), bytes.length);
+            if (pending.length > MAX_ITEM_BYTES) {
+                throw new DataBufferLimitException("CBOR item exceeds " + MAX_ITEM_BYTES + " bytes.");
+            }
+            return items;
+        }
+
+        void complete() {
+            if (pending.length > 0) {
+                throw new DecodingException("Truncated CBOR item at the end of the body.");
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.tdd.common.codec;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageEncoder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+// Escribe cada valor (ver TransactionCbor) directamente en un DataBuffer de la fábrica de la respuesta
+// (pooled en Netty), sin ObjectMapper ni byte[] intermedio. Solo se usa cuando el handler fija el tipo
+// application/vnd.tdd.transaction+cbor: sin tipo explícito WebFlux sigue eligiendo JSON.
+public class TransactionCborEncoder extends AbstractEncoder<Object> implements HttpMessageEncoder<Object> {
+
+    public TransactionCborEncoder() {
+        super(TransactionCbor.MEDIA_TYPE);
+    }
+
+    @Override
+    public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+        return mimeType != null && TransactionCbor.MEDIA_TYPE.equalsTypeAndSubtype(mimeType)
+                && TransactionCbor.supports(elementType.toClass());
+    }
+
+    @Override
+    public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory,
+                                   ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        return Flux.from(inputStream).map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    public DataBuffer encodeValue(Object value, DataBufferFactory bufferFactory, ResolvableType valueType,
+                                  MimeType mimeType, Map<String, Object> hints) {
+        DataBuffer buffer = bufferFactory.allocateBuffer(TransactionCbor.estimateSize(value));
+        try {
+            TransactionCbor.write(buffer, value);
+            return buffer;
+        } catch (RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw new EncodingException("Could not encode " + value.getClass().getSimpleName() + " as CBOR", e);
+        }
+    }
+
+    // Cada elemento de un Flux se envía según se codifica, como en NDJSON (p. ej. el historial en streaming)
+    @Override
+    public List<MediaType> getStreamingMediaTypes() {
+        return List.of(TransactionCbor.MEDIA_TYPE);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.tdd.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Timers por etapa del flujo de cancelación, etiquetados por resultado y tipo de excepción.
+// Con ellos se distingue si un pico de p99 viene de la validación, de la base de datos o de la codificación.
+@Component
+@RequiredArgsConstructor
+public class CancelFlowMetrics {
+
+    public static final String STAGE_TIMER = "tdd.cancel.stage";
+    public static final String HTTP_ERRORS_COUNTER = "tdd.http.errors";
+    public static final String BULK_RESULTS_COUNTER = "tdd.cancel.bulk.results";
+
+    // Etapas instrumentadas
+    public static final String STAGE_VALIDATION = "validation";
+    public static final String STAGE_UPDATE = "update";
+    public static final String STAGE_EXISTENCE_CHECK = "existence_check";
+    public static final String STAGE_HISTORY_SAVE = "history_save";
+    public static final String STAGE_ENCODING = "encoding";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    // Cada combinación de etiquetas se registra una sola vez; después solo se busca en el mapa
+    private final Map<StageKey, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<HttpErrorKey, Counter> httpErrorCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> bulkResultCounters = new ConcurrentHashMap<>();
+
+    // Mide una etapa reactiva desde la suscripción hasta su señal de terminación
+    public <T> Mono<T> timeStage(String stage, Mono<T> source) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return source
+                    .doOnSuccess(value -> record(stage, start, value == null ? "empty" : "success", NONE))
+                    .doOnError(error -> record(stage, start, "error", error.getClass().getSimpleName()))
+                    .doOnCancel(() -> record(stage, start, "cancelled", NONE));
+        });
+    }
+
+    // Para etapas síncronas: error == null significa que la etapa terminó bien
+    public void recordStage(String stage, long startNanos, Throwable error) {
+        if (error == null) {
+            record(stage, startNanos, "success", NONE);
+        } else {
+            record(stage, startNanos, "rejected", error.getClass().getSimpleName());
+        }
+    }
+
+    public void recordHttpError(int status, Throwable error) {
+        HttpErrorKey key = new HttpErrorKey(status, error.getClass().getSimpleName());
+        Counter counter = httpErrorCounters.get(key);
+        if (counter == null) {
+            counter = httpErrorCounters.computeIfAbsent(key, k -> Counter.builder(HTTP_ERRORS_COUNTER)
+                    .tag("status", String.valueOf(k.status()))
+                    .tag("exception", k.exception())
+                    .register(meterRegistry));
+        }
+        counter.increment();
+    }
+
+    public void recordBulkResult(String outcome) {
+        Counter counter = bulkResultCounters.get(outcome);
+        if (counter == null) {
+            counter = bulkResultCounters.computeIfAbsent(outcome, k -> Counter.builder(BULK_RESULTS_COUNTER)
+                    .tag("outcome", k)
+                    .register(meterRegistry));
+        }
+        counter.increment();
+    }
+
+    private void record(String stage, long startNanos, String outcome, String exception) {
+        StageKey key = new StageKey(stage, outcome, exception);
+        Timer timer = stageTimers.get(key);
+        if (timer == null) {
+            timer = stageTimers.computeIfAbsent(key, k -> Timer.builder(STAGE_TIMER)
+                    .tag("stage", k.stage())
+                    .tag("outcome", k.outcome())
+                    .tag("exception", k.exception())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private record StageKey(String stage, String outcome, String exception) {
+    }
+
+    private record HttpErrorKey(int status, String exception) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.tdd.common.metrics;
+
+import com.example.tdd.config.ReactorRuntimeProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.client.ReactorResourceFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Métricas por event loop del servidor HTTP, etiquetadas con su índice (loop=0..n-1):
+// - tdd.eventloop.pending.tasks: tareas en cola,
+// - tdd.eventloop.task.delay: retraso entre encolar una tarea de sondeo y que el loop la ejecute.
+// Un loop con retraso alto y cola creciente está saturado (o bloqueado); si todos lo están, faltan núcleos.
+// Cada 'eventLoopProbeInterval' se encola una sola sonda por loop: mientras no se ejecute no se encola otra,
+// así un loop parado no acumula sondas y su retraso aparece completo cuando se recupera.
+@Component
+@Slf4j
+public class EventLoopMetrics implements SmartLifecycle {
+
+    public static final String PENDING_TASKS_GAUGE = "tdd.eventloop.pending.tasks";
+    public static final String TASK_DELAY_TIMER = "tdd.eventloop.task.delay";
+
+    private final ReactorResourceFactory resourceFactory;
+    private final ReactorRuntimeProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<Probe> probes = new ArrayList<>();
+    private volatile Disposable loop;
+
+    public EventLoopMetrics(ReactorResourceFactory resourceFactory,
+                            ReactorRuntimeProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.resourceFactory = resourceFactory;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void start() {
+        LoopResources loopResources = resourceFactory.getLoopResources();
+        if (loopResources == null) {
+            log.info("Reactor Netty loop resources not available; event-loop metrics disabled");
+            return;
+        }
+        // Mismo grupo que usa el servidor (nativo si está disponible): DefaultLoopResources lo crea una sola vez
+        EventLoopGroup group = loopResources.onServer(LoopResources.DEFAULT_NATIVE);
+        int index = 0;
+        for (EventExecutor executor : group) {
+            probes.add(new Probe(executor, String.valueOf(index++)));
+        }
+        loop = Flux.interval(properties.eventLoopProbeInterval())
+                .onBackpressureDrop()
+                .subscribe(tick -> probes.forEach(Probe::send));
+        log.info("Event-loop metrics started for {} loops (probe interval {})", probes.size(), properties.eventLoopProbeInterval());
+    }
+
+    @Override
+    public void stop() {
+        Disposable running = loop;
+        if (running != null) {
+            running.dispose();
+        }
+        loop = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return loop != null && !loop.isDisposed();
+    }
+
+    private final class Probe {
+
+        private final EventExecutor executor;
+        private final Timer delay;
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+
+        Probe(EventExecutor executor, String index) {
+            this.executor = executor;
+            this.delay = Timer.builder(TASK_DELAY_TIMER)
+                    .tag("loop", index)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            Gauge.builder(PENDING_TASKS_GAUGE, executor, Probe::pendingTasks)
+                    .tag("loop", index)
+                    .register(meterRegistry);
+        }
+
+        void send() {
+            if (executor.isShuttingDown() || !inFlight.compareAndSet(false, true)) {
+                return;
+            }
+            long enqueued = System.nanoTime();
+            try {
+                executor.execute(() -> {
+                    delay.record(System.nanoTime() - enqueued, TimeUnit.NANOSECONDS);
+                    inFlight.set(false);
+                });
+            } catch (RejectedExecutionException shuttingDown) {
+                inFlight.set(false);
+            }
+        }
+
+        private static double pendingTasks(EventExecutor executor) {
+            return executor instanceof SingleThreadEventExecutor loop ? loop.pendingTasks() : Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.tdd.common.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+// Mide la etapa de codificación de la respuesta: desde que el handler entrega el ServerResponse
+// (marca HANDLED_AT_ATTRIBUTE) hasta que la respuesta se confirma, que ocurre con el cuerpo ya codificado.
+@Component
+@RequiredArgsConstructor
+public class ResponseEncodingMetricsFilter implements WebFilter {
+
+    public static final String HANDLED_AT_ATTRIBUTE = ResponseEncodingMetricsFilter.class.getName() + ".handledAt";
+
+    private final CancelFlowMetrics cancelFlowMetrics;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        exchange.getResponse().beforeCommit(() -> {
+            Long handledAt = exchange.getAttribute(HANDLED_AT_ATTRIBUTE);
+            if (handledAt != null) {
+                cancelFlowMetrics.recordStage(CancelFlowMetrics.STAGE_ENCODING, handledAt, null);
+            }
+            return Mono.empty();
+        });
+        return chain.filter(exchange);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.tdd.common.outbox;
+
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.service.ChangeEventSink;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Destino en memoria para tests y entornos locales: conserva solo los últimos eventos publicados
+public class InMemoryChangeEventSink implements ChangeEventSink {
+
+    private static final int CAPACITY = 10_000;
+
+    private final Deque<TransactionHistory> events = new ArrayDeque<>();
+
+    @Override
+    public Mono<Void> publish(List<TransactionHistory> batch) {
+        return Mono.fromRunnable(() -> {
+            synchronized (events) {
+                for (TransactionHistory event : batch) {
+                    if (events.size() == CAPACITY) {
+                        events.removeFirst();
+                    }
+                    events.addLast(event);
+                }
+            }
+        });
+    }
+
+    public List<TransactionHistory> getEvents() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+}
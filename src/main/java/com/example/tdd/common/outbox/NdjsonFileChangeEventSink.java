@@ -0,0 +1,67 @@
+package com.example.tdd.common.outbox;
+
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.service.ChangeEventSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Añade cada lote como líneas NDJSON a un fichero local y hace force() antes de confirmar,
+// de modo que un lote solo se borra del outbox cuando ya está en disco.
+@Slf4j
+public class NdjsonFileChangeEventSink implements ChangeEventSink {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final Scheduler blockingScheduler;
+
+    public NdjsonFileChangeEventSink(Path file, ObjectMapper objectMapper, Scheduler blockingScheduler) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @Override
+    public Mono<Void> publish(List<TransactionHistory> events) {
+        // E/S bloqueante: fuera del event loop
+        return Mono.fromRunnable(() -> append(events))
+                .subscribeOn(blockingScheduler)
+                .then();
+    }
+
+    private void append(List<TransactionHistory> events) {
+        try {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream(events.size() * 192);
+            for (TransactionHistory event : events) {
+                objectMapper.writeValue(lines, event);
+                lines.write('\n');
+            }
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            log.debug("Appended {} change events to {}", events.size(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append change events to " + file, e);
+        }
+    }
+}
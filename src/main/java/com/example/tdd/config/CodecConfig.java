@@ -0,0 +1,21 @@
+package com.example.tdd.config;
+
+import com.example.tdd.common.codec.TransactionCborDecoder;
+import com.example.tdd.common.codec.TransactionCborEncoder;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Formato binario (application/vnd.tdd.transaction+cbor) junto a los codecs por defecto. Spring Boot aplica los
+// CodecCustomizer al ServerCodecConfigurer de WebFlux y también a WebClient / WebTestClient.
+@Configuration
+public class CodecConfig {
+
+    @Bean
+    public CodecCustomizer transactionCborCodecCustomizer() {
+        return configurer -> {
+            configurer.customCodecs().register(new TransactionCborEncoder());
+            configurer.customCodecs().register(new TransactionCborDecoder());
+        };
+    }
+}
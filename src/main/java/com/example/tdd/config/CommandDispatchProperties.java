@@ -0,0 +1,14 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Cola serializada por transacción: número de stripes, comandos admitidos por stripe (en cola + en ejecución)
+// y el Retry-After que se devuelve con el 429 cuando una stripe está llena
+@ConfigurationProperties("tdd.dispatch")
+public record CommandDispatchProperties(@DefaultValue("64") int stripes,
+                                        @DefaultValue("256") int maxQueueDepth,
+                                        @DefaultValue("1s") Duration retryAfter) {
+}
@@ -0,0 +1,20 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Límite de concurrencia adaptativo de las rutas de cambio de estado: límite inicial y extremos, suavizado,
+// tolerancia de la latencia reciente frente a la de referencia, ventana (en muestras) de esa referencia
+// y Retry-After del 503
+@ConfigurationProperties("tdd.concurrency-limit")
+public record ConcurrencyLimitProperties(@DefaultValue("true") boolean enabled,
+                                         @DefaultValue("20") int initialLimit,
+                                         @DefaultValue("4") int minLimit,
+                                         @DefaultValue("200") int maxLimit,
+                                         @DefaultValue("0.2") double smoothing,
+                                         @DefaultValue("1.5") double rttTolerance,
+                                         @DefaultValue("600") int longWindow,
+                                         @DefaultValue("1s") Duration retryAfter) {
+}
@@ -0,0 +1,37 @@
+package com.example.tdd.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Abre las conexiones iniciales del pool (spring.r2dbc.pool.initial-size) durante el arranque.
+// Los ApplicationRunner se ejecutan antes de que la aplicación se publique como lista (readiness),
+// así la primera petición tras un despliegue no paga el coste de establecer conexiones.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class ConnectionPoolWarmup implements ApplicationRunner {
+
+    private static final Duration WARMUP_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ConnectionFactory connectionFactory;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (connectionFactory instanceof ConnectionPool pool) {
+            Integer created = pool.warmup().block(WARMUP_TIMEOUT);
+            log.info("R2DBC connection pool warmed up: {} connections created", created);
+        } else {
+            log.info("R2DBC connection factory is not pooled; skipping warm-up");
+        }
+    }
+}
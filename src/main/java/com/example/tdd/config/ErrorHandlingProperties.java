@@ -0,0 +1,9 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// Errores del cliente (4xx): cuántos se registran por segundo como máximo; el resto solo se cuenta
+@ConfigurationProperties("tdd.errors")
+public record ErrorHandlingProperties(@DefaultValue("10") int clientErrorLogsPerSecond) {
+}
@@ -0,0 +1,18 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Group commit de cancelaciones (opcional): tamaño máximo del grupo, espera máxima para completarlo,
+// cuántos grupos pueden estar confirmándose a la vez y cuántas cancelaciones pueden esperar en total
+// (encoladas o en un grupo sin confirmar) antes de rechazar con 503 y Retry-After
+@ConfigurationProperties("tdd.group-commit")
+public record GroupCommitProperties(@DefaultValue("false") boolean enabled,
+                                    @DefaultValue("64") int maxBatchSize,
+                                    @DefaultValue("2ms") Duration window,
+                                    @DefaultValue("4") int maxConcurrentFlushes,
+                                    @DefaultValue("4096") int maxPending,
+                                    @DefaultValue("1s") Duration retryAfter) {
+}
@@ -0,0 +1,21 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Particiones mensuales de transaction_history: meses que se conservan, meses que se crean por adelantado
+// y cada cuánto se ejecuta el mantenimiento (crear las próximas, archivar y eliminar las caducadas).
+// Con archiveEnabled las particiones caducadas se exportan a archiveDirectory antes de eliminarlas.
+// partitionRefreshInterval: cada cuánto se relee la lista de particiones (las que creen o eliminen otras instancias).
+@ConfigurationProperties("tdd.history")
+public record HistoryPartitionProperties(@DefaultValue("24") int retentionMonths,
+                                         @DefaultValue("1") int premakeMonths,
+                                         @DefaultValue("1h") Duration maintenanceInterval,
+                                         @DefaultValue("true") boolean archiveEnabled,
+                                         @DefaultValue("archive/history") Path archiveDirectory,
+                                         @DefaultValue("4096") int archiveBlockRows,
+                                         @DefaultValue("1m") Duration partitionRefreshInterval) {
+}
@@ -0,0 +1,12 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Cache en memoria de respuestas por idMensaje: tamaño máximo y tiempo de vida de cada entrada
+@ConfigurationProperties("tdd.idempotency")
+public record IdempotencyProperties(@DefaultValue("100000") long maxSize,
+                                    @DefaultValue("10m") Duration ttl) {
+}
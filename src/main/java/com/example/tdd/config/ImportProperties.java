@@ -0,0 +1,17 @@
+package com.example.tdd.config;
+
+import com.example.tdd.domain.enums.ImportFormat;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+// Importación masiva: filas por INSERT multi-fila, INSERTs en vuelo a la vez y rechazos que se devuelven de muestra.
+// file: fichero que se importa al arrancar (TransactionImportRunner); format se deduce de su extensión si no se indica.
+@ConfigurationProperties("tdd.import")
+public record ImportProperties(@DefaultValue("500") int batchSize,
+                               @DefaultValue("4") int concurrency,
+                               @DefaultValue("100") int maxRejectionSamples,
+                               Path file,
+                               ImportFormat format) {
+}
@@ -0,0 +1,38 @@
+package com.example.tdd.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+// Perfil "jdbc": DataSource HikariCP y transacciones programáticas para JdbcTransactionService.
+// DataSourceAutoConfiguration y DataSourceTransactionManagerAutoConfiguration están excluidas (TddApplication):
+// el DataSourceTransactionManager no se publica como bean, así @Transactional sigue resolviendo
+// sin ambigüedad al R2dbcTransactionManager y solo TransactionTemplate usa el de JDBC.
+@Configuration
+@Profile("jdbc")
+public class JdbcModeConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource jdbcDataSource(JdbcModeProperties properties) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("tdd-jdbc");
+        config.setJdbcUrl(properties.url());
+        config.setUsername(properties.username());
+        config.setPassword(properties.password());
+        config.setMaximumPoolSize(properties.maxPoolSize());
+        config.setMinimumIdle(properties.maxPoolSize()); // Pool fijo, igual que el de R2DBC tras el warm-up
+        config.setConnectionTimeout(properties.connectionTimeout().toMillis());
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    public TransactionTemplate jdbcTransactionTemplate(DataSource jdbcDataSource) {
+        return new TransactionTemplate(new DataSourceTransactionManager(jdbcDataSource));
+    }
+}
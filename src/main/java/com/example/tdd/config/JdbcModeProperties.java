@@ -0,0 +1,15 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Modo JDBC (perfil "jdbc"): pool HikariCP sobre la misma base H2 en memoria que usa R2DBC
+@ConfigurationProperties("tdd.jdbc")
+public record JdbcModeProperties(@DefaultValue("jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE") String url,
+                                 @DefaultValue("sa") String username,
+                                 @DefaultValue("") String password,
+                                 @DefaultValue("20") int maxPoolSize,
+                                 @DefaultValue("2s") Duration connectionTimeout) {
+}
@@ -0,0 +1,31 @@
+package com.example.tdd.config;
+
+import com.example.tdd.domain.repository.TransactionStore;
+import com.example.tdd.domain.repository.memory.InMemoryTransactionStore;
+import com.example.tdd.domain.repository.memory.WalTransactionStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+
+// Perfil "memory": transacciones e historial en un TransactionStore en proceso en lugar de en la base de datos.
+// StoreTransactionRepository y StoreTransactionHistoryRepository (@Primary) sustituyen a los repositorios de
+// Spring Data, así que TransactionService y el resto de servicios no cambian. H2 sigue siendo necesario para lo que
+// no es del motor (processed_message, outbox_event y las particiones que gestiona el mantenimiento), que sigue
+// confirmando el R2dbcTransactionManager de siempre. El motor no participa en esa transacción: sus cambios se
+// aplican al momento y, si la transacción se revierte, los repositorios los deshacen (StoreRollback).
+@Configuration
+@Profile("memory")
+public class MemoryModeConfig {
+
+    @Bean
+    public TransactionStore transactionStore(MemoryModeProperties properties) throws IOException {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        if (properties.walFile() == null) {
+            return store;
+        }
+        return new WalTransactionStore(store, properties.walFile(), Math.toIntExact(properties.walSegmentSize().toBytes()),
+                properties.walSyncInterval());
+    }
+}
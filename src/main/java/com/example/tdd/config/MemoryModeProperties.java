@@ -0,0 +1,17 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Modo en memoria (perfil "memory"): transacciones e historial en InMemoryTransactionStore.
+// walFile: write-ahead log mapeado en memoria para sobrevivir a reinicios (sin él, el estado se pierde al parar);
+// se mapea en segmentos de walSegmentSize y se fuerza a disco cada walSyncInterval.
+@ConfigurationProperties("tdd.memory")
+public record MemoryModeProperties(Path walFile,
+                                   @DefaultValue("64MB") DataSize walSegmentSize,
+                                   @DefaultValue("1s") Duration walSyncInterval) {
+}
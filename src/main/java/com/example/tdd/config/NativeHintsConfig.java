@@ -0,0 +1,39 @@
+package com.example.tdd.config;
+
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionTotals;
+import com.example.tdd.presentation.dto.ErrorResponse;
+import com.example.tdd.presentation.dto.StatusChangeRequest;
+import com.example.tdd.presentation.dto.TransactionStatisticsResponse;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+// Pistas de reflexión para la imagen nativa (gradle nativeCompile -Pnative): las rutas funcionales leen y escriben
+// estos tipos con Jackson vía bodyToMono / bodyValue, y el AOT de Spring solo los descubre en controladores anotados.
+// En la JVM (incluido el modo AOT + CDS) no tienen efecto.
+@Configuration(proxyBeanMethods = false)
+@ImportRuntimeHints(NativeHintsConfig.JsonBindingHints.class)
+public class NativeHintsConfig {
+
+    static class JsonBindingHints implements RuntimeHintsRegistrar {
+
+        private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            bindingRegistrar.registerReflectionHints(hints.reflection(),
+                    Transaction.class,
+                    TransactionHistory.class,
+                    CancellationResult.class,
+                    StatusChangeRequest.class,
+                    TransactionStatisticsResponse.class,
+                    TransactionTotals.class,
+                    ErrorResponse.class);
+        }
+    }
+}
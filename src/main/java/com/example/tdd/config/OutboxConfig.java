@@ -0,0 +1,35 @@
+package com.example.tdd.config;
+
+import com.example.tdd.common.outbox.InMemoryChangeEventSink;
+import com.example.tdd.common.outbox.NdjsonFileChangeEventSink;
+import com.example.tdd.domain.service.ChangeEventSink;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+
+import java.nio.file.Path;
+
+// Selección del destino de eventos (tdd.outbox.sink). Cualquier otro ChangeEventSink declarado
+// como bean (p. ej. un productor de Kafka) sustituye a estos.
+@Configuration
+public class OutboxConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(ChangeEventSink.class)
+    @ConditionalOnProperty(name = "tdd.outbox.sink", havingValue = "memory")
+    public InMemoryChangeEventSink inMemoryChangeEventSink() {
+        return new InMemoryChangeEventSink();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(ChangeEventSink.class)
+    @ConditionalOnProperty(name = "tdd.outbox.sink", havingValue = "file", matchIfMissing = true)
+    public NdjsonFileChangeEventSink ndjsonFileChangeEventSink(OutboxProperties properties, ObjectMapper objectMapper,
+                                                               Scheduler blockingScheduler) {
+        Path file = properties.file() != null ? properties.file() : Path.of("outbox", "transaction-events.ndjson");
+        return new NdjsonFileChangeEventSink(file, objectMapper, blockingScheduler);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Relay del outbox: tamaño de lote, espera máxima entre sondeos y destino de los eventos (file | memory)
+@ConfigurationProperties("tdd.outbox")
+public record OutboxProperties(@DefaultValue("true") boolean enabled,
+                               @DefaultValue("100") int batchSize,
+                               @DefaultValue("200ms") Duration linger,
+                               @DefaultValue("file") String sink,
+                               Path file) {
+}
@@ -0,0 +1,43 @@
+package com.example.tdd.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorResourceFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+// Recursos de Reactor Netty y de Reactor dimensionados por configuración (tdd.reactor.*) en lugar de los globales.
+// El servidor y el WebClient comparten este ReactorResourceFactory (sustituye al de Spring Boot), que crea los
+// event loops y el pool de conexiones al arrancar y los libera al parar.
+@Configuration
+public class ReactorRuntimeConfig {
+
+    private static final String EVENT_LOOP_PREFIX = "tdd-http";
+
+    @Bean
+    public ReactorResourceFactory reactorResourceFactory(ReactorRuntimeProperties properties) {
+        ReactorResourceFactory factory = new ReactorResourceFactory();
+        factory.setUseGlobalResources(false);
+        int threads = properties.eventLoopThreads() > 0 ? properties.eventLoopThreads() : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        factory.setLoopResourcesSupplier(() -> LoopResources.create(EVENT_LOOP_PREFIX, threads, true));
+        // metrics(true): gauges reactor.netty.connection.provider.* (activas, pendientes, inactivas) en Micrometer
+        factory.setConnectionProviderSupplier(() -> ConnectionProvider.builder(EVENT_LOOP_PREFIX)
+                .maxConnections(properties.clientMaxConnections())
+                .pendingAcquireTimeout(properties.clientPendingAcquireTimeout())
+                .maxIdleTime(properties.clientMaxIdleTime())
+                .metrics(true)
+                .build());
+        return factory;
+    }
+
+    // Scheduler acotado para la E/S bloqueante: un atasco del disco deja como mucho boundedElasticMaxThreads
+    // hilos parados y boundedElasticMaxQueuedTasks tareas en cola (las siguientes se rechazan) sin tocar el
+    // Schedulers.boundedElastic() global que usan las librerías
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(ReactorRuntimeProperties properties) {
+        return Schedulers.newBoundedElastic(properties.boundedElasticMaxThreads(),
+                properties.boundedElasticMaxQueuedTasks(), "tdd-blocking");
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Hilos de Reactor Netty y de Reactor:
+// - eventLoopThreads: event loops del servidor y del cliente HTTP (0 = los de Reactor Netty, max(núcleos, 4)),
+// - client*: pool de conexiones del cliente HTTP (WebClient),
+// - boundedElastic*: scheduler de la E/S bloqueante (archivo del historial, fichero del outbox),
+// - eventLoopProbeInterval: cada cuánto se mide el retraso y la cola de cada event loop (tdd.eventloop.*).
+@ConfigurationProperties("tdd.reactor")
+public record ReactorRuntimeProperties(@DefaultValue("0") int eventLoopThreads,
+                                       @DefaultValue("100") int clientMaxConnections,
+                                       @DefaultValue("10s") Duration clientPendingAcquireTimeout,
+                                       @DefaultValue("30s") Duration clientMaxIdleTime,
+                                       @DefaultValue("32") int boundedElasticMaxThreads,
+                                       @DefaultValue("10000") int boundedElasticMaxQueuedTasks,
+                                       @DefaultValue("1s") Duration eventLoopProbeInterval) {
+}
@@ -0,0 +1,12 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Agregados en memoria por estado y moneda: cada cuánto se recalculan contra la base de datos
+// (la primera pasada, al arrancar, los siembra)
+@ConfigurationProperties("tdd.statistics")
+public record StatisticsProperties(@DefaultValue("5m") Duration reconcileInterval) {
+}
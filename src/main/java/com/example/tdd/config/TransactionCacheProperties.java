@@ -0,0 +1,12 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Cache de lectura de transacciones: tamaño máximo y tiempo de vida de cada entrada
+@ConfigurationProperties("tdd.transaction-cache")
+public record TransactionCacheProperties(@DefaultValue("10000") long maxSize,
+                                         @DefaultValue("30s") Duration ttl) {
+}
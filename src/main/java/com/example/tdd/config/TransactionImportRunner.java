@@ -0,0 +1,49 @@
+package com.example.tdd.config;
+
+import com.example.tdd.domain.enums.ImportFormat;
+import com.example.tdd.domain.model.ImportReport;
+import com.example.tdd.domain.service.TransactionImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+// Importación desde un fichero local al arrancar: --tdd.import.file=settlement.csv [--tdd.import.format=CSV].
+// Para una ejecución solo de importación, sin servidor HTTP: --spring.main.web-application-type=none.
+// Sin tdd.import.file no hace nada.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionImportRunner implements ApplicationRunner {
+
+    private final TransactionImportService transactionImportService;
+    private final ImportProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Path file = properties.file();
+        if (file == null) {
+            return;
+        }
+        ImportFormat format = properties.format() != null ? properties.format() : formatOf(file);
+        ImportReport report = transactionImportService.importFile(file, format).block();
+        if (report != null && report.rejected() > 0) {
+            report.rejections().forEach(rejection ->
+                    log.warn("Rejected line {}: {}", rejection.line(), rejection.reason()));
+        }
+    }
+
+    private static ImportFormat formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".csv")) {
+            return ImportFormat.CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return ImportFormat.NDJSON;
+        }
+        throw new IllegalStateException("Cannot infer import format of " + file + "; set tdd.import.format (NDJSON or CSV)");
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.tdd.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+// Reintentos ante conflictos de versión (bloqueo optimista de transaction): intentos totales, backoff exponencial
+// entre minBackoff y maxBackoff y fracción de jitter (0..1) para que los reintentos concurrentes no se sincronicen
+@ConfigurationProperties("tdd.version-retry")
+public record VersionRetryProperties(@DefaultValue("4") int maxAttempts,
+                                     @DefaultValue("2ms") Duration minBackoff,
+                                     @DefaultValue("50ms") Duration maxBackoff,
+                                     @DefaultValue("0.5") double jitter) {
+}
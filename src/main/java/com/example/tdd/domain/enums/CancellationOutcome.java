@@ -0,0 +1,9 @@
+package com.example.tdd.domain.enums;
+
+public enum CancellationOutcome {
+    CANCELLED,
+    NOT_FOUND,
+    ALREADY_CANCELLED,
+    // Un TransitionGuard rechazó la cancelación (motivo en CancellationResult.reason)
+    REJECTED
+}
@@ -0,0 +1,7 @@
+package com.example.tdd.domain.enums;
+
+// Formatos de la importación masiva: una transacción por línea
+public enum ImportFormat {
+    NDJSON, // {"status":"PENDING","amount":100.00,"currency":"USD"}
+    CSV     // PENDING,100.00,USD (cabecera status,amount,currency opcional)
+}
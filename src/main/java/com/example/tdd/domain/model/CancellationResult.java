@@ -0,0 +1,25 @@
+package com.example.tdd.domain.model;
+
+import com.example.tdd.domain.enums.CancellationOutcome;
+
+// Resultado por id de una cancelación masiva; history solo viene informado si outcome es CANCELLED
+// y reason solo si es REJECTED
+public record CancellationResult(Long transactionId, CancellationOutcome outcome, TransactionHistory history,
+                                 String reason) {
+
+    public static CancellationResult cancelled(TransactionHistory history) {
+        return new CancellationResult(history.getTransactionId(), CancellationOutcome.CANCELLED, history, null);
+    }
+
+    public static CancellationResult notFound(Long transactionId) {
+        return new CancellationResult(transactionId, CancellationOutcome.NOT_FOUND, null, null);
+    }
+
+    public static CancellationResult alreadyCancelled(Long transactionId) {
+        return new CancellationResult(transactionId, CancellationOutcome.ALREADY_CANCELLED, null, null);
+    }
+
+    public static CancellationResult rejected(Long transactionId, String reason) {
+        return new CancellationResult(transactionId, CancellationOutcome.REJECTED, null, reason);
+    }
+}
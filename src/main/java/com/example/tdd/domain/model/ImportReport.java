@@ -0,0 +1,10 @@
+package com.example.tdd.domain.model;
+
+import java.util.List;
+
+// Resultado de una importación: filas insertadas y rechazadas, ritmo y una muestra de los rechazos (los primeros N)
+public record ImportReport(long accepted, long rejected, long elapsedMillis, double rowsPerSecond, List<Rejection> rejections) {
+
+    public record Rejection(long line, String reason) {
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.tdd.domain.model;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("outbox_event") // Eventos de cambio pendientes de publicar (patrón transactional outbox)
+public class OutboxEvent {
+
+    @Id
+    private Long id;
+
+    // Copia del registro de historial: el relay no depende de que su partición siga existiendo
+    @Column("history_id")
+    private Long historyId;
+
+    @Column("transaction_id")
+    private Long transactionId;
+
+    @Column("previous_status")
+    private TransactionStatus previousStatus;
+
+    @Column("new_status")
+    private TransactionStatus newStatus;
+
+    @Column("change_date")
+    private LocalDateTime changeDate;
+
+    @Column("user_performing_action")
+    private String userPerformingAction;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    public TransactionHistory toHistory() {
+        return TransactionHistory.builder()
+                .id(historyId)
+                .transactionId(transactionId)
+                .previousStatus(previousStatus)
+                .newStatus(newStatus)
+                .changeDate(changeDate)
+                .userPerformingAction(userPerformingAction)
+                .build();
+    }
+}
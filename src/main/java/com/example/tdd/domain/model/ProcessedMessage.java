@@ -0,0 +1,60 @@
+package com.example.tdd.domain.model;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("processed_message") // Registro durable de los idMensaje ya procesados, con la respuesta original
+public class ProcessedMessage {
+
+    @Id
+    @Column("id_mensaje")
+    private String idMensaje;
+
+    @Column("transaction_id")
+    private Long transactionId;
+
+    @Column("history_id")
+    private Long historyId;
+
+    @Column("previous_status")
+    private TransactionStatus previousStatus;
+
+    @Column("new_status")
+    private TransactionStatus newStatus;
+
+    @Column("change_date")
+    private LocalDateTime changeDate;
+
+    @Column("user_performing_action")
+    private String userPerformingAction;
+
+    @Column("processed_at")
+    private LocalDateTime processedAt;
+
+    public static ProcessedMessage of(String idMensaje, TransactionHistory history, LocalDateTime processedAt) {
+        return new ProcessedMessage(idMensaje, history.getTransactionId(), history.getId(), history.getPreviousStatus(),
+                history.getNewStatus(), history.getChangeDate(), history.getUserPerformingAction(), processedAt);
+    }
+
+    // La respuesta se reconstruye desde esta fila: no depende de que la partición del historial siga existiendo
+    public TransactionHistory toHistory() {
+        return TransactionHistory.builder()
+                .id(historyId)
+                .transactionId(transactionId)
+                .previousStatus(previousStatus)
+                .newStatus(newStatus)
+                .changeDate(changeDate)
+                .userPerformingAction(userPerformingAction)
+                .build();
+    }
+}
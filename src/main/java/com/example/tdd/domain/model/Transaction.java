@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.relational.core.mapping.Table;
 import com.example.tdd.domain.enums.TransactionStatus;
 
@@ -20,4 +21,13 @@ public class Transaction {
     private TransactionStatus status;
     private BigDecimal amount; // Campo de ejemplo
     private String currency; // Campo de ejemplo
+    // Bloqueo optimista: cada cambio de estado la incrementa; save() de una entidad obsoleta falla con
+    // OptimisticLockingFailureException en lugar de sobrescribir el cambio concurrente
+    @Version
+    private Long version;
+
+    // Alta sin versión: Spring Data la trata como nueva e inserta version = 0
+    public Transaction(Long id, TransactionStatus status, BigDecimal amount, String currency) {
+        this(id, status, amount, currency, null);
+    }
 }
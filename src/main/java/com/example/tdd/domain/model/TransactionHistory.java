@@ -15,7 +15,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table("transaction_history") // Nombre de la tabla en la base de datos
+@Table("transaction_history") // Nombre lógico: las filas viven en particiones mensuales (ver HistoryPartitionRouter)
 public class TransactionHistory {
 
     @Id
@@ -0,0 +1,15 @@
+package com.example.tdd.domain.model;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+
+import java.time.LocalDateTime;
+
+// Filtros opcionales (null = sin filtrar) para la consulta de historial.
+// La paginación es por keyset: se devuelven los registros con id > afterId ordenados por id.
+public record TransactionHistoryFilter(Long transactionId,
+                                       TransactionStatus status,
+                                       LocalDateTime from,
+                                       LocalDateTime to,
+                                       Long afterId,
+                                       Integer limit) {
+}
@@ -0,0 +1,9 @@
+package com.example.tdd.domain.model;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+
+// Número de transacciones y suma de importes para un estado y una moneda (currency null: sin moneda)
+public record TransactionTotals(TransactionStatus status, String currency, Long transactionCount, BigDecimal totalAmount) {
+}
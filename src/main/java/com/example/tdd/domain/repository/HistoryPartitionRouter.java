@@ -0,0 +1,173 @@
+package com.example.tdd.domain.repository;
+
+import com.example.tdd.config.HistoryPartitionProperties;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Enrutado del historial a tablas mensuales transaction_history_yyyyMM según change_date.
+// - El id lleva el mes en sus dígitos altos (yyyyMM * 10^12 + secuencia global): findById va directo a su
+//   partición y el orden por id coincide con el orden cronológico de las particiones (keyset entre particiones).
+// - Las consultas por rango de fechas o por afterId solo leen las particiones que pueden contener filas.
+// - La retención elimina particiones completas con DROP TABLE (O(1)) en lugar de un DELETE masivo.
+// El DDL se ejecuta en una conexión propia: en H2 un CREATE/DROP confirmaría la transacción del llamante.
+// Las particiones no llevan FK a transaction: crearla bloquearía la tabla padre mientras haya cancelaciones
+// abiertas sobre ella (el servicio ya comprueba que la transacción existe antes de escribir el historial).
+@Component
+@Slf4j
+public class HistoryPartitionRouter {
+
+    public static final String TABLE_PREFIX = "transaction_history_";
+    public static final String SEQUENCE = "transaction_history_seq";
+    private static final long MONTH_MULTIPLIER = 1_000_000_000_000L; // 10^12 ids por mes
+    private static final Pattern PARTITION_NAME = Pattern.compile("TRANSACTION_HISTORY_(\\d{4})(\\d{2})");
+
+    private final ConnectionFactory connectionFactory;
+    private final NavigableSet<YearMonth> partitions = new ConcurrentSkipListSet<>();
+    private final AtomicLong localChanges = new AtomicLong();
+    private final Mono<NavigableSet<YearMonth>> known;
+
+    public HistoryPartitionRouter(ConnectionFactory connectionFactory, HistoryPartitionProperties properties) {
+        this.connectionFactory = connectionFactory;
+        // Lo que crea o elimina esta instancia se aplica al conjunto en el acto; lo que hagan otras instancias se ve
+        // al releer INFORMATION_SCHEMA cada 'partitionRefreshInterval'. Un fallo de lectura no se cachea: la
+        // siguiente llamada lo reintenta en lugar de repetir el mismo error para siempre
+        this.known = Mono.defer(this::loadPartitions)
+                .cache(all -> properties.partitionRefreshInterval(), error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    private Mono<NavigableSet<YearMonth>> loadPartitions() {
+        long changesBefore = localChanges.get();
+        return withConnection(connection -> Flux.from(connection.createStatement(
+                                "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE 'TRANSACTION_HISTORY_%'")
+                        .execute())
+                        .flatMap(result -> result.map((row, metadata) -> row.get(0, String.class)))
+                        .collectList())
+                .map(names -> {
+                    Set<YearMonth> found = new HashSet<>();
+                    for (String name : names) {
+                        Matcher matcher = PARTITION_NAME.matcher(name);
+                        if (matcher.matches()) {
+                            found.add(YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))));
+                        }
+                    }
+                    // Si esta instancia creó o eliminó una partición durante la lectura, la lectura puede ser anterior
+                    // al cambio: se conserva el conjunto local y se reconcilia en el siguiente refresco
+                    if (localChanges.get() == changesBefore) {
+                        partitions.retainAll(found);
+                        partitions.addAll(found);
+                    }
+                    log.debug("Found {} transaction_history partitions", partitions.size());
+                    return partitions;
+                });
+    }
+
+    public static YearMonth monthOf(LocalDateTime changeDate) {
+        return YearMonth.from(changeDate);
+    }
+
+    public static YearMonth monthOfId(long id) {
+        long yearMonth = id / MONTH_MULTIPLIER;
+        return YearMonth.of((int) (yearMonth / 100), (int) (yearMonth % 100));
+    }
+
+    // Primer id posible de un mes: base del id compuesto (yyyyMM * 10^12)
+    public static long idBase(YearMonth month) {
+        return (month.getYear() * 100L + month.getMonthValue()) * MONTH_MULTIPLIER;
+    }
+
+    public static String tableFor(YearMonth month) {
+        return TABLE_PREFIX + month.getYear() + String.format("%02d", month.getMonthValue());
+    }
+
+    // Particiones existentes en orden cronológico
+    public Mono<List<YearMonth>> partitions() {
+        return known.map(List::copyOf);
+    }
+
+    // Poda: particiones que pueden contener filas con change_date en [from, to) y id > afterId
+    public Mono<List<YearMonth>> partitionsFor(LocalDateTime from, LocalDateTime to, Long afterId) {
+        YearMonth first = from != null ? monthOf(from) : null;
+        if (afterId != null && afterId >= MONTH_MULTIPLIER) {
+            YearMonth ofAfterId = monthOfId(afterId);
+            first = first == null || ofAfterId.isAfter(first) ? ofAfterId : first;
+        }
+        YearMonth last = to != null ? monthOf(to.minusNanos(1)) : null;
+        YearMonth lower = first;
+        return known.map(all -> all.stream()
+                .filter(month -> lower == null || !month.isBefore(lower))
+                .filter(month -> last == null || !month.isAfter(last))
+                .toList());
+    }
+
+    public Mono<Void> ensurePartition(YearMonth month) {
+        return known.flatMap(all -> all.contains(month) ? Mono.empty() : createPartition(month));
+    }
+
+    private Mono<Void> createPartition(YearMonth month) {
+        return execute(createPartitionStatements(month).toArray(String[]::new))
+                .doOnSuccess(done -> partitionCreated(month));
+    }
+
+    // DDL idempotente de una partición; el modo JDBC lo ejecuta con su propio DataSource
+    public static List<String> createPartitionStatements(YearMonth month) {
+        String table = tableFor(month);
+        return List.of(
+                "CREATE TABLE IF NOT EXISTS " + table + " (" +
+                "id BIGINT PRIMARY KEY, " +
+                "transaction_id BIGINT NOT NULL, " +
+                "previous_status VARCHAR(50) NOT NULL, " +
+                "new_status VARCHAR(50) NOT NULL, " +
+                "change_date TIMESTAMP NOT NULL, " +
+                "user_performing_action VARCHAR(100) NOT NULL)",
+                "CREATE INDEX IF NOT EXISTS idx_" + table + "_tx_date ON " + table + " (transaction_id, change_date)",
+                "CREATE INDEX IF NOT EXISTS idx_" + table + "_change_date ON " + table + " (change_date)");
+    }
+
+    // Partición creada por esta instancia (aquí o por JdbcTransactionHistoryRepository): las lecturas enrutan a ella
+    // en el acto, sin esperar al siguiente refresco
+    public void partitionCreated(YearMonth month) {
+        localChanges.incrementAndGet();
+        if (partitions.add(month)) {
+            log.info("Created history partition {}", tableFor(month));
+        }
+    }
+
+    public Mono<Void> dropPartition(YearMonth month) {
+        String table = tableFor(month);
+        // Se quita primero del conjunto: las consultas nuevas dejan de enrutar a la tabla que se va a eliminar
+        return known.then(Mono.fromRunnable(() -> {
+                    localChanges.incrementAndGet();
+                    partitions.remove(month);
+                }))
+                .then(execute("DROP TABLE IF EXISTS " + table))
+                .doOnSuccess(done -> log.info("Dropped history partition {}", table));
+    }
+
+    private Mono<Void> execute(String... statements) {
+        return withConnection(connection -> Flux.fromArray(statements)
+                .concatMap(sql -> Flux.from(connection.createStatement(sql).execute())
+                        .flatMap(result -> result.getRowsUpdated()))
+                .then());
+    }
+
+    private <T> Mono<T> withConnection(Function<Connection, Mono<T>> work) {
+        return Mono.usingWhen(Mono.from(connectionFactory.create()), work, Connection::close);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.tdd.domain.repository;
+
+import com.example.tdd.domain.model.OutboxEvent;
+import com.example.tdd.domain.model.TransactionHistory;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxEventRepository extends ReactiveCrudRepository<OutboxEvent, Long> {
+
+    // Un único INSERT ... SELECT por cancelación (o por lote en la cancelación masiva). Cada columna llega como
+    // un array paralelo: el evento se copia entero en la fila y el relay no vuelve a leer el historial
+    @Modifying
+    @Query("INSERT INTO outbox_event (history_id, transaction_id, previous_status, new_status, change_date, " +
+           "user_performing_action, created_at) " +
+           "SELECT t.history_id, t.transaction_id, t.previous_status, t.new_status, t.change_date, " +
+           "t.user_performing_action, LOCALTIMESTAMP " +
+           "FROM UNNEST(ARRAY[:historyIds], ARRAY[:transactionIds], ARRAY[:previousStatuses], ARRAY[:newStatuses], " +
+           "ARRAY[:changeDates], ARRAY[:users]) " +
+           "AS t(history_id, transaction_id, previous_status, new_status, change_date, user_performing_action)")
+    Mono<Integer> insertEvents(@Param("historyIds") List<Long> historyIds,
+                               @Param("transactionIds") List<Long> transactionIds,
+                               @Param("previousStatuses") List<String> previousStatuses,
+                               @Param("newStatuses") List<String> newStatuses,
+                               @Param("changeDates") List<LocalDateTime> changeDates,
+                               @Param("users") List<String> users);
+
+    default Mono<Integer> insertForHistories(List<TransactionHistory> histories) {
+        return insertEvents(histories.stream().map(TransactionHistory::getId).toList(),
+                histories.stream().map(TransactionHistory::getTransactionId).toList(),
+                histories.stream().map(history -> history.getPreviousStatus().name()).toList(),
+                histories.stream().map(history -> history.getNewStatus().name()).toList(),
+                histories.stream().map(TransactionHistory::getChangeDate).toList(),
+                histories.stream().map(TransactionHistory::getUserPerformingAction).toList());
+    }
+
+    // Los eventos publicados se borran: la tabla solo contiene pendientes y la consulta es un recorrido de la PK
+    @Query("SELECT * FROM outbox_event ORDER BY id LIMIT :limit")
+    Flux<OutboxEvent> findPending(@Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM outbox_event WHERE id IN (:ids)")
+    Mono<Integer> deleteByIds(@Param("ids") Collection<Long> ids);
+}
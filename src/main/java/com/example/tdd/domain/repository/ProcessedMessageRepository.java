@@ -0,0 +1,74 @@
+package com.example.tdd.domain.repository;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.ProcessedMessage;
+import com.example.tdd.domain.model.TransactionHistory;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface ProcessedMessageRepository extends ReactiveCrudRepository<ProcessedMessage, String> {
+
+    // INSERT explícito: con el id ya informado, save() intentaría un UPDATE
+    @Modifying
+    @Query("INSERT INTO processed_message (id_mensaje, transaction_id, history_id, previous_status, new_status, " +
+           "change_date, user_performing_action, processed_at) " +
+           "VALUES (:idMensaje, :transactionId, :historyId, :previousStatus, :newStatus, " +
+           ":changeDate, :userPerformingAction, :processedAt)")
+    Mono<Integer> insert(@Param("idMensaje") String idMensaje,
+                         @Param("transactionId") Long transactionId,
+                         @Param("historyId") Long historyId,
+                         @Param("previousStatus") TransactionStatus previousStatus,
+                         @Param("newStatus") TransactionStatus newStatus,
+                         @Param("changeDate") LocalDateTime changeDate,
+                         @Param("userPerformingAction") String userPerformingAction,
+                         @Param("processedAt") LocalDateTime processedAt);
+
+    default Mono<Integer> insert(String idMensaje, TransactionHistory history, LocalDateTime processedAt) {
+        return insert(idMensaje, history.getTransactionId(), history.getId(), history.getPreviousStatus(),
+                history.getNewStatus(), history.getChangeDate(), history.getUserPerformingAction(), processedAt);
+    }
+
+    // Group commit: los registros de todos los llamantes del grupo en un único INSERT ... SELECT, con cada columna
+    // como un array paralelo (igual que OutboxEventRepository.insertEvents)
+    @Modifying
+    @Query("INSERT INTO processed_message (id_mensaje, transaction_id, history_id, previous_status, new_status, " +
+           "change_date, user_performing_action, processed_at) " +
+           "SELECT t.id_mensaje, t.transaction_id, t.history_id, t.previous_status, t.new_status, t.change_date, " +
+           "t.user_performing_action, :processedAt " +
+           "FROM UNNEST(ARRAY[:idMensajes], ARRAY[:transactionIds], ARRAY[:historyIds], ARRAY[:previousStatuses], " +
+           "ARRAY[:newStatuses], ARRAY[:changeDates], ARRAY[:users]) " +
+           "AS t(id_mensaje, transaction_id, history_id, previous_status, new_status, change_date, user_performing_action)")
+    Mono<Integer> insertMessages(@Param("idMensajes") List<String> idMensajes,
+                                 @Param("transactionIds") List<Long> transactionIds,
+                                 @Param("historyIds") List<Long> historyIds,
+                                 @Param("previousStatuses") List<String> previousStatuses,
+                                 @Param("newStatuses") List<String> newStatuses,
+                                 @Param("changeDates") List<LocalDateTime> changeDates,
+                                 @Param("users") List<String> users,
+                                 @Param("processedAt") LocalDateTime processedAt);
+
+    default Mono<Integer> insertAll(Map<String, TransactionHistory> histories, LocalDateTime processedAt) {
+        List<String> idMensajes = List.copyOf(histories.keySet());
+        List<TransactionHistory> values = idMensajes.stream().map(histories::get).toList();
+        return insertMessages(idMensajes,
+                values.stream().map(TransactionHistory::getTransactionId).toList(),
+                values.stream().map(TransactionHistory::getId).toList(),
+                values.stream().map(history -> history.getPreviousStatus().name()).toList(),
+                values.stream().map(history -> history.getNewStatus().name()).toList(),
+                values.stream().map(TransactionHistory::getChangeDate).toList(),
+                values.stream().map(TransactionHistory::getUserPerformingAction).toList(),
+                processedAt);
+    }
+
+    // Retención alineada con las particiones del historial (ver HistoryPartitionMaintenance)
+    @Modifying
+    @Query("DELETE FROM processed_message WHERE processed_at < :cutoff")
+    Mono<Integer> deleteProcessedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,170 @@
+package com.example.tdd.domain.repository;
+
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.SEQUENCE;
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.idBase;
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.monthOf;
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.tableFor;
+
+// Historial sobre R2DBC: todas las lecturas y escrituras se enrutan a la partición mensual por change_date
+// (escrituras) o por id / rango de fechas (lecturas).
+@Repository
+@RequiredArgsConstructor
+public class R2dbcTransactionHistoryRepository implements TransactionHistoryRepository {
+
+    private static final String COLUMNS = "(id, transaction_id, previous_status, new_status, change_date, user_performing_action)";
+
+    private final DatabaseClient databaseClient;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final HistoryPartitionRouter partitionRouter;
+
+    @Override
+    public <S extends TransactionHistory> Mono<S> save(S history) {
+        YearMonth month = monthOf(history.getChangeDate());
+        // El id se compone en la misma sentencia (base del mes + secuencia) y se lee con FINAL TABLE
+        String sql = "SELECT id FROM FINAL TABLE (INSERT INTO " + tableFor(month) + " " + COLUMNS + " " +
+                "VALUES (" + idBase(month) + " + NEXT VALUE FOR " + SEQUENCE + ", " +
+                ":transactionId, :previousStatus, :newStatus, :changeDate, :userPerformingAction))";
+        return partitionRouter.ensurePartition(month)
+                .then(databaseClient.sql(sql)
+                        .bind("transactionId", history.getTransactionId())
+                        .bind("previousStatus", history.getPreviousStatus().name())
+                        .bind("newStatus", history.getNewStatus().name())
+                        .bind("changeDate", history.getChangeDate())
+                        .bind("userPerformingAction", history.getUserPerformingAction())
+                        .map(row -> row.get(0, Long.class))
+                        .one())
+                .map(id -> {
+                    history.setId(id);
+                    return history;
+                });
+    }
+
+    @Override
+    public Flux<TransactionHistory> saveAllBatched(List<TransactionHistory> histories) {
+        if (histories.isEmpty()) {
+            return Flux.empty();
+        }
+        // Normalmente todo el lote cae en el mismo mes; si cruza un cambio de mes se hace un batch por partición
+        Map<YearMonth, List<TransactionHistory>> byMonth = new LinkedHashMap<>();
+        for (TransactionHistory history : histories) {
+            byMonth.computeIfAbsent(monthOf(history.getChangeDate()), month -> new ArrayList<>()).add(history);
+        }
+        return Flux.fromIterable(byMonth.entrySet())
+                .concatMap(entry -> insertBatch(entry.getKey(), entry.getValue()))
+                .thenMany(Flux.fromIterable(histories));
+    }
+
+    private Mono<Void> insertBatch(YearMonth month, List<TransactionHistory> histories) {
+        String sql = "INSERT INTO " + tableFor(month) + " " + COLUMNS + " VALUES ($1, $2, $3, $4, $5, $6)";
+        long base = idBase(month);
+        return partitionRouter.ensurePartition(month)
+                .then(allocateSequenceValues(histories.size()))
+                // inConnectionMany usa la conexión de la transacción reactiva en curso, si la hay
+                .flatMap(sequenceValues -> databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(sql);
+                    for (int i = 0; i < histories.size(); i++) {
+                        if (i > 0) {
+                            statement.add();
+                        }
+                        TransactionHistory history = histories.get(i);
+                        history.setId(base + sequenceValues.get(i));
+                        statement.bind(0, history.getId())
+                                .bind(1, history.getTransactionId())
+                                .bind(2, history.getPreviousStatus().name())
+                                .bind(3, history.getNewStatus().name())
+                                .bind(4, history.getChangeDate())
+                                .bind(5, history.getUserPerformingAction());
+                    }
+                    return Flux.from(statement.execute()).flatMap(result -> result.getRowsUpdated());
+                }).then());
+    }
+
+    // Reserva n valores de la secuencia en una sola consulta (la secuencia tiene CACHE, no toca disco por valor)
+    private Mono<List<Long>> allocateSequenceValues(int count) {
+        return databaseClient.sql("SELECT NEXT VALUE FOR " + SEQUENCE + " FROM SYSTEM_RANGE(1, :count)")
+                .bind("count", count)
+                .map(row -> row.get(0, Long.class))
+                .all()
+                .collectList();
+    }
+
+    @Override
+    public Flux<TransactionHistory> findByFilter(TransactionHistoryFilter filter) {
+        Criteria criteria = Criteria.empty();
+        if (filter.afterId() != null) {
+            criteria = criteria.and("id").greaterThan(filter.afterId());
+        }
+        if (filter.transactionId() != null) {
+            criteria = criteria.and("transactionId").is(filter.transactionId());
+        }
+        if (filter.status() != null) {
+            criteria = criteria.and("newStatus").is(filter.status());
+        }
+        if (filter.from() != null) {
+            criteria = criteria.and("changeDate").greaterThanOrEquals(filter.from());
+        }
+        if (filter.to() != null) {
+            criteria = criteria.and("changeDate").lessThan(filter.to());
+        }
+
+        // Keyset (WHERE id > :afterId ORDER BY id) en lugar de OFFSET: el coste por página no crece con la profundidad.
+        // Los ids crecen con el mes, así que concatenar las particiones en orden cronológico mantiene el orden global
+        Query query = Query.query(criteria).sort(Sort.by("id"));
+        if (filter.limit() != null) {
+            query = query.limit(filter.limit());
+        }
+        Query partitionQuery = query;
+        Flux<TransactionHistory> histories = partitionRouter.partitionsFor(filter.from(), filter.to(), filter.afterId())
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(month -> entityTemplate.select(TransactionHistory.class)
+                        .from(tableFor(month))
+                        .matching(partitionQuery)
+                        .all());
+        return filter.limit() != null ? histories.take(filter.limit()) : histories;
+    }
+
+    @Override
+    public Flux<TransactionHistory> findPartition(YearMonth month) {
+        return entityTemplate.select(TransactionHistory.class)
+                .from(tableFor(month))
+                .matching(Query.empty().sort(Sort.by("id")))
+                .all();
+    }
+
+    @Override
+    public Flux<TransactionHistory> findAll() {
+        return partitionRouter.partitions()
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(month -> entityTemplate.select(TransactionHistory.class)
+                        .from(tableFor(month))
+                        .matching(Query.empty().sort(Sort.by("id")))
+                        .all());
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return partitionRouter.partitions()
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(month -> databaseClient.sql("DELETE FROM " + tableFor(month)).fetch().rowsUpdated())
+                .then();
+    }
+}
@@ -1,7 +1,35 @@
 package com.example.tdd.domain.repository;
 
 import com.example.tdd.domain.model.TransactionHistory;
-import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface TransactionHistoryRepository extends ReactiveCrudRepository<TransactionHistory, Long> {
+import java.time.YearMonth;
+import java.util.List;
+
+// Historial de cambios de estado. No es un repositorio de Spring Data: las filas viven en tablas mensuales
+// (ver HistoryPartitionRouter), no en la tabla "transaction_history" que se deduciría de la entidad, así que
+// solo se declaran operaciones que saben enrutar a las particiones.
+// Implementaciones: R2dbcTransactionHistoryRepository (por defecto) y StoreTransactionHistoryRepository (perfil "memory").
+public interface TransactionHistoryRepository {
+
+    // Inserta un registro en la partición de su change_date y devuelve el mismo objeto con el id asignado
+    <S extends TransactionHistory> Mono<S> save(S history);
+
+    // Inserta todos los registros con un único Statement en batch (Statement.add()) por partición y
+    // devuelve los registros con el id asignado, en el mismo orden de entrada.
+    Flux<TransactionHistory> saveAllBatched(List<TransactionHistory> histories);
+
+    // Consulta filtrada con paginación keyset sobre id; solo recorre las particiones que pueden contener filas
+    Flux<TransactionHistory> findByFilter(TransactionHistoryFilter filter);
+
+    // Contenido completo de una partición mensual ordenado por id, para archivarla
+    Flux<TransactionHistory> findPartition(YearMonth month);
+
+    // Todas las particiones en orden de id
+    Flux<TransactionHistory> findAll();
+
+    // Vacía todas las particiones sin eliminarlas
+    Mono<Void> deleteAll();
 }
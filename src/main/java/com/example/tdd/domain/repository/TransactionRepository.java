@@ -1,16 +1,42 @@
 package com.example.tdd.domain.repository;
 
 import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionTotals;
 import com.example.tdd.domain.enums.TransactionStatus;
-import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface TransactionRepository extends ReactiveCrudRepository<Transaction, Long> {
+import java.util.Collection;
 
-    @Modifying // Indica que esta query modifica datos
-    @Query("UPDATE transaction SET status = :newStatus WHERE id = :id")
-    Mono<Integer> updateStatus(@Param("id") Long id, @Param("newStatus") TransactionStatus newStatus);
+public interface TransactionRepository extends ReactiveCrudRepository<Transaction, Long>, TransactionRepositoryCustom {
+
+    // Todas las escrituras de status son condicionales e incrementan version: ninguna sobrescribe a ciegas.
+
+    // Compare-and-set en una sola sentencia: solo actualiza si el estado actual es un origen válido para el nuevo
+    // (TransactionStateMachine.allowedFrom) y devuelve la fila tal como estaba ANTES del UPDATE (OLD TABLE de H2).
+    // Si no devuelve nada, la transacción no existe o su estado no admite la transición.
+    @Query("SELECT * FROM OLD TABLE (UPDATE transaction SET status = :newStatus, version = version + 1 WHERE id = :id AND status IN (:allowedFrom))")
+    Mono<Transaction> compareAndSetStatus(@Param("id") Long id, @Param("newStatus") TransactionStatus newStatus,
+                                          @Param("allowedFrom") Collection<String> allowedFrom);
+
+    // Versión masiva del compare-and-set: una única sentencia para todo el lote de ids
+    @Query("SELECT * FROM OLD TABLE (UPDATE transaction SET status = :newStatus, version = version + 1 WHERE id IN (:ids) AND status IN (:allowedFrom))")
+    Flux<Transaction> compareAndSetStatusIn(@Param("ids") Collection<Long> ids, @Param("newStatus") TransactionStatus newStatus,
+                                            @Param("allowedFrom") Collection<String> allowedFrom);
+
+    // Escritura condicionada a la versión leída (bloqueo optimista): vacío si otro cambio se adelantó
+    @Query("SELECT * FROM OLD TABLE (UPDATE transaction SET status = :newStatus, version = version + 1 WHERE id = :id AND version = :expectedVersion)")
+    Mono<Transaction> compareAndSetStatusAtVersion(@Param("id") Long id, @Param("newStatus") TransactionStatus newStatus,
+                                                   @Param("expectedVersion") Long expectedVersion);
+
+    @Query("SELECT id FROM transaction WHERE id IN (:ids)")
+    Flux<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Recorrido completo agrupado en la base de datos: solo lo usa la reconciliación de TransactionStatisticsService
+    @Query("SELECT status, currency, COUNT(*) AS transaction_count, COALESCE(SUM(amount), 0) AS total_amount " +
+           "FROM transaction GROUP BY status, currency")
+    Flux<TransactionTotals> aggregateByStatusAndCurrency();
 }
@@ -0,0 +1,13 @@
+package com.example.tdd.domain.repository;
+
+import com.example.tdd.domain.model.Transaction;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface TransactionRepositoryCustom {
+
+    // Alta masiva con un único INSERT multi-fila (VALUES (...), (...), ...); devuelve las filas insertadas.
+    // Las transacciones se insertan con version 0 y sin leer de vuelta los ids generados.
+    Mono<Long> insertAll(List<Transaction> transactions);
+}
@@ -0,0 +1,65 @@
+package com.example.tdd.domain.repository;
+
+import com.example.tdd.domain.model.Transaction;
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Spring Data detecta esta implementación por el sufijo "Impl" y la combina con TransactionRepository
+@RequiredArgsConstructor
+public class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    private static final int COLUMNS = 3;
+
+    private final DatabaseClient databaseClient;
+    // SQL por número de filas: todos los lotes completos comparten sentencia (y plan en la cache de H2)
+    private final Map<Integer, String> insertSql = new ConcurrentHashMap<>();
+
+    @Override
+    public Mono<Long> insertAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return Mono.just(0L);
+        }
+        String sql = insertSql.computeIfAbsent(transactions.size(), TransactionRepositoryCustomImpl::multiRowInsert);
+        // inConnectionMany usa la conexión de la transacción reactiva en curso, si la hay
+        return databaseClient.inConnectionMany(connection -> {
+                    Statement statement = connection.createStatement(sql);
+                    for (int i = 0; i < transactions.size(); i++) {
+                        Transaction transaction = transactions.get(i);
+                        int index = i * COLUMNS;
+                        statement.bind(index, transaction.getStatus().name());
+                        if (transaction.getAmount() != null) {
+                            statement.bind(index + 1, transaction.getAmount());
+                        } else {
+                            statement.bindNull(index + 1, BigDecimal.class);
+                        }
+                        if (transaction.getCurrency() != null) {
+                            statement.bind(index + 2, transaction.getCurrency());
+                        } else {
+                            statement.bindNull(index + 2, String.class);
+                        }
+                    }
+                    return Flux.from(statement.execute()).flatMap(result -> result.getRowsUpdated());
+                })
+                .reduce(0L, (total, rows) -> total + rows.longValue());
+    }
+
+    private static String multiRowInsert(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO transaction (status, amount, currency) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            int base = i * COLUMNS;
+            sql.append(i == 0 ? "" : ", ")
+                    .append("($").append(base + 1)
+                    .append(", $").append(base + 2)
+                    .append(", $").append(base + 3).append(')');
+        }
+        return sql.toString();
+    }
+}
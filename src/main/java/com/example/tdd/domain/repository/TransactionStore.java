@@ -0,0 +1,93 @@
+package com.example.tdd.domain.repository;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.model.TransactionTotals;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// SPI de almacenamiento en proceso de transacciones e historial (perfil "memory", ver MemoryModeConfig).
+// Las operaciones son síncronas y no hacen E/S bloqueante, así que se llaman directamente desde el event loop.
+// Misma semántica que las sentencias de TransactionRepository: los cambios de estado son compare-and-set que
+// incrementan version y devuelven la fila tal como estaba antes del cambio (vacío si no se aplicó).
+// Implementaciones: InMemoryTransactionStore y WalTransactionStore (la anterior + write-ahead log en disco).
+public interface TransactionStore {
+
+    // Asigna id y deja version = 0; devuelve la fila guardada
+    Transaction insert(Transaction transaction);
+
+    List<Transaction> insertAll(List<Transaction> transactions);
+
+    // Sustituye importe y moneda si la versión coincide (bloqueo optimista); vacío si no existe o no coincide
+    Optional<Transaction> update(Transaction transaction);
+
+    Optional<Transaction> findById(long id);
+
+    // allowedFromMask: bit i = TransactionStatus con ordinal i (ver statusMask)
+    Optional<Transaction> compareAndSetStatus(long id, TransactionStatus newStatus, int allowedFromMask);
+
+    Optional<Transaction> compareAndSetStatusAtVersion(long id, TransactionStatus newStatus, long expectedVersion);
+
+    // Deshace un cambio de estado (previous: la fila que devolvió el compare-and-set) si la fila sigue siendo la
+    // que dejó ese cambio; la versión sigue creciendo. false si otro cambio la movió después
+    boolean revertStatus(Transaction previous, TransactionStatus appliedStatus);
+
+    boolean delete(long id);
+
+    // Filas por id ascendente
+    Stream<Transaction> findAll();
+
+    long count();
+
+    // Asigna los ids del historial en orden de entrada; el historial solo admite altas
+    List<TransactionHistory> appendHistory(List<TransactionHistory> histories);
+
+    // Retira registros recién añadidos cuya transacción se revirtió; sus ids no se reutilizan
+    void removeHistory(Collection<Long> ids);
+
+    Optional<TransactionHistory> findHistoryById(long id);
+
+    // Por id ascendente, con los filtros y la paginación keyset de TransactionHistoryFilter
+    Stream<TransactionHistory> findHistory(TransactionHistoryFilter filter);
+
+    long historyCount();
+
+    // Vacía el historial (deleteAll); las transacciones se borran una a una con delete
+    void clearHistory();
+
+    default Stream<TransactionHistory> findHistoryPartition(YearMonth month) {
+        return findHistory(new TransactionHistoryFilter(null, null, month.atDay(1).atStartOfDay(),
+                month.plusMonths(1).atDay(1).atStartOfDay(), null, null));
+    }
+
+    // Recorrido completo, igual que la consulta agrupada de TransactionRepository
+    default List<TransactionTotals> aggregateByStatusAndCurrency() {
+        Map<TransactionStatus, Map<String, List<Transaction>>> grouped = findAll().collect(Collectors.groupingBy(
+                Transaction::getStatus, TreeMap::new,
+                Collectors.groupingBy(transaction -> String.valueOf(transaction.getCurrency()))));
+        return grouped.entrySet().stream()
+                .flatMap(byStatus -> byStatus.getValue().values().stream()
+                        .map(rows -> new TransactionTotals(byStatus.getKey(), rows.get(0).getCurrency(), (long) rows.size(),
+                                rows.stream().map(Transaction::getAmount).filter(amount -> amount != null)
+                                        .reduce(BigDecimal.ZERO, BigDecimal::add))))
+                .toList();
+    }
+
+    static int statusMask(Collection<String> statuses) {
+        int mask = 0;
+        for (String status : statuses) {
+            mask |= 1 << TransactionStatus.valueOf(status).ordinal();
+        }
+        return mask;
+    }
+}
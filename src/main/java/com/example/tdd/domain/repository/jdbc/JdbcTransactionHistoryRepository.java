@@ -0,0 +1,145 @@
+package com.example.tdd.domain.repository.jdbc;
+
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.HistoryPartitionRouter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.SEQUENCE;
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.idBase;
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.monthOf;
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.tableFor;
+
+// Escrituras del historial y de su evento en el outbox para el perfil "jdbc" (mismas sentencias y particiones que R2DBC)
+@Repository
+@Profile("jdbc")
+@RequiredArgsConstructor
+public class JdbcTransactionHistoryRepository {
+
+    private static final String COLUMNS = "(id, transaction_id, previous_status, new_status, change_date, user_performing_action)";
+
+    private final JdbcClient jdbcClient;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final DataSource dataSource;
+    private final HistoryPartitionRouter partitionRouter;
+    private final Set<YearMonth> createdPartitions = ConcurrentHashMap.newKeySet();
+
+    public TransactionHistory save(TransactionHistory history) {
+        YearMonth month = monthOf(history.getChangeDate());
+        ensurePartition(month);
+        Long id = jdbcClient.sql("SELECT id FROM FINAL TABLE (INSERT INTO " + tableFor(month) + " " + COLUMNS + " " +
+                        "VALUES (" + idBase(month) + " + NEXT VALUE FOR " + SEQUENCE + ", " +
+                        ":transactionId, :previousStatus, :newStatus, :changeDate, :userPerformingAction))")
+                .paramSource(parameters(history))
+                .query(Long.class)
+                .single();
+        history.setId(id);
+        return history;
+    }
+
+    // Un executeBatch por partición (normalmente una) con ids reservados de antemano en una sola consulta
+    public List<TransactionHistory> saveAllBatched(List<TransactionHistory> histories) {
+        if (histories.isEmpty()) {
+            return histories;
+        }
+        Map<YearMonth, List<TransactionHistory>> byMonth = new LinkedHashMap<>();
+        for (TransactionHistory history : histories) {
+            byMonth.computeIfAbsent(monthOf(history.getChangeDate()), month -> new ArrayList<>()).add(history);
+        }
+        byMonth.forEach((month, monthHistories) -> {
+            ensurePartition(month);
+            List<Long> sequenceValues = jdbcClient.sql("SELECT NEXT VALUE FOR " + SEQUENCE + " FROM SYSTEM_RANGE(1, :count)")
+                    .param("count", monthHistories.size())
+                    .query(Long.class)
+                    .list();
+            long base = idBase(month);
+            SqlParameterSource[] batch = new SqlParameterSource[monthHistories.size()];
+            for (int i = 0; i < batch.length; i++) {
+                TransactionHistory history = monthHistories.get(i);
+                history.setId(base + sequenceValues.get(i));
+                batch[i] = parameters(history);
+            }
+            namedParameterJdbcTemplate.batchUpdate("INSERT INTO " + tableFor(month) + " " + COLUMNS + " " +
+                    "VALUES (:id, :transactionId, :previousStatus, :newStatus, :changeDate, :userPerformingAction)", batch);
+        });
+        return histories;
+    }
+
+    // Primera escritura de un mes en esta instancia (normalmente ya lo creó el mantenimiento por adelantado).
+    // El DDL va en una conexión propia del pool JDBC: en H2 un CREATE confirmaría la transacción del llamante.
+    // Sincronizado: en el cambio de mes solo un hilo pide esa segunda conexión, el resto espera a que termine
+    private void ensurePartition(YearMonth month) {
+        if (createdPartitions.contains(month)) {
+            return;
+        }
+        synchronized (createdPartitions) {
+            if (createdPartitions.contains(month)) {
+                return;
+            }
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                for (String sql : HistoryPartitionRouter.createPartitionStatements(month)) {
+                    statement.execute(sql);
+                }
+            } catch (SQLException e) {
+                throw new DataAccessResourceFailureException("Could not create history partition " + tableFor(month), e);
+            }
+            createdPartitions.add(month);
+        }
+        partitionRouter.partitionCreated(month);
+    }
+
+    // El evento se copia entero en el outbox (ver OutboxEventRepository), con un único batch por llamada
+    public void insertOutboxEvents(Collection<TransactionHistory> histories) {
+        namedParameterJdbcTemplate.batchUpdate("INSERT INTO outbox_event (history_id, transaction_id, previous_status, " +
+                "new_status, change_date, user_performing_action, created_at) " +
+                "VALUES (:id, :transactionId, :previousStatus, :newStatus, :changeDate, :userPerformingAction, LOCALTIMESTAMP)",
+                histories.stream().map(JdbcTransactionHistoryRepository::parameters).toArray(SqlParameterSource[]::new));
+    }
+
+    // Registro de idempotencia con la copia de la respuesta (ver ProcessedMessageRepository), en la misma transacción
+    public void insertProcessedMessage(String idMensaje, TransactionHistory history, LocalDateTime processedAt) {
+        insertProcessedMessages(Map.of(idMensaje, history), processedAt);
+    }
+
+    // Group commit: un único batch con los registros de todos los llamantes del grupo
+    public void insertProcessedMessages(Map<String, TransactionHistory> histories, LocalDateTime processedAt) {
+        namedParameterJdbcTemplate.batchUpdate("INSERT INTO processed_message (id_mensaje, transaction_id, history_id, " +
+                "previous_status, new_status, change_date, user_performing_action, processed_at) " +
+                "VALUES (:idMensaje, :transactionId, :id, :previousStatus, :newStatus, :changeDate, :userPerformingAction, :processedAt)",
+                histories.entrySet().stream()
+                        .map(entry -> parameters(entry.getValue())
+                                .addValue("idMensaje", entry.getKey())
+                                .addValue("processedAt", processedAt))
+                        .toArray(SqlParameterSource[]::new));
+    }
+
+    private static MapSqlParameterSource parameters(TransactionHistory history) {
+        return new MapSqlParameterSource()
+                .addValue("id", history.getId())
+                .addValue("transactionId", history.getTransactionId())
+                .addValue("previousStatus", history.getPreviousStatus().name())
+                .addValue("newStatus", history.getNewStatus().name())
+                .addValue("changeDate", history.getChangeDate())
+                .addValue("userPerformingAction", history.getUserPerformingAction());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.tdd.domain.repository.jdbc;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// Equivalente bloqueante de TransactionRepository (mismas sentencias) para el perfil "jdbc".
+// Debe llamarse dentro de un TransactionTemplate: JdbcClient usa la conexión ligada al hilo.
+@Repository
+@Profile("jdbc")
+@RequiredArgsConstructor
+public class JdbcTransactionRepository {
+
+    private static final RowMapper<Transaction> TRANSACTION_MAPPER = (rs, rowNum) -> new Transaction(
+            rs.getLong("id"),
+            TransactionStatus.valueOf(rs.getString("status")),
+            rs.getBigDecimal("amount"),
+            rs.getString("currency"),
+            rs.getLong("version"));
+
+    private final JdbcClient jdbcClient;
+
+    public Optional<Transaction> compareAndSetStatus(Long id, TransactionStatus newStatus, Collection<String> allowedFrom) {
+        return jdbcClient.sql("SELECT * FROM OLD TABLE (UPDATE transaction SET status = :newStatus, version = version + 1 WHERE id = :id AND status IN (:allowedFrom))")
+                .param("id", id)
+                .param("newStatus", newStatus.name())
+                .param("allowedFrom", allowedFrom)
+                .query(TRANSACTION_MAPPER)
+                .optional();
+    }
+
+    public List<Transaction> compareAndSetStatusIn(Collection<Long> ids, TransactionStatus newStatus, Collection<String> allowedFrom) {
+        return jdbcClient.sql("SELECT * FROM OLD TABLE (UPDATE transaction SET status = :newStatus, version = version + 1 WHERE id IN (:ids) AND status IN (:allowedFrom))")
+                .param("ids", ids)
+                .param("newStatus", newStatus.name())
+                .param("allowedFrom", allowedFrom)
+                .query(TRANSACTION_MAPPER)
+                .list();
+    }
+
+    public Optional<Transaction> compareAndSetStatusAtVersion(Long id, TransactionStatus newStatus, Long expectedVersion) {
+        return jdbcClient.sql("SELECT * FROM OLD TABLE (UPDATE transaction SET status = :newStatus, version = version + 1 WHERE id = :id AND version = :expectedVersion)")
+                .param("id", id)
+                .param("newStatus", newStatus.name())
+                .param("expectedVersion", expectedVersion)
+                .query(TRANSACTION_MAPPER)
+                .optional();
+    }
+
+    public Optional<Transaction> findById(Long id) {
+        return jdbcClient.sql("SELECT * FROM transaction WHERE id = :id")
+                .param("id", id)
+                .query(TRANSACTION_MAPPER)
+                .optional();
+    }
+
+    public List<Long> findExistingIds(Collection<Long> ids) {
+        return jdbcClient.sql("SELECT id FROM transaction WHERE id IN (:ids)")
+                .param("ids", ids)
+                .query(Long.class)
+                .list();
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.tdd.domain.repository.memory;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Tabla long -> V para claves densas y crecientes (ids asignados por secuencia): la clave es directamente la
+// posición, repartida en bloques de 4096 huecos. Sin hashing ni boxing de Long, lecturas sin bloqueo y
+// compareAndSet por hueco. El directorio de bloques se copia al añadir uno (cada 4096 claves) y se publica
+// con una escritura volátil, así que un lector nunca ve un bloque a medio crear.
+final class ChunkedLongTable<V> {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int SLOT_MASK = CHUNK_SIZE - 1;
+
+    private volatile AtomicReferenceArray<V>[] chunks = newDirectory(16);
+
+    V get(long key) {
+        AtomicReferenceArray<V> chunk = chunk(key);
+        return chunk == null ? null : chunk.get(slot(key));
+    }
+
+    void set(long key, V value) {
+        chunkForWrite(key).set(slot(key), value);
+    }
+
+    boolean compareAndSet(long key, V expected, V update) {
+        AtomicReferenceArray<V> chunk = expected == null ? chunkForWrite(key) : chunk(key);
+        return chunk != null && chunk.compareAndSet(slot(key), expected, update);
+    }
+
+    synchronized void clear() {
+        chunks = newDirectory(16);
+    }
+
+    private AtomicReferenceArray<V> chunk(long key) {
+        if (key < 0) {
+            return null;
+        }
+        long index = key >>> CHUNK_BITS;
+        AtomicReferenceArray<V>[] directory = chunks;
+        return index < directory.length ? directory[(int) index] : null;
+    }
+
+    private AtomicReferenceArray<V> chunkForWrite(long key) {
+        AtomicReferenceArray<V> chunk = chunk(key);
+        return chunk != null ? chunk : addChunk(key);
+    }
+
+    private synchronized AtomicReferenceArray<V> addChunk(long key) {
+        if (key < 0 || (key >>> CHUNK_BITS) >= 1 << 30) {
+            throw new IllegalArgumentException("Key out of range: " + key);
+        }
+        int index = (int) (key >>> CHUNK_BITS);
+        AtomicReferenceArray<V>[] directory = chunks;
+        if (index < directory.length && directory[index] != null) {
+            return directory[index];
+        }
+        AtomicReferenceArray<V>[] grown = newDirectory(Math.max(directory.length, Integer.highestOneBit(index) << 1));
+        System.arraycopy(directory, 0, grown, 0, directory.length);
+        AtomicReferenceArray<V> chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+        grown[index] = chunk;
+        chunks = grown;
+        return chunk;
+    }
+
+    private static int slot(long key) {
+        return (int) (key & SLOT_MASK);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> AtomicReferenceArray<V>[] newDirectory(int length) {
+        return (AtomicReferenceArray<V>[]) new AtomicReferenceArray[length];
+    }
+}
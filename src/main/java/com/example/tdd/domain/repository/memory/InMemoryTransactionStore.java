@@ -0,0 +1,257 @@
+package com.example.tdd.domain.repository.memory;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.repository.TransactionStore;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+// Motor en memoria sin bloqueos:
+// - transacciones en una ChunkedLongTable indexada por id; cada fila es inmutable (Row) y los cambios de estado
+//   son un compareAndSet de la fila completa, de modo que dos transiciones concurrentes nunca pasan a la vez,
+// - historial en otra ChunkedLongTable de solo altas: el id se reserva con la secuencia y el registro se
+//   publica en su hueco. Las lecturas avanzan por id y se detienen en el primer hueco aún vacío (un alta en
+//   curso), así la paginación keyset nunca salta un registro que aparezca después. Un registro retirado
+//   (removeHistory) deja en su hueco la marca REMOVED, que las lecturas saltan sin detenerse.
+// Las lecturas devuelven copias: las entidades de Lombok son mutables y no deben compartir estado con el motor.
+public class InMemoryTransactionStore implements TransactionStore {
+
+    private static final Entry REMOVED = new Entry(0, 0, null, null, null, null);
+
+    private final ChunkedLongTable<Row> transactions = new ChunkedLongTable<>();
+    private final ChunkedLongTable<Entry> history = new ChunkedLongTable<>();
+    private final AtomicLong transactionSequence = new AtomicLong();
+    private final AtomicLong historySequence = new AtomicLong();
+    private final LongAdder transactionCount = new LongAdder();
+
+    @Override
+    public Transaction insert(Transaction transaction) {
+        long id = transactionSequence.incrementAndGet();
+        Row row = new Row(transaction.getStatus(), transaction.getAmount(), transaction.getCurrency(), 0);
+        transactions.set(id, row);
+        transactionCount.increment();
+        return row.toTransaction(id);
+    }
+
+    @Override
+    public List<Transaction> insertAll(List<Transaction> batch) {
+        List<Transaction> inserted = new ArrayList<>(batch.size());
+        for (Transaction transaction : batch) {
+            inserted.add(insert(transaction));
+        }
+        return inserted;
+    }
+
+    @Override
+    public Optional<Transaction> update(Transaction transaction) {
+        long id = transaction.getId();
+        while (true) {
+            Row current = transactions.get(id);
+            if (current == null || !Objects.equals(transaction.getVersion(), current.version())) {
+                return Optional.empty();
+            }
+            Row next = new Row(transaction.getStatus(), transaction.getAmount(), transaction.getCurrency(), current.version() + 1);
+            if (transactions.compareAndSet(id, current, next)) {
+                return Optional.of(next.toTransaction(id));
+            }
+        }
+    }
+
+    @Override
+    public Optional<Transaction> findById(long id) {
+        Row row = transactions.get(id);
+        return row == null ? Optional.empty() : Optional.of(row.toTransaction(id));
+    }
+
+    @Override
+    public Optional<Transaction> compareAndSetStatus(long id, TransactionStatus newStatus, int allowedFromMask) {
+        while (true) {
+            Row current = transactions.get(id);
+            if (current == null || (allowedFromMask & (1 << current.status().ordinal())) == 0) {
+                return Optional.empty();
+            }
+            if (transactions.compareAndSet(id, current, current.withStatus(newStatus))) {
+                return Optional.of(current.toTransaction(id));
+            }
+            // Otro cambio se adelantó: se vuelve a evaluar contra la fila nueva
+        }
+    }
+
+    @Override
+    public Optional<Transaction> compareAndSetStatusAtVersion(long id, TransactionStatus newStatus, long expectedVersion) {
+        Row current = transactions.get(id);
+        if (current == null || current.version() != expectedVersion) {
+            return Optional.empty();
+        }
+        return transactions.compareAndSet(id, current, current.withStatus(newStatus))
+                ? Optional.of(current.toTransaction(id))
+                : Optional.empty();
+    }
+
+    @Override
+    public boolean revertStatus(Transaction previous, TransactionStatus appliedStatus) {
+        return revertedStatus(previous, appliedStatus).isPresent();
+    }
+
+    // La fila restaurada, para que WalTransactionStore la registre
+    Optional<Transaction> revertedStatus(Transaction previous, TransactionStatus appliedStatus) {
+        long id = previous.getId();
+        Row current = transactions.get(id);
+        if (current == null || current.status() != appliedStatus || current.version() != previous.getVersion() + 1) {
+            return Optional.empty();
+        }
+        Row restored = current.withStatus(previous.getStatus());
+        return transactions.compareAndSet(id, current, restored) ? Optional.of(restored.toTransaction(id)) : Optional.empty();
+    }
+
+    @Override
+    public boolean delete(long id) {
+        while (true) {
+            Row current = transactions.get(id);
+            if (current == null) {
+                return false;
+            }
+            if (transactions.compareAndSet(id, current, null)) {
+                transactionCount.decrement();
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public Stream<Transaction> findAll() {
+        return LongStream.rangeClosed(1, transactionSequence.get())
+                .mapToObj(id -> {
+                    Row row = transactions.get(id);
+                    return row == null ? null : row.toTransaction(id);
+                })
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public long count() {
+        return transactionCount.sum();
+    }
+
+    @Override
+    public List<TransactionHistory> appendHistory(List<TransactionHistory> histories) {
+        List<TransactionHistory> saved = new ArrayList<>(histories.size());
+        for (TransactionHistory record : histories) {
+            long id = historySequence.incrementAndGet();
+            Entry entry = new Entry(id, record.getTransactionId(), record.getPreviousStatus(), record.getNewStatus(),
+                    record.getChangeDate(), record.getUserPerformingAction());
+            history.set(id, entry);
+            saved.add(entry.toHistory());
+        }
+        return saved;
+    }
+
+    @Override
+    public void removeHistory(Collection<Long> ids) {
+        for (Long id : ids) {
+            if (history.get(id) != null) {
+                history.set(id, REMOVED);
+            }
+        }
+    }
+
+    @Override
+    public Optional<TransactionHistory> findHistoryById(long id) {
+        Entry entry = history.get(id);
+        return entry == null || entry == REMOVED ? Optional.empty() : Optional.of(entry.toHistory());
+    }
+
+    @Override
+    public Stream<TransactionHistory> findHistory(TransactionHistoryFilter filter) {
+        long start = filter.afterId() != null ? filter.afterId() + 1 : 1;
+        Stream<TransactionHistory> matches = LongStream.rangeClosed(start, historySequence.get())
+                .mapToObj(history::get)
+                .takeWhile(Objects::nonNull)
+                .filter(entry -> entry != REMOVED && entry.matches(filter))
+                .map(Entry::toHistory);
+        return filter.limit() != null ? matches.limit(filter.limit()) : matches;
+    }
+
+    @Override
+    public long historyCount() {
+        return LongStream.rangeClosed(1, historySequence.get()).filter(id -> {
+            Entry entry = history.get(id);
+            return entry != null && entry != REMOVED;
+        }).count();
+    }
+
+    // La secuencia vuelve a 0 con el mismo monitor que ChunkedLongTable.clear: findHistory recorre desde el id 1
+    // y se detiene en el primer hueco, así que con la secuencia intacta no volvería a ver ningún registro nuevo
+    @Override
+    public void clearHistory() {
+        synchronized (history) {
+            history.clear();
+            historySequence.set(0);
+        }
+    }
+
+    // Reconstrucción desde el write-ahead log (WalTransactionStore): aplica la imagen de la fila si es más nueva
+    // que la que hay. Las versiones crecen con cada cambio, así que el orden de los registros en el log no importa.
+    void restore(long id, Row row) {
+        transactionSequence.accumulateAndGet(id, Math::max);
+        while (true) {
+            Row current = transactions.get(id);
+            if (current != null && current.version() >= row.version()) {
+                return;
+            }
+            if (transactions.compareAndSet(id, current, row)) {
+                if (current == null) {
+                    transactionCount.increment();
+                }
+                return;
+            }
+        }
+    }
+
+    void restoreHistory(Entry entry) {
+        historySequence.accumulateAndGet(entry.id(), Math::max);
+        history.set(entry.id(), entry);
+    }
+
+    Row row(long id) {
+        return transactions.get(id);
+    }
+
+    record Row(TransactionStatus status, BigDecimal amount, String currency, long version) {
+
+        Row withStatus(TransactionStatus newStatus) {
+            return new Row(newStatus, amount, currency, version + 1);
+        }
+
+        Transaction toTransaction(long id) {
+            return new Transaction(id, status, amount, currency, version);
+        }
+    }
+
+    record Entry(long id, long transactionId, TransactionStatus previousStatus, TransactionStatus newStatus,
+                 LocalDateTime changeDate, String userPerformingAction) {
+
+        boolean matches(TransactionHistoryFilter filter) {
+            return (filter.transactionId() == null || filter.transactionId() == transactionId)
+                    && (filter.status() == null || filter.status() == newStatus)
+                    && (filter.from() == null || changeDate != null && !changeDate.isBefore(filter.from()))
+                    && (filter.to() == null || changeDate != null && changeDate.isBefore(filter.to()));
+        }
+
+        TransactionHistory toHistory() {
+            return new TransactionHistory(id, transactionId, previousStatus, newStatus, changeDate, userPerformingAction);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.tdd.domain.repository.memory;
+
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+// Los cambios del TransactionStore se aplican al momento, fuera del R2dbcTransactionManager que confirma las filas
+// de H2 (outbox_event, processed_message). Dentro de una transacción reactiva se registra cómo deshacerlos y se
+// ejecuta si esa transacción se revierte; sin transacción no hay nada que deshacer.
+// Entre el cambio y la reversión otras peticiones pueden ver el cambio: no hay aislamiento, solo atomicidad.
+final class StoreRollback {
+
+    private StoreRollback() {
+    }
+
+    static Mono<Void> onRollback(Runnable undo) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCompletion(int status) {
+                        return status == STATUS_ROLLED_BACK ? Mono.fromRunnable(undo) : Mono.empty();
+                    }
+                }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .then();
+    }
+}
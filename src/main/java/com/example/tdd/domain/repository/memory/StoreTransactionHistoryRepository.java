@@ -0,0 +1,73 @@
+package com.example.tdd.domain.repository.memory;
+
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.repository.TransactionHistoryRepository;
+import com.example.tdd.domain.repository.TransactionStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.YearMonth;
+import java.util.List;
+
+// TransactionHistoryRepository sobre el TransactionStore del perfil "memory" (historial y archivo).
+// El historial del motor es de solo altas: se puede vaciar entero (deleteAll) pero no modificar registros; solo
+// se retiran los añadidos por una transacción que se revierte.
+@Repository
+@Profile("memory")
+@Primary
+@RequiredArgsConstructor
+public class StoreTransactionHistoryRepository implements TransactionHistoryRepository {
+
+    private final TransactionStore transactionStore;
+
+    @Override
+    public Flux<TransactionHistory> saveAllBatched(List<TransactionHistory> histories) {
+        return Flux.defer(() -> {
+            List<TransactionHistory> saved = transactionStore.appendHistory(histories);
+            return removeOnRollback(saved).thenMany(Flux.fromIterable(saved));
+        });
+    }
+
+    @Override
+    public Flux<TransactionHistory> findByFilter(TransactionHistoryFilter filter) {
+        return Flux.defer(() -> Flux.fromStream(transactionStore.findHistory(filter)));
+    }
+
+    @Override
+    public Flux<TransactionHistory> findPartition(YearMonth month) {
+        return Flux.defer(() -> Flux.fromStream(transactionStore.findHistoryPartition(month)));
+    }
+
+    @Override
+    public <S extends TransactionHistory> Mono<S> save(S history) {
+        if (history.getId() != null) {
+            return Mono.error(new UnsupportedOperationException("History records are append-only."));
+        }
+        return Mono.fromSupplier(() -> transactionStore.appendHistory(List.of(history)))
+                .flatMap(saved -> removeOnRollback(saved).then(Mono.fromSupplier(() -> {
+                    history.setId(saved.get(0).getId());
+                    return history;
+                })));
+    }
+
+    @Override
+    public Flux<TransactionHistory> findAll() {
+        return findByFilter(new TransactionHistoryFilter(null, null, null, null, null, null));
+    }
+
+    // Los registros añadidos en una transacción reactiva que se revierte se retiran con ella (StoreRollback)
+    private Mono<Void> removeOnRollback(List<TransactionHistory> saved) {
+        List<Long> ids = saved.stream().map(TransactionHistory::getId).toList();
+        return ids.isEmpty() ? Mono.empty() : StoreRollback.onRollback(() -> transactionStore.removeHistory(ids));
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Mono.fromRunnable(transactionStore::clearHistory);
+    }
+}
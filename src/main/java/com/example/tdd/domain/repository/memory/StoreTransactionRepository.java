@@ -0,0 +1,194 @@
+package com.example.tdd.domain.repository.memory;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionTotals;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.repository.TransactionStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// TransactionRepository sobre el TransactionStore del perfil "memory": los servicios (TransactionService,
+// TransactionLookupService, estadísticas, importación) no cambian y dejan de tocar la base de datos.
+// Cada método es una llamada síncrona al motor envuelta en Mono/Flux, sin cambiar de hilo. Los cambios de estado
+// se deshacen si la transacción reactiva en curso se revierte (StoreRollback).
+@Slf4j
+@Repository
+@Profile("memory")
+@Primary
+@RequiredArgsConstructor
+public class StoreTransactionRepository implements TransactionRepository {
+
+    private final TransactionStore transactionStore;
+
+    @Override
+    public Mono<Transaction> compareAndSetStatus(Long id, TransactionStatus newStatus, Collection<String> allowedFrom) {
+        return Mono.fromSupplier(() -> transactionStore.compareAndSetStatus(id, newStatus, TransactionStore.statusMask(allowedFrom))
+                        .orElse(null))
+                .flatMap(previous -> revertOnRollback(List.of(previous), newStatus).thenReturn(previous));
+    }
+
+    @Override
+    public Flux<Transaction> compareAndSetStatusIn(Collection<Long> ids, TransactionStatus newStatus, Collection<String> allowedFrom) {
+        // Como el UPDATE ... WHERE id IN: se aplica a todo el lote al suscribirse, aunque se consuma solo una parte
+        return Flux.defer(() -> {
+            int mask = TransactionStore.statusMask(allowedFrom);
+            List<Transaction> previous = new ArrayList<>(ids.size());
+            for (Long id : new LinkedHashSet<>(ids)) {
+                transactionStore.compareAndSetStatus(id, newStatus, mask).ifPresent(previous::add);
+            }
+            return previous.isEmpty()
+                    ? Flux.empty()
+                    : revertOnRollback(previous, newStatus).thenMany(Flux.fromIterable(previous));
+        });
+    }
+
+    @Override
+    public Mono<Transaction> compareAndSetStatusAtVersion(Long id, TransactionStatus newStatus, Long expectedVersion) {
+        return Mono.fromSupplier(() -> transactionStore.compareAndSetStatusAtVersion(id, newStatus, expectedVersion).orElse(null))
+                .flatMap(previous -> revertOnRollback(List.of(previous), newStatus).thenReturn(previous));
+    }
+
+    // Si la transacción de H2 que acompaña al cambio (outbox, processed_message) se revierte, la fila vuelve a su
+    // estado previo; si otro cambio la movió entretanto, ese cambio prevalece
+    private Mono<Void> revertOnRollback(List<Transaction> previous, TransactionStatus appliedStatus) {
+        return StoreRollback.onRollback(() -> {
+            for (Transaction row : previous) {
+                if (!transactionStore.revertStatus(row, appliedStatus)) {
+                    log.warn("Transaction {} changed again before its rolled back change to {} could be reverted",
+                            row.getId(), appliedStatus);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Flux<Long> findExistingIds(Collection<Long> ids) {
+        return Flux.fromIterable(ids).filter(id -> transactionStore.findById(id).isPresent());
+    }
+
+    @Override
+    public Flux<TransactionTotals> aggregateByStatusAndCurrency() {
+        return Flux.defer(() -> Flux.fromIterable(transactionStore.aggregateByStatusAndCurrency()));
+    }
+
+    @Override
+    public Mono<Long> insertAll(List<Transaction> transactions) {
+        return Mono.fromSupplier(() -> (long) transactionStore.insertAll(transactions).size());
+    }
+
+    @Override
+    public <S extends Transaction> Mono<S> save(S entity) {
+        return Mono.fromSupplier(() -> {
+            if (entity.getId() == null || entity.getVersion() == null) {
+                Transaction inserted = transactionStore.insert(entity);
+                entity.setId(inserted.getId());
+                entity.setVersion(inserted.getVersion());
+                return entity;
+            }
+            Transaction updated = transactionStore.update(entity).orElseThrow(() -> new OptimisticLockingFailureException(
+                    "Failed to update transaction " + entity.getId() + " at version " + entity.getVersion()));
+            entity.setVersion(updated.getVersion());
+            return entity;
+        });
+    }
+
+    @Override
+    public <S extends Transaction> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends Transaction> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<Transaction> findById(Long id) {
+        return Mono.fromSupplier(() -> transactionStore.findById(id).orElse(null));
+    }
+
+    @Override
+    public Mono<Transaction> findById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Long id) {
+        return Mono.fromSupplier(() -> transactionStore.findById(id).isPresent());
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<Transaction> findAll() {
+        return Flux.defer(() -> Flux.fromStream(transactionStore.findAll()));
+    }
+
+    @Override
+    public Flux<Transaction> findAllById(Iterable<Long> ids) {
+        return Flux.fromIterable(ids).flatMap(this::findById);
+    }
+
+    @Override
+    public Flux<Transaction> findAllById(Publisher<Long> idStream) {
+        return Flux.from(idStream).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(transactionStore::count);
+    }
+
+    @Override
+    public Mono<Void> deleteById(Long id) {
+        return Mono.fromRunnable(() -> transactionStore.delete(id));
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<Long> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(Transaction entity) {
+        return deleteById(entity.getId());
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends Long> ids) {
+        return Flux.fromIterable(ids).concatMap(this::deleteById).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends Transaction> entities) {
+        return Flux.fromIterable(entities).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends Transaction> entityStream) {
+        return Flux.from(entityStream).concatMap(this::delete).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return Flux.defer(() -> Flux.fromStream(transactionStore.findAll()))
+                .doOnNext(transaction -> transactionStore.delete(transaction.getId()))
+                .then();
+    }
+}
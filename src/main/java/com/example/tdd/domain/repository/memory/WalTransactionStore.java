@@ -0,0 +1,287 @@
+package com.example.tdd.domain.repository.memory;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.repository.TransactionStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+// InMemoryTransactionStore con durabilidad: cada cambio aplicado se añade al WriteAheadLog antes de devolverlo
+// y al arrancar se reconstruye el estado reproduciendo el log. Se registra la imagen completa de la fila con su
+// versión: dos cambios concurrentes sobre la misma transacción pueden quedar en el log en cualquier orden y la
+// reconstrucción se queda con la versión mayor. Cada 'syncInterval' se hace force() de lo escrito desde el anterior;
+// entre dos force() los cambios sobreviven a la caída del proceso, no a la del sistema operativo.
+// El log no se compacta: crece con cada cambio hasta que se borra el fichero.
+@Slf4j
+public class WalTransactionStore implements TransactionStore, SmartLifecycle, DisposableBean {
+
+    private static final byte ROW = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR_HISTORY = 3;
+    private static final byte HISTORY = 4;
+    private static final byte REMOVE_HISTORY = 5;
+
+    private final InMemoryTransactionStore delegate;
+    private final WriteAheadLog wal;
+    private final Duration syncInterval;
+    private volatile Disposable syncLoop;
+
+    public WalTransactionStore(InMemoryTransactionStore delegate, Path file, int segmentSize, Duration syncInterval)
+            throws IOException {
+        this.delegate = delegate;
+        this.syncInterval = syncInterval;
+        this.wal = WriteAheadLog.open(file, segmentSize, this::replay);
+    }
+
+    @Override
+    public Transaction insert(Transaction transaction) {
+        Transaction inserted = delegate.insert(transaction);
+        logRow(inserted);
+        return inserted;
+    }
+
+    @Override
+    public List<Transaction> insertAll(List<Transaction> transactions) {
+        List<Transaction> inserted = delegate.insertAll(transactions);
+        inserted.forEach(this::logRow);
+        return inserted;
+    }
+
+    @Override
+    public Optional<Transaction> update(Transaction transaction) {
+        Optional<Transaction> updated = delegate.update(transaction);
+        updated.ifPresent(this::logRow);
+        return updated;
+    }
+
+    @Override
+    public Optional<Transaction> findById(long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Transaction> compareAndSetStatus(long id, TransactionStatus newStatus, int allowedFromMask) {
+        Optional<Transaction> previous = delegate.compareAndSetStatus(id, newStatus, allowedFromMask);
+        previous.ifPresent(row -> logStatusChange(row, newStatus));
+        return previous;
+    }
+
+    @Override
+    public Optional<Transaction> compareAndSetStatusAtVersion(long id, TransactionStatus newStatus, long expectedVersion) {
+        Optional<Transaction> previous = delegate.compareAndSetStatusAtVersion(id, newStatus, expectedVersion);
+        previous.ifPresent(row -> logStatusChange(row, newStatus));
+        return previous;
+    }
+
+    @Override
+    public boolean revertStatus(Transaction previous, TransactionStatus appliedStatus) {
+        Optional<Transaction> restored = delegate.revertedStatus(previous, appliedStatus);
+        restored.ifPresent(this::logRow);
+        return restored.isPresent();
+    }
+
+    @Override
+    public boolean delete(long id) {
+        boolean deleted = delegate.delete(id);
+        if (deleted) {
+            wal.append(out -> out.put(DELETE).putLong(id));
+        }
+        return deleted;
+    }
+
+    @Override
+    public Stream<Transaction> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public List<TransactionHistory> appendHistory(List<TransactionHistory> histories) {
+        List<TransactionHistory> saved = delegate.appendHistory(histories);
+        for (TransactionHistory history : saved) {
+            wal.append(out -> {
+                out.put(HISTORY).putLong(history.getId()).putLong(history.getTransactionId());
+                putStatus(out, history.getPreviousStatus());
+                putStatus(out, history.getNewStatus());
+                out.putLong(history.getChangeDate() == null ? Long.MIN_VALUE : toMicros(history.getChangeDate()));
+                putString(out, history.getUserPerformingAction());
+            });
+        }
+        return saved;
+    }
+
+    @Override
+    public void removeHistory(Collection<Long> ids) {
+        delegate.removeHistory(ids);
+        for (Long id : ids) {
+            wal.append(out -> out.put(REMOVE_HISTORY).putLong(id));
+        }
+    }
+
+    @Override
+    public Optional<TransactionHistory> findHistoryById(long id) {
+        return delegate.findHistoryById(id);
+    }
+
+    @Override
+    public Stream<TransactionHistory> findHistory(TransactionHistoryFilter filter) {
+        return delegate.findHistory(filter);
+    }
+
+    @Override
+    public long historyCount() {
+        return delegate.historyCount();
+    }
+
+    @Override
+    public void clearHistory() {
+        wal.append(out -> out.put(CLEAR_HISTORY));
+        delegate.clearHistory();
+    }
+
+    @Override
+    public void start() {
+        syncLoop = Flux.interval(syncInterval, syncInterval)
+                .onBackpressureDrop()
+                // force() es una llamada bloqueante (msync): fuera del event loop y del scheduler de Flux.interval
+                .concatMap(tick -> Mono.fromRunnable(wal::force)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(error -> {
+                            log.warn("Write-ahead log sync failed: {}", error.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @Override
+    public void stop() {
+        Disposable running = syncLoop;
+        if (running != null) {
+            running.dispose();
+        }
+        syncLoop = null;
+        wal.force();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return syncLoop != null && !syncLoop.isDisposed();
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        wal.close();
+    }
+
+    private void logStatusChange(Transaction previous, TransactionStatus newStatus) {
+        logRow(new Transaction(previous.getId(), newStatus, previous.getAmount(), previous.getCurrency(), previous.getVersion() + 1));
+    }
+
+    private void logRow(Transaction row) {
+        wal.append(out -> {
+            out.put(ROW).putLong(row.getId()).putLong(row.getVersion());
+            putStatus(out, row.getStatus());
+            if (row.getAmount() == null) {
+                out.putInt(-1);
+            } else {
+                byte[] unscaled = row.getAmount().unscaledValue().toByteArray();
+                out.putInt(unscaled.length).put(unscaled).putInt(row.getAmount().scale());
+            }
+            putString(out, row.getCurrency());
+        });
+    }
+
+    private void replay(ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case ROW -> {
+                long id = record.getLong();
+                long version = record.getLong();
+                TransactionStatus status = getStatus(record);
+                int unscaledLength = record.getInt();
+                BigDecimal amount = null;
+                if (unscaledLength >= 0) {
+                    byte[] unscaled = new byte[unscaledLength];
+                    record.get(unscaled);
+                    amount = new BigDecimal(new BigInteger(unscaled), record.getInt());
+                }
+                delegate.restore(id, new InMemoryTransactionStore.Row(status, amount, getString(record), version));
+            }
+            case DELETE -> delegate.delete(record.getLong());
+            case CLEAR_HISTORY -> delegate.clearHistory();
+            case HISTORY -> {
+                long id = record.getLong();
+                long transactionId = record.getLong();
+                TransactionStatus previousStatus = getStatus(record);
+                TransactionStatus newStatus = getStatus(record);
+                long micros = record.getLong();
+                delegate.restoreHistory(new InMemoryTransactionStore.Entry(id, transactionId, previousStatus, newStatus,
+                        micros == Long.MIN_VALUE ? null : fromMicros(micros), getString(record)));
+            }
+            case REMOVE_HISTORY -> delegate.removeHistory(List.of(record.getLong()));
+            default -> throw new IllegalStateException("Unknown write-ahead log record type " + type);
+        }
+    }
+
+    private static void putStatus(ByteBuffer out, TransactionStatus status) {
+        out.put(status == null ? -1 : (byte) status.ordinal());
+    }
+
+    private static TransactionStatus getStatus(ByteBuffer in) {
+        byte ordinal = in.get();
+        return ordinal < 0 ? null : TransactionStatus.values()[ordinal];
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(utf8.length).put(utf8);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static long toMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + dateTime.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
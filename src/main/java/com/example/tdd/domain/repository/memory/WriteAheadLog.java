@@ -0,0 +1,153 @@
+package com.example.tdd.domain.repository.memory;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+// Log de solo escritura sobre un fichero mapeado en memoria, en segmentos de 'segmentSize' bytes:
+//
+//   registro   longitud del contenido (int) | CRC32C del contenido (int) | contenido
+//   relleno    -1 (int): el resto del segmento está vacío, el siguiente registro empieza en el segmento siguiente
+//   fin        0 (int): zona aún sin escribir (el fichero crece con ceros al mapear cada segmento)
+//
+// Escribir un registro es copiar bytes en la page cache, sin llamadas al sistema: sobrevive a la caída del proceso
+// pero no a la del sistema operativo hasta el siguiente force(), que fuerza también el segmento recién abandonado
+// (si no, sus últimos registros se perderían aunque el sync periódico hubiera pasado después). Al abrir se recorren los registros en orden y
+// se entregan a 'replay'; el primero con CRC inválido (escrito a medias) marca el final y lo que queda del
+// segmento se pone a cero para que los bytes de ese registro no se lean nunca como válidos.
+@Slf4j
+final class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final int PADDING = -1;
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final ByteBuffer scratch;
+    private final CRC32C crc = new CRC32C();
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    // Segmento que append acaba de dejar y que aún no se ha forzado: lo fuerza el siguiente force()
+    private MappedByteBuffer retired;
+
+    private WriteAheadLog(FileChannel channel, int segmentSize) {
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+        this.scratch = ByteBuffer.allocate(Math.min(segmentSize - HEADER_BYTES, 64 * 1024));
+    }
+
+    static WriteAheadLog open(Path file, int segmentSize, Consumer<ByteBuffer> replay) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        WriteAheadLog wal = new WriteAheadLog(channel, segmentSize);
+        try {
+            long records = wal.recover(replay);
+            log.info("Write-ahead log {} replayed: {} records", file, records);
+            return wal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Serializado: el log es secuencial por naturaleza; cada alta es una copia de unos pocos bytes
+    synchronized void append(Consumer<ByteBuffer> encoder) {
+        scratch.clear();
+        encoder.accept(scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+        if (segment.remaining() < HEADER_BYTES + length) {
+            if (segment.remaining() >= Integer.BYTES) {
+                segment.putInt(PADDING);
+            }
+            // Dos cambios de segmento entre dos sync: el más antiguo se fuerza ya para no perder su referencia
+            if (retired != null) {
+                retired.force();
+            }
+            retired = segment;
+            mapSegment(segmentIndex + 1);
+        }
+        crc.reset();
+        crc.update(scratch.duplicate());
+        segment.putInt(length).putInt((int) crc.getValue()).put(scratch);
+    }
+
+    synchronized void force() {
+        if (retired != null) {
+            retired.force();
+            retired = null;
+        }
+        segment.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private long recover(Consumer<ByteBuffer> replay) throws IOException {
+        long records = 0;
+        mapSegment(0);
+        while (true) {
+            if (segment.remaining() < HEADER_BYTES) {
+                mapSegment(segmentIndex + 1);
+                continue;
+            }
+            int start = segment.position();
+            int length = segment.getInt();
+            if (length == PADDING) {
+                mapSegment(segmentIndex + 1);
+                continue;
+            }
+            int checksum = segment.getInt();
+            if (length <= 0 || length > segment.remaining() || !valid(start + HEADER_BYTES, length, checksum)) {
+                segment.position(start);
+                if (length != 0) {
+                    log.warn("Write-ahead log truncated at segment {} offset {}: incomplete record discarded", segmentIndex, start);
+                    zeroRemaining();
+                }
+                return records;
+            }
+            ByteBuffer record = segment.slice(start + HEADER_BYTES, length);
+            replay.accept(record);
+            segment.position(start + HEADER_BYTES + length);
+            records++;
+        }
+    }
+
+    private boolean valid(int offset, int length, int checksum) {
+        crc.reset();
+        crc.update(segment.slice(offset, length));
+        return (int) crc.getValue() == checksum;
+    }
+
+    private void zeroRemaining() {
+        int position = segment.position();
+        while (segment.hasRemaining()) {
+            segment.put((byte) 0);
+        }
+        segment.position(position);
+    }
+
+    private void mapSegment(long index) {
+        try {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, index * segmentSize, segmentSize);
+            segmentIndex = index;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to map write-ahead log segment " + index, e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.TransactionHistory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Cambios de estado de transacciones (la cancelación es el caso particular con destino CANCELLED),
+// independientes del acceso a datos:
+// TransactionService (R2DBC, por defecto) o JdbcTransactionService (perfil "jdbc", JDBC sobre hilos virtuales).
+// Ambas devuelven los mismos resultados y las mismas excepciones, así que las rutas y
+// CustomWebExceptionHandler no cambian entre modos.
+public interface CancellationOperations {
+
+    // Cualquier transición admitida por TransactionStateMachine, con un único UPDATE condicional e historial
+    Mono<TransactionHistory> changeStatus(Long transactionId, TransactionStatus target);
+
+    // Igual, registrando además idMensaje en processed_message dentro de la misma transacción de la implementación
+    // (R2DBC o JDBC): el cambio y su registro de idempotencia se confirman juntos o no se confirma ninguno
+    Mono<TransactionHistory> changeStatus(Long transactionId, TransactionStatus target, String idMensaje);
+
+    Mono<TransactionHistory> cancelTransaction(Long transactionId);
+
+    Flux<CancellationResult> cancelTransactions(Collection<Long> transactionIds);
+
+    // Igual, registrando en processed_message el idMensaje de cada id cancelado (idMensajes: id -> idMensaje)
+    // dentro de la misma transacción: es la confirmación única de un grupo (GroupCommitCancellationService)
+    Flux<CancellationResult> cancelTransactions(Collection<Long> transactionIds, Map<Long, String> idMensajes);
+}
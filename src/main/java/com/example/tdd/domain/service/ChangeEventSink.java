@@ -0,0 +1,15 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.domain.model.TransactionHistory;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Destino de los eventos de cambio que publica OutboxRelay.
+// Entrega al menos una vez: si publish falla (o la aplicación cae antes de confirmar el lote),
+// el mismo lote se vuelve a publicar, así que los consumidores deben deduplicar por el id del historial.
+public interface ChangeEventSink {
+
+    // Debe completar solo cuando el lote es durable en el destino
+    Mono<Void> publish(List<TransactionHistory> events);
+}
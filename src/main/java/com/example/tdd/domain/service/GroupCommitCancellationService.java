@@ -0,0 +1,195 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.GroupCommitProperties;
+import com.example.tdd.domain.enums.CancellationOutcome;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.shared.exception.ResourceNotFoundException;
+import com.example.tdd.shared.exception.ServiceUnavailableException;
+import com.example.tdd.shared.exception.TransactionProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Group commit de cancelaciones individuales (tdd.group-commit.enabled): las cancelaciones que llegan dentro de
+// la misma ventana (window) o hasta completar maxBatchSize se confirman juntas con el camino masivo,
+// es decir, una transacción con un UPDATE condicional, un insert en batch del historial, un insert en el outbox
+// y otro en processed_message con el idMensaje de cada llamante: N cancelaciones, una sola confirmación.
+// Los llamantes no abren transacción propia ni retienen conexión mientras esperan al grupo.
+// Cada llamante recibe su propio resultado: su historial, 409 si ya estaba cancelada o un guard la rechaza,
+// o 404 si no existe; un fallo del grupo completo llega a todos sus miembros.
+// Se cambia algo de latencia (como mucho 'window') por muchas menos confirmaciones por segundo en la base de datos.
+// POST /cancelar queda fuera del límite de concurrencia, así que la cola se protege sola: como mucho 'maxPending'
+// cancelaciones admitidas y sin responder; por encima se rechaza con 503 y Retry-After en lugar de crecer en el heap.
+@Service
+@Slf4j
+public class GroupCommitCancellationService implements DisposableBean {
+
+    public static final String BATCH_SIZE_SUMMARY = "tdd.group-commit.batch.size";
+    public static final String REJECTED_COUNTER = "tdd.group-commit.rejected";
+
+    private static final Duration EMIT_SPIN = Duration.ofMillis(100);
+
+    private final CancellationOperations cancellationOperations;
+    private final TransactionStateMachine transactionStateMachine;
+    private final GroupCommitProperties properties;
+    private final Sinks.Many<PendingCancellation> pending;
+    // Admitidas y aún sin responder: en la cola, en el buffer del grupo o confirmándose. bufferTimeout pide sin
+    // límite a la cola, así que la capacidad de la cola por sí sola no acotaría lo retenido
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final ServiceUnavailableException saturated;
+    private final Counter rejectedCounter;
+    private final Disposable flusher;
+
+    public GroupCommitCancellationService(CancellationOperations cancellationOperations,
+                                          TransactionStateMachine transactionStateMachine,
+                                          GroupCommitProperties properties,
+                                          MeterRegistry meterRegistry) {
+        this.cancellationOperations = cancellationOperations;
+        this.transactionStateMachine = transactionStateMachine;
+        this.properties = properties;
+        this.pending = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingCancellation>get(properties.maxPending()).get());
+        this.saturated = new ServiceUnavailableException("Cancellation queue is full, retry later.", properties.retryAfter());
+        this.rejectedCounter = Counter.builder(REJECTED_COUNTER).register(meterRegistry);
+        DistributionSummary batchSize = DistributionSummary.builder(BATCH_SIZE_SUMMARY)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.flusher = !properties.enabled() ? null : pending.asFlux()
+                .bufferTimeout(properties.maxBatchSize(), properties.window())
+                .doOnNext(batch -> batchSize.record(batch.size()))
+                .flatMap(batch -> flush(batch), properties.maxConcurrentFlushes())
+                .subscribe();
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    // Se confirma en la transacción del grupo, no en la del llamante (el flush no hereda su Context);
+    // idMensaje (opcional) se registra en processed_message en esa misma transacción
+    public Mono<TransactionHistory> cancelTransaction(Long transactionId, String idMensaje) {
+        return Mono.create(sink -> {
+            if (admitted.incrementAndGet() > properties.maxPending()) {
+                reject(sink);
+                return;
+            }
+            if (offer(new PendingCancellation(transactionId, idMensaje, sink)).isFailure()) {
+                reject(sink);
+            }
+        });
+    }
+
+    // tryEmitNext y no emitNext: un FAIL_OVERFLOW en emitNext terminaría el sink y con él el flusher
+    private Sinks.EmitResult offer(PendingCancellation cancellation) {
+        long deadline = System.nanoTime() + EMIT_SPIN.toNanos();
+        Sinks.EmitResult result = pending.tryEmitNext(cancellation);
+        // Varios hilos emiten a la vez: reintento breve en lugar de FAIL_NON_SERIALIZED
+        while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            result = pending.tryEmitNext(cancellation);
+        }
+        return result;
+    }
+
+    private void reject(MonoSink<TransactionHistory> sink) {
+        admitted.decrementAndGet();
+        rejectedCounter.increment();
+        sink.error(saturated);
+    }
+
+    private Mono<Void> flush(List<PendingCancellation> batch) {
+        List<Long> ids = batch.stream().map(PendingCancellation::transactionId).distinct().toList();
+        // Con un id repetido solo el primero cancela (ver complete): solo su idMensaje queda registrado
+        Map<Long, String> idMensajes = new HashMap<>();
+        for (PendingCancellation cancellation : batch) {
+            if (cancellation.idMensaje() != null) {
+                idMensajes.putIfAbsent(cancellation.transactionId(), cancellation.idMensaje());
+            }
+        }
+        return cancellationOperations.cancelTransactions(ids, idMensajes)
+                .collectMap(CancellationResult::transactionId, Function.identity())
+                .doOnNext(results -> complete(batch, results))
+                // Un idMensaje ya registrado por otra instancia hace fallar la PK y deshace todo el grupo:
+                // se repite cada cancelación por separado para que solo la duplicada reciba el error
+                .onErrorResume(error -> error instanceof DataIntegrityViolationException && batch.size() > 1,
+                        error -> Flux.fromIterable(batch)
+                                .concatMap(cancellation -> flush(List.of(cancellation)))
+                                .then(Mono.empty()))
+                .doOnError(error -> {
+                    log.warn("Group commit of {} cancellations failed: {}", batch.size(), error.getMessage());
+                    batch.forEach(cancellation -> fail(cancellation, error));
+                })
+                .onErrorResume(error -> Mono.empty())
+                .then();
+    }
+
+    private void complete(List<PendingCancellation> batch, Map<Long, CancellationResult> results) {
+        // Un id repetido en el mismo grupo: solo el primero lo cancela, el resto ve el 409 que habría recibido después
+        Set<Long> delivered = new HashSet<>();
+        for (PendingCancellation cancellation : batch) {
+            Long transactionId = cancellation.transactionId();
+            CancellationResult result = results.get(transactionId);
+            if (result == null) {
+                fail(cancellation, new IllegalStateException("Missing group commit result for transaction " + transactionId));
+            } else if (result.outcome() == CancellationOutcome.REJECTED) {
+                // Un guard rechazó la cancelación: el mismo 409 que en el camino individual, para cada llamante
+                fail(cancellation, new TransactionProcessingException(result.reason()));
+            } else if (!delivered.add(transactionId)) {
+                fail(cancellation, alreadyCancelled());
+            } else {
+                switch (result.outcome()) {
+                    case CANCELLED -> succeed(cancellation, result.history());
+                    case ALREADY_CANCELLED -> fail(cancellation, alreadyCancelled());
+                    case NOT_FOUND -> fail(cancellation,
+                            new ResourceNotFoundException("Transaction not found with id: " + transactionId));
+                    case REJECTED -> throw new IllegalStateException("Guard rejections are completed above");
+                }
+            }
+        }
+    }
+
+    // El permiso de la cola se devuelve antes de responder: quien recibe su resultado ya puede volver a encolar
+    private void succeed(PendingCancellation cancellation, TransactionHistory history) {
+        admitted.decrementAndGet();
+        cancellation.sink().success(history);
+    }
+
+    private void fail(PendingCancellation cancellation, Throwable error) {
+        admitted.decrementAndGet();
+        cancellation.sink().error(error);
+    }
+
+    private RuntimeException alreadyCancelled() {
+        return transactionStateMachine.rejection(TransactionStatus.CANCELLED, TransactionStatus.CANCELLED);
+    }
+
+    @Override
+    public void destroy() {
+        if (flusher != null) {
+            flusher.dispose();
+        }
+    }
+
+    private record PendingCancellation(Long transactionId, String idMensaje, MonoSink<TransactionHistory> sink) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.common.archive.HistoryArchiveReader;
+import com.example.tdd.common.archive.HistoryArchiveWriter;
+import com.example.tdd.config.HistoryPartitionProperties;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.repository.TransactionHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static com.example.tdd.domain.repository.HistoryPartitionRouter.idBase;
+
+// Exporta particiones mensuales del historial a ficheros columnares comprimidos (history-yyyyMM.tha) y
+// permite consultarlos (TransactionHistoryService) una vez eliminadas de la base de datos.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HistoryArchiveService {
+
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final HistoryPartitionProperties properties;
+    // Scheduler acotado de la E/S bloqueante (ReactorRuntimeConfig)
+    private final Scheduler blockingScheduler;
+
+    public Path archiveFile(YearMonth month) {
+        return properties.archiveDirectory().resolve(String.format("history-%d%02d.tha", month.getYear(), month.getMonthValue()));
+    }
+
+    // Lee la partición en streaming (por id) y escribe un bloque por cada 'archiveBlockRows' filas.
+    // Devuelve el número de filas archivadas; el fichero solo aparece con su nombre final si se completó.
+    public Mono<Long> archivePartition(YearMonth month) {
+        Path target = archiveFile(month);
+        return Mono.using(() -> HistoryArchiveWriter.create(target),
+                        writer -> transactionHistoryRepository.findPartition(month)
+                                .buffer(properties.archiveBlockRows())
+                                // E/S bloqueante (compresión y escritura): fuera del event loop
+                                .publishOn(blockingScheduler, 1)
+                                .doOnNext(block -> appendBlock(writer, block))
+                                .then(Mono.fromCallable(() -> {
+                                    writer.finish();
+                                    return writer.rows();
+                                })),
+                        HistoryArchiveService::closeQuietly)
+                .subscribeOn(blockingScheduler)
+                .doOnSuccess(rows -> log.info("Archived {} history rows of {} to {}", rows, month, target));
+    }
+
+    // Mismos filtros y mismo orden (por id) que la consulta del historial vivo, sobre los meses archivados que
+    // acepta 'months'. Solo se abren los ficheros que pueden contener filas de [from, to) con id > afterId
+    public Flux<TransactionHistory> findArchived(TransactionHistoryFilter filter, Predicate<YearMonth> months) {
+        YearMonth first = filter.from() != null ? YearMonth.from(filter.from()) : null;
+        YearMonth last = filter.to() != null ? YearMonth.from(filter.to().minusNanos(1)) : null;
+        Flux<TransactionHistory> histories = Flux.defer(() -> Flux.fromIterable(archivedMonths()))
+                .filter(months)
+                .filter(month -> first == null || !month.isBefore(first))
+                .filter(month -> last == null || !month.isAfter(last))
+                .filter(month -> filter.afterId() == null || idBase(month.plusMonths(1)) > filter.afterId())
+                // El fichero ya está ordenado por id: se emite bloque a bloque sin cargar el mes en memoria
+                .concatMap(month -> Flux.using(() -> HistoryArchiveReader.open(archiveFile(month)),
+                                reader -> reader.scan(filter.transactionId(), filter.from(), filter.to(), filter.afterId()),
+                                HistoryArchiveService::closeQuietly)
+                        // La apertura y cada petición (descompresión, fallos de página del mmap) van al scheduler acotado
+                        .subscribeOn(blockingScheduler))
+                .filter(history -> filter.status() == null || history.getNewStatus() == filter.status());
+        return filter.limit() != null ? histories.take(filter.limit()) : histories;
+    }
+
+    private List<YearMonth> archivedMonths() {
+        Path directory = properties.archiveDirectory();
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.matches("history-\\d{6}\\.tha"))
+                    .map(name -> YearMonth.of(Integer.parseInt(name.substring(8, 12)), Integer.parseInt(name.substring(12, 14))))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list history archive " + directory, e);
+        }
+    }
+
+    private static void appendBlock(HistoryArchiveWriter writer, List<TransactionHistory> block) {
+        try {
+            writer.appendBlock(block);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write history archive block", e);
+        }
+    }
+
+    private static void closeQuietly(HistoryArchiveWriter writer) {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Failed to close history archive writer: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(HistoryArchiveReader reader) {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.warn("Failed to close history archive reader: {}", e.getMessage());
+        }
+    }
+}
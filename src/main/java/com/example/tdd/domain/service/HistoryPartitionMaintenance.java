@@ -0,0 +1,108 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.HistoryPartitionProperties;
+import com.example.tdd.domain.repository.HistoryPartitionRouter;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Mantenimiento periódico de las particiones del historial:
+// - crea por adelantado la del mes en curso y las 'premakeMonths' siguientes, para que el DDL no ocurra en
+//   el camino de una cancelación al cambiar de mes;
+// - elimina con DROP TABLE las particiones más antiguas que 'retentionMonths' (coste constante, sin DELETE
+//   fila a fila ni fragmentación de índices en las particiones vivas), archivándolas antes si archiveEnabled.
+//   Si el archivado falla la partición se conserva y se reintenta en la siguiente pasada;
+// - borra de processed_message los mensajes anteriores a la partición más antigua conservada: la ventana de
+//   idempotencia es la misma que la del historial.
+@Service
+@Slf4j
+public class HistoryPartitionMaintenance implements SmartLifecycle {
+
+    public static final String PARTITIONS_GAUGE = "tdd.history.partitions";
+
+    private final HistoryPartitionRouter partitionRouter;
+    private final HistoryArchiveService historyArchiveService;
+    private final ProcessedMessageRepository processedMessageRepository;
+    private final HistoryPartitionProperties properties;
+    private final AtomicInteger partitionCount = new AtomicInteger();
+    private volatile Disposable loop;
+
+    public HistoryPartitionMaintenance(HistoryPartitionRouter partitionRouter,
+                                       HistoryArchiveService historyArchiveService,
+                                       ProcessedMessageRepository processedMessageRepository,
+                                       HistoryPartitionProperties properties,
+                                       MeterRegistry meterRegistry) {
+        this.partitionRouter = partitionRouter;
+        this.historyArchiveService = historyArchiveService;
+        this.processedMessageRepository = processedMessageRepository;
+        this.properties = properties;
+        Gauge.builder(PARTITIONS_GAUGE, partitionCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        // Primera pasada inmediata al arrancar; después cada 'maintenanceInterval'
+        loop = Flux.interval(Duration.ZERO, properties.maintenanceInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> maintain(YearMonth.now())
+                        .onErrorResume(error -> {
+                            log.warn("History partition maintenance failed: {}", error.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+        log.info("History partition maintenance started (retention {} months, interval {})",
+                properties.retentionMonths(), properties.maintenanceInterval());
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = loop;
+        if (current != null) {
+            current.dispose();
+        }
+        loop = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return loop != null && !loop.isDisposed();
+    }
+
+    // Devuelve el número de particiones eliminadas
+    public Mono<Integer> maintain(YearMonth currentMonth) {
+        YearMonth oldestRetained = currentMonth.minusMonths(properties.retentionMonths() - 1L);
+        return Flux.range(0, properties.premakeMonths() + 1)
+                .concatMap(offset -> partitionRouter.ensurePartition(currentMonth.plusMonths(offset)))
+                .then(partitionRouter.partitions())
+                .flatMapMany(Flux::fromIterable)
+                .filter(month -> month.isBefore(oldestRetained))
+                .concatMap(month -> (properties.archiveEnabled()
+                        ? historyArchiveService.archivePartition(month).then()
+                        : Mono.<Void>empty())
+                        .then(partitionRouter.dropPartition(month))
+                        .thenReturn(month))
+                .count()
+                .flatMap(dropped -> processedMessageRepository
+                        .deleteProcessedBefore(oldestRetained.atDay(1).atStartOfDay())
+                        .doOnNext(expired -> {
+                            if (expired > 0) {
+                                log.info("Expired {} processed messages older than {}", expired, oldestRetained);
+                            }
+                        })
+                        .thenReturn(dropped))
+                .flatMap(dropped -> partitionRouter.partitions().map(partitions -> {
+                    partitionCount.set(partitions.size());
+                    return dropped.intValue();
+                }));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.IdempotencyProperties;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.ProcessedMessage;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
+import com.example.tdd.shared.exception.InvalidInputException;
+import com.example.tdd.shared.exception.TransactionFailureException;
+import com.example.tdd.shared.exception.TransactionProcessingException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+// Idempotencia de la cancelación por el header idMensaje:
+// - un reintento del mismo mensaje recibe la respuesta original en lugar de un 409,
+// - los duplicados concurrentes comparten un único Mono en vuelo (una sola transacción de BD para N reintentos),
+// - la tabla processed_message, escrita en la misma transacción que la cancelación, cubre reinicios y otras instancias
+//   y guarda la respuesta original, que se repite aunque el historial ya no exista.
+@Service
+@Slf4j
+public class IdempotentCancellationService {
+
+    private final CancellationOperations cancellationOperations;
+    private final ProcessedMessageRepository processedMessageRepository;
+    private final TransactionCommandDispatcher transactionCommandDispatcher;
+    private final GroupCommitCancellationService groupCommitCancellationService;
+    private final AsyncCache<String, TransactionHistory> responses;
+
+    public IdempotentCancellationService(CancellationOperations cancellationOperations,
+                                         ProcessedMessageRepository processedMessageRepository,
+                                         TransactionCommandDispatcher transactionCommandDispatcher,
+                                         GroupCommitCancellationService groupCommitCancellationService,
+                                         IdempotencyProperties properties) {
+        this.cancellationOperations = cancellationOperations;
+        this.processedMessageRepository = processedMessageRepository;
+        this.transactionCommandDispatcher = transactionCommandDispatcher;
+        this.groupCommitCancellationService = groupCommitCancellationService;
+        // Los futuros que terminan con error no se quedan en la cache: solo se recuerdan las respuestas correctas
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .buildAsync();
+    }
+
+    public Mono<TransactionHistory> cancelTransaction(String idMensaje, Long transactionId) {
+        return changeStatus(idMensaje, transactionId, TransactionStatus.CANCELLED);
+    }
+
+    // Cualquier transición (PATCH /transacciones/{id}/estado) con la misma garantía de idempotencia
+    public Mono<TransactionHistory> changeStatus(String idMensaje, Long transactionId, TransactionStatus target) {
+        // suppressCancel: si un llamante se desconecta no se cancela el futuro que comparten los demás
+        return Mono.fromFuture(() -> responses.get(idMensaje, (key, executor) -> process(key, transactionId, target).toFuture()), true)
+                .flatMap(history -> {
+                    if (!history.getTransactionId().equals(transactionId)) {
+                        log.warn("Message {} was already used for transaction {}", idMensaje, history.getTransactionId());
+                        return Mono.error(new InvalidInputException("Header 'idMensaje' was already used for a different transaction."));
+                    }
+                    if (history.getNewStatus() != target) {
+                        log.warn("Message {} was already used to change transaction {} to {}", idMensaje, transactionId, history.getNewStatus());
+                        return Mono.error(new InvalidInputException("Header 'idMensaje' was already used for a different status change."));
+                    }
+                    return Mono.just(history);
+                });
+    }
+
+    private Mono<TransactionHistory> process(String idMensaje, Long transactionId, TransactionStatus target) {
+        return findProcessed(idMensaje)
+                .doOnNext(history -> log.info("Replaying stored response for message {}", idMensaje))
+                .switchIfEmpty(Mono.defer(() -> changeAndRecord(idMensaje, transactionId, target)));
+    }
+
+    private Mono<TransactionHistory> changeAndRecord(String idMensaje, Long transactionId, TransactionStatus target) {
+        return change(idMensaje, transactionId, target)
+                // Otra instancia procesó el mismo mensaje a la vez: nuestra cancelación ve la transacción ya
+                // cancelada (409) o choca con la PK de processed_message; en ambos casos respondemos con la suya.
+                .onErrorResume(error -> error instanceof TransactionProcessingException
+                                        || error instanceof TransactionFailureException
+                                        || error instanceof DataIntegrityViolationException,
+                        error -> findProcessed(idMensaje).switchIfEmpty(Mono.error(error)));
+    }
+
+    // La implementación (R2DBC o JDBC) escribe processed_message en la misma transacción que el cambio:
+    // o se guarda todo o nada, y en el modo JDBC no queda ninguna conexión R2DBC retenida durante la llamada.
+    // Con group commit las cancelaciones se confirman en la transacción de su grupo, que registra también los
+    // idMensaje; el llamante solo espera su resultado, sin transacción propia ni stripe del dispatcher
+    // (una conexión retenida por llamante agotaría el pool que necesita el propio grupo).
+    // El resto de transiciones no se agrupa.
+    private Mono<TransactionHistory> change(String idMensaje, Long transactionId, TransactionStatus target) {
+        if (target == TransactionStatus.CANCELLED && groupCommitCancellationService.isEnabled()) {
+            return groupCommitCancellationService.cancelTransaction(transactionId, idMensaje);
+        }
+        // Serializada por transacción e incluyendo el commit: el siguiente cambio sobre el mismo id no espera
+        // el bloqueo de la fila. Con la stripe llena se rechaza con 429 (no se cachea: los errores no se recuerdan)
+        return transactionCommandDispatcher.dispatch(transactionId,
+                cancellationOperations.changeStatus(transactionId, target, idMensaje));
+    }
+
+    // La respuesta sale de la propia fila de processed_message: sigue disponible cuando la partición del historial
+    // ya se ha eliminado (ambas retenciones van alineadas)
+    private Mono<TransactionHistory> findProcessed(String idMensaje) {
+        return processedMessageRepository.findById(idMensaje).map(ProcessedMessage::toHistory);
+    }
+}
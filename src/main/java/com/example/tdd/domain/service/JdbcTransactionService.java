@@ -0,0 +1,235 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.common.metrics.CancelFlowMetrics;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.jdbc.JdbcTransactionHistoryRepository;
+import com.example.tdd.domain.repository.jdbc.JdbcTransactionRepository;
+import com.example.tdd.shared.exception.ResourceNotFoundException;
+import com.example.tdd.shared.exception.TransactionFailureException;
+import com.example.tdd.shared.exception.TransactionProcessingException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Modo JDBC (perfil "jdbc"): los mismos cambios de estado que TransactionService, pero con JDBC bloqueante.
+// Cada llamada ocupa un hilo virtual durante toda su transacción (TransactionTemplate + HikariCP);
+// el event loop de Netty nunca se bloquea. La API reactiva y las excepciones son idénticas.
+// La transacción JDBC se confirma por su cuenta y no se une a una transacción reactiva del llamante: todo lo que
+// deba ser atómico con el cambio (historial, outbox, processed_message) se escribe dentro de la propia plantilla.
+@Service
+@Profile("jdbc")
+@Primary
+@Slf4j
+public class JdbcTransactionService implements CancellationOperations, DisposableBean {
+
+    private static final String USER_SYSTEM = "SYSTEM";
+
+    private final JdbcTransactionRepository transactionRepository;
+    private final JdbcTransactionHistoryRepository transactionHistoryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionLookupService transactionLookupService;
+    private final TransactionStateMachine transactionStateMachine;
+    private final CancelFlowMetrics cancelFlowMetrics;
+    private final VersionConflictRetry versionConflictRetry;
+    private final TransactionStatisticsService transactionStatisticsService;
+    private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+    private final Scheduler scheduler = Schedulers.fromExecutorService(virtualThreads, "jdbc-virtual");
+
+    public JdbcTransactionService(JdbcTransactionRepository transactionRepository,
+                                  JdbcTransactionHistoryRepository transactionHistoryRepository,
+                                  TransactionTemplate jdbcTransactionTemplate,
+                                  TransactionLookupService transactionLookupService,
+                                  TransactionStateMachine transactionStateMachine,
+                                  CancelFlowMetrics cancelFlowMetrics,
+                                  VersionConflictRetry versionConflictRetry,
+                                  TransactionStatisticsService transactionStatisticsService) {
+        this.transactionRepository = transactionRepository;
+        this.transactionHistoryRepository = transactionHistoryRepository;
+        this.transactionTemplate = jdbcTransactionTemplate;
+        this.transactionLookupService = transactionLookupService;
+        this.transactionStateMachine = transactionStateMachine;
+        this.cancelFlowMetrics = cancelFlowMetrics;
+        this.versionConflictRetry = versionConflictRetry;
+        this.transactionStatisticsService = transactionStatisticsService;
+    }
+
+    @Override
+    public Mono<TransactionHistory> cancelTransaction(Long transactionId) {
+        return changeStatus(transactionId, TransactionStatus.CANCELLED);
+    }
+
+    @Override
+    public Mono<TransactionHistory> changeStatus(Long transactionId, TransactionStatus target) {
+        return changeStatus(transactionId, target, null);
+    }
+
+    @Override
+    public Mono<TransactionHistory> changeStatus(Long transactionId, TransactionStatus target, String idMensaje) {
+        return transactionStateMachine.checkGuards(transactionId, target)
+                // Cada intento es una transacción completa; solo los conflictos de versión se reintentan
+                .then(Mono.fromCallable(() -> versionConflictRetry.executeBlocking(
+                                () -> transactionTemplate.execute(status -> {
+                                    TransactionHistory history = changeStatusBlocking(transactionId, target);
+                                    if (idMensaje != null) {
+                                        transactionHistoryRepository.insertProcessedMessage(idMensaje, history, LocalDateTime.now());
+                                    }
+                                    return history;
+                                })))
+                        .subscribeOn(scheduler)
+                        .onErrorMap(ex -> !(ex instanceof ResourceNotFoundException || ex instanceof TransactionProcessingException
+                                        || ex instanceof TransactionFailureException),
+                                ex -> toProcessingException(transactionId, ex)))
+                // Tras el commit: la entrada cacheada deja de ser válida
+                .flatMap(history -> transactionLookupService.evictAfterCompletion(List.of(transactionId)).thenReturn(history));
+    }
+
+    @Override
+    public Flux<CancellationResult> cancelTransactions(Collection<Long> transactionIds) {
+        return cancelTransactions(transactionIds, Map.of());
+    }
+
+    @Override
+    public Flux<CancellationResult> cancelTransactions(Collection<Long> transactionIds, Map<Long, String> idMensajes) {
+        Set<Long> ids = new LinkedHashSet<>(transactionIds);
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        // Los guards (reactivos) se resuelven antes de abrir la transacción JDBC, igual que en changeStatus
+        return transactionStateMachine.guardRejections(ids, TransactionStatus.CANCELLED)
+                .flatMap(guardRejections -> Mono.fromCallable(() -> transactionTemplate.execute(
+                                status -> cancelBulkBlocking(ids, guardRejections, idMensajes)))
+                        .subscribeOn(scheduler))
+                .flatMap(results -> transactionLookupService.evictAfterCompletion(ids).thenReturn(results))
+                .flatMapIterable(results -> results);
+    }
+
+    private TransactionHistory changeStatusBlocking(Long transactionId, TransactionStatus target) {
+        log.info("Attempting to change transaction {} to {}", transactionId, target);
+        long start = System.nanoTime();
+        Transaction previous = transactionRepository.compareAndSetStatus(transactionId, target,
+                transactionStateMachine.allowedFrom(target)).orElse(null);
+        cancelFlowMetrics.recordStage(CancelFlowMetrics.STAGE_UPDATE, start, null);
+        if (previous == null) {
+            previous = resolveMiss(transactionId, target);
+        }
+        transactionStatisticsService.recordAfterCommitBlocking(List.of(previous), target);
+
+        TransactionHistory historyRecord = TransactionHistory.builder()
+                .transactionId(transactionId)
+                .previousStatus(previous.getStatus())
+                .newStatus(target)
+                .changeDate(LocalDateTime.now())
+                .userPerformingAction(USER_SYSTEM)
+                .build();
+        start = System.nanoTime();
+        TransactionHistory saved = transactionHistoryRepository.save(historyRecord);
+        transactionHistoryRepository.insertOutboxEvents(List.of(saved));
+        cancelFlowMetrics.recordStage(CancelFlowMetrics.STAGE_HISTORY_SAVE, start, null);
+        log.info("History record created for transaction {}: {}", transactionId, saved.getId());
+        return saved;
+    }
+
+    private List<CancellationResult> cancelBulkBlocking(Set<Long> ids, Map<Long, String> guardRejections,
+                                                        Map<Long, String> idMensajes) {
+        log.info("Attempting to cancel {} transactions in bulk", ids.size());
+        LocalDateTime changeDate = LocalDateTime.now();
+        List<Long> allowed = ids.stream().filter(id -> !guardRejections.containsKey(id)).toList();
+        List<Transaction> previousRows = allowed.isEmpty() ? List.of() : transactionRepository.compareAndSetStatusIn(
+                allowed, TransactionStatus.CANCELLED, transactionStateMachine.allowedFrom(TransactionStatus.CANCELLED));
+        transactionStatisticsService.recordAfterCommitBlocking(previousRows, TransactionStatus.CANCELLED);
+        List<TransactionHistory> records = previousRows.stream()
+                .map(previous -> TransactionHistory.builder()
+                        .transactionId(previous.getId())
+                        .previousStatus(previous.getStatus())
+                        .newStatus(TransactionStatus.CANCELLED)
+                        .changeDate(changeDate)
+                        .userPerformingAction(USER_SYSTEM)
+                        .build())
+                .collect(Collectors.toList());
+        Map<Long, TransactionHistory> cancelled = transactionHistoryRepository.saveAllBatched(records).stream()
+                .collect(Collectors.toMap(TransactionHistory::getTransactionId, Function.identity()));
+        if (!cancelled.isEmpty()) {
+            transactionHistoryRepository.insertOutboxEvents(cancelled.values());
+        }
+        // Group commit: el registro de idempotencia de cada llamante cancelado, en la misma transacción
+        Map<String, TransactionHistory> processed = new LinkedHashMap<>();
+        idMensajes.forEach((transactionId, idMensaje) -> {
+            TransactionHistory history = cancelled.get(transactionId);
+            if (history != null) {
+                processed.put(idMensaje, history);
+            }
+        });
+        if (!processed.isEmpty()) {
+            transactionHistoryRepository.insertProcessedMessages(processed, changeDate);
+        }
+        List<Long> rejected = allowed.stream().filter(id -> !cancelled.containsKey(id)).toList();
+        Set<Long> existing = rejected.isEmpty() ? Set.of() : Set.copyOf(transactionRepository.findExistingIds(rejected));
+
+        List<CancellationResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TransactionHistory history = cancelled.get(id);
+            if (history != null) {
+                results.add(CancellationResult.cancelled(history));
+            } else if (guardRejections.containsKey(id)) {
+                results.add(CancellationResult.rejected(id, guardRejections.get(id)));
+            } else if (existing.contains(id)) {
+                results.add(CancellationResult.alreadyCancelled(id));
+            } else {
+                results.add(CancellationResult.notFound(id));
+            }
+        }
+        log.info("Bulk cancellation processed {} transactions", results.size());
+        return results;
+    }
+
+    // Camino frío, igual que en TransactionService: 404, 409 o, si otro cambio dejó la fila en un estado
+    // válido, escritura condicionada a la versión leída (un conflicto lanza OptimisticLockingFailureException)
+    private Transaction resolveMiss(Long transactionId, TransactionStatus target) {
+        long start = System.nanoTime();
+        Transaction current = transactionRepository.findById(transactionId).orElse(null);
+        cancelFlowMetrics.recordStage(CancelFlowMetrics.STAGE_EXISTENCE_CHECK, start, null);
+        if (current == null) {
+            throw new ResourceNotFoundException("Transaction not found with id: " + transactionId);
+        }
+        if (transactionStateMachine.isAllowed(current.getStatus(), target)) {
+            return transactionRepository.compareAndSetStatusAtVersion(transactionId, target, current.getVersion())
+                    .orElseThrow(() -> versionConflictRetry.conflict(transactionId, current.getVersion()));
+        }
+        log.debug("Transaction {} in status {} cannot change to {}.", transactionId, current.getStatus(), target);
+        throw transactionStateMachine.rejection(current.getStatus(), target);
+    }
+
+    private TransactionFailureException toProcessingException(Long transactionId, Throwable ex) {
+        log.error("Error during transaction cancellation for ID {}: {}", transactionId, ex.getMessage());
+        return new TransactionFailureException("Failed to change transaction status: " + ex.getMessage(), ex);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+        virtualThreads.shutdown();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.OutboxProperties;
+import com.example.tdd.domain.model.OutboxEvent;
+import com.example.tdd.domain.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Publica en segundo plano los eventos del outbox, fuera del camino de la petición de cancelación.
+// Escritor único: un solo bucle por instancia drena por lotes (ORDER BY id LIMIT n) hasta vaciar la tabla y
+// espera 'linger' entre sondeos. Con varias instancias sobre una base de datos compartida habría que
+// reclamar los lotes con SELECT ... FOR UPDATE SKIP LOCKED o repartir los ids por instancia.
+// Entrega al menos una vez: el lote se borra solo después de que el destino lo confirma.
+@Service
+@Slf4j
+public class OutboxRelay implements SmartLifecycle {
+
+    public static final String LAG_TIMER = "tdd.outbox.lag";
+    public static final String OLDEST_PENDING_GAUGE = "tdd.outbox.oldest.pending.age";
+    public static final String PUBLISHED_COUNTER = "tdd.outbox.published";
+    public static final String ERRORS_COUNTER = "tdd.outbox.publish.errors";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ChangeEventSink changeEventSink;
+    private final OutboxProperties properties;
+    private final Timer lagTimer;
+    private final Counter publishedCounter;
+    private final Counter errorsCounter;
+    private final AtomicLong oldestPendingMillis = new AtomicLong();
+    private volatile Disposable loop;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       ChangeEventSink changeEventSink,
+                       OutboxProperties properties,
+                       MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.changeEventSink = changeEventSink;
+        this.properties = properties;
+        // Retraso entre la escritura en el outbox y la confirmación del destino, por evento
+        this.lagTimer = Timer.builder(LAG_TIMER)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder(PUBLISHED_COUNTER).register(meterRegistry);
+        this.errorsCounter = Counter.builder(ERRORS_COUNTER).register(meterRegistry);
+        // Antigüedad del evento pendiente más antiguo visto en el último sondeo (0 si el outbox está vacío)
+        Gauge.builder(OLDEST_PENDING_GAUGE, oldestPendingMillis, millis -> millis.get() / 1000.0)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        loop = Flux.interval(properties.linger())
+                .onBackpressureDrop() // Si un drenaje tarda más que 'linger', los ticks intermedios sobran
+                .concatMap(tick -> drain()
+                        .onErrorResume(error -> {
+                            errorsCounter.increment();
+                            log.warn("Outbox relay failed, batch will be retried: {}", error.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+        log.info("Outbox relay started (batch size {}, linger {})", properties.batchSize(), properties.linger());
+    }
+
+    @Override
+    public void stop() {
+        Disposable current = loop;
+        if (current != null) {
+            current.dispose();
+        }
+        loop = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return loop != null && !loop.isDisposed();
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.enabled();
+    }
+
+    // Publica lotes consecutivos mientras vengan llenos; devuelve el número de eventos publicados
+    public Mono<Integer> drain() {
+        return relayBatch()
+                .expand(published -> published == properties.batchSize() ? relayBatch() : Mono.empty())
+                .reduce(0, Integer::sum);
+    }
+
+    private Mono<Integer> relayBatch() {
+        return outboxEventRepository.findPending(properties.batchSize())
+                .collectList()
+                .flatMap(pending -> {
+                    if (pending.isEmpty()) {
+                        oldestPendingMillis.set(0);
+                        return Mono.just(0);
+                    }
+                    oldestPendingMillis.set(Duration.between(pending.get(0).getCreatedAt(), LocalDateTime.now()).toMillis());
+                    // El evento viaja en la propia fila del outbox: nada se descarta aunque el historial ya no exista
+                    return changeEventSink.publish(pending.stream().map(OutboxEvent::toHistory).toList())
+                            .then(outboxEventRepository.deleteByIds(pending.stream().map(OutboxEvent::getId).toList()))
+                            .doOnSuccess(deleted -> recordPublished(pending))
+                            .thenReturn(pending.size());
+                });
+    }
+
+    private void recordPublished(List<OutboxEvent> published) {
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxEvent event : published) {
+            lagTimer.record(Duration.between(event.getCreatedAt(), now));
+        }
+        publishedCounter.increment(published.size());
+        log.debug("Relayed {} outbox events", published.size());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.CommandDispatchProperties;
+import com.example.tdd.shared.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Serializa los comandos de cambio de estado por transacción: cada id se asigna a una stripe fija
+// (hash del id) y cada stripe ejecuta sus comandos de uno en uno, en orden de llegada.
+// - Los comandos de la misma transacción nunca compiten por la fila (sin esperas de bloqueo ni 409 por carrera).
+// - Ids de stripes distintas se ejecutan en paralelo; no hay hilos propios, cada comando sigue en el hilo
+//   donde completa su E/S y el siguiente arranca al terminar el anterior.
+// - Cada stripe admite como máximo maxQueueDepth comandos; el excedente se rechaza al momento con 429.
+// El comando se suscribe con el Context de Reactor del llamante (transacción reactiva, trazas, métricas).
+@Component
+public class TransactionCommandDispatcher {
+
+    public static final String QUEUED_GAUGE = "tdd.dispatch.queued";
+    public static final String REJECTED_COUNTER = "tdd.dispatch.rejected";
+
+    private final Stripe[] stripes;
+    private final CommandDispatchProperties properties;
+    private final TooManyRequestsException queueFull;
+    private final Counter rejectedCounter;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public TransactionCommandDispatcher(CommandDispatchProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.stripes = new Stripe[properties.stripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.queueFull = new TooManyRequestsException("Too many pending changes for this transaction, retry later.",
+                properties.retryAfter());
+        this.rejectedCounter = Counter.builder(REJECTED_COUNTER).register(meterRegistry);
+        Gauge.builder(QUEUED_GAUGE, queued, AtomicInteger::get).register(meterRegistry);
+    }
+
+    public <T> Mono<T> dispatch(long transactionId, Mono<T> command) {
+        return Mono.deferContextual(context -> Mono.<T>create(sink -> {
+            Command<T> queuedCommand = new Command<>(command.contextWrite(context), sink);
+            sink.onCancel(queuedCommand::cancel);
+            if (!stripeFor(transactionId).offer(queuedCommand)) {
+                rejectedCounter.increment();
+                sink.error(queueFull);
+            }
+        }));
+    }
+
+    int stripeIndex(long transactionId) {
+        // Mezcla los bits del id: ids consecutivos caen en stripes distintas
+        long mixed = transactionId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(mixed ^ (mixed >>> 32), (long) stripes.length);
+    }
+
+    private Stripe stripeFor(long transactionId) {
+        return stripes[stripeIndex(transactionId)];
+    }
+
+    // Cola de un único consumidor lógico: 'depth' cuenta en cola + en ejecución y 'wip' garantiza que solo un hilo
+    // a la vez decide qué comando arranca (patrón drain loop, sin locks)
+    private final class Stripe {
+
+        private final Queue<Command<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean running;
+
+        boolean offer(Command<?> command) {
+            if (depth.incrementAndGet() > properties.maxQueueDepth()) {
+                depth.decrementAndGet();
+                return false;
+            }
+            queued.incrementAndGet();
+            queue.offer(command);
+            drain();
+            return true;
+        }
+
+        void completed() {
+            running = false;
+            depth.decrementAndGet();
+            drain();
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!running) {
+                    Command<?> next = queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    queued.decrementAndGet();
+                    running = true;
+                    // Puede completar de forma síncrona: completed() solo incrementa wip y este bucle continúa
+                    next.start(this);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    private static final class Command<T> {
+
+        private final Mono<T> work;
+        private final MonoSink<T> sink;
+        private volatile boolean cancelled;
+        private T value;
+
+        Command(Mono<T> work, MonoSink<T> sink) {
+            this.work = work;
+            this.sink = sink;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        void start(Stripe stripe) {
+            // El llamante se fue antes de su turno: no se ejecuta. Una vez arrancado, el comando termina aunque
+            // el llamante cancele, para no dejar a medias un cambio de estado
+            if (cancelled) {
+                stripe.completed();
+                return;
+            }
+            // La stripe se libera antes de entregar el resultado: el siguiente comando no espera al llamante
+            work.subscribe(
+                    result -> value = result,
+                    error -> {
+                        stripe.completed();
+                        sink.error(error);
+                    },
+                    () -> {
+                        stripe.completed();
+                        sink.success(value);
+                    });
+        }
+    }
+}
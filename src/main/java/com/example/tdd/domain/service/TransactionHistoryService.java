@@ -0,0 +1,42 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.HistoryPartitionProperties;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.repository.HistoryPartitionRouter;
+import com.example.tdd.domain.repository.TransactionHistoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.YearMonth;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionHistoryService {
+
+    private final TransactionHistoryRepository transactionHistoryRepository;
+    private final HistoryArchiveService historyArchiveService;
+    private final HistoryPartitionRouter partitionRouter;
+    private final HistoryPartitionProperties properties;
+
+    // Sin @Transactional a propósito: una transacción abierta durante todo el streaming
+    // retendría la conexión del pool tanto como tarde el cliente en consumir.
+    public Flux<TransactionHistory> findHistory(TransactionHistoryFilter filter) {
+        log.info("Streaming transaction history with filter: {}", filter);
+        Flux<TransactionHistory> live = transactionHistoryRepository.findByFilter(filter);
+        if (!properties.archiveEnabled()) {
+            return live;
+        }
+        // Los meses anteriores a la retención cuya partición ya se eliminó se leen del archivo. Sus ids son menores
+        // que los de cualquier partición retenida, así que archivo + particiones sigue en orden de id (keyset)
+        YearMonth oldestRetained = YearMonth.now().minusMonths(properties.retentionMonths() - 1L);
+        Flux<TransactionHistory> histories = partitionRouter.partitions()
+                .flatMapMany(partitions -> historyArchiveService.findArchived(filter,
+                        month -> month.isBefore(oldestRetained) && !partitions.contains(month)))
+                .concatWith(live);
+        return filter.limit() != null ? histories.take(filter.limit()) : histories;
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.ImportProperties;
+import com.example.tdd.domain.enums.ImportFormat;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.ImportReport;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+// Importación masiva de transacciones (POST /transacciones/importar o tdd.import.file al arrancar):
+// - el cuerpo se decodifica en líneas según llegan los DataBuffer, sin acumularlo entero,
+// - cada línea se valida por separado: las inválidas se cuentan y se devuelven de muestra, no abortan la importación,
+// - las válidas se agrupan en INSERT multi-fila de 'batchSize' con como mucho 'concurrency' en vuelo.
+// La backpressure llega hasta la lectura del cuerpo, así que la memoria es la de unos pocos lotes sea cual sea
+// el tamaño del fichero. Cada lote se confirma por separado: si la base de datos falla a mitad, los lotes
+// anteriores quedan insertados.
+@Service
+@Slf4j
+public class TransactionImportService {
+
+    public static final String ROWS_COUNTER = "tdd.import.rows";
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_AMOUNT_INTEGER_DIGITS = 17; // amount es DECIMAL(19, 2)
+    private static final Pattern CURRENCY = Pattern.compile("[A-Z]{3}");
+    private static final ResolvableType STRING_TYPE = ResolvableType.forClass(String.class);
+
+    // Parte el flujo de bytes en líneas (\n o \r\n) sin esperar al final del cuerpo
+    private final StringDecoder lineDecoder = StringDecoder.allMimeTypes();
+    private final TransactionRepository transactionRepository;
+    private final TransactionStatisticsService transactionStatisticsService;
+    private final ObjectMapper objectMapper;
+    private final ImportProperties properties;
+    private final Counter acceptedRows;
+    private final Counter rejectedRows;
+
+    public TransactionImportService(TransactionRepository transactionRepository,
+                                    TransactionStatisticsService transactionStatisticsService,
+                                    ObjectMapper objectMapper,
+                                    ImportProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionStatisticsService = transactionStatisticsService;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.acceptedRows = meterRegistry.counter(ROWS_COUNTER, "result", "accepted");
+        this.rejectedRows = meterRegistry.counter(ROWS_COUNTER, "result", "rejected");
+    }
+
+    public Flux<String> lines(Flux<DataBuffer> body) {
+        return lineDecoder.decode(body, STRING_TYPE, null, Map.of());
+    }
+
+    public Mono<ImportReport> importFile(Path file, ImportFormat format) {
+        log.info("Importing transactions from {} ({})", file, format);
+        return importLines(lines(DataBufferUtils.read(file, DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE)), format);
+    }
+
+    public Mono<ImportReport> importLines(Flux<String> lines, ImportFormat format) {
+        return Mono.defer(() -> {
+            Progress progress = new Progress(properties.maxRejectionSamples());
+            return lines.index()
+                    .<Transaction>handle((indexedLine, sink) -> {
+                        long lineNumber = indexedLine.getT1() + 1;
+                        String line = indexedLine.getT2();
+                        if (line.isBlank() || (format == ImportFormat.CSV && lineNumber == 1 && isCsvHeader(line))) {
+                            return;
+                        }
+                        try {
+                            sink.next(format == ImportFormat.CSV ? parseCsv(line) : parseNdjson(line));
+                        } catch (IllegalArgumentException e) {
+                            progress.reject(lineNumber, e.getMessage());
+                            rejectedRows.increment();
+                        }
+                    })
+                    .buffer(properties.batchSize())
+                    .flatMap(batch -> transactionRepository.insertAll(batch)
+                            .doOnNext(rows -> {
+                                progress.accepted.addAndGet(rows);
+                                acceptedRows.increment(rows);
+                                // Cada lote ya está confirmado: las estadísticas en memoria lo incorporan ya
+                                transactionStatisticsService.recordInserted(batch);
+                            }), properties.concurrency())
+                    .then(Mono.fromSupplier(progress::report))
+                    .doOnNext(report -> log.info("Imported {} transactions ({} rejected) in {} ms, {} rows/s",
+                            report.accepted(), report.rejected(), report.elapsedMillis(), Math.round(report.rowsPerSecond())));
+        });
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.trim().toLowerCase().startsWith("status");
+    }
+
+    private static Transaction parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 3) {
+            throw new IllegalArgumentException("Expected 3 columns: status,amount,currency.");
+        }
+        return toTransaction(fields[0].trim(), fields[1].trim(), fields[2].trim());
+    }
+
+    private Transaction parseNdjson(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Line is not valid JSON.");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Line must be a JSON object.");
+        }
+        return toTransaction(text(node, "status"), text(node, "amount"), text(node, "currency"));
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText().trim();
+    }
+
+    private static Transaction toTransaction(String status, String amount, String currency) {
+        if (status == null || status.isEmpty()) {
+            throw new IllegalArgumentException("Field 'status' is mandatory.");
+        }
+        TransactionStatus parsedStatus;
+        try {
+            parsedStatus = TransactionStatus.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Field 'status' is not a valid transaction status.");
+        }
+        BigDecimal parsedAmount = null;
+        if (amount != null && !amount.isEmpty()) {
+            try {
+                parsedAmount = new BigDecimal(amount);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Field 'amount' must be a decimal number.");
+            }
+            if (parsedAmount.scale() > 2 || parsedAmount.precision() - parsedAmount.scale() > MAX_AMOUNT_INTEGER_DIGITS) {
+                throw new IllegalArgumentException("Field 'amount' must fit DECIMAL(19, 2).");
+            }
+        }
+        String parsedCurrency = currency == null || currency.isEmpty() ? null : currency;
+        if (parsedCurrency != null && !CURRENCY.matcher(parsedCurrency).matches()) {
+            throw new IllegalArgumentException("Field 'currency' must be a 3-letter ISO code.");
+        }
+        return new Transaction(null, parsedStatus, parsedAmount, parsedCurrency);
+    }
+
+    // Los rechazos se registran desde handle (secuencial); las filas aceptadas, desde los INSERT en paralelo
+    private static final class Progress {
+
+        private final long start = System.nanoTime();
+        private final int maxSamples;
+        private final List<ImportReport.Rejection> samples = new ArrayList<>();
+        private final AtomicLong accepted = new AtomicLong();
+        private long rejected;
+
+        Progress(int maxSamples) {
+            this.maxSamples = maxSamples;
+        }
+
+        void reject(long line, String reason) {
+            rejected++;
+            if (samples.size() < maxSamples) {
+                samples.add(new ImportReport.Rejection(line, reason));
+            }
+        }
+
+        ImportReport report() {
+            long elapsedNanos = Math.max(1, System.nanoTime() - start);
+            long acceptedRows = accepted.get();
+            return new ImportReport(acceptedRows, rejected, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                    acceptedRows * 1e9 / elapsedNanos, Collections.unmodifiableList(samples));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.TransactionCacheProperties;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.shared.exception.ResourceNotFoundException;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+// Cache-aside delante de TransactionRepository para las lecturas por id:
+// - acotada en tamaño y con TTL, las lecturas concurrentes del mismo id comparten una única consulta,
+// - los ids inexistentes no se cachean (el futuro termina en null y Caffeine descarta la entrada),
+// - quien modifica una transacción invalida su entrada con evictAfterCompletion dentro de su transacción.
+@Service
+@Slf4j
+public class TransactionLookupService {
+
+    public static final String CACHE_NAME = "transactions";
+
+    private final TransactionRepository transactionRepository;
+    private final AsyncCache<Long, Transaction> transactions;
+
+    public TransactionLookupService(TransactionRepository transactionRepository,
+                                    MeterRegistry meterRegistry,
+                                    TransactionCacheProperties properties) {
+        this.transactionRepository = transactionRepository;
+        this.transactions = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .buildAsync();
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size... con la etiqueta cache=transactions
+        CaffeineCacheMetrics.monitor(meterRegistry, transactions, CACHE_NAME);
+    }
+
+    public Mono<Transaction> findById(Long transactionId) {
+        return Mono.fromFuture(() -> transactions.get(transactionId,
+                        (id, executor) -> transactionRepository.findById(id).toFuture()), true)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Transaction not found with id: " + transactionId)));
+    }
+
+    // Invalida las entradas ya y de nuevo al terminar la transacción en curso (commit o rollback):
+    // una lectura concurrente entre el UPDATE y el commit todavía ve el estado anterior y podría repoblar la cache.
+    public Mono<Void> evictAfterCompletion(Collection<Long> transactionIds) {
+        evict(transactionIds);
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCompletion(int status) {
+                        return Mono.fromRunnable(() -> evict(transactionIds));
+                    }
+                }))
+                // Sin transacción reactiva en curso la invalidación inmediata es suficiente
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .then();
+    }
+
+    private void evict(Collection<Long> transactionIds) {
+        transactions.synchronous().invalidateAll(transactionIds);
+        log.debug("Evicted {} transactions from cache", transactionIds.size());
+    }
+}
@@ -1,77 +1,227 @@
 package com.example.tdd.domain.service;
 
+import com.example.tdd.common.metrics.CancelFlowMetrics;
 import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.Transaction;
 import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.OutboxEventRepository;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
 import com.example.tdd.domain.repository.TransactionHistoryRepository;
 import com.example.tdd.domain.repository.TransactionRepository;
 import com.example.tdd.shared.exception.ResourceNotFoundException;
-import com.example.tdd.shared.exception.TransactionProcessingException;
+import com.example.tdd.shared.exception.TransactionFailureException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // Importante para R2DBC transaccional
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class TransactionService {
+public class TransactionService implements CancellationOperations {
 
     private final TransactionRepository transactionRepository;
     private final TransactionHistoryRepository transactionHistoryRepository;
+    private final OutboxEventRepository outboxEventRepository;
+    private final ProcessedMessageRepository processedMessageRepository;
+    private final TransactionLookupService transactionLookupService;
+    private final TransactionStateMachine transactionStateMachine;
+    private final CancelFlowMetrics cancelFlowMetrics;
+    private final VersionConflictRetry versionConflictRetry;
+    private final TransactionStatisticsService transactionStatisticsService;
     private static final String USER_SYSTEM = "SYSTEM"; // Usuario por defecto para este ejemplo
 
+    @Override
     @Transactional // Asegura la atomicidad de las operaciones de base de datos
     public Mono<TransactionHistory> cancelTransaction(Long transactionId) {
-        log.info("Attempting to cancel transaction with ID: {}", transactionId);
-
-        return transactionRepository.findById(transactionId)
-            .switchIfEmpty(Mono.error(new ResourceNotFoundException("Transaction not found with id: " + transactionId)))
-            .flatMap(transaction -> {
-                if (transaction.getStatus() == TransactionStatus.CANCELLED) {
-                    log.warn("Transaction {} is already cancelled.", transactionId);
-                    return Mono.error(new TransactionProcessingException("Transaction already cancelled."));
-                }
+        return changeStatus(transactionId, TransactionStatus.CANCELLED);
+    }
+
+    @Override
+    @Transactional
+    public Mono<TransactionHistory> changeStatus(Long transactionId, TransactionStatus target, String idMensaje) {
+        return changeStatus(transactionId, target)
+            .flatMap(history -> processedMessageRepository.insert(idMensaje, history, LocalDateTime.now())
+                .thenReturn(history));
+    }
 
-                TransactionStatus previousStatus = transaction.getStatus();
-                transaction.setStatus(TransactionStatus.CANCELLED);
+    @Override
+    @Transactional
+    public Mono<TransactionHistory> changeStatus(Long transactionId, TransactionStatus target) {
+        log.info("Attempting to change transaction {} to {}", transactionId, target);
 
-                // Crear el registro de historial
+        // 1. UPDATE condicional que devuelve el estado previo: evita el findById previo y
+        //    hace imposible que dos cambios concurrentes pasen a la vez la validación.
+        //    Los estados origen válidos salen de la tabla de transiciones, ya precalculada.
+        return transactionStateMachine.checkGuards(transactionId, target)
+            .then(cancelFlowMetrics.timeStage(CancelFlowMetrics.STAGE_UPDATE,
+                transactionRepository.compareAndSetStatus(transactionId, target, transactionStateMachine.allowedFrom(target)))
+                .onErrorMap(ex -> toProcessingException(transactionId, ex)))
+            .switchIfEmpty(Mono.defer(() -> rejectTransition(transactionId, target)))
+            // Solo los conflictos de versión del camino frío se reintentan (backoff con jitter, acotado)
+            .retryWhen(versionConflictRetry.retry())
+            // La entrada cacheada deja de ser válida al cambiar el estado; las estadísticas se actualizan en el commit
+            .flatMap(previous -> transactionLookupService.evictAfterCompletion(List.of(transactionId))
+                .then(transactionStatisticsService.recordAfterCommit(List.of(previous), target))
+                .thenReturn(previous))
+            .flatMap(previous -> {
+                log.info("Transaction {} status updated from {} to {}.", transactionId, previous.getStatus(), target);
+
+                // 2. Crear el registro de historial dentro de la misma transacción
                 TransactionHistory historyRecord = TransactionHistory.builder()
                     .transactionId(transactionId)
-                    .previousStatus(previousStatus)
-                    .newStatus(TransactionStatus.CANCELLED)
+                    .previousStatus(previous.getStatus())
+                    .newStatus(target)
                     .changeDate(LocalDateTime.now())
                     .userPerformingAction(USER_SYSTEM) // En un caso real, obtener del contexto de seguridad
                     .build();
 
-                // Guardar el historial y luego actualizar la transacción
-                // El orden podría ser actualizar y luego guardar historial también.
-                // @Transactional se encargará del rollback si alguna operación falla.
-                return transactionHistoryRepository.save(historyRecord)
+                // @Transactional se encargará del rollback del UPDATE si el insert falla.
+                return cancelFlowMetrics.timeStage(CancelFlowMetrics.STAGE_HISTORY_SAVE,
+                        transactionHistoryRepository.save(historyRecord))
+                    // 3. Evento de cambio en el outbox, en la misma transacción; OutboxRelay lo publica después
+                    .flatMap(savedHistory -> outboxEventRepository.insertForHistories(List.of(savedHistory))
+                        .thenReturn(savedHistory))
                     .doOnSuccess(savedHistory -> log.info("History record created for transaction {}: {}", transactionId, savedHistory.getId()))
-                    .doOnError(e -> log.error("Failed to save transaction history for transaction ID: {}", transactionId, e))
-                    .flatMap(savedHistory -> transactionRepository.updateStatus(transactionId, TransactionStatus.CANCELLED)
-                        .doOnSuccess(updateCount -> {
-                            if (updateCount > 0) {
-                                log.info("Transaction {} status updated to CANCELLED.", transactionId);
-                            } else {
-                                // Esto no debería ocurrir si findById tuvo éxito y la transacción existe.
-                                log.error("Failed to update status for transaction ID: {}. Update count was {}.", transactionId, updateCount);
-                                // Se podría lanzar una excepción específica aquí si updateCount es 0 después de un find exitoso.
-                            }
-                        })
-                    )
-                    .doOnError(e -> log.error("Failed to update transaction status for transaction ID: {}", transactionId, e))
-                    .thenReturn(historyRecord) // Devolvemos el registro de historial como confirmación
-                    .onErrorResume(ex -> {
-                         log.error("Error during transaction cancellation for ID {}: {}", transactionId, ex.getMessage());
-                         // No es necesario hacer rollback manual aquí, @Transactional se encarga.
-                         // Simplemente propagamos un error que indique la falla de la operación.
-                         return Mono.error(new TransactionProcessingException("Failed to cancel transaction: " + ex.getMessage(), ex));
-                     });
+                    .onErrorMap(ex -> toProcessingException(transactionId, ex));
             });
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional
+    public Flux<CancellationResult> cancelTransactions(Collection<Long> transactionIds) {
+        return cancelTransactions(transactionIds, Map.of());
+    }
+
+    @Override
+    @Transactional
+    public Flux<CancellationResult> cancelTransactions(Collection<Long> transactionIds, Map<Long, String> idMensajes) {
+        Set<Long> ids = new LinkedHashSet<>(transactionIds); // Sin duplicados y en el orden de entrada
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        log.info("Attempting to cancel {} transactions in bulk", ids.size());
+        // Los mismos guards que el camino individual, por id: un rechazo es un resultado de ese id, no del lote
+        return transactionStateMachine.guardRejections(ids, TransactionStatus.CANCELLED)
+            .flatMapMany(guardRejections -> cancelBulk(ids, guardRejections, idMensajes));
+    }
+
+    private Flux<CancellationResult> cancelBulk(Set<Long> ids, Map<Long, String> guardRejections,
+                                                Map<Long, String> idMensajes) {
+        LocalDateTime changeDate = LocalDateTime.now();
+        List<Long> allowed = ids.stream().filter(id -> !guardRejections.containsKey(id)).toList();
+
+        // 1. Un único UPDATE condicional para todo el lote, devolviendo el estado previo de las filas afectadas
+        return (allowed.isEmpty() ? Flux.<Transaction>empty() : transactionRepository.compareAndSetStatusIn(allowed,
+                TransactionStatus.CANCELLED, transactionStateMachine.allowedFrom(TransactionStatus.CANCELLED)))
+            .collectList()
+            .flatMap(previousRows -> transactionLookupService.evictAfterCompletion(allowed)
+                .then(transactionStatisticsService.recordAfterCommit(previousRows, TransactionStatus.CANCELLED))
+                .thenReturn(previousRows))
+            .map(previousRows -> previousRows.stream()
+                .map(previous -> TransactionHistory.builder()
+                    .transactionId(previous.getId())
+                    .previousStatus(previous.getStatus())
+                    .newStatus(TransactionStatus.CANCELLED)
+                    .changeDate(changeDate)
+                    .userPerformingAction(USER_SYSTEM)
+                    .build())
+                .toList())
+            // 2. Un único insert en batch para todos los registros de historial
+            .flatMap(records -> transactionHistoryRepository.saveAllBatched(records)
+                .collectMap(TransactionHistory::getTransactionId))
+            // Y un único INSERT ... SELECT para sus eventos en el outbox
+            .flatMap(cancelled -> cancelled.isEmpty()
+                ? Mono.just(cancelled)
+                : outboxEventRepository.insertForHistories(List.copyOf(cancelled.values()))
+                    .thenReturn(cancelled))
+            // Group commit: el registro de idempotencia de cada llamante, también en un único INSERT
+            .flatMap(cancelled -> {
+                Map<String, TransactionHistory> processed = processedMessages(cancelled, idMensajes);
+                return processed.isEmpty()
+                    ? Mono.just(cancelled)
+                    : processedMessageRepository.insertAll(processed, changeDate).thenReturn(cancelled);
+            })
+            // 3. Solo para los ids no actualizados: una consulta IN para distinguir 404 de 409
+            .flatMap(cancelled -> {
+                List<Long> rejected = allowed.stream().filter(id -> !cancelled.containsKey(id)).toList();
+                if (rejected.isEmpty()) {
+                    return Mono.just(toResults(ids, cancelled, Set.of(), guardRejections));
+                }
+                return transactionRepository.findExistingIds(rejected)
+                    .collect(Collectors.toSet())
+                    .map(existing -> toResults(ids, cancelled, existing, guardRejections));
+            })
+            .doOnSuccess(results -> log.info("Bulk cancellation processed {} transactions", results.size()))
+            .flatMapIterable(results -> results);
+    }
+
+    // idMensaje -> historial, solo para los ids que sí se cancelaron (un 404 o 409 no deja registro)
+    private static Map<String, TransactionHistory> processedMessages(Map<Long, TransactionHistory> cancelled,
+                                                                     Map<Long, String> idMensajes) {
+        Map<String, TransactionHistory> processed = new LinkedHashMap<>();
+        idMensajes.forEach((transactionId, idMensaje) -> {
+            TransactionHistory history = cancelled.get(transactionId);
+            if (history != null) {
+                processed.put(idMensaje, history);
+            }
+        });
+        return processed;
+    }
+
+    private List<CancellationResult> toResults(Set<Long> ids, Map<Long, TransactionHistory> cancelled, Set<Long> existing,
+                                               Map<Long, String> guardRejections) {
+        List<CancellationResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            TransactionHistory history = cancelled.get(id);
+            if (history != null) {
+                results.add(CancellationResult.cancelled(history));
+            } else if (guardRejections.containsKey(id)) {
+                results.add(CancellationResult.rejected(id, guardRejections.get(id)));
+            } else if (existing.contains(id)) {
+                results.add(CancellationResult.alreadyCancelled(id));
+            } else {
+                results.add(CancellationResult.notFound(id));
+            }
+        }
+        return results;
+    }
+
+    // Camino frío: el UPDATE condicional no afectó ninguna fila, solo aquí averiguamos el motivo.
+    // El 409 (p. ej. "Transaction already cancelled.") está preasignado en la tabla de transiciones.
+    // Si la fila leída sí admite la transición, otro cambio concurrente la movió entre el UPDATE y la lectura:
+    // se escribe condicionado a la versión leída y, si también se adelantan, es un conflicto que se reintenta.
+    private Mono<Transaction> rejectTransition(Long transactionId, TransactionStatus target) {
+        return cancelFlowMetrics.timeStage(CancelFlowMetrics.STAGE_EXISTENCE_CHECK,
+                transactionRepository.findById(transactionId))
+            .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Transaction not found with id: " + transactionId)))
+            .flatMap(current -> {
+                if (transactionStateMachine.isAllowed(current.getStatus(), target)) {
+                    return transactionRepository.compareAndSetStatusAtVersion(transactionId, target, current.getVersion())
+                        .switchIfEmpty(Mono.error(() -> versionConflictRetry.conflict(transactionId, current.getVersion())));
+                }
+                log.debug("Transaction {} in status {} cannot change to {}.", transactionId, current.getStatus(), target);
+                return Mono.error(transactionStateMachine.rejection(current.getStatus(), target));
+            });
+    }
+
+    private TransactionFailureException toProcessingException(Long transactionId, Throwable ex) {
+        log.error("Error during transaction cancellation for ID {}: {}", transactionId, ex.getMessage());
+        // No es necesario hacer rollback manual aquí, @Transactional se encarga.
+        // Simplemente propagamos un error que indique la falla de la operación.
+        return new TransactionFailureException("Failed to change transaction status: " + ex.getMessage(), ex);
+    }
+}
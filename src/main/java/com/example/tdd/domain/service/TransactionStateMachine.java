@@ -0,0 +1,110 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.shared.exception.ClientErrorException;
+import com.example.tdd.shared.exception.TransactionProcessingException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Tabla de transiciones de TransactionStatus, precalculada al arrancar:
+// - isAllowed(from, to) es una comprobación de bits sobre un int[] (sin reservas de memoria);
+// - allowedFrom(to) es la lista de estados origen que el UPDATE condicional pone en su WHERE, de modo que
+//   cada transición sigue siendo una única escritura: WHERE id = :id AND status IN (:allowedFrom);
+// - los rechazos (409) están preasignados por par origen/destino;
+// - los TransitionGuard se agrupan por estado destino.
+// Añadir un flujo nuevo (completar, fallar, reintentar) es añadir una entrada a TRANSITIONS.
+@Component
+public class TransactionStateMachine {
+
+    private static final Map<TransactionStatus, Set<TransactionStatus>> TRANSITIONS = new EnumMap<>(TransactionStatus.class);
+
+    static {
+        TRANSITIONS.put(TransactionStatus.PENDING,
+                EnumSet.of(TransactionStatus.COMPLETED, TransactionStatus.FAILED, TransactionStatus.CANCELLED));
+        // Reintento de una transacción fallida, o su cancelación definitiva
+        TRANSITIONS.put(TransactionStatus.FAILED, EnumSet.of(TransactionStatus.PENDING, TransactionStatus.CANCELLED));
+        // Anulación de una transacción completada (la cancelación siempre lo ha permitido)
+        TRANSITIONS.put(TransactionStatus.COMPLETED, EnumSet.of(TransactionStatus.CANCELLED));
+        TRANSITIONS.put(TransactionStatus.CANCELLED, EnumSet.noneOf(TransactionStatus.class)); // Estado final
+    }
+
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private final int[] allowedTargets = new int[STATUSES.length];
+    private final List<List<String>> allowedFrom = new ArrayList<>(STATUSES.length);
+    private final TransactionProcessingException[][] rejections =
+            new TransactionProcessingException[STATUSES.length][STATUSES.length];
+    private final TransitionGuard[][] guards = new TransitionGuard[STATUSES.length][];
+
+    public TransactionStateMachine(ObjectProvider<TransitionGuard> transitionGuards) {
+        for (TransactionStatus from : STATUSES) {
+            for (TransactionStatus to : TRANSITIONS.get(from)) {
+                allowedTargets[from.ordinal()] |= 1 << to.ordinal();
+            }
+        }
+        List<TransitionGuard> registered = transitionGuards.orderedStream().toList();
+        for (TransactionStatus to : STATUSES) {
+            List<String> sources = new ArrayList<>();
+            for (TransactionStatus from : STATUSES) {
+                if (isAllowed(from, to)) {
+                    sources.add(from.name());
+                }
+                rejections[from.ordinal()][to.ordinal()] = from == to
+                        ? new TransactionProcessingException("Transaction already " + to.name().toLowerCase() + ".")
+                        : new TransactionProcessingException("Transition from " + from + " to " + to + " is not allowed.");
+            }
+            allowedFrom.add(List.copyOf(sources));
+            guards[to.ordinal()] = registered.stream()
+                    .filter(guard -> guard.targets().contains(to))
+                    .toArray(TransitionGuard[]::new);
+        }
+    }
+
+    public boolean isAllowed(TransactionStatus from, TransactionStatus to) {
+        return (allowedTargets[from.ordinal()] & (1 << to.ordinal())) != 0;
+    }
+
+    // Estados desde los que se puede llegar a 'to', por nombre (valor de la columna status)
+    public List<String> allowedFrom(TransactionStatus to) {
+        return allowedFrom.get(to.ordinal());
+    }
+
+    // Motivo del 409 cuando el UPDATE condicional no afectó a una transacción que sí existe
+    public TransactionProcessingException rejection(TransactionStatus current, TransactionStatus to) {
+        return rejections[current.ordinal()][to.ordinal()];
+    }
+
+    // Sin guards para el destino (caso habitual) devuelve Mono.empty() sin crear nada
+    public Mono<Void> checkGuards(Long transactionId, TransactionStatus to) {
+        TransitionGuard[] targetGuards = guards[to.ordinal()];
+        if (targetGuards.length == 0) {
+            return Mono.empty();
+        }
+        return Flux.fromArray(targetGuards).concatMap(guard -> guard.check(transactionId, to)).then();
+    }
+
+    // Guards de un lote (cancelación masiva, group commit): id -> motivo de los ids que un guard rechaza con un error
+    // de negocio (ClientErrorException); cualquier otro error hace fallar el lote, igual que en el camino individual.
+    // Sin guards para el destino devuelve un mapa vacío sin recorrer los ids
+    public Mono<Map<Long, String>> guardRejections(Collection<Long> transactionIds, TransactionStatus to) {
+        if (guards[to.ordinal()].length == 0) {
+            return Mono.just(Map.of());
+        }
+        return Flux.fromIterable(transactionIds)
+                .flatMap(transactionId -> checkGuards(transactionId, to)
+                        .then(Mono.<Map.Entry<Long, String>>empty())
+                        .onErrorResume(ClientErrorException.class,
+                                rejection -> Mono.just(Map.entry(transactionId, rejection.getMessage()))))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+}
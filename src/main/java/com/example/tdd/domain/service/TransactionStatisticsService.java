@@ -0,0 +1,289 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.StatisticsProperties;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionTotals;
+import com.example.tdd.domain.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Número de transacciones e importe total por estado y moneda, en memoria, para GET /transacciones/estadisticas:
+// - se siembran al arrancar con una única consulta agrupada y se recalculan cada 'reconcileInterval',
+// - cada cambio de estado mueve su fila del estado anterior al nuevo tras el commit (los rollbacks no cuentan),
+// - los contadores son LongAdder (importes en céntimos): los cambios concurrentes no compiten por la misma línea
+//   de cache y leer los agregados no toca la base de datos. Los importes que no caben en ese camino rápido se
+//   acumulan en BigInteger (ver Cell): ningún importe ni total desborda ni interrumpe la reconciliación.
+// Los cambios que no pasan por los servicios (p. ej. altas directas en la tabla) se incorporan en la
+// siguiente reconciliación; la diferencia encontrada se cuenta en tdd.statistics.reconcile.drift.
+@Service
+@Slf4j
+public class TransactionStatisticsService implements SmartLifecycle {
+
+    public static final String RECONCILE_DRIFT_COUNTER = "tdd.statistics.reconcile.drift";
+
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final String NO_CURRENCY = "";
+
+    private final TransactionRepository transactionRepository;
+    private final StatisticsProperties properties;
+    private final Counter drift;
+    private volatile Aggregates current = new Aggregates();
+    // Durante una reconciliación los cambios confirmados se aplican también aquí para no perderlos al sustituir
+    private volatile Aggregates reconciling;
+    private volatile LocalDateTime reconciledAt;
+    private volatile Disposable loop;
+
+    public TransactionStatisticsService(TransactionRepository transactionRepository,
+                                        StatisticsProperties properties,
+                                        MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.properties = properties;
+        this.drift = meterRegistry.counter(RECONCILE_DRIFT_COUNTER);
+    }
+
+    @Override
+    public void start() {
+        // Primera pasada inmediata (siembra); después cada 'reconcileInterval'
+        loop = Flux.interval(Duration.ZERO, properties.reconcileInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> reconcile()
+                        .onErrorResume(error -> {
+                            log.warn("Transaction statistics reconciliation failed: {}", error.getMessage());
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+        log.info("Transaction statistics started (reconcile interval {})", properties.reconcileInterval());
+    }
+
+    @Override
+    public void stop() {
+        Disposable running = loop;
+        if (running != null) {
+            running.dispose();
+        }
+        loop = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return loop != null && !loop.isDisposed();
+    }
+
+    // previous: filas tal como estaban antes del cambio (OLD TABLE del compare-and-set).
+    // Dentro de una transacción reactiva se aplica en el commit; sin ella, inmediatamente.
+    public Mono<Void> recordAfterCommit(Collection<Transaction> previous, TransactionStatus target) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public Mono<Void> afterCommit() {
+                        return Mono.fromRunnable(() -> record(previous, target));
+                    }
+                }))
+                .switchIfEmpty(Mono.fromRunnable(() -> record(previous, target)))
+                .onErrorResume(NoTransactionException.class, e -> Mono.fromRunnable(() -> record(previous, target)))
+                .then();
+    }
+
+    // Equivalente para el modo JDBC (transacción ligada al hilo)
+    public void recordAfterCommitBlocking(Collection<Transaction> previous, TransactionStatus target) {
+        if (org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive()) {
+            org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization(
+                    new org.springframework.transaction.support.TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            record(previous, target);
+                        }
+                    });
+        } else {
+            record(previous, target);
+        }
+    }
+
+    // Altas ya confirmadas (importación masiva): suman en su estado sin restar de ningún otro
+    public void recordInserted(Collection<Transaction> inserted) {
+        Aggregates mirror = reconciling;
+        for (Transaction transaction : inserted) {
+            String currency = currencyKey(transaction.getCurrency());
+            BigInteger cents = cents(transaction.getAmount());
+            current.add(currency, transaction.getStatus(), 1, cents);
+            if (mirror != null) {
+                mirror.add(currency, transaction.getStatus(), 1, cents);
+            }
+        }
+    }
+
+    private void record(Collection<Transaction> previous, TransactionStatus target) {
+        Aggregates mirror = reconciling;
+        for (Transaction transaction : previous) {
+            if (transaction.getStatus() == target) {
+                continue;
+            }
+            String currency = currencyKey(transaction.getCurrency());
+            BigInteger cents = cents(transaction.getAmount());
+            current.move(currency, transaction.getStatus(), target, cents);
+            if (mirror != null) {
+                mirror.move(currency, transaction.getStatus(), target, cents);
+            }
+        }
+    }
+
+    // Lectura O(estados x monedas), sin consultas; status / currency null = sin filtrar
+    public List<TransactionTotals> totals(TransactionStatus status, String currency) {
+        List<TransactionTotals> totals = new ArrayList<>();
+        Map<String, Cell[]> byCurrency = new TreeMap<>(current.byCurrency);
+        byCurrency.forEach((currencyKey, cells) -> {
+            if (currency != null && !currency.equalsIgnoreCase(currencyKey)) {
+                return;
+            }
+            for (TransactionStatus candidate : STATUSES) {
+                if (status != null && status != candidate) {
+                    continue;
+                }
+                long count = cells[candidate.ordinal()].count.sum();
+                if (count != 0) {
+                    totals.add(new TransactionTotals(candidate, currencyKey.isEmpty() ? null : currencyKey, count,
+                            cells[candidate.ordinal()].amount()));
+                }
+            }
+        });
+        return totals;
+    }
+
+    public LocalDateTime getReconciledAt() {
+        return reconciledAt;
+    }
+
+    // Recalcula los agregados con una consulta agrupada y los sustituye. Un cambio confirmado justo antes de la
+    // consulta pero registrado después puede contarse dos veces; la siguiente reconciliación lo corrige.
+    public Mono<Void> reconcile() {
+        return Mono.defer(() -> {
+            Aggregates fresh = new Aggregates();
+            reconciling = fresh;
+            return transactionRepository.aggregateByStatusAndCurrency()
+                    .doOnNext(totals -> fresh.add(currencyKey(totals.currency()), totals.status(),
+                            totals.transactionCount(), cents(totals.totalAmount())))
+                    .then(Mono.fromRunnable(() -> {
+                        boolean seeded = reconciledAt != null;
+                        long difference = current.countDistance(fresh);
+                        current = fresh;
+                        reconciledAt = LocalDateTime.now();
+                        if (seeded && difference > 0) {
+                            drift.increment(difference);
+                            log.info("Transaction statistics reconciled with a drift of {} transactions", difference);
+                        }
+                    }))
+                    .doFinally(signal -> {
+                        if (reconciling == fresh) {
+                            reconciling = null;
+                        }
+                    })
+                    .then();
+        });
+    }
+
+    private static String currencyKey(String currency) {
+        return currency == null ? NO_CURRENCY : currency;
+    }
+
+    private static BigInteger cents(BigDecimal amount) {
+        return amount == null ? BigInteger.ZERO : amount.setScale(2, RoundingMode.HALF_UP).unscaledValue();
+    }
+
+    private static final class Cell {
+        private final LongAdder count = new LongAdder();
+        // Sumandos de hasta Integer.MAX_VALUE céntimos en valor absoluto. La suma de un LongAdder es exacta mientras
+        // el total real quepa en un long (la aritmética es módulo 2^64), y con estos sumandos harían falta más de
+        // 2^32 cambios en la misma celda entre dos reconciliaciones para salirse
+        private final LongAdder cents = new LongAdder();
+        // Importes mayores y totales de la reconciliación (pueden no caber en un long): sin límite de tamaño
+        private final AtomicReference<BigInteger> largeCents = new AtomicReference<>(BigInteger.ZERO);
+
+        void addCents(BigInteger value) {
+            if (value.bitLength() < Integer.SIZE) {
+                cents.add(value.longValue());
+            } else {
+                largeCents.accumulateAndGet(value, BigInteger::add);
+            }
+        }
+
+        BigDecimal amount() {
+            BigDecimal small = BigDecimal.valueOf(cents.sum(), 2);
+            BigInteger large = largeCents.get();
+            return large.signum() == 0 ? small : small.add(new BigDecimal(large, 2));
+        }
+    }
+
+    private static final class Aggregates {
+
+        private final ConcurrentHashMap<String, Cell[]> byCurrency = new ConcurrentHashMap<>();
+
+        void move(String currency, TransactionStatus from, TransactionStatus to, BigInteger cents) {
+            Cell[] cells = cells(currency);
+            cells[from.ordinal()].count.decrement();
+            cells[from.ordinal()].addCents(cents.negate());
+            cells[to.ordinal()].count.increment();
+            cells[to.ordinal()].addCents(cents);
+        }
+
+        void add(String currency, TransactionStatus status, long count, BigInteger cents) {
+            Cell[] cells = cells(currency);
+            cells[status.ordinal()].count.add(count);
+            cells[status.ordinal()].addCents(cents);
+        }
+
+        // Suma de las diferencias absolutas de número de transacciones entre dos agregados
+        long countDistance(Aggregates other) {
+            long distance = 0;
+            Set<String> currencies = new HashSet<>(byCurrency.keySet());
+            currencies.addAll(other.byCurrency.keySet());
+            for (String currency : currencies) {
+                Cell[] mine = byCurrency.get(currency);
+                Cell[] theirs = other.byCurrency.get(currency);
+                for (TransactionStatus status : STATUSES) {
+                    long a = mine == null ? 0 : mine[status.ordinal()].count.sum();
+                    long b = theirs == null ? 0 : theirs[status.ordinal()].count.sum();
+                    distance += Math.abs(a - b);
+                }
+            }
+            return distance;
+        }
+
+        private Cell[] cells(String currency) {
+            Cell[] cells = byCurrency.get(currency);
+            return cells != null ? cells : byCurrency.computeIfAbsent(currency, key -> {
+                Cell[] created = new Cell[STATUSES.length];
+                for (int i = 0; i < created.length; i++) {
+                    created[i] = new Cell();
+                }
+                return created;
+            });
+        }
+    }
+}
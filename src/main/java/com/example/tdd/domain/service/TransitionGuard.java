@@ -0,0 +1,17 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+
+// Punto de extensión: comprobación de negocio previa a un cambio de estado (límites, ventanas horarias,
+// autorizaciones...). Se ejecuta antes del UPDATE condicional; para rechazar, emite un error
+// (p. ej. TransactionProcessingException -> 409). Cualquier bean que implemente esta interfaz se registra solo.
+public interface TransitionGuard {
+
+    // Estados destino a los que aplica; se resuelve una vez al arrancar
+    Set<TransactionStatus> targets();
+
+    Mono<Void> check(Long transactionId, TransactionStatus target);
+}
@@ -0,0 +1,96 @@
+package com.example.tdd.domain.service;
+
+import com.example.tdd.config.VersionRetryProperties;
+import com.example.tdd.shared.exception.TransactionFailureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Política de reintento del bloqueo optimista: solo se reintenta un conflicto de versión
+// (OptimisticLockingFailureException, la misma que lanza Spring Data al guardar una entidad @Version obsoleta),
+// con backoff exponencial acotado y jitter. Agotados los intentos se responde 409 como cualquier transición rechazada.
+// Un conflicto no espera ningún bloqueo de fila: la escritura condicional simplemente no afecta a ninguna fila.
+@Component
+@Slf4j
+public class VersionConflictRetry {
+
+    public static final String CONFLICTS_COUNTER = "tdd.transaction.version.conflicts";
+    public static final String RETRIES_COUNTER = "tdd.transaction.version.retries";
+    public static final String EXHAUSTED_COUNTER = "tdd.transaction.version.exhausted";
+
+    private final VersionRetryProperties properties;
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter exhausted;
+    private final Retry retry;
+
+    public VersionConflictRetry(VersionRetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.conflicts = meterRegistry.counter(CONFLICTS_COUNTER);
+        this.retries = meterRegistry.counter(RETRIES_COUNTER);
+        this.exhausted = meterRegistry.counter(EXHAUSTED_COUNTER);
+        // Inmutable: se comparte entre todas las suscripciones
+        this.retry = Retry.backoff(Math.max(0, properties.maxAttempts() - 1), properties.minBackoff())
+                .maxBackoff(properties.maxBackoff())
+                .jitter(properties.jitter())
+                .filter(OptimisticLockingFailureException.class::isInstance)
+                .doBeforeRetry(signal -> retries.increment())
+                .onRetryExhaustedThrow((spec, signal) -> exhausted(signal.failure()));
+    }
+
+    // Para retryWhen en el camino reactivo
+    public Retry retry() {
+        return retry;
+    }
+
+    // Camino bloqueante (modo JDBC, hilos virtuales): cada intento debe ser una transacción completa
+    public <T> T executeBlocking(Supplier<T> attempt) {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                return attempt.get();
+            } catch (OptimisticLockingFailureException conflict) {
+                if (attemptNumber >= properties.maxAttempts()) {
+                    throw exhausted(conflict);
+                }
+                retries.increment();
+                try {
+                    Thread.sleep(backoff(attemptNumber));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw exhausted(conflict);
+                }
+            }
+        }
+    }
+
+    // Señala que una escritura condicionada a la versión no afectó a ninguna fila
+    public OptimisticLockingFailureException conflict(Long transactionId, Long expectedVersion) {
+        conflicts.increment();
+        log.debug("Version conflict on transaction {} (expected version {})", transactionId, expectedVersion);
+        return new OptimisticLockingFailureException("Transaction " + transactionId + " was modified concurrently");
+    }
+
+    // Mismo cálculo que Retry.backoff: min * 2^(n-1) acotado a max, desplazado +-jitter dentro de [min, max]
+    private Duration backoff(int retryNumber) {
+        long min = properties.minBackoff().toNanos();
+        long max = properties.maxBackoff().toNanos();
+        long base = Math.min(max, min << Math.min(retryNumber - 1, 30));
+        long offset = (long) (base * properties.jitter());
+        long low = Math.max(min, base - offset);
+        long high = Math.min(max, base + offset);
+        return Duration.ofNanos(high > low ? ThreadLocalRandom.current().nextLong(low, high + 1) : base);
+    }
+
+    private TransactionFailureException exhausted(Throwable conflict) {
+        exhausted.increment();
+        log.warn("Giving up after {} attempts: {}", properties.maxAttempts(), conflict.getMessage());
+        return new TransactionFailureException(conflict.getMessage() + "; please retry.", conflict);
+    }
+}
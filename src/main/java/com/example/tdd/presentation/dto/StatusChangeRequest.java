@@ -0,0 +1,6 @@
+package com.example.tdd.presentation.dto;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+
+// Cuerpo de PATCH /transacciones/{id}/estado: {"status": "COMPLETED"}
+public record StatusChangeRequest(TransactionStatus status) {}
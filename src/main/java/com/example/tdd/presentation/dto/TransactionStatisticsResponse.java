@@ -0,0 +1,9 @@
+package com.example.tdd.presentation.dto;
+
+import com.example.tdd.domain.model.TransactionTotals;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// reconciledAt: última vez que los agregados se recalcularon contra la base de datos (null hasta la primera pasada)
+public record TransactionStatisticsResponse(LocalDateTime reconciledAt, List<TransactionTotals> totals) {}
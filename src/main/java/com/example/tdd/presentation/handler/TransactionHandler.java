@@ -1,14 +1,25 @@
 package com.example.tdd.presentation.handler;
 
-import com.example.tdd.domain.service.TransactionService;
+import com.example.tdd.common.codec.TransactionCbor;
+import com.example.tdd.common.metrics.CancelFlowMetrics;
+import com.example.tdd.common.metrics.ResponseEncodingMetricsFilter;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.service.CancellationOperations;
+import com.example.tdd.domain.service.IdempotentCancellationService;
+import com.example.tdd.domain.service.TransactionLookupService;
+import com.example.tdd.presentation.dto.StatusChangeRequest;
+import com.example.tdd.shared.exception.ClientErrorException;
 import com.example.tdd.shared.exception.InvalidInputException;
 import com.example.tdd.shared.exception.MissingHeaderException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.codec.DecodingException;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Component
@@ -16,40 +27,174 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class TransactionHandler {
 
-    private final TransactionService transactionService;
+    private final CancellationOperations cancellationOperations;
+    private final IdempotentCancellationService idempotentCancellationService;
+    private final TransactionLookupService transactionLookupService;
+    private final CancelFlowMetrics cancelFlowMetrics;
     private static final String ID_MENSAJE_HEADER = "idMensaje";
+    private static final int ID_MENSAJE_MAX_LENGTH = 100; // Longitud de processed_message.id_mensaje
+    private static final int BULK_CHUNK_SIZE = 500; // Ids por transacción de base de datos en la cancelación masiva
+
+    // Rechazos de validación preasignados (sin stack trace): una avalancha de peticiones inválidas no crea excepciones
+    private static final MissingHeaderException MISSING_ID_MENSAJE =
+            new MissingHeaderException("Header '" + ID_MENSAJE_HEADER + "' is mandatory.");
+    private static final InvalidInputException ID_MENSAJE_TOO_LONG =
+            new InvalidInputException("Header '" + ID_MENSAJE_HEADER + "' must be at most " + ID_MENSAJE_MAX_LENGTH + " characters.");
+    private static final InvalidInputException NON_NUMERIC_TRANSACTION_ID =
+            new InvalidInputException("Transaction ID must be a numeric value.");
+    private static final InvalidInputException NON_POSITIVE_TRANSACTION_ID =
+            new InvalidInputException("Transaction ID must be a positive number.");
+    private static final InvalidInputException INVALID_STATUS_CHANGE =
+            new InvalidInputException("Request body must contain a valid 'status'.");
 
     public Mono<ServerResponse> cancelTransaction(ServerRequest request) {
-        // 1. Validar header 'idMensaje'
+        // 1. Validar header 'idMensaje' e ID de transacción del path
+        StatusChangeTarget target;
+        try {
+            target = validateStatusChange(request);
+        } catch (ClientErrorException e) {
+            return Mono.error(e);
+        }
+        Long transactionId = target.transactionId();
+
+        // 2. Llamar al servicio de dominio; un reintento con el mismo idMensaje recibe la respuesta original
+        return idempotentCancellationService.cancelTransaction(target.idMensaje(), transactionId)
+                .flatMap(history -> respond(request, history)) // Devuelve el registro de historial creado
+                .doOnSuccess(response -> log.info("Transaction {} cancelled successfully.", transactionId))
+                .doOnError(error -> log.error("Error processing cancel request for transaction {}: {}", transactionId, error.getMessage()));
+                // El manejo de errores específico para HTTP se hará en CustomWebExceptionHandler
+    }
+
+    // Transición genérica: la tabla de TransactionStateMachine decide si es válida (409 si no lo es)
+    public Mono<ServerResponse> changeStatus(ServerRequest request) {
+        StatusChangeTarget target;
+        try {
+            target = validateStatusChange(request);
+        } catch (ClientErrorException e) {
+            return Mono.error(e);
+        }
+        Long transactionId = target.transactionId();
+
+        return request.bodyToMono(StatusChangeRequest.class)
+                .onErrorMap(DecodingException.class, e -> INVALID_STATUS_CHANGE)
+                .filter(body -> body.status() != null)
+                .switchIfEmpty(Mono.error(INVALID_STATUS_CHANGE))
+                .flatMap(body -> idempotentCancellationService.changeStatus(target.idMensaje(), transactionId, body.status()))
+                .flatMap(history -> respond(request, history))
+                .doOnSuccess(response -> log.info("Transaction {} status changed.", transactionId));
+    }
+
+    public Mono<ServerResponse> getTransaction(ServerRequest request) {
+        Long transactionId;
+        try {
+            transactionId = parseTransactionId(request);
+        } catch (InvalidInputException e) {
+            return Mono.error(e);
+        }
+        // Lectura cache-aside: los ids calientes no cuestan un viaje a la base de datos
+        return transactionLookupService.findById(transactionId)
+                .flatMap(transaction -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(transaction));
+    }
+
+    public Mono<ServerResponse> cancelTransactions(ServerRequest request) {
         String idMensaje = request.headers().firstHeader(ID_MENSAJE_HEADER);
         if (idMensaje == null || idMensaje.isBlank()) {
-            log.warn("Missing or empty header: {}", ID_MENSAJE_HEADER);
-            return Mono.error(new MissingHeaderException("Header '" + ID_MENSAJE_HEADER + "' is mandatory."));
+            log.debug("Missing or empty header: {}", ID_MENSAJE_HEADER);
+            return Mono.error(MISSING_ID_MENSAJE);
         }
-        log.info("Received request with {}: {}", ID_MENSAJE_HEADER, idMensaje);
+        log.info("Received bulk cancel request with {}: {}", ID_MENSAJE_HEADER, idMensaje);
+
+        // El cuerpo (array JSON o NDJSON) se decodifica en streaming y se procesa por lotes,
+        // de modo que cada lote es un UPDATE y un insert en batch, sin acumular todo el cuerpo en memoria.
+        Flux<CancellationResult> results = request.bodyToFlux(Long.class)
+                .onErrorMap(DecodingException.class,
+                        e -> new InvalidInputException("Request body must be a list of numeric transaction IDs."))
+                .buffer(BULK_CHUNK_SIZE)
+                .concatMap(cancellationOperations::cancelTransactions)
+                .doOnNext(result -> cancelFlowMetrics.recordBulkResult(result.outcome().name()));
 
-        // 2. Validar ID de transacción del path
+        MediaType contentType = acceptsNdjson(request) ? MediaType.APPLICATION_NDJSON : responseType(request);
+        return ServerResponse.ok()
+                .contentType(contentType)
+                .body(results, CancellationResult.class);
+    }
+
+    // Parseo sin excepciones intermedias: Long.parseLong lanzaría una NumberFormatException (con su stack) por cada id inválido
+    private static Long parseTransactionId(ServerRequest request) {
         String idParam = request.pathVariable("id");
+        int start = !idParam.isEmpty() && (idParam.charAt(0) == '-' || idParam.charAt(0) == '+') ? 1 : 0;
+        if (start == idParam.length()) {
+            log.debug("Invalid transaction ID format: {}", idParam);
+            throw NON_NUMERIC_TRANSACTION_ID;
+        }
+        long transactionId = 0;
+        for (int i = start; i < idParam.length(); i++) {
+            int digit = idParam.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || transactionId > (Long.MAX_VALUE - digit) / 10) {
+                log.debug("Invalid transaction ID format: {}", idParam);
+                throw NON_NUMERIC_TRANSACTION_ID;
+            }
+            transactionId = transactionId * 10 + digit;
+        }
+        if (transactionId == 0 || idParam.charAt(0) == '-') {
+            log.debug("Invalid transaction ID: {}. Must be greater than 0.", idParam);
+            throw NON_POSITIVE_TRANSACTION_ID;
+        }
+        return transactionId;
+    }
+
+    private record StatusChangeTarget(String idMensaje, Long transactionId) {
+    }
+
+    // Validación común de los cambios de estado (header 'idMensaje' e id del path), medida en la etapa de validación.
+    // Los rechazos son las instancias preasignadas: lanzarlas no cuesta un stack trace
+    private StatusChangeTarget validateStatusChange(ServerRequest request) {
+        long validationStart = System.nanoTime();
+        String idMensaje = request.headers().firstHeader(ID_MENSAJE_HEADER);
+        if (idMensaje == null || idMensaje.isBlank()) {
+            log.debug("Missing or empty header: {}", ID_MENSAJE_HEADER);
+            throw rejectInvalid(validationStart, MISSING_ID_MENSAJE);
+        }
+        if (idMensaje.length() > ID_MENSAJE_MAX_LENGTH) {
+            log.debug("Header {} too long: {} characters", ID_MENSAJE_HEADER, idMensaje.length());
+            throw rejectInvalid(validationStart, ID_MENSAJE_TOO_LONG);
+        }
+        log.info("Received request with {}: {}", ID_MENSAJE_HEADER, idMensaje);
+
         Long transactionId;
         try {
-            transactionId = Long.parseLong(idParam);
-            if (transactionId <= 0) {
-                log.warn("Invalid transaction ID: {}. Must be greater than 0.", idParam);
-                return Mono.error(new InvalidInputException("Transaction ID must be a positive number."));
-            }
-        } catch (NumberFormatException e) {
-            log.warn("Invalid transaction ID format: {}", idParam);
-            return Mono.error(new InvalidInputException("Transaction ID must be a numeric value."));
+            transactionId = parseTransactionId(request);
+        } catch (InvalidInputException e) {
+            throw rejectInvalid(validationStart, e);
         }
+        cancelFlowMetrics.recordStage(CancelFlowMetrics.STAGE_VALIDATION, validationStart, null);
         log.info("Validated transaction ID: {}", transactionId);
+        return new StatusChangeTarget(idMensaje, transactionId);
+    }
 
-        // 3. Llamar al servicio de dominio
-        return transactionService.cancelTransaction(transactionId)
-                .flatMap(history -> ServerResponse.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .bodyValue(history)) // Devuelve el registro de historial creado
-                .doOnSuccess(response -> log.info("Transaction {} cancelled successfully.", transactionId))
-                .doOnError(error -> log.error("Error processing cancel request for transaction {}: {}", transactionId, error.getMessage()));
-                // El manejo de errores específico para HTTP se hará en CustomWebExceptionHandler
+    private ClientErrorException rejectInvalid(long validationStart, ClientErrorException error) {
+        cancelFlowMetrics.recordStage(CancelFlowMetrics.STAGE_VALIDATION, validationStart, error);
+        return error;
+    }
+
+    private static Mono<ServerResponse> respond(ServerRequest request, TransactionHistory history) {
+        return ServerResponse.ok()
+                .contentType(responseType(request))
+                .bodyValue(history)
+                // A partir de aquí empieza la etapa de codificación (ver ResponseEncodingMetricsFilter)
+                .doOnNext(response -> request.attributes().put(ResponseEncodingMetricsFilter.HANDLED_AT_ATTRIBUTE, System.nanoTime()));
+    }
+
+    // JSON por defecto; el formato binario solo si el cliente lo pide explícitamente en Accept
+    private static MediaType responseType(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(TransactionCbor.MEDIA_TYPE::equalsTypeAndSubtype)
+                ? TransactionCbor.MEDIA_TYPE
+                : MediaType.APPLICATION_JSON;
+    }
+
+    private static boolean acceptsNdjson(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.example.tdd.presentation.handler;
+
+import com.example.tdd.common.codec.TransactionCbor;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.service.TransactionHistoryService;
+import com.example.tdd.shared.exception.InvalidInputException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionHistoryHandler {
+
+    private final TransactionHistoryService transactionHistoryService;
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    public Mono<ServerResponse> streamHistory(ServerRequest request) {
+        // 1. Validar y construir el filtro a partir de los query params
+        TransactionHistoryFilter filter;
+        try {
+            filter = toFilter(request);
+        } catch (InvalidInputException e) {
+            log.warn("Invalid history query: {}", e.getMessage());
+            return Mono.error(e);
+        }
+
+        // 2. Volcar el Flux de R2DBC directamente a la respuesta: WebFlux pide filas según
+        //    las va escribiendo (backpressure), así que la memoria no depende del tamaño del resultado.
+        Flux<TransactionHistory> history = transactionHistoryService.findHistory(filter);
+        if (acceptsEventStream(request)) {
+            // El id del evento es el cursor: un cliente SSE que reconecta envía Last-Event-ID y continúa
+            Flux<ServerSentEvent<TransactionHistory>> events = history
+                    .map(record -> ServerSentEvent.builder(record)
+                            .id(String.valueOf(record.getId()))
+                            .build());
+            return ServerResponse.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(BodyInserters.fromServerSentEvents(events));
+        }
+        // Secuencia CBOR (un elemento por fila) para los clientes que piden el formato binario; si no, NDJSON
+        MediaType contentType = acceptsBinary(request) ? TransactionCbor.MEDIA_TYPE : MediaType.APPLICATION_NDJSON;
+        return ServerResponse.ok()
+                .contentType(contentType)
+                .body(history, TransactionHistory.class);
+    }
+
+    private TransactionHistoryFilter toFilter(ServerRequest request) {
+        Long afterId = parsePositiveLong(request.queryParam("afterId").orElse(null), "afterId");
+        if (afterId == null) {
+            afterId = parsePositiveLong(request.headers().firstHeader(LAST_EVENT_ID_HEADER), LAST_EVENT_ID_HEADER);
+        }
+        Long limit = parsePositiveLong(request.queryParam("limit").orElse(null), "limit");
+        if (limit != null && limit > Integer.MAX_VALUE) {
+            throw new InvalidInputException("Query parameter 'limit' is too large.");
+        }
+        return new TransactionHistoryFilter(
+                parsePositiveLong(request.queryParam("transactionId").orElse(null), "transactionId"),
+                parseStatus(request.queryParam("status").orElse(null)),
+                parseDate(request.queryParam("from").orElse(null), "from"),
+                parseDate(request.queryParam("to").orElse(null), "to"),
+                afterId,
+                limit != null ? limit.intValue() : null);
+    }
+
+    private static Long parsePositiveLong(String value, String name) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            long parsed = Long.parseLong(value);
+            if (parsed <= 0) {
+                throw new InvalidInputException("Query parameter '" + name + "' must be a positive number.");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new InvalidInputException("Query parameter '" + name + "' must be a numeric value.");
+        }
+    }
+
+    private static TransactionStatus parseStatus(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return TransactionStatus.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Query parameter 'status' is not a valid transaction status.");
+        }
+    }
+
+    private static LocalDateTime parseDate(String value, String name) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidInputException("Query parameter '" + name + "' must be an ISO-8601 date-time.");
+        }
+    }
+
+    private static boolean acceptsBinary(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(TransactionCbor.MEDIA_TYPE::equalsTypeAndSubtype);
+    }
+
+    private static boolean acceptsEventStream(ServerRequest request) {
+        return request.headers().accept().stream().anyMatch(MediaType.TEXT_EVENT_STREAM::equalsTypeAndSubtype);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.tdd.presentation.handler;
+
+import com.example.tdd.domain.enums.ImportFormat;
+import com.example.tdd.domain.service.TransactionImportService;
+import com.example.tdd.shared.exception.InvalidInputException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionImportHandler {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final InvalidInputException UNSUPPORTED_FORMAT =
+            new InvalidInputException("Content-Type must be application/x-ndjson or text/csv.");
+
+    private final TransactionImportService transactionImportService;
+
+    // El cuerpo se consume como flujo de DataBuffer: se procesa según llega y nunca se carga entero en memoria
+    public Mono<ServerResponse> importTransactions(ServerRequest request) {
+        MediaType contentType = request.headers().contentType().orElse(null);
+        ImportFormat format;
+        if (contentType != null && MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(contentType)) {
+            format = ImportFormat.NDJSON;
+        } else if (contentType != null && TEXT_CSV.equalsTypeAndSubtype(contentType)) {
+            format = ImportFormat.CSV;
+        } else {
+            log.warn("Rejected import with Content-Type {}", contentType);
+            return Mono.error(UNSUPPORTED_FORMAT);
+        }
+        return transactionImportService.importLines(
+                        transactionImportService.lines(request.body(BodyExtractors.toDataBuffers())), format)
+                .flatMap(report -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(report));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.tdd.presentation.handler;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.service.TransactionStatisticsService;
+import com.example.tdd.presentation.dto.TransactionStatisticsResponse;
+import com.example.tdd.shared.exception.InvalidInputException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionStatisticsHandler {
+
+    private final TransactionStatisticsService transactionStatisticsService;
+
+    // Se sirve de los agregados en memoria: ninguna consulta a la base de datos
+    public Mono<ServerResponse> getStatistics(ServerRequest request) {
+        TransactionStatus status;
+        try {
+            status = parseStatus(request.queryParam("status").orElse(null));
+        } catch (InvalidInputException e) {
+            log.warn("Invalid statistics query: {}", e.getMessage());
+            return Mono.error(e);
+        }
+        String currency = request.queryParam("currency").filter(value -> !value.isBlank()).orElse(null);
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new TransactionStatisticsResponse(transactionStatisticsService.getReconciledAt(),
+                        transactionStatisticsService.totals(status, currency)));
+    }
+
+    private static TransactionStatus parseStatus(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return TransactionStatus.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidInputException("Query parameter 'status' is not a valid transaction status.");
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.example.tdd.presentation.router;
 
+import com.example.tdd.common.ConcurrencyLimitFilter;
+import com.example.tdd.common.codec.TransactionCbor;
 import com.example.tdd.presentation.handler.TransactionHandler;
+import com.example.tdd.presentation.handler.TransactionHistoryHandler;
+import com.example.tdd.presentation.handler.TransactionImportHandler;
+import com.example.tdd.presentation.handler.TransactionStatisticsHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -16,10 +21,43 @@ public class TransactionRouter {
     private static final String TRANSACTIONS_BASE_PATH = "/transacciones";
 
     @Bean
-    public RouterFunction<ServerResponse> transactionRoutes(TransactionHandler transactionHandler) {
+    public RouterFunction<ServerResponse> transactionRoutes(TransactionHandler transactionHandler,
+                                                            TransactionHistoryHandler transactionHistoryHandler,
+                                                            TransactionStatisticsHandler transactionStatisticsHandler,
+                                                            TransactionImportHandler transactionImportHandler,
+                                                            ConcurrencyLimitFilter concurrencyLimitFilter) {
+        // Los cambios de estado de una transacción pasan por el límite de concurrencia adaptativo; las lecturas no.
+        // POST /cancelar queda fuera: su respuesta se escribe en streaming después de emitirse el ServerResponse,
+        // así que el permiso no cubriría el trabajo real y su muestra de latencia saldría casi nula
         return route()
                 .nest(accept(MediaType.APPLICATION_JSON), builder -> builder
-                    .PATCH(TRANSACTIONS_BASE_PATH + "/{id}/cancelar", transactionHandler::cancelTransaction)
+                    .PATCH(TRANSACTIONS_BASE_PATH + "/{id}/cancelar", concurrencyLimitFilter.apply(transactionHandler::cancelTransaction))
+                    .PATCH(TRANSACTIONS_BASE_PATH + "/{id}/estado", concurrencyLimitFilter.apply(transactionHandler::changeStatus))
+                    .POST(TRANSACTIONS_BASE_PATH + "/cancelar", transactionHandler::cancelTransactions)
+                    // Importación masiva (cuerpo NDJSON o CSV en streaming); fuera del límite de concurrencia:
+                    // es larga por naturaleza y falsearía las latencias que lo ajustan
+                    .POST(TRANSACTIONS_BASE_PATH + "/importar", transactionImportHandler::importTransactions)
+                )
+                // Respuestas en streaming NDJSON, un elemento por línea
+                .nest(accept(MediaType.APPLICATION_NDJSON), builder -> builder
+                    .POST(TRANSACTIONS_BASE_PATH + "/cancelar", transactionHandler::cancelTransactions)
+                    .GET(TRANSACTIONS_BASE_PATH + "/historial", transactionHistoryHandler::streamHistory)
+                )
+                // Historial en streaming como Server-Sent Events
+                .nest(accept(MediaType.TEXT_EVENT_STREAM), builder -> builder
+                    .GET(TRANSACTIONS_BASE_PATH + "/historial", transactionHistoryHandler::streamHistory)
+                )
+                // Formato binario compacto (application/vnd.tdd.transaction+cbor) para los clientes internos
+                .nest(accept(TransactionCbor.MEDIA_TYPE), builder -> builder
+                    .PATCH(TRANSACTIONS_BASE_PATH + "/{id}/cancelar", concurrencyLimitFilter.apply(transactionHandler::cancelTransaction))
+                    .PATCH(TRANSACTIONS_BASE_PATH + "/{id}/estado", concurrencyLimitFilter.apply(transactionHandler::changeStatus))
+                    .POST(TRANSACTIONS_BASE_PATH + "/cancelar", transactionHandler::cancelTransactions)
+                    .GET(TRANSACTIONS_BASE_PATH + "/historial", transactionHistoryHandler::streamHistory)
+                )
+                // Al final: GET /{id} no debe capturar /historial ni /estadisticas cuando el cliente acepta */*
+                .nest(accept(MediaType.APPLICATION_JSON), builder -> builder
+                    .GET(TRANSACTIONS_BASE_PATH + "/estadisticas", transactionStatisticsHandler::getStatistics)
+                    .GET(TRANSACTIONS_BASE_PATH + "/{id}", transactionHandler::getTransaction)
                 ).build();
     }
 }
\ No newline at end of file
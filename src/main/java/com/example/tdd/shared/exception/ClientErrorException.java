@@ -0,0 +1,8 @@
+package com.example.tdd.shared.exception;
+
+// Base de los errores del cliente: sin stack trace ni supresiones, crearlos (o reutilizar una instancia constante) es barato
+public abstract class ClientErrorException extends RuntimeException {
+    protected ClientErrorException(String message) {
+        super(message, null, false, false);
+    }
+}
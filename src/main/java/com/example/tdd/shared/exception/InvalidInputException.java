@@ -1,6 +1,6 @@
 package com.example.tdd.shared.exception;
 
-public class InvalidInputException extends RuntimeException {
+public class InvalidInputException extends ClientErrorException {
     public InvalidInputException(String message) {
         super(message);
     }
@@ -1,6 +1,6 @@
 package com.example.tdd.shared.exception;
 
-public class MissingHeaderException extends RuntimeException {
+public class MissingHeaderException extends ClientErrorException {
     public MissingHeaderException(String message) {
         super(message);
     }
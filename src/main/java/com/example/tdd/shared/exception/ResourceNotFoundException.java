@@ -1,6 +1,6 @@
 package com.example.tdd.shared.exception;
 
-public class ResourceNotFoundException extends RuntimeException {
+public class ResourceNotFoundException extends ClientErrorException {
     public ResourceNotFoundException(String message) {
         super(message);
     }
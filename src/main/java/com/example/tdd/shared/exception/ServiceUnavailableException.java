@@ -0,0 +1,18 @@
+package com.example.tdd.shared.exception;
+
+import java.time.Duration;
+
+// Rechazo por protección de carga (503): el servicio está saturado, no es un fallo. Sin stack trace
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.tdd.shared.exception;
+
+import java.time.Duration;
+
+// Rechazo por sobrecarga (429): sin stack trace, el cliente debe reintentar pasado retryAfter
+public class TooManyRequestsException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
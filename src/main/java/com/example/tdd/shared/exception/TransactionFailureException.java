@@ -0,0 +1,9 @@
+package com.example.tdd.shared.exception;
+
+// Fallo técnico al cambiar el estado (también 409, pero no es un error del cliente): envuelve la causa
+// y conserva la traza completa para diagnosticarlo
+public class TransactionFailureException extends RuntimeException {
+    public TransactionFailureException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
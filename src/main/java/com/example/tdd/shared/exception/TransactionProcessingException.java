@@ -1,10 +1,8 @@
 package com.example.tdd.shared.exception;
 
-public class TransactionProcessingException extends RuntimeException {
+// Conflicto de negocio (409): transición no admitida o transacción ya en el estado pedido
+public class TransactionProcessingException extends ClientErrorException {
     public TransactionProcessingException(String message) {
         super(message);
     }
-    public TransactionProcessingException(String message, Throwable cause) {
-        super(message, cause);
-    }
-}
\ No newline at end of file
+}
@@ -3,17 +3,43 @@ CREATE TABLE IF NOT EXISTS transaction (
     status VARCHAR(50) NOT NULL,
     -- Otros campos de transacción si fueran necesarios
     amount DECIMAL(19, 2),
-    currency VARCHAR(3)
+    currency VARCHAR(3),
+    -- Bloqueo optimista: toda escritura de status la incrementa (ver TransactionRepository)
+    version BIGINT DEFAULT 0 NOT NULL
 );
 
-CREATE TABLE IF NOT EXISTS transaction_history (
+-- Historial particionado por mes de change_date: tablas transaction_history_yyyyMM creadas bajo demanda y por
+-- adelantado por HistoryPartitionRouter / HistoryPartitionMaintenance (mismas columnas e índices en cada una).
+-- La secuencia es global; el id de cada fila es yyyyMM * 10^12 + NEXT VALUE FOR transaction_history_seq.
+CREATE SEQUENCE IF NOT EXISTS transaction_history_seq CACHE 1000;
+
+-- Mensajes ya procesados: idempotencia por el header idMensaje.
+-- Guarda una copia de la respuesta (la fila de historial) para poder repetirla aunque su partición ya se haya
+-- eliminado; sin FK a transaction_history. HistoryPartitionMaintenance borra las filas fuera de la retención.
+CREATE TABLE IF NOT EXISTS processed_message (
+    id_mensaje VARCHAR(100) PRIMARY KEY,
+    transaction_id BIGINT NOT NULL,
+    history_id BIGINT NOT NULL,
+    previous_status VARCHAR(50) NOT NULL,
+    new_status VARCHAR(50) NOT NULL,
+    change_date TIMESTAMP NOT NULL,
+    user_performing_action VARCHAR(100) NOT NULL,
+    processed_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_processed_message_processed_at ON processed_message (processed_at);
+
+-- Outbox de eventos de cambio: se escribe en la misma transacción que el historial y OutboxRelay
+-- lo drena por lotes en orden de id. Las filas publicadas se borran.
+-- Cada fila lleva el evento completo: se publica aunque la partición del historial se haya eliminado entretanto.
+CREATE TABLE IF NOT EXISTS outbox_event (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    history_id BIGINT NOT NULL,
     transaction_id BIGINT NOT NULL,
     previous_status VARCHAR(50) NOT NULL,
     new_status VARCHAR(50) NOT NULL,
     change_date TIMESTAMP NOT NULL,
     user_performing_action VARCHAR(100) NOT NULL,
-    FOREIGN KEY (transaction_id) REFERENCES transaction(id)
+    created_at TIMESTAMP NOT NULL
 );
 
 -- Datos iniciales para pruebas (opcional)
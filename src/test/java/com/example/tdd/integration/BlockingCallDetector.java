@@ -0,0 +1,69 @@
+package com.example.tdd.integration;
+
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingMethod;
+import reactor.blockhound.BlockingOperationError;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Modo de test con BlockHound (tarea blockHoundTest): la extensión se registra sola por META-INF/services cuando
+// junit.jupiter.extensions.autodetection.enabled=true, instala BlockHound una vez por JVM y hace fallar el test
+// durante el que se ejecutó una llamada bloqueante en un hilo no bloqueante (event loops de Netty, parallel de
+// Reactor). El error también viaja por el flujo reactivo, pero un onErrorResume podría ocultarlo: por eso se
+// anota aparte. Solo se permiten, por clase y método, los puntos de entrada que bloquean por diseño fuera de la
+// aplicación: la sesión de H2 embebido (r2dbc-h2 la invoca de forma síncrona: abrir, preparar, ejecutar,
+// confirmar y cerrar) y la escritura de los appenders de Logback. Un bloqueo de la aplicación que solo tenga
+// algún marco de H2 en la pila ya no queda exento.
+public class BlockingCallDetector implements BeforeAllCallback, BeforeEachCallback, AfterEachCallback {
+
+    private static final Map<String, List<String>> ALLOWED_METHODS = Map.of(
+            "org.h2.engine.Engine", List.of("createSession"),
+            "org.h2.engine.SessionLocal", List.of("prepareLocal", "prepareCommand", "commit", "rollback",
+                    "setAutoCommit", "close"),
+            "org.h2.command.Command", List.of("executeQuery", "executeUpdate"),
+            "ch.qos.logback.core.OutputStreamAppender", List.of("writeBytes"));
+    private static final AtomicBoolean INSTALLED = new AtomicBoolean();
+    private static final Queue<BlockingOperationError> DETECTED = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void beforeAll(ExtensionContext context) {
+        if (INSTALLED.compareAndSet(false, true)) {
+            BlockHound.install(builder -> {
+                ALLOWED_METHODS.forEach((className, methods) ->
+                        methods.forEach(method -> builder.allowBlockingCallsInside(className, method)));
+                builder.blockingMethodCallback(BlockingCallDetector::onBlockingCall);
+            });
+        }
+    }
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        DETECTED.clear();
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        if (DETECTED.isEmpty()) {
+            return;
+        }
+        AssertionError failure = new AssertionError(DETECTED.size() + " blocking call(s) on non-blocking threads during "
+                + context.getDisplayName() + "; first: " + DETECTED.peek().getMessage());
+        DETECTED.forEach(failure::addSuppressed);
+        DETECTED.clear();
+        throw failure;
+    }
+
+    private static void onBlockingCall(BlockingMethod method) {
+        BlockingOperationError error = new BlockingOperationError(method);
+        DETECTED.add(error);
+        throw error;
+    }
+}
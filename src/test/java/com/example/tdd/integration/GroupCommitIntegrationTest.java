@@ -0,0 +1,79 @@
+package com.example.tdd.integration;
+
+import com.example.tdd.TddApplication;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.service.GroupCommitCancellationService;
+import com.example.tdd.domain.service.IdempotentCancellationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Group commit contra el pool real (20 conexiones): con más llamantes que conexiones, ninguno retiene una
+// mientras espera a su grupo, y cada processed_message se confirma en la transacción del grupo
+@SpringBootTest(classes = TddApplication.class, properties = {
+        "tdd.group-commit.enabled=true",
+        "tdd.group-commit.window=20ms"
+})
+@ActiveProfiles("test")
+public class GroupCommitIntegrationTest {
+
+    private static final int PARALLEL_CANCELS = 64;
+
+    @Autowired
+    private IdempotentCancellationService idempotentCancellationService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ProcessedMessageRepository processedMessageRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void cancelTransaction_whenMoreCallersThanPooledConnections_shouldCommitInGroupsWithTheirMessages() {
+        List<Long> transactionIds = Flux.range(0, PARALLEL_CANCELS)
+                .concatMap(i -> transactionRepository.save(
+                        new Transaction(null, TransactionStatus.PENDING, BigDecimal.valueOf(100.00), "USD")))
+                .map(Transaction::getId)
+                .collectList()
+                .block();
+        String prefix = "msg-" + UUID.randomUUID() + "-";
+        double groupsBefore = groupCount();
+
+        List<TransactionHistory> histories = Flux.fromIterable(transactionIds)
+                .flatMap(id -> idempotentCancellationService.cancelTransaction(prefix + id, id)
+                        .subscribeOn(Schedulers.parallel()), PARALLEL_CANCELS)
+                .collectList()
+                .block();
+
+        assertEquals(PARALLEL_CANCELS, histories.size());
+        // Menos confirmaciones que cancelaciones: los llamantes se agruparon
+        assertTrue(groupCount() - groupsBefore < PARALLEL_CANCELS, "groups " + (groupCount() - groupsBefore));
+        for (TransactionHistory history : histories) {
+            Long id = history.getTransactionId();
+            assertEquals(TransactionStatus.CANCELLED, transactionRepository.findById(id).block().getStatus());
+            assertEquals(history.getId(), processedMessageRepository.findById(prefix + id).block().getHistoryId());
+        }
+    }
+
+    private double groupCount() {
+        return meterRegistry.get(GroupCommitCancellationService.BATCH_SIZE_SUMMARY).summary().count();
+    }
+}
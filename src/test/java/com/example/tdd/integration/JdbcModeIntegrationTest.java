@@ -0,0 +1,121 @@
+package com.example.tdd.integration;
+
+import com.example.tdd.TddApplication;
+import com.example.tdd.domain.enums.CancellationOutcome;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.service.CancellationOperations;
+import com.example.tdd.domain.service.JdbcTransactionService;
+import com.example.tdd.presentation.dto.ErrorResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Mismas rutas y mismos códigos de respuesta con la cancelación en JDBC sobre hilos virtuales
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = TddApplication.class)
+@AutoConfigureWebTestClient
+@ActiveProfiles({"test", "jdbc"})
+public class JdbcModeIntegrationTest {
+
+    private static final String BASE_PATH = "/transacciones";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ProcessedMessageRepository processedMessageRepository;
+
+    @Autowired
+    private CancellationOperations cancellationOperations;
+
+    private Transaction createAndSaveTransaction(TransactionStatus status) {
+        return transactionRepository.save(new Transaction(null, status, BigDecimal.valueOf(100.00), "USD")).block();
+    }
+
+    @Test
+    void jdbcProfile_shouldSelectJdbcImplementation() {
+        assertInstanceOf(JdbcTransactionService.class, cancellationOperations);
+    }
+
+    @Test
+    void cancelTransaction_shouldBehaveAsInR2dbcMode() {
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.PENDING);
+        String idMensaje = "msg-" + UUID.randomUUID();
+
+        TransactionHistory cancelledHistory = webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
+                .header("idMensaje", idMensaje)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionHistory.class)
+                .value(history -> {
+                    assertNotNull(history.getId());
+                    assertEquals(TransactionStatus.PENDING, history.getPreviousStatus());
+                    assertEquals(TransactionStatus.CANCELLED, history.getNewStatus());
+                })
+                .returnResult().getResponseBody();
+
+        // El registro de idempotencia se confirmó en la misma transacción JDBC que la cancelación
+        assertEquals(cancelledHistory.getId(), processedMessageRepository.findById(idMensaje).block().getHistoryId());
+
+        // El cambio hecho por JDBC es visible para R2DBC: es la misma base de datos
+        assertEquals(TransactionStatus.CANCELLED, transactionRepository.findById(transaction.getId()).block().getStatus());
+
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
+                .header("idMensaje", "msg-" + UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(ErrorResponse.class)
+                .value(error -> assertTrue(error.message().contains("Transaction already cancelled")));
+
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + Long.MAX_VALUE + "/cancelar")
+                .header("idMensaje", "msg-" + UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void cancelTransactions_shouldReportOutcomePerId() {
+        Transaction pending = createAndSaveTransaction(TransactionStatus.PENDING);
+        Transaction cancelled = createAndSaveTransaction(TransactionStatus.CANCELLED);
+
+        webTestClient.post()
+                .uri(BASE_PATH + "/cancelar")
+                .header("idMensaje", "msg-" + UUID.randomUUID())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(pending.getId(), cancelled.getId(), Long.MAX_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CancellationResult.class)
+                .value(results -> {
+                    assertEquals(CancellationOutcome.CANCELLED, results.get(0).outcome());
+                    assertNotNull(results.get(0).history().getId());
+                    assertEquals(CancellationOutcome.ALREADY_CANCELLED, results.get(1).outcome());
+                    assertEquals(CancellationOutcome.NOT_FOUND, results.get(2).outcome());
+                });
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.tdd.integration;
+
+import com.example.tdd.TddApplication;
+import com.example.tdd.config.HistoryPartitionProperties;
+import com.example.tdd.domain.enums.CancellationOutcome;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.TransactionHistoryRepository;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.repository.memory.StoreTransactionRepository;
+import com.example.tdd.presentation.dto.ErrorResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.ReactiveTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Mismas rutas y mismos códigos de respuesta con transacciones e historial en el almacén en memoria
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = TddApplication.class)
+@AutoConfigureWebTestClient
+@ActiveProfiles({"test", "memory"})
+public class MemoryModeIntegrationTest {
+
+    private static final String BASE_PATH = "/transacciones";
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    @Autowired
+    private HistoryPartitionProperties historyPartitionProperties;
+
+    private Transaction createAndSaveTransaction(TransactionStatus status) {
+        return transactionRepository.save(new Transaction(null, status, BigDecimal.valueOf(100.00), "USD")).block();
+    }
+
+    @Test
+    void memoryProfile_shouldSelectStoreRepository() {
+        assertInstanceOf(StoreTransactionRepository.class, transactionRepository);
+        // processed_message y outbox_event siguen en H2 y se confirman con su gestor transaccional
+        assertInstanceOf(R2dbcTransactionManager.class, transactionManager);
+    }
+
+    @Test
+    void memoryProfile_shouldDisableHistoryArchiving() {
+        // El archivo eliminaría la partición de H2 pero no el historial del almacén: se leería dos veces
+        assertFalse(historyPartitionProperties.archiveEnabled());
+    }
+
+    @Test
+    void cancelTransaction_shouldBehaveAsInDatabaseMode() {
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.PENDING);
+
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
+                .header("idMensaje", "msg-" + UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionHistory.class)
+                .value(history -> {
+                    assertNotNull(history.getId());
+                    assertEquals(TransactionStatus.PENDING, history.getPreviousStatus());
+                    assertEquals(TransactionStatus.CANCELLED, history.getNewStatus());
+                });
+
+        assertEquals(TransactionStatus.CANCELLED, transactionRepository.findById(transaction.getId()).block().getStatus());
+
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
+                .header("idMensaje", "msg-" + UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(ErrorResponse.class)
+                .value(error -> assertTrue(error.message().contains("Transaction already cancelled")));
+
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + Long.MAX_VALUE + "/cancelar")
+                .header("idMensaje", "msg-" + UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void cancelTransactions_shouldReportOutcomePerId() {
+        Transaction pending = createAndSaveTransaction(TransactionStatus.PENDING);
+        Transaction cancelled = createAndSaveTransaction(TransactionStatus.CANCELLED);
+
+        webTestClient.post()
+                .uri(BASE_PATH + "/cancelar")
+                .header("idMensaje", "msg-" + UUID.randomUUID())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(pending.getId(), cancelled.getId(), Long.MAX_VALUE))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CancellationResult.class)
+                .value(results -> {
+                    assertEquals(CancellationOutcome.CANCELLED, results.get(0).outcome());
+                    assertNotNull(results.get(0).history().getId());
+                    assertEquals(CancellationOutcome.ALREADY_CANCELLED, results.get(1).outcome());
+                    assertEquals(CancellationOutcome.NOT_FOUND, results.get(2).outcome());
+                });
+    }
+
+    @Test
+    void streamHistory_shouldSeeNewRecords_afterHistoryIsCleared() {
+        Transaction before = createAndSaveTransaction(TransactionStatus.PENDING);
+        cancel(before);
+        transactionHistoryRepository.deleteAll().block();
+
+        Transaction after = createAndSaveTransaction(TransactionStatus.PENDING);
+        cancel(after);
+
+        // El recorrido por id empieza de nuevo en 1: el registro posterior al vaciado es visible
+        webTestClient.get()
+                .uri(BASE_PATH + "/historial?transactionId=" + after.getId())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionHistory.class)
+                .value(history -> {
+                    assertEquals(1, history.size());
+                    assertEquals(after.getId(), history.get(0).getTransactionId());
+                });
+    }
+
+    private void cancel(Transaction transaction) {
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
+                .header("idMensaje", "msg-" + UUID.randomUUID())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.tdd.integration;
+
+import com.example.tdd.TddApplication;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.repository.TransactionHistoryRepository;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(classes = TddApplication.class)
+@ActiveProfiles("test")
+public class TransactionCancelConcurrencyIntegrationTest {
+
+    private static final int PARALLEL_CANCELS = 64;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionHistoryRepository transactionHistoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        transactionHistoryRepository.deleteAll().block();
+        transactionRepository.deleteAll().block();
+    }
+
+    @Test
+    void cancelTransaction_whenManyParallelCancels_shouldCancelExactlyOnce() {
+        Transaction transaction = transactionRepository
+                .save(new Transaction(null, TransactionStatus.PENDING, BigDecimal.valueOf(100.00), "USD"))
+                .block();
+        Long transactionId = transaction.getId();
+
+        // Lanzamos todas las cancelaciones a la vez sobre el mismo id; solo una puede ganar el UPDATE condicional
+        Long successes = Flux.range(0, PARALLEL_CANCELS)
+                .flatMap(i -> transactionService.cancelTransaction(transactionId)
+                        .map(history -> 1L)
+                        .onErrorResume(e -> Mono.just(0L))
+                        .subscribeOn(Schedulers.parallel()), PARALLEL_CANCELS)
+                .reduce(0L, Long::sum)
+                .block();
+
+        assertEquals(1L, successes);
+        assertEquals(1L, transactionHistoryRepository.findAll()
+                .filter(h -> h.getTransactionId().equals(transactionId))
+                .count()
+                .block());
+        assertEquals(TransactionStatus.CANCELLED, transactionRepository.findById(transactionId).block().getStatus());
+    }
+}
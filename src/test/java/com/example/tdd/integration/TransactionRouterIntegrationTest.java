@@ -1,11 +1,19 @@
 package com.example.tdd.integration;
 
 import com.example.tdd.TddApplication;
+import com.example.tdd.common.codec.TransactionCbor;
+import com.example.tdd.common.outbox.InMemoryChangeEventSink;
+import com.example.tdd.domain.enums.CancellationOutcome;
 import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.ImportReport;
 import com.example.tdd.domain.model.Transaction;
 import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.HistoryPartitionRouter;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
 import com.example.tdd.domain.repository.TransactionHistoryRepository;
 import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.service.HistoryArchiveService;
 import com.example.tdd.presentation.dto.ErrorResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,9 +24,17 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,16 +52,34 @@ public class TransactionRouterIntegrationTest {
     @Autowired
     private TransactionHistoryRepository transactionHistoryRepository;
 
+    @Autowired
+    private ProcessedMessageRepository processedMessageRepository;
+
+    @Autowired
+    private HistoryArchiveService historyArchiveService;
+
+    @Autowired
+    private HistoryPartitionRouter partitionRouter;
+
+    @Autowired
+    private InMemoryChangeEventSink changeEventSink; // tdd.outbox.sink=memory en el perfil test
+
     private static final String BASE_PATH = "/transacciones";
     private static final String USER_SYSTEM = "SYSTEM";
 
     @BeforeEach
     void setUp() {
         // Limpiar datos antes de cada test para asegurar la idempotencia
+        processedMessageRepository.deleteAll().block();
         transactionHistoryRepository.deleteAll().block();
         transactionRepository.deleteAll().block();
     }
 
+    // idMensaje único por petición: la cache de idempotencia sobrevive entre tests del mismo contexto
+    private static String newIdMensaje() {
+        return "msg-" + UUID.randomUUID();
+    }
+
     private Transaction createAndSaveTransaction(TransactionStatus status) {
         return transactionRepository.save(new Transaction(null, status, BigDecimal.valueOf(100.00), "USD")).block();
     }
@@ -65,7 +99,7 @@ public class TransactionRouterIntegrationTest {
     void cancelTransaction_whenTransactionIdIsInvalid_shouldReturnBadRequest() {
         webTestClient.patch()
                 .uri(BASE_PATH + "/0/cancelar")
-                .header("idMensaje", "msg-123")
+                .header("idMensaje", newIdMensaje())
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isBadRequest()
@@ -74,7 +108,7 @@ public class TransactionRouterIntegrationTest {
 
         webTestClient.patch()
                 .uri(BASE_PATH + "/abc/cancelar")
-                .header("idMensaje", "msg-123")
+                .header("idMensaje", newIdMensaje())
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isBadRequest()
@@ -86,7 +120,7 @@ public class TransactionRouterIntegrationTest {
     void cancelTransaction_whenTransactionNotFound_shouldReturnNotFound() {
         webTestClient.patch()
                 .uri(BASE_PATH + "/999/cancelar")
-                .header("idMensaje", "msg-123")
+                .header("idMensaje", newIdMensaje())
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isNotFound()
@@ -100,7 +134,7 @@ public class TransactionRouterIntegrationTest {
 
         webTestClient.patch()
                 .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
-                .header("idMensaje", "msg-123")
+                .header("idMensaje", newIdMensaje())
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isEqualTo(HttpStatus.CONFLICT) // O 422 si se prefiere
@@ -115,7 +149,7 @@ public class TransactionRouterIntegrationTest {
 
         webTestClient.patch()
                 .uri(BASE_PATH + "/" + transactionId + "/cancelar")
-                .header("idMensaje", "msg-123")
+                .header("idMensaje", newIdMensaje())
                 .accept(MediaType.APPLICATION_JSON)
                 .exchange()
                 .expectStatus().isOk()
@@ -139,6 +173,316 @@ public class TransactionRouterIntegrationTest {
                 .verifyComplete();
     }
 
+    @Test
+    void cancelTransactions_shouldReturnOutcomePerId() {
+        Transaction pending = createAndSaveTransaction(TransactionStatus.PENDING);
+        Transaction cancelled = createAndSaveTransaction(TransactionStatus.CANCELLED);
+
+        webTestClient.post()
+                .uri(BASE_PATH + "/cancelar")
+                .header("idMensaje", newIdMensaje())
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(pending.getId(), cancelled.getId(), 999L))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CancellationResult.class)
+                .value(results -> {
+                    assertEquals(3, results.size());
+                    assertEquals(CancellationOutcome.CANCELLED, results.get(0).outcome());
+                    assertEquals(TransactionStatus.PENDING, results.get(0).history().getPreviousStatus());
+                    assertNotNull(results.get(0).history().getId());
+                    assertEquals(CancellationOutcome.ALREADY_CANCELLED, results.get(1).outcome());
+                    assertEquals(CancellationOutcome.NOT_FOUND, results.get(2).outcome());
+                });
+
+        StepVerifier.create(transactionRepository.findById(pending.getId()))
+                .expectNextMatches(updatedTx -> updatedTx.getStatus() == TransactionStatus.CANCELLED)
+                .verifyComplete();
+    }
+
+    @Test
+    void cancelTransactions_whenNdjsonRequested_shouldStreamOneResultPerLine() {
+        Transaction pending = createAndSaveTransaction(TransactionStatus.PENDING);
+
+        webTestClient.post()
+                .uri(BASE_PATH + "/cancelar")
+                .header("idMensaje", newIdMensaje())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(pending.getId() + "\n" + 999L + "\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(CancellationResult.class)
+                .value(results -> {
+                    assertEquals(2, results.size());
+                    assertEquals(CancellationOutcome.CANCELLED, results.get(0).outcome());
+                    assertEquals(CancellationOutcome.NOT_FOUND, results.get(1).outcome());
+                });
+    }
+
+    @Test
+    void streamHistory_shouldFilterByTransactionAndPaginateByKeyset() {
+        Transaction first = createAndSaveTransaction(TransactionStatus.PENDING);
+        Transaction second = createAndSaveTransaction(TransactionStatus.PENDING);
+        Transaction third = createAndSaveTransaction(TransactionStatus.COMPLETED);
+        cancel(first.getId());
+        cancel(second.getId());
+        cancel(third.getId());
+
+        // Filtro por transacción
+        webTestClient.get()
+                .uri(BASE_PATH + "/historial?transactionId=" + second.getId())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(TransactionHistory.class)
+                .value(history -> {
+                    assertEquals(1, history.size());
+                    assertEquals(second.getId(), history.get(0).getTransactionId());
+                });
+
+        // Primera página de 2 y continuación a partir del último id recibido
+        List<TransactionHistory> firstPage = webTestClient.get()
+                .uri(BASE_PATH + "/historial?status=CANCELLED&limit=2")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionHistory.class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals(2, firstPage.size());
+        assertTrue(firstPage.get(0).getId() < firstPage.get(1).getId());
+
+        webTestClient.get()
+                .uri(BASE_PATH + "/historial?status=CANCELLED&afterId=" + firstPage.get(1).getId())
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(TransactionHistory.class)
+                .value(history -> {
+                    assertEquals(1, history.size());
+                    assertEquals(third.getId(), history.get(0).getTransactionId());
+                    assertEquals(TransactionStatus.COMPLETED, history.get(0).getPreviousStatus());
+                });
+    }
+
+    @Test
+    void streamHistory_shouldReadArchivedMonth_afterItsPartitionIsDropped() throws IOException {
+        YearMonth expired = YearMonth.of(2020, 1); // Fuera de la retención
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.CANCELLED);
+        List<TransactionHistory> saved = transactionHistoryRepository.saveAllBatched(List.of(
+                        new TransactionHistory(null, transaction.getId(), TransactionStatus.PENDING, TransactionStatus.COMPLETED,
+                                expired.atDay(10).atStartOfDay(), USER_SYSTEM),
+                        new TransactionHistory(null, transaction.getId(), TransactionStatus.COMPLETED, TransactionStatus.CANCELLED,
+                                expired.atDay(20).atStartOfDay(), USER_SYSTEM)))
+                .collectList().block();
+
+        StepVerifier.create(historyArchiveService.archivePartition(expired)).expectNext(2L).verifyComplete();
+        StepVerifier.create(partitionRouter.dropPartition(expired)).verifyComplete();
+        try {
+            webTestClient.get()
+                    .uri(BASE_PATH + "/historial?transactionId=" + transaction.getId())
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(TransactionHistory.class)
+                    .value(history -> assertEquals(saved, history));
+
+            // Los filtros y el keyset se aplican igual sobre el archivo
+            webTestClient.get()
+                    .uri(BASE_PATH + "/historial?transactionId=" + transaction.getId() + "&status=CANCELLED&afterId=" + saved.get(0).getId())
+                    .accept(MediaType.APPLICATION_NDJSON)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(TransactionHistory.class)
+                    .value(history -> assertEquals(List.of(saved.get(1)), history));
+        } finally {
+            Files.deleteIfExists(historyArchiveService.archiveFile(expired));
+        }
+    }
+
+    @Test
+    void streamHistory_whenQueryParamInvalid_shouldReturnBadRequest() {
+        webTestClient.get()
+                .uri(BASE_PATH + "/historial?from=yesterday")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void cancelTransaction_whenMessageIsRetried_shouldReplayOriginalResponse() {
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.PENDING);
+        String idMensaje = newIdMensaje();
+
+        TransactionHistory first = webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
+                .header("idMensaje", idMensaje)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionHistory.class)
+                .returnResult().getResponseBody();
+
+        // El reintento no devuelve 409: recibe la misma respuesta sin volver a cancelar
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
+                .header("idMensaje", idMensaje)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionHistory.class)
+                .value(history -> assertEquals(first.getId(), history.getId()));
+
+        // Reutilizar el idMensaje para otra transacción es un error del cliente
+        Transaction other = createAndSaveTransaction(TransactionStatus.PENDING);
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + other.getId() + "/cancelar")
+                .header("idMensaje", idMensaje)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        StepVerifier.create(transactionHistoryRepository.findAll())
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void cancelTransaction_whenHistoryPartitionIsGone_shouldReplayStoredSnapshot() {
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.CANCELLED);
+        String idMensaje = newIdMensaje();
+        // Mensaje procesado (por otra instancia o antes de un reinicio) cuya fila de historial ya se eliminó
+        TransactionHistory original = new TransactionHistory(HistoryPartitionRouter.idBase(YearMonth.of(2020, 1)) + 1,
+                transaction.getId(), TransactionStatus.PENDING, TransactionStatus.CANCELLED,
+                LocalDateTime.of(2020, 1, 15, 10, 0), USER_SYSTEM);
+        processedMessageRepository.insert(idMensaje, original, LocalDateTime.now()).block();
+
+        // Sin la copia de la respuesta el reintento vería la transacción ya cancelada y recibiría un 409
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/cancelar")
+                .header("idMensaje", idMensaje)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionHistory.class)
+                .value(history -> {
+                    assertEquals(original.getId(), history.getId());
+                    assertEquals(TransactionStatus.PENDING, history.getPreviousStatus());
+                    assertEquals(original.getChangeDate(), history.getChangeDate());
+                });
+    }
+
+    @Test
+    void getTransaction_shouldReflectCancellation_afterBeingCached() {
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.PENDING);
+
+        webTestClient.get()
+                .uri(BASE_PATH + "/" + transaction.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Transaction.class)
+                .value(found -> assertEquals(TransactionStatus.PENDING, found.getStatus()));
+
+        cancel(transaction.getId());
+
+        // La cancelación invalida la entrada: la siguiente lectura ya ve el nuevo estado
+        webTestClient.get()
+                .uri(BASE_PATH + "/" + transaction.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Transaction.class)
+                .value(found -> assertEquals(TransactionStatus.CANCELLED, found.getStatus()));
+    }
+
+    @Test
+    void getTransaction_whenTransactionNotFound_shouldReturnNotFound() {
+        webTestClient.get()
+                .uri(BASE_PATH + "/999999")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void cancelTransaction_shouldPublishChangeEventThroughOutbox() {
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.PENDING);
+
+        cancel(transaction.getId());
+
+        // El relay publica en segundo plano: esperamos a que el evento llegue al destino
+        TransactionHistory published = Mono.fromSupplier(changeEventSink::getEvents)
+                .flatMapIterable(events -> events)
+                .filter(event -> event.getTransactionId().equals(transaction.getId()))
+                .next()
+                .repeatWhenEmpty(attempts -> attempts.delayElements(Duration.ofMillis(50)))
+                .block(Duration.ofSeconds(5));
+
+        assertNotNull(published);
+        assertEquals(TransactionStatus.CANCELLED, published.getNewStatus());
+    }
+
+    @Test
+    void changeStatus_shouldApplyLegalTransitionAndRejectIllegalOne() {
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.PENDING);
+
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/estado")
+                .header("idMensaje", newIdMensaje())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"status\":\"COMPLETED\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(TransactionHistory.class)
+                .value(history -> {
+                    assertEquals(TransactionStatus.PENDING, history.getPreviousStatus());
+                    assertEquals(TransactionStatus.COMPLETED, history.getNewStatus());
+                });
+
+        // COMPLETED -> PENDING no está en la tabla de transiciones
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/estado")
+                .header("idMensaje", newIdMensaje())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"status\":\"PENDING\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody(ErrorResponse.class)
+                .value(error -> assertEquals("Transition from COMPLETED to PENDING is not allowed.", error.message()));
+
+        assertEquals(TransactionStatus.COMPLETED, transactionRepository.findById(transaction.getId()).block().getStatus());
+    }
+
+    @Test
+    void changeStatus_whenStatusIsUnknown_shouldReturnBadRequest() {
+        Transaction transaction = createAndSaveTransaction(TransactionStatus.PENDING);
+
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transaction.getId() + "/estado")
+                .header("idMensaje", newIdMensaje())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"status\":\"REFUNDED\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private void cancel(Long transactionId) {
+        webTestClient.patch()
+                .uri(BASE_PATH + "/" + transactionId + "/cancelar")
+                .header("idMensaje", "msg-" + transactionId)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
     // Test de atomicidad: Este es más complejo de probar en un entorno de integración sin
     // introducir puntos de fallo artificiales en el código o mocks a nivel de infraestructura.
     // Con @Transactional, confiamos en que Spring/R2DBC manejan el rollback.
@@ -147,4 +491,74 @@ public class TransactionRouterIntegrationTest {
     // que no sea un error de conectividad (difícil de simular limpiamente).
     // Para este ejemplo, la prueba de éxito y las pruebas unitarias del servicio cubren
     // razonablemente el comportamiento esperado.
-}
\ No newline at end of file
+
+    @Test
+    void cancelTransaction_whenBinaryAccepted_shouldAnswerCompactCbor_andStreamHistoryInSameFormat() {
+        Long transactionId = createAndSaveTransaction(TransactionStatus.PENDING).getId();
+
+        TransactionHistory cancelled = webTestClient.patch()
+                .uri(BASE_PATH + "/" + transactionId + "/cancelar")
+                .header("idMensaje", newIdMensaje())
+                .accept(TransactionCbor.MEDIA_TYPE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(TransactionCbor.MEDIA_TYPE)
+                .expectBody(TransactionHistory.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(cancelled);
+        assertEquals(transactionId, cancelled.getTransactionId());
+        assertEquals(TransactionStatus.PENDING, cancelled.getPreviousStatus());
+        assertEquals(TransactionStatus.CANCELLED, cancelled.getNewStatus());
+
+        webTestClient.get()
+                .uri(BASE_PATH + "/historial?transactionId=" + transactionId)
+                .accept(TransactionCbor.MEDIA_TYPE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(TransactionCbor.MEDIA_TYPE)
+                .expectBodyList(TransactionHistory.class)
+                .value(history -> assertEquals(List.of(cancelled.getId()), history.stream().map(TransactionHistory::getId).toList()));
+    }
+
+    @Test
+    void importTransactions_shouldInsertValidCsvRows_andReportRejectedLines() {
+        String csv = "status,amount,currency\n" +
+                     "PENDING,100.00,USD\n" +
+                     "COMPLETED,20.5,EUR\r\n" +
+                     "UNKNOWN,1.00,USD\n" +
+                     "FAILED,,\n";
+
+        webTestClient.post()
+                .uri(BASE_PATH + "/importar")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ImportReport.class)
+                .value(report -> {
+                    assertEquals(3, report.accepted());
+                    assertEquals(1, report.rejected());
+                    assertEquals(List.of(new ImportReport.Rejection(4, "Field 'status' is not a valid transaction status.")),
+                            report.rejections());
+                });
+
+        StepVerifier.create(transactionRepository.findAll().map(Transaction::getStatus).collectList())
+                .assertNext(statuses -> assertEquals(
+                        List.of(TransactionStatus.PENDING, TransactionStatus.COMPLETED, TransactionStatus.FAILED),
+                        statuses.stream().sorted().toList()))
+                .verifyComplete();
+    }
+
+    @Test
+    void importTransactions_withUnsupportedContentType_shouldReturnBadRequest() {
+        webTestClient.post()
+                .uri(BASE_PATH + "/importar")
+                .contentType(MediaType.TEXT_PLAIN)
+                .accept(MediaType.APPLICATION_JSON)
+                .bodyValue("PENDING,1.00,USD")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
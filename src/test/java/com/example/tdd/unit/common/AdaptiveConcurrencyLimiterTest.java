@@ -0,0 +1,86 @@
+package com.example.tdd.unit.common;
+
+import com.example.tdd.common.AdaptiveConcurrencyLimiter;
+import com.example.tdd.config.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(new ConcurrencyLimitProperties(true, initialLimit, 2, 100, 0.2, 1.5, 100,
+                Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void tryAcquire_shouldRejectBeyondLimitAndAdmitAgainAfterRelease() {
+        AdaptiveConcurrencyLimiter limiter = limiter(3);
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+
+        assertNull(limiter.tryAcquire());
+        assertEquals(3, limiter.getInFlight());
+
+        // Una cancelación del cliente libera el hueco sin aportar muestra
+        permits.get(0).release(SignalType.CANCEL);
+        assertEquals(3, limiter.getLimit());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void onSample_shouldGrowWhileLatencyIsStableAndSaturated() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(FAST, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() > 20, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void onSample_shouldNotGrow_whenTrafficIsBelowHalfTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(FAST, 2);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void onSample_shouldShrink_whenLatencyRises() {
+        AdaptiveConcurrencyLimiter limiter = limiter(40);
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(FAST, 40);
+        }
+        int beforeQueueing = limiter.getLimit();
+        // Latencia x10: se está formando cola en el pool de conexiones
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(FAST * 10, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() < beforeQueueing / 2, "limit " + limiter.getLimit() + " before " + beforeQueueing);
+    }
+
+    @Test
+    void onDropped_shouldBackOffButNotBelowMinimum() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        limiter.onDropped();
+        assertEquals(9, limiter.getLimit());
+        for (int i = 0; i < 100; i++) {
+            limiter.onDropped();
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.tdd.unit.common;
+
+import com.example.tdd.common.metrics.CancelFlowMetrics;
+import com.example.tdd.shared.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class CancelFlowMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CancelFlowMetrics cancelFlowMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cancelFlowMetrics = new CancelFlowMetrics(meterRegistry);
+    }
+
+    @Test
+    void timeStage_shouldTagByOutcomeAndExceptionType() {
+        StepVerifier.create(cancelFlowMetrics.timeStage(CancelFlowMetrics.STAGE_UPDATE, Mono.just(1)))
+                .expectNext(1)
+                .verifyComplete();
+        StepVerifier.create(cancelFlowMetrics.timeStage(CancelFlowMetrics.STAGE_UPDATE,
+                        Mono.error(new ResourceNotFoundException("Not found"))))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+
+        assertEquals(1, stageTimer("update", "success", "none").count());
+        assertEquals(1, stageTimer("update", "error", "ResourceNotFoundException").count());
+    }
+
+    @Test
+    void timeStage_shouldMeasureFromSubscription() {
+        Mono<Integer> stage = cancelFlowMetrics.timeStage(CancelFlowMetrics.STAGE_HISTORY_SAVE, Mono.just(1));
+
+        // Construir el Mono no cuenta: solo cada suscripción
+        assertEquals(0, meterRegistry.find(CancelFlowMetrics.STAGE_TIMER).timers().size());
+        stage.block();
+        stage.block();
+        assertEquals(2, stageTimer("history_save", "success", "none").count());
+    }
+
+    @Test
+    void recordHttpError_shouldCountByStatusAndException() {
+        cancelFlowMetrics.recordHttpError(404, new ResourceNotFoundException("Not found"));
+
+        assertEquals(1.0, meterRegistry.get(CancelFlowMetrics.HTTP_ERRORS_COUNTER)
+                .tag("status", "404")
+                .tag("exception", "ResourceNotFoundException")
+                .counter()
+                .count());
+    }
+
+    private Timer stageTimer(String stage, String outcome, String exception) {
+        Timer timer = meterRegistry.find(CancelFlowMetrics.STAGE_TIMER)
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .timer();
+        assertNotNull(timer);
+        return timer;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.tdd.unit.common;
+
+import com.example.tdd.common.ConcurrencyLimitFilter;
+import com.example.tdd.common.CustomWebExceptionHandler;
+import com.example.tdd.common.metrics.CancelFlowMetrics;
+import com.example.tdd.config.ConcurrencyLimitProperties;
+import com.example.tdd.config.ErrorHandlingProperties;
+import com.example.tdd.shared.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PATCH;
+
+class ConcurrencyLimitFilterTest {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(2);
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConcurrencyLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ConcurrencyLimitFilter(new ConcurrencyLimitProperties(true, 1, 1, 1, 0.2, 1.5, 100, RETRY_AFTER),
+                meterRegistry);
+    }
+
+    @Test
+    void filter_shouldRejectWithRetryAfter_whenLimitIsFull_andAdmitAgainOnceReleased() {
+        Sinks.One<ServerResponse> pending = Sinks.one();
+        Disposable inFlight = filter.filter(MockServerRequest.builder().build(), request -> pending.asMono()).subscribe();
+
+        StepVerifier.create(filter.filter(MockServerRequest.builder().build(), request -> ServerResponse.ok().build()))
+                .expectErrorSatisfies(error -> {
+                    assertEquals(ServiceUnavailableException.class, error.getClass());
+                    assertEquals(RETRY_AFTER, ((ServiceUnavailableException) error).getRetryAfter());
+                })
+                .verify();
+        assertEquals(1.0, meterRegistry.get(ConcurrencyLimitFilter.REJECTED_COUNTER).counter().count());
+
+        pending.tryEmitEmpty();
+        inFlight.dispose();
+        StepVerifier.create(filter.filter(MockServerRequest.builder().build(), request -> ServerResponse.ok().build()))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    void rejectedRequest_shouldBeRendered503WithRetryAfterHeader() {
+        CustomWebExceptionHandler exceptionHandler = new CustomWebExceptionHandler(new DefaultErrorAttributes(),
+                new StaticApplicationContext(), ServerCodecConfigurer.create(),
+                new CancelFlowMetrics(meterRegistry), new ErrorHandlingProperties(10));
+        WebTestClient client = WebTestClient
+                .bindToRouterFunction(RouterFunctions.route(PATCH("/transacciones/{id}/cancelar"),
+                        filter.apply(request -> ServerResponse.ok().build())))
+                .handlerStrategies(HandlerStrategies.builder().exceptionHandler(exceptionHandler).build())
+                .build();
+
+        // Un cambio de estado en curso ocupa el único permiso
+        Disposable inFlight = filter.filter(MockServerRequest.builder().build(), request -> Mono.never()).subscribe();
+        try {
+            client.patch().uri("/transacciones/1/cancelar")
+                    .exchange()
+                    .expectStatus().isEqualTo(503)
+                    .expectHeader().valueEquals(HttpHeaders.RETRY_AFTER, "2");
+        } finally {
+            inFlight.dispose();
+        }
+    }
+}
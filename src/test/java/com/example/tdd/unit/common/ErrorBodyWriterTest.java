@@ -0,0 +1,59 @@
+package com.example.tdd.unit.common;
+
+import com.example.tdd.common.ErrorBodyWriter;
+import com.example.tdd.common.LogRateLimiter;
+import com.example.tdd.presentation.dto.ErrorResponse;
+import com.example.tdd.shared.exception.InvalidInputException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorBodyWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void encode_shouldProduceSameDocumentAsErrorResponse() throws Exception {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 10, 0, 0, 123_000_000);
+
+        byte[] json = ErrorBodyWriter.encode("Transaction not found with id: 1", "/transacciones/1/cancelar", 404, timestamp);
+
+        ErrorResponse decoded = objectMapper.readValue(json, ErrorResponse.class);
+        assertEquals(new ErrorResponse("Transaction not found with id: 1", "/transacciones/1/cancelar", 404, timestamp), decoded);
+    }
+
+    @Test
+    void encode_shouldEscapeClientControlledText() throws Exception {
+        String path = "/transacciones/\"x\\y\n/cancelar";
+
+        byte[] json = ErrorBodyWriter.encode("bad \u0001 id", path, 400, LocalDateTime.now());
+
+        ErrorResponse decoded = objectMapper.readValue(json, ErrorResponse.class);
+        assertEquals(path, decoded.path());
+        assertEquals("bad \u0001 id", decoded.message());
+    }
+
+    @Test
+    void clientErrors_shouldBeStackless() {
+        InvalidInputException error = new InvalidInputException("Transaction ID must be a numeric value.");
+
+        assertEquals(0, error.getStackTrace().length);
+        error.addSuppressed(new IllegalStateException()); // Una instancia compartida no acumula supresiones
+        assertEquals(0, error.getSuppressed().length);
+    }
+
+    @Test
+    void logRateLimiter_shouldReportSuppressedCountOnNextPermit() {
+        LogRateLimiter limiter = new LogRateLimiter(2);
+
+        assertEquals(0, limiter.tryAcquire());
+        assertEquals(0, limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire() < 0);
+        assertTrue(limiter.tryAcquire() < 0);
+    }
+}
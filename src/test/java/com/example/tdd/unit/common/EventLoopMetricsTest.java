@@ -0,0 +1,64 @@
+package com.example.tdd.unit.common;
+
+import com.example.tdd.common.metrics.EventLoopMetrics;
+import com.example.tdd.config.ReactorRuntimeProperties;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.ReactorResourceFactory;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class EventLoopMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReactorResourceFactory resourceFactory;
+    private EventLoopMetrics eventLoopMetrics;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        resourceFactory = new ReactorResourceFactory();
+        resourceFactory.setUseGlobalResources(false);
+        resourceFactory.setLoopResourcesSupplier(() -> LoopResources.create("test-loop", 2, true));
+        resourceFactory.afterPropertiesSet();
+        eventLoopMetrics = new EventLoopMetrics(resourceFactory,
+                new ReactorRuntimeProperties(2, 10, Duration.ofSeconds(1), Duration.ofSeconds(1), 1, 1, Duration.ofMillis(10)),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        eventLoopMetrics.stop();
+        resourceFactory.destroy();
+    }
+
+    @Test
+    void start_shouldProbeEveryEventLoop() {
+        eventLoopMetrics.start();
+
+        // Las sondas se ejecutan en los propios event loops: se espera a que cada uno haya registrado alguna
+        StepVerifier.create(Flux.interval(Duration.ofMillis(10))
+                        .filter(tick -> probes("0") > 0 && probes("1") > 0)
+                        .next())
+                .expectNextCount(1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        assertNotNull(meterRegistry.find(EventLoopMetrics.PENDING_TASKS_GAUGE).tag("loop", "0").gauge());
+        assertNotNull(meterRegistry.find(EventLoopMetrics.PENDING_TASKS_GAUGE).tag("loop", "1").gauge());
+        assertEquals(2, meterRegistry.find(EventLoopMetrics.TASK_DELAY_TIMER).timers().size());
+    }
+
+    private long probes(String loop) {
+        Timer timer = meterRegistry.find(EventLoopMetrics.TASK_DELAY_TIMER).tag("loop", loop).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
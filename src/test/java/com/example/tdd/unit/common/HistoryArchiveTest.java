@@ -0,0 +1,141 @@
+package com.example.tdd.unit.common;
+
+import com.example.tdd.common.archive.HistoryArchiveReader;
+import com.example.tdd.common.archive.HistoryArchiveWriter;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.TransactionHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryArchiveTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0, 0, 123_456_000);
+
+    @TempDir
+    Path directory;
+
+    // 1000 transacciones con 3 cambios cada una, en orden de id: los cambios de una transacción quedan en bloques distintos
+    private static List<TransactionHistory> histories() {
+        List<TransactionHistory> histories = new ArrayList<>();
+        long id = 202401_000_000_000_000L;
+        for (int change = 0; change < 3; change++) {
+            for (long transactionId = 1; transactionId <= 1000; transactionId++) {
+                histories.add(TransactionHistory.builder()
+                        .id(id++)
+                        .transactionId(transactionId)
+                        .previousStatus(TransactionStatus.PENDING)
+                        .newStatus(change == 2 ? TransactionStatus.CANCELLED : TransactionStatus.COMPLETED)
+                        .changeDate(START.plusMinutes(transactionId).plusSeconds(change))
+                        .userPerformingAction(transactionId % 2 == 0 ? "SYSTEM" : "batch-user")
+                        .build());
+            }
+        }
+        return histories;
+    }
+
+    private Path write(List<TransactionHistory> histories, int blockRows) throws Exception {
+        Path file = directory.resolve("history-202401.tha");
+        try (HistoryArchiveWriter writer = HistoryArchiveWriter.create(file)) {
+            for (int i = 0; i < histories.size(); i += blockRows) {
+                writer.appendBlock(histories.subList(i, Math.min(i + blockRows, histories.size())));
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    @Test
+    void roundTrip_shouldRestoreEveryColumnAndCompress() throws Exception {
+        List<TransactionHistory> histories = histories();
+        Path file = write(histories, 512);
+
+        try (HistoryArchiveReader reader = HistoryArchiveReader.open(file)) {
+            assertEquals(3000, reader.rows());
+            assertEquals(6, reader.blockCount());
+            assertEquals(histories, reader.scan(null, null, null, null).collectList().block());
+        }
+        // Columnas delta y de diccionario: muy por debajo de ~100 bytes por fila de la tabla
+        assertTrue(Files.size(file) < 3000 * 4, "archive size " + Files.size(file));
+        assertFalse(Files.exists(directory.resolve("history-202401.tha.tmp")));
+    }
+
+    @Test
+    void scan_shouldFilterByTransactionAndHalfOpenDateRange() throws Exception {
+        Path file = write(histories(), 100);
+
+        try (HistoryArchiveReader reader = HistoryArchiveReader.open(file)) {
+            List<TransactionHistory> ofTransaction = reader.scan(734L, null, null, null).collectList().block();
+            assertEquals(3, ofTransaction.size());
+            assertTrue(ofTransaction.stream().allMatch(history -> history.getTransactionId() == 734L));
+
+            LocalDateTime from = START.plusMinutes(10);
+            List<TransactionHistory> inRange = reader.scan(null, from, from.plusMinutes(2), null).collectList().block();
+            assertEquals(List.of(10L, 11L, 10L, 11L, 10L, 11L),
+                    inRange.stream().map(TransactionHistory::getTransactionId).toList());
+
+            assertTrue(reader.scan(5000L, null, null, null).collectList().block().isEmpty());
+        }
+    }
+
+    @Test
+    void scan_shouldStreamInIdOrderFromTheKeysetCursor() throws Exception {
+        List<TransactionHistory> histories = histories();
+        Path file = write(histories, 100);
+
+        try (HistoryArchiveReader reader = HistoryArchiveReader.open(file)) {
+            long afterId = histories.get(1499).getId();
+            List<TransactionHistory> page = reader.scan(null, null, null, afterId).take(250).collectList().block();
+            assertEquals(histories.subList(1500, 1750), page);
+
+            List<Long> ids = reader.scan(734L, null, null, null).map(TransactionHistory::getId).collectList().block();
+            assertEquals(ids.stream().sorted().toList(), ids);
+            assertEquals(List.of(histories.get(2733).getId()),
+                    reader.scan(734L, null, null, ids.get(1)).map(TransactionHistory::getId).collectList().block());
+        }
+    }
+
+    @Test
+    void open_shouldMapFilesLargerThanOneWindowInWindowsOfWholeBlocks() throws Exception {
+        List<TransactionHistory> histories = histories();
+        Path file = write(histories, 100);
+        // Ventanas diminutas en lugar de un fichero de más de 2 GiB: el mismo código que separa un mes grande
+        // en proyecciones de menos de Integer.MAX_VALUE bytes
+        long windowBytes = Files.size(file) / 5;
+
+        try (HistoryArchiveReader reader = HistoryArchiveReader.open(file, windowBytes)) {
+            assertTrue(reader.windowCount() > 1, "windows " + reader.windowCount());
+            assertEquals(histories, reader.scan(null, null, null, null).collectList().block());
+            assertEquals(3, reader.scan(734L, null, null, null).count().block());
+        }
+        // Un bloque mayor que la ventana se proyecta entero en una ventana propia
+        try (HistoryArchiveReader reader = HistoryArchiveReader.open(file, 1)) {
+            assertEquals(reader.blockCount(), reader.windowCount());
+            assertEquals(histories, reader.scan(null, null, null, null).collectList().block());
+        }
+        assertThrows(IllegalArgumentException.class, () -> HistoryArchiveReader.open(file, Integer.MAX_VALUE + 1L));
+    }
+
+    @Test
+    void writer_shouldRejectUnsortedRowsAndLeaveNoFile() throws Exception {
+        List<TransactionHistory> histories = new ArrayList<>(histories().subList(0, 6));
+        histories.add(histories.get(0));
+        Path file = directory.resolve("history-202402.tha");
+
+        try (HistoryArchiveWriter writer = HistoryArchiveWriter.create(file)) {
+            assertThrows(IllegalArgumentException.class, () -> writer.appendBlock(histories));
+        }
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(directory.resolve("history-202402.tha.tmp")));
+    }
+}
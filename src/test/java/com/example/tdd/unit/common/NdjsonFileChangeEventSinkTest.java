@@ -0,0 +1,38 @@
+package com.example.tdd.unit.common;
+
+import com.example.tdd.common.outbox.NdjsonFileChangeEventSink;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NdjsonFileChangeEventSinkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void publish_shouldAppendOneLinePerEvent(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("events").resolve("transaction-events.ndjson");
+        NdjsonFileChangeEventSink sink = new NdjsonFileChangeEventSink(file, objectMapper, Schedulers.boundedElastic());
+        TransactionHistory first = TransactionHistory.builder().id(1L).transactionId(10L).newStatus(TransactionStatus.CANCELLED).build();
+        TransactionHistory second = TransactionHistory.builder().id(2L).transactionId(20L).newStatus(TransactionStatus.CANCELLED).build();
+
+        StepVerifier.create(sink.publish(List.of(first))).verifyComplete();
+        StepVerifier.create(sink.publish(List.of(second))).verifyComplete();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertEquals(first, objectMapper.readValue(lines.get(0), TransactionHistory.class));
+        assertEquals(second, objectMapper.readValue(lines.get(1), TransactionHistory.class));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.tdd.unit.common;
+
+import com.example.tdd.common.codec.TransactionCbor;
+import com.example.tdd.common.codec.TransactionCborDecoder;
+import com.example.tdd.common.codec.TransactionCborEncoder;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.TransactionHistory;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class TransactionCborCodecTest {
+
+    private static final ResolvableType HISTORY_TYPE = ResolvableType.forClass(TransactionHistory.class);
+    private static final ResolvableType RESULT_TYPE = ResolvableType.forClass(CancellationResult.class);
+    private static final ResolvableType LONG_TYPE = ResolvableType.forClass(Long.class);
+
+    private final TransactionCborEncoder encoder = new TransactionCborEncoder();
+    private final TransactionCborDecoder decoder = new TransactionCborDecoder();
+
+    private final TransactionHistory history = new TransactionHistory(123_456L, 987_654L, TransactionStatus.PENDING,
+            TransactionStatus.CANCELLED, LocalDateTime.of(2024, 5, 17, 10, 15, 30, 123_456_000), "SYSTEM");
+
+    @Test
+    void encode_shouldWriteStatusesAsOrdinalsAndDateAsEpochMicros() {
+        byte[] bytes = encode(new TransactionHistory(1L, 2L, TransactionStatus.PENDING, TransactionStatus.CANCELLED,
+                LocalDateTime.of(1970, 1, 1, 0, 0, 0, 1_000), "U"));
+
+        // [1, 2, 0, 2, 1, "U"]: array de 6, enteros y ordinales en la propia cabecera, 1 µs, texto de 1 byte
+        assertArrayEquals(new byte[]{(byte) 0x86, 0x01, 0x02, 0x00, 0x02, 0x01, 0x61, 'U'}, bytes);
+    }
+
+    @Test
+    void decode_shouldRoundTripHistoryAndResults() {
+        assertEquals(history, decoder.decode(wrap(encode(history)), HISTORY_TYPE, TransactionCbor.MEDIA_TYPE, Map.of()));
+
+        CancellationResult notFound = CancellationResult.notFound(-5L);
+        CancellationResult cancelled = CancellationResult.cancelled(new TransactionHistory(7L, 8L, null,
+                TransactionStatus.CANCELLED, null, "José"));
+        CancellationResult rejected = CancellationResult.rejected(9L, "Bloqueada por cumplimiento normativo.");
+        for (CancellationResult result : new CancellationResult[]{notFound, cancelled, rejected}) {
+            assertEquals(result, decoder.decode(wrap(encode(result)), RESULT_TYPE, TransactionCbor.MEDIA_TYPE, Map.of()));
+        }
+    }
+
+    @Test
+    void decode_shouldStreamItemsSplitAcrossBuffers() {
+        byte[] item = encode(history);
+        byte[] sequence = Arrays.copyOf(item, item.length * 2);
+        System.arraycopy(item, 0, sequence, item.length, item.length);
+
+        // El primer buffer corta el primer elemento; el segundo completa ese y trae el siguiente entero
+        Flux<DataBuffer> body = Flux.just(Arrays.copyOfRange(sequence, 0, 5), Arrays.copyOfRange(sequence, 5, sequence.length))
+                .map(TransactionCborCodecTest::wrap);
+
+        StepVerifier.create(decoder.decode(body, HISTORY_TYPE, TransactionCbor.MEDIA_TYPE, Map.of()))
+                .expectNext(history, history)
+                .verifyComplete();
+
+        Flux<DataBuffer> ids = Flux.just(new byte[]{0x01, 0x18}, new byte[]{(byte) 0xC8, 0x20})
+                .map(TransactionCborCodecTest::wrap);
+        StepVerifier.create(decoder.decode(ids, LONG_TYPE, TransactionCbor.MEDIA_TYPE, Map.of()))
+                .expectNext(1L, 200L, -1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void decode_shouldStreamResult_whenBufferEndsRightBeforeTheOptionalHistory() {
+        CancellationResult notFound = CancellationResult.notFound(42L);
+        byte[] bytes = encode(notFound);
+
+        // El corte deja la posición justo antes del null del historial (le sigue el null del motivo)
+        Flux<DataBuffer> body = Flux.just(Arrays.copyOf(bytes, bytes.length - 2), Arrays.copyOfRange(bytes, bytes.length - 2, bytes.length))
+                .map(TransactionCborCodecTest::wrap);
+
+        StepVerifier.create(decoder.decode(body, RESULT_TYPE, TransactionCbor.MEDIA_TYPE, Map.of()))
+                .expectNext(notFound)
+                .verifyComplete();
+    }
+
+    @Test
+    void decode_shouldRejectTruncatedBody() {
+        byte[] bytes = encode(history);
+
+        StepVerifier.create(decoder.decode(Mono.just(wrap(Arrays.copyOf(bytes, bytes.length - 1))), HISTORY_TYPE,
+                        TransactionCbor.MEDIA_TYPE, Map.of()))
+                .expectError(DecodingException.class)
+                .verify();
+    }
+
+    @Test
+    void codec_shouldOnlyApplyToTheBinaryMediaType() {
+        assertFalse(encoder.canEncode(HISTORY_TYPE, MediaType.APPLICATION_JSON));
+        assertFalse(encoder.canEncode(HISTORY_TYPE, null));
+        assertFalse(decoder.canDecode(HISTORY_TYPE, MediaType.APPLICATION_OCTET_STREAM));
+    }
+
+    private byte[] encode(Object value) {
+        DataBuffer buffer = encoder.encodeValue(value, DefaultDataBufferFactory.sharedInstance,
+                ResolvableType.forInstance(value), TransactionCbor.MEDIA_TYPE, Map.of());
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+        return bytes;
+    }
+
+    private static DataBuffer wrap(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
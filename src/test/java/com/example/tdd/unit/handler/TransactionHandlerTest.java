@@ -1,22 +1,37 @@
 package com.example.tdd.unit.handler;
 
+import com.example.tdd.common.metrics.CancelFlowMetrics;
+import com.example.tdd.common.metrics.ResponseEncodingMetricsFilter;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
 import com.example.tdd.domain.model.TransactionHistory;
-import com.example.tdd.domain.service.TransactionService;
+import com.example.tdd.domain.service.CancellationOperations;
+import com.example.tdd.domain.service.IdempotentCancellationService;
+import com.example.tdd.domain.service.TransactionLookupService;
+import com.example.tdd.presentation.dto.StatusChangeRequest;
 import com.example.tdd.presentation.handler.TransactionHandler;
 import com.example.tdd.shared.exception.InvalidInputException;
 import com.example.tdd.shared.exception.MissingHeaderException;
 import com.example.tdd.shared.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.reactive.function.server.MockServerRequest;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,7 +40,16 @@ import static org.junit.jupiter.api.Assertions.*;
 class TransactionHandlerTest {
 
     @Mock
-    private TransactionService transactionService;
+    private CancellationOperations cancellationOperations;
+
+    @Mock
+    private IdempotentCancellationService idempotentCancellationService;
+
+    @Mock
+    private TransactionLookupService transactionLookupService;
+
+    @Spy
+    private CancelFlowMetrics cancelFlowMetrics = new CancelFlowMetrics(new SimpleMeterRegistry());
 
     @InjectMocks
     private TransactionHandler transactionHandler;
@@ -48,6 +72,18 @@ class TransactionHandlerTest {
             .verify();
     }
 
+    @Test
+    void cancelTransaction_shouldFail_whenIdMensajeHeaderIsTooLong() {
+        MockServerRequest request = requestBuilder.header("idMensaje", "x".repeat(101)).build();
+
+        StepVerifier.create(transactionHandler.cancelTransaction(request))
+            .expectErrorMatches(throwable -> throwable instanceof InvalidInputException &&
+                                            throwable.getMessage().contains("at most 100 characters"))
+            .verify();
+
+        verifyNoInteractions(idempotentCancellationService);
+    }
+
     @Test
     void cancelTransaction_shouldFail_whenTransactionIdIsZero() {
         MockServerRequest request = MockServerRequest.builder()
@@ -93,7 +129,7 @@ class TransactionHandlerTest {
         MockServerRequest request = requestBuilder.header("idMensaje", "test-msg-id").build();
         TransactionHistory mockHistory = TransactionHistory.builder().id(1L).transactionId(1L).build();
 
-        when(transactionService.cancelTransaction(1L)).thenReturn(Mono.just(mockHistory));
+        when(idempotentCancellationService.cancelTransaction("test-msg-id", 1L)).thenReturn(Mono.just(mockHistory));
 
         StepVerifier.create(transactionHandler.cancelTransaction(request))
                 .consumeNextWith(response -> {
@@ -106,10 +142,64 @@ class TransactionHandlerTest {
     @Test
     void cancelTransaction_shouldPropagateServiceError() {
         MockServerRequest request = requestBuilder.header("idMensaje", "test-msg-id").build();
-        when(transactionService.cancelTransaction(1L)).thenReturn(Mono.error(new ResourceNotFoundException("Not found")));
+        when(idempotentCancellationService.cancelTransaction("test-msg-id", 1L)).thenReturn(Mono.error(new ResourceNotFoundException("Not found")));
 
         StepVerifier.create(transactionHandler.cancelTransaction(request))
             .expectError(ResourceNotFoundException.class)
             .verify();
     }
-}
\ No newline at end of file
+
+    @Test
+    void changeStatus_shouldApplySameValidationAsCancel_andRecordItsStage() {
+        MockServerRequest request = requestBuilder.header("idMensaje", "x".repeat(101)).build();
+
+        StepVerifier.create(transactionHandler.changeStatus(request))
+            .expectErrorMatches(throwable -> throwable instanceof InvalidInputException &&
+                                            throwable.getMessage().contains("at most 100 characters"))
+            .verify();
+
+        verify(cancelFlowMetrics).recordStage(eq(CancelFlowMetrics.STAGE_VALIDATION), anyLong(), isA(InvalidInputException.class));
+        verifyNoInteractions(idempotentCancellationService);
+    }
+
+    @Test
+    void changeStatus_shouldSucceed_whenInputIsValid() {
+        MockServerRequest request = requestBuilder.header("idMensaje", "test-msg-id")
+                .body(Mono.just(new StatusChangeRequest(TransactionStatus.COMPLETED)));
+        TransactionHistory mockHistory = TransactionHistory.builder().id(1L).transactionId(1L).build();
+        when(idempotentCancellationService.changeStatus("test-msg-id", 1L, TransactionStatus.COMPLETED)).thenReturn(Mono.just(mockHistory));
+
+        StepVerifier.create(transactionHandler.changeStatus(request))
+                .consumeNextWith(response -> {
+                    assertEquals(HttpStatus.OK, response.statusCode());
+                    // Marca el fin del handler para medir la etapa de codificación
+                    assertTrue(request.attributes().containsKey(ResponseEncodingMetricsFilter.HANDLED_AT_ATTRIBUTE));
+                })
+                .verifyComplete();
+
+        verify(cancelFlowMetrics).recordStage(eq(CancelFlowMetrics.STAGE_VALIDATION), anyLong(), isNull());
+    }
+
+    @Test
+    void getTransaction_shouldReturnTransaction_whenFound() {
+        MockServerRequest request = requestBuilder.build();
+        when(transactionLookupService.findById(1L))
+                .thenReturn(Mono.just(new Transaction(1L, TransactionStatus.PENDING, null, null)));
+
+        StepVerifier.create(transactionHandler.getTransaction(request))
+                .consumeNextWith(response -> assertEquals(HttpStatus.OK, response.statusCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    void getTransaction_shouldFail_whenTransactionIdIsNotNumeric() {
+        MockServerRequest request = MockServerRequest.builder().pathVariable("id", "abc").build();
+
+        StepVerifier.create(transactionHandler.getTransaction(request))
+            .expectErrorMatches(throwable -> throwable instanceof InvalidInputException &&
+                                            throwable.getMessage().contains("Transaction ID must be a numeric value"))
+            .verify();
+
+        verifyNoInteractions(transactionLookupService);
+    }
+}
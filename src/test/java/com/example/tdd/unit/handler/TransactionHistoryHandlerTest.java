@@ -0,0 +1,101 @@
+package com.example.tdd.unit.handler;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.service.TransactionHistoryService;
+import com.example.tdd.presentation.handler.TransactionHistoryHandler;
+import com.example.tdd.shared.exception.InvalidInputException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionHistoryHandlerTest {
+
+    @Mock
+    private TransactionHistoryService transactionHistoryService;
+
+    @InjectMocks
+    private TransactionHistoryHandler transactionHistoryHandler;
+
+    @Test
+    void streamHistory_shouldBuildFilterFromQueryParams() {
+        MockServerRequest request = MockServerRequest.builder()
+                .queryParam("transactionId", "7")
+                .queryParam("status", "cancelled")
+                .queryParam("from", "2024-01-01T00:00:00")
+                .queryParam("to", "2024-02-01T00:00:00")
+                .queryParam("afterId", "100")
+                .queryParam("limit", "50")
+                .build();
+        TransactionHistoryFilter expected = new TransactionHistoryFilter(7L, TransactionStatus.CANCELLED,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0), 100L, 50);
+        when(transactionHistoryService.findHistory(expected)).thenReturn(Flux.empty());
+
+        StepVerifier.create(transactionHistoryHandler.streamHistory(request))
+                .consumeNextWith(response -> {
+                    assertEquals(HttpStatus.OK, response.statusCode());
+                    assertEquals(MediaType.APPLICATION_NDJSON, response.headers().getContentType());
+                })
+                .verifyComplete();
+
+        verify(transactionHistoryService).findHistory(expected);
+    }
+
+    @Test
+    void streamHistory_shouldResumeFromLastEventId_whenEventStreamRequested() {
+        MockServerRequest request = MockServerRequest.builder()
+                .header("Accept", MediaType.TEXT_EVENT_STREAM_VALUE)
+                .header("Last-Event-ID", "42")
+                .build();
+        TransactionHistoryFilter expected = new TransactionHistoryFilter(null, null, null, null, 42L, null);
+        when(transactionHistoryService.findHistory(expected))
+                .thenReturn(Flux.just(TransactionHistory.builder().id(43L).build()));
+
+        StepVerifier.create(transactionHistoryHandler.streamHistory(request))
+                .consumeNextWith(response -> assertEquals(MediaType.TEXT_EVENT_STREAM, response.headers().getContentType()))
+                .verifyComplete();
+    }
+
+    @Test
+    void streamHistory_shouldFail_whenQueryParamIsInvalid() {
+        MockServerRequest request = MockServerRequest.builder()
+                .queryParam("status", "UNKNOWN")
+                .build();
+
+        StepVerifier.create(transactionHistoryHandler.streamHistory(request))
+                .expectErrorMatches(throwable -> throwable instanceof InvalidInputException &&
+                                                 throwable.getMessage().contains("'status'"))
+                .verify();
+
+        verifyNoInteractions(transactionHistoryService);
+    }
+
+    @Test
+    void streamHistory_shouldFail_whenLimitIsNotPositive() {
+        MockServerRequest request = MockServerRequest.builder()
+                .queryParam("limit", "0")
+                .build();
+
+        StepVerifier.create(transactionHistoryHandler.streamHistory(request))
+                .expectError(InvalidInputException.class)
+                .verify();
+
+        verifyNoInteractions(transactionHistoryService);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.tdd.unit.repository;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.model.TransactionHistoryFilter;
+import com.example.tdd.domain.repository.TransactionStore;
+import com.example.tdd.domain.repository.memory.InMemoryTransactionStore;
+import com.example.tdd.domain.repository.memory.WalTransactionStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionStoreTest {
+
+    private static final int CANCELLABLE = TransactionStore.statusMask(Set.of("PENDING", "FAILED"));
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void compareAndSetStatus_shouldReturnPreviousRow_andApplyOnlyFromAllowedStatuses() {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        Transaction pending = store.insert(new Transaction(null, TransactionStatus.PENDING, new BigDecimal("10.00"), "USD"));
+
+        Transaction previous = store.compareAndSetStatus(pending.getId(), TransactionStatus.CANCELLED, CANCELLABLE).orElseThrow();
+
+        assertEquals(TransactionStatus.PENDING, previous.getStatus());
+        assertEquals(0L, previous.getVersion());
+        Transaction current = store.findById(pending.getId()).orElseThrow();
+        assertEquals(TransactionStatus.CANCELLED, current.getStatus());
+        assertEquals(1L, current.getVersion());
+        // Ya cancelada: no se aplica de nuevo
+        assertTrue(store.compareAndSetStatus(pending.getId(), TransactionStatus.CANCELLED, CANCELLABLE).isEmpty());
+        assertTrue(store.compareAndSetStatusAtVersion(pending.getId(), TransactionStatus.PENDING, 0).isEmpty());
+        assertTrue(store.compareAndSetStatus(Long.MAX_VALUE, TransactionStatus.CANCELLED, CANCELLABLE).isEmpty());
+    }
+
+    @Test
+    void findHistory_shouldFilterAndPageById() {
+        InMemoryTransactionStore store = new InMemoryTransactionStore();
+        LocalDateTime now = LocalDateTime.of(2024, 5, 10, 12, 0);
+        store.appendHistory(List.of(
+                history(1L, TransactionStatus.CANCELLED, now),
+                history(2L, TransactionStatus.CANCELLED, now.plusMinutes(1)),
+                history(1L, TransactionStatus.COMPLETED, now.plusMinutes(2)),
+                history(1L, TransactionStatus.CANCELLED, now.plusMonths(1))));
+
+        List<Long> page = store.findHistory(new TransactionHistoryFilter(1L, TransactionStatus.CANCELLED, null, null, null, 1))
+                .map(TransactionHistory::getId)
+                .toList();
+        List<Long> next = store.findHistory(new TransactionHistoryFilter(1L, TransactionStatus.CANCELLED, null, null, page.get(0), 10))
+                .map(TransactionHistory::getId)
+                .toList();
+        List<Long> month = store.findHistory(new TransactionHistoryFilter(null, null, now, now.plusDays(1), null, null))
+                .map(TransactionHistory::getId)
+                .toList();
+
+        assertEquals(List.of(1L), page);
+        assertEquals(List.of(4L), next);
+        assertEquals(List.of(1L, 2L, 3L), month);
+        assertEquals(4, store.historyCount());
+    }
+
+    @Test
+    void walStore_shouldRebuildStateFromLog_afterReopening() throws Exception {
+        Path file = directory.resolve("transactions.wal");
+        long id;
+        try (Reopened first = new Reopened(file)) {
+            id = first.store.insert(new Transaction(null, TransactionStatus.PENDING, new BigDecimal("5.00"), "EUR")).getId();
+            first.store.insert(new Transaction(null, TransactionStatus.PENDING, null, null));
+            first.store.compareAndSetStatus(id, TransactionStatus.CANCELLED, CANCELLABLE);
+            first.store.appendHistory(List.of(history(id, TransactionStatus.CANCELLED, LocalDateTime.now())));
+            first.store.delete(id + 1);
+        }
+
+        try (Reopened second = new Reopened(file)) {
+            Transaction restored = second.store.findById(id).orElseThrow();
+            assertEquals(TransactionStatus.CANCELLED, restored.getStatus());
+            assertEquals(0, new BigDecimal("5.00").compareTo(restored.getAmount()));
+            assertEquals(1L, restored.getVersion());
+            assertTrue(second.store.findById(id + 1).isEmpty());
+            assertEquals(1, second.store.count());
+            assertEquals(1, second.store.historyCount());
+            // Las secuencias continúan tras las restauradas
+            assertEquals(id + 2, second.store.insert(new Transaction(null, TransactionStatus.PENDING, null, null)).getId());
+        }
+    }
+
+    @Test
+    void revertStatusAndRemoveHistory_shouldUndoARolledBackChange_andSurviveReopening() throws Exception {
+        Path file = directory.resolve("rollback.wal");
+        long id;
+        long removedId;
+        try (Reopened first = new Reopened(file)) {
+            id = first.store.insert(new Transaction(null, TransactionStatus.PENDING, new BigDecimal("7.00"), "USD")).getId();
+            Transaction previous = first.store.compareAndSetStatus(id, TransactionStatus.CANCELLED, CANCELLABLE).orElseThrow();
+            List<TransactionHistory> saved = first.store.appendHistory(List.of(
+                    history(id, TransactionStatus.CANCELLED, LocalDateTime.now())));
+            removedId = saved.get(0).getId();
+            first.store.appendHistory(List.of(history(id, TransactionStatus.FAILED, LocalDateTime.now())));
+
+            assertTrue(first.store.revertStatus(previous, TransactionStatus.CANCELLED));
+            first.store.removeHistory(List.of(removedId));
+            // Ya revertido: la fila no es la que dejó el cambio
+            assertFalse(first.store.revertStatus(previous, TransactionStatus.CANCELLED));
+        }
+
+        try (Reopened second = new Reopened(file)) {
+            Transaction restored = second.store.findById(id).orElseThrow();
+            assertEquals(TransactionStatus.PENDING, restored.getStatus());
+            assertEquals(2L, restored.getVersion());
+            assertTrue(second.store.findHistoryById(removedId).isEmpty());
+            // El hueco retirado no detiene la lectura por id
+            assertEquals(List.of(removedId + 1), second.store.findHistory(new TransactionHistoryFilter(null, null, null, null, null, null))
+                    .map(TransactionHistory::getId)
+                    .toList());
+            assertEquals(1, second.store.historyCount());
+            assertTrue(second.store.compareAndSetStatus(id, TransactionStatus.CANCELLED, CANCELLABLE).isPresent());
+        }
+    }
+
+    private static TransactionHistory history(Long transactionId, TransactionStatus newStatus, LocalDateTime date) {
+        return new TransactionHistory(null, transactionId, TransactionStatus.PENDING, newStatus, date, "tester");
+    }
+
+    // Abre el store con el mismo ciclo de vida que en la aplicación (start / stop / destroy)
+    private static final class Reopened implements AutoCloseable {
+
+        private final WalTransactionStore store;
+
+        Reopened(Path file) throws Exception {
+            store = new WalTransactionStore(new InMemoryTransactionStore(), file, 64 * 1024, Duration.ofSeconds(1));
+            store.start();
+        }
+
+        @Override
+        public void close() throws Exception {
+            store.stop();
+            store.destroy();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.config.GroupCommitProperties;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.service.CancellationOperations;
+import com.example.tdd.domain.service.GroupCommitCancellationService;
+import com.example.tdd.domain.service.TransactionStateMachine;
+import com.example.tdd.domain.service.TransitionGuard;
+import com.example.tdd.shared.exception.ResourceNotFoundException;
+import com.example.tdd.shared.exception.ServiceUnavailableException;
+import com.example.tdd.shared.exception.TransactionProcessingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitCancellationServiceTest {
+
+    private static final Duration RETRY_AFTER = Duration.ofSeconds(2);
+
+    @Mock
+    private CancellationOperations cancellationOperations;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private GroupCommitCancellationService service;
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    private void createService(int maxBatchSize) {
+        createService(maxBatchSize, 1024);
+    }
+
+    private void createService(int maxBatchSize, int maxPending) {
+        // Ventana larga: el grupo se confirma al completarse, no por tiempo
+        service = new GroupCommitCancellationService(cancellationOperations,
+                new TransactionStateMachine(new StaticListableBeanFactory().getBeanProvider(TransitionGuard.class)),
+                new GroupCommitProperties(true, maxBatchSize, Duration.ofSeconds(5), 2, maxPending, RETRY_AFTER),
+                meterRegistry);
+    }
+
+    private static TransactionHistory history(Long transactionId) {
+        return TransactionHistory.builder()
+                .id(100L + transactionId)
+                .transactionId(transactionId)
+                .previousStatus(TransactionStatus.PENDING)
+                .newStatus(TransactionStatus.CANCELLED)
+                .changeDate(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void cancelTransaction_shouldCommitConcurrentCancellationsTogether_andAnswerEachCaller() {
+        createService(3);
+        // Cada idMensaje viaja con su id a la transacción del grupo
+        when(cancellationOperations.cancelTransactions(List.of(1L, 2L, 3L), Map.of(1L, "msg-1", 2L, "msg-2", 3L, "msg-3")))
+                .thenReturn(Flux.just(
+                CancellationResult.cancelled(history(1L)),
+                CancellationResult.alreadyCancelled(2L),
+                CancellationResult.notFound(3L)));
+
+        Mono<TransactionHistory> first = service.cancelTransaction(1L, "msg-1");
+        Mono<TransactionHistory> second = service.cancelTransaction(2L, "msg-2");
+        Mono<TransactionHistory> third = service.cancelTransaction(3L, "msg-3");
+        // Las tres se suscriben antes de que se confirme el grupo
+        StepVerifier.create(Flux.merge(
+                        first.map(history -> "cancelled:" + history.getTransactionId()),
+                        second.onErrorResume(TransactionProcessingException.class, error -> Mono.empty()).map(h -> "unexpected"),
+                        third.onErrorResume(ResourceNotFoundException.class, error -> Mono.just("not-found"))).collectList())
+                .assertNext(outcomes -> assertEquals(List.of("cancelled:1", "not-found"), outcomes.stream().sorted().toList()))
+                .verifyComplete();
+
+        verify(cancellationOperations, times(1)).cancelTransactions(anyCollection(), anyMap());
+        assertEquals(1, meterRegistry.get(GroupCommitCancellationService.BATCH_SIZE_SUMMARY).summary().count());
+        assertEquals(3.0, meterRegistry.get(GroupCommitCancellationService.BATCH_SIZE_SUMMARY).summary().totalAmount());
+    }
+
+    @Test
+    void cancelTransaction_shouldAnswerDuplicateIdInSameBatchWith409() {
+        createService(2);
+        // Solo el idMensaje del llamante que cancela queda registrado
+        when(cancellationOperations.cancelTransactions(List.of(1L), Map.of(1L, "msg-a")))
+                .thenReturn(Flux.just(CancellationResult.cancelled(history(1L))));
+
+        StepVerifier.create(Flux.merge(
+                        service.cancelTransaction(1L, "msg-a").map(history -> "cancelled"),
+                        service.cancelTransaction(1L, "msg-b").onErrorResume(TransactionProcessingException.class, error -> Mono.just("conflict")))
+                        .collectList())
+                .assertNext(outcomes -> assertEquals(List.of("cancelled", "conflict"), outcomes.stream().sorted().toList()))
+                .verifyComplete();
+    }
+
+    @Test
+    void cancelTransaction_shouldAnswerGuardRejectionWith409AndItsReason() {
+        createService(2);
+        when(cancellationOperations.cancelTransactions(List.of(1L, 2L), Map.of(1L, "msg-1", 2L, "msg-2")))
+                .thenReturn(Flux.just(CancellationResult.cancelled(history(1L)),
+                        CancellationResult.rejected(2L, "Transaction 2 is under review.")));
+
+        StepVerifier.create(Flux.merge(
+                        service.cancelTransaction(1L, "msg-1").map(history -> "cancelled"),
+                        service.cancelTransaction(2L, "msg-2").onErrorResume(TransactionProcessingException.class,
+                                error -> Mono.just("rejected:" + error.getMessage())))
+                        .collectList())
+                .assertNext(outcomes -> assertEquals(List.of("cancelled", "rejected:Transaction 2 is under review."),
+                        outcomes.stream().sorted().toList()))
+                .verifyComplete();
+    }
+
+    @Test
+    void cancelTransaction_shouldRejectWith503_whenPendingCancellationsReachTheLimit() throws Exception {
+        createService(1, 2);
+        // La base de datos no responde: los dos grupos admitidos quedan confirmándose
+        Sinks.Empty<Void> commit = Sinks.empty();
+        when(cancellationOperations.cancelTransactions(anyCollection(), anyMap())).thenAnswer(invocation ->
+                commit.asMono().thenMany(Flux.fromIterable(invocation.<Collection<Long>>getArgument(0))
+                        .map(transactionId -> CancellationResult.cancelled(history(transactionId)))));
+
+        CompletableFuture<TransactionHistory> first = service.cancelTransaction(1L, "msg-1").toFuture();
+        CompletableFuture<TransactionHistory> second = service.cancelTransaction(2L, "msg-2").toFuture();
+        StepVerifier.create(service.cancelTransaction(3L, "msg-3"))
+                .expectErrorSatisfies(error -> {
+                    assertEquals(ServiceUnavailableException.class, error.getClass());
+                    assertEquals(RETRY_AFTER, ((ServiceUnavailableException) error).getRetryAfter());
+                })
+                .verify();
+        assertEquals(1.0, meterRegistry.get(GroupCommitCancellationService.REJECTED_COUNTER).counter().count());
+
+        // Al responder a los admitidos se liberan sus plazas
+        commit.tryEmitEmpty();
+        assertEquals(1L, first.get(5, TimeUnit.SECONDS).getTransactionId());
+        assertEquals(2L, second.get(5, TimeUnit.SECONDS).getTransactionId());
+        StepVerifier.create(service.cancelTransaction(3L, "msg-3").map(TransactionHistory::getTransactionId))
+                .expectNext(3L)
+                .verifyComplete();
+    }
+
+    @Test
+    void cancelTransaction_shouldPropagateBatchFailureToEveryCaller() {
+        createService(2);
+        when(cancellationOperations.cancelTransactions(anyCollection(), anyMap()))
+                .thenReturn(Flux.error(new IllegalStateException("database unavailable")));
+
+        StepVerifier.create(Flux.merge(
+                        service.cancelTransaction(1L, "msg-1").onErrorResume(IllegalStateException.class, error -> Mono.empty()).map(h -> "unexpected"),
+                        service.cancelTransaction(2L, "msg-2").onErrorResume(IllegalStateException.class, error -> Mono.empty()).map(h -> "unexpected"))
+                        .collectList())
+                .assertNext(outcomes -> assertEquals(List.of(), outcomes))
+                .verifyComplete();
+
+        // El flusher sigue vivo después del fallo
+        when(cancellationOperations.cancelTransactions(List.of(3L, 4L), Map.of(3L, "msg-3", 4L, "msg-4"))).thenReturn(Flux.just(
+                CancellationResult.cancelled(history(3L)), CancellationResult.cancelled(history(4L))));
+        StepVerifier.create(Flux.merge(service.cancelTransaction(3L, "msg-3"), service.cancelTransaction(4L, "msg-4")).count())
+                .expectNext(2L)
+                .verifyComplete();
+    }
+
+    @Test
+    void cancelTransaction_shouldRetryEachMemberAlone_whenAnIdMensajeIsAlreadyRecorded() {
+        createService(2);
+        when(cancellationOperations.cancelTransactions(List.of(1L, 2L), Map.of(1L, "msg-1", 2L, "msg-2")))
+                .thenReturn(Flux.error(new DuplicateKeyException("processed_message")));
+        when(cancellationOperations.cancelTransactions(List.of(1L), Map.of(1L, "msg-1")))
+                .thenReturn(Flux.just(CancellationResult.cancelled(history(1L))));
+        when(cancellationOperations.cancelTransactions(List.of(2L), Map.of(2L, "msg-2")))
+                .thenReturn(Flux.error(new DuplicateKeyException("processed_message")));
+
+        // El mensaje duplicado no arrastra al resto del grupo
+        StepVerifier.create(Flux.merge(
+                        service.cancelTransaction(1L, "msg-1").map(history -> "cancelled"),
+                        service.cancelTransaction(2L, "msg-2").onErrorResume(DuplicateKeyException.class, error -> Mono.just("duplicate")))
+                        .collectList())
+                .assertNext(outcomes -> assertEquals(List.of("cancelled", "duplicate"), outcomes.stream().sorted().toList()))
+                .verifyComplete();
+    }
+}
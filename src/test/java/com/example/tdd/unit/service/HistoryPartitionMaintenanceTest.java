@@ -0,0 +1,134 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.config.HistoryPartitionProperties;
+import com.example.tdd.domain.repository.HistoryPartitionRouter;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
+import com.example.tdd.domain.service.HistoryArchiveService;
+import com.example.tdd.domain.service.HistoryPartitionMaintenance;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HistoryPartitionMaintenanceTest {
+
+    private static final YearMonth CURRENT = YearMonth.of(2025, 3);
+    private static final HistoryPartitionProperties PROPERTIES =
+            new HistoryPartitionProperties(3, 1, Duration.ofHours(1), false, null, 4096, Duration.ofMinutes(1));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ProcessedMessageRepository processedMessageRepository = mock(ProcessedMessageRepository.class);
+    private HistoryPartitionRouter router;
+    private HistoryPartitionMaintenance maintenance;
+
+    @BeforeEach
+    void setUp() {
+        // Base de datos H2 en memoria propia por test: las particiones se descubren desde INFORMATION_SCHEMA
+        router = new HistoryPartitionRouter(H2ConnectionFactory.inMemory("partitions-" + UUID.randomUUID()), PROPERTIES);
+        when(processedMessageRepository.deleteProcessedBefore(any(LocalDateTime.class))).thenReturn(Mono.just(0));
+        // Sin archivado: el servicio de archivo no debe intervenir
+        maintenance = new HistoryPartitionMaintenance(router, mock(HistoryArchiveService.class), processedMessageRepository,
+                PROPERTIES, meterRegistry);
+    }
+
+    @Test
+    void idLayout_shouldEncodeMonthInHighDigits() {
+        long id = HistoryPartitionRouter.idBase(CURRENT) + 42;
+
+        assertEquals(202503_000_000_000_042L, id);
+        assertEquals(CURRENT, HistoryPartitionRouter.monthOfId(id));
+        assertEquals("transaction_history_202503", HistoryPartitionRouter.tableFor(CURRENT));
+    }
+
+    @Test
+    void maintain_shouldPremakeUpcomingMonthsAndDropExpiredOnes() {
+        StepVerifier.create(router.ensurePartition(CURRENT.minusMonths(4))
+                        .then(router.ensurePartition(CURRENT.minusMonths(2))))
+                .verifyComplete();
+
+        // Retención de 3 meses: se conservan enero, febrero y marzo; noviembre se elimina
+        StepVerifier.create(maintenance.maintain(CURRENT))
+                .expectNext(1)
+                .verifyComplete();
+
+        StepVerifier.create(router.partitions())
+                .expectNext(List.of(CURRENT.minusMonths(2), CURRENT, CURRENT.plusMonths(1)))
+                .verifyComplete();
+        assertEquals(3.0, meterRegistry.get(HistoryPartitionMaintenance.PARTITIONS_GAUGE).gauge().value());
+        // Los idMensaje caducan con la misma ventana: todo lo anterior al 1 de enero
+        verify(processedMessageRepository).deleteProcessedBefore(LocalDateTime.of(2025, 1, 1, 0, 0));
+    }
+
+    @Test
+    void partitionsFor_shouldPruneByDateRangeAndAfterId() {
+        StepVerifier.create(maintenance.maintain(CURRENT).then(router.ensurePartition(CURRENT.minusMonths(1))))
+                .verifyComplete();
+
+        // El límite superior es exclusivo: [1 feb, 1 mar) solo toca febrero
+        StepVerifier.create(router.partitionsFor(LocalDateTime.of(2025, 2, 1, 0, 0), LocalDateTime.of(2025, 3, 1, 0, 0), null))
+                .expectNext(List.of(CURRENT.minusMonths(1)))
+                .verifyComplete();
+
+        // Un afterId de marzo descarta las particiones anteriores
+        StepVerifier.create(router.partitionsFor(null, null, HistoryPartitionRouter.idBase(CURRENT) + 7))
+                .expectNext(List.of(CURRENT, CURRENT.plusMonths(1)))
+                .verifyComplete();
+    }
+
+    @Test
+    void partitions_shouldSeePartitionsCreatedByAnotherInstance_afterRefresh() {
+        String database = "partitions-" + UUID.randomUUID();
+        HistoryPartitionProperties alwaysRefresh =
+                new HistoryPartitionProperties(3, 1, Duration.ofHours(1), false, null, 4096, Duration.ZERO);
+        HistoryPartitionRouter local = new HistoryPartitionRouter(H2ConnectionFactory.inMemory(database), alwaysRefresh);
+        HistoryPartitionRouter other = new HistoryPartitionRouter(H2ConnectionFactory.inMemory(database), alwaysRefresh);
+
+        StepVerifier.create(local.partitions()).expectNext(List.of()).verifyComplete();
+        StepVerifier.create(other.ensurePartition(CURRENT)).verifyComplete();
+
+        StepVerifier.create(local.partitions()).expectNext(List.of(CURRENT)).verifyComplete();
+    }
+
+    @Test
+    void partitions_shouldNotCacheLookupFailures() {
+        ConnectionFactory database = H2ConnectionFactory.inMemory("partitions-" + UUID.randomUUID());
+        AtomicBoolean available = new AtomicBoolean(false);
+        ConnectionFactory flaky = new ConnectionFactory() {
+            @Override
+            public Publisher<? extends Connection> create() {
+                return available.get() ? database.create() : Mono.error(new IllegalStateException("database unavailable"));
+            }
+
+            @Override
+            public ConnectionFactoryMetadata getMetadata() {
+                return database.getMetadata();
+            }
+        };
+        HistoryPartitionRouter flakyRouter = new HistoryPartitionRouter(flaky, PROPERTIES);
+
+        StepVerifier.create(flakyRouter.partitions()).expectError(IllegalStateException.class).verify();
+
+        // Recuperada la base de datos, la siguiente llamada vuelve a leer las particiones
+        available.set(true);
+        StepVerifier.create(flakyRouter.partitions()).expectNext(List.of()).verifyComplete();
+    }
+}
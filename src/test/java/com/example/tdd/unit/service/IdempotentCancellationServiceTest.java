@@ -0,0 +1,186 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.config.CommandDispatchProperties;
+import com.example.tdd.config.GroupCommitProperties;
+import com.example.tdd.config.IdempotencyProperties;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.ProcessedMessage;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
+import com.example.tdd.domain.service.CancellationOperations;
+import com.example.tdd.domain.service.GroupCommitCancellationService;
+import com.example.tdd.domain.service.IdempotentCancellationService;
+import com.example.tdd.domain.service.TransactionCommandDispatcher;
+import com.example.tdd.shared.exception.InvalidInputException;
+import com.example.tdd.shared.exception.ResourceNotFoundException;
+import com.example.tdd.shared.exception.TransactionProcessingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotentCancellationServiceTest {
+
+    @Mock
+    private CancellationOperations cancellationOperations;
+
+    @Mock
+    private ProcessedMessageRepository processedMessageRepository;
+
+    private IdempotentCancellationService idempotentCancellationService;
+
+    private final TransactionHistory history = TransactionHistory.builder()
+            .id(10L)
+            .transactionId(1L)
+            .previousStatus(TransactionStatus.PENDING)
+            .newStatus(TransactionStatus.CANCELLED)
+            .changeDate(LocalDateTime.of(2025, 3, 1, 10, 0))
+            .userPerformingAction("system")
+            .build();
+
+    @BeforeEach
+    void setUp() {
+        idempotentCancellationService = createService(new GroupCommitCancellationService(cancellationOperations, null,
+                new GroupCommitProperties(false, 64, Duration.ofMillis(2), 4, 4096, Duration.ofSeconds(1)), new SimpleMeterRegistry()));
+    }
+
+    private IdempotentCancellationService createService(GroupCommitCancellationService groupCommitCancellationService) {
+        return new IdempotentCancellationService(cancellationOperations, processedMessageRepository,
+                new TransactionCommandDispatcher(new CommandDispatchProperties(4, 16, Duration.ofSeconds(1)), new SimpleMeterRegistry()),
+                groupCommitCancellationService,
+                new IdempotencyProperties(1_000, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void cancelTransaction_shouldCancelAndRecordMessageAtomically_whenMessageIsNew() {
+        when(processedMessageRepository.findById("msg-1")).thenReturn(Mono.empty());
+        when(cancellationOperations.changeStatus(1L, TransactionStatus.CANCELLED, "msg-1")).thenReturn(Mono.just(history));
+
+        StepVerifier.create(idempotentCancellationService.cancelTransaction("msg-1", 1L))
+                .expectNext(history)
+                .verifyComplete();
+
+        // processed_message se escribe dentro de la transacción de la implementación, no en una transacción envolvente
+        verify(cancellationOperations).changeStatus(1L, TransactionStatus.CANCELLED, "msg-1");
+        verify(processedMessageRepository, never()).insert(anyString(), any(TransactionHistory.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void cancelTransaction_shouldLeaveMessageRecordToTheGroup_whenGroupCommitIsEnabled() {
+        GroupCommitCancellationService groupCommitCancellationService = mock(GroupCommitCancellationService.class);
+        when(groupCommitCancellationService.isEnabled()).thenReturn(true);
+        when(groupCommitCancellationService.cancelTransaction(1L, "msg-1")).thenReturn(Mono.just(history));
+        when(processedMessageRepository.findById("msg-1")).thenReturn(Mono.empty());
+
+        StepVerifier.create(createService(groupCommitCancellationService).cancelTransaction("msg-1", 1L))
+                .expectNext(history)
+                .verifyComplete();
+
+        // processed_message va en la transacción del grupo: el llamante no escribe nada ni abre transacción propia
+        verifyNoInteractions(cancellationOperations);
+        verify(processedMessageRepository, never()).insert(anyString(), any(TransactionHistory.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    void cancelTransaction_shouldReplayCachedResponse_withoutTouchingService() {
+        when(processedMessageRepository.findById("msg-1")).thenReturn(Mono.empty());
+        when(cancellationOperations.changeStatus(1L, TransactionStatus.CANCELLED, "msg-1")).thenReturn(Mono.just(history));
+
+        idempotentCancellationService.cancelTransaction("msg-1", 1L).block();
+
+        StepVerifier.create(idempotentCancellationService.cancelTransaction("msg-1", 1L))
+                .expectNext(history)
+                .verifyComplete();
+
+        verify(cancellationOperations, times(1)).changeStatus(1L, TransactionStatus.CANCELLED, "msg-1");
+    }
+
+    @Test
+    void cancelTransaction_shouldCoalesceConcurrentDuplicates() {
+        Sinks.One<TransactionHistory> inFlight = Sinks.one();
+        when(processedMessageRepository.findById("msg-1")).thenReturn(Mono.empty());
+        when(cancellationOperations.changeStatus(1L, TransactionStatus.CANCELLED, "msg-1")).thenReturn(inFlight.asMono());
+
+        // Tres reintentos llegan antes de que termine el primero
+        Mono<TransactionHistory> first = idempotentCancellationService.cancelTransaction("msg-1", 1L).cache();
+        Mono<TransactionHistory> second = idempotentCancellationService.cancelTransaction("msg-1", 1L).cache();
+        Mono<TransactionHistory> third = idempotentCancellationService.cancelTransaction("msg-1", 1L).cache();
+        first.subscribe();
+        second.subscribe();
+        third.subscribe();
+        inFlight.tryEmitValue(history);
+
+        StepVerifier.create(Mono.zip(first, second, third))
+                .expectNextMatches(results -> results.getT1() == history && results.getT2() == history && results.getT3() == history)
+                .verifyComplete();
+
+        verify(cancellationOperations, times(1)).changeStatus(1L, TransactionStatus.CANCELLED, "msg-1");
+    }
+
+    @Test
+    void cancelTransaction_shouldReplayDurableRecord_whenNotInMemory() {
+        when(processedMessageRepository.findById("msg-1"))
+                .thenReturn(Mono.just(ProcessedMessage.of("msg-1", history, LocalDateTime.now())));
+
+        // La respuesta sale de la copia guardada, aunque la partición del historial ya no exista
+        StepVerifier.create(idempotentCancellationService.cancelTransaction("msg-1", 1L))
+                .expectNext(history)
+                .verifyComplete();
+
+        verifyNoInteractions(cancellationOperations);
+    }
+
+    @Test
+    void cancelTransaction_shouldReplayOtherInstanceResponse_whenItWonTheRace() {
+        // Nuestra cancelación llega tarde (409), pero el mensaje ya está registrado por otra instancia
+        when(processedMessageRepository.findById("msg-1"))
+                .thenReturn(Mono.empty())
+                .thenReturn(Mono.just(ProcessedMessage.of("msg-1", history, LocalDateTime.now())));
+        when(cancellationOperations.changeStatus(1L, TransactionStatus.CANCELLED, "msg-1"))
+                .thenReturn(Mono.error(new TransactionProcessingException("Transaction already cancelled.")));
+
+        StepVerifier.create(idempotentCancellationService.cancelTransaction("msg-1", 1L))
+                .expectNext(history)
+                .verifyComplete();
+    }
+
+    @Test
+    void cancelTransaction_shouldFail_whenMessageWasUsedForAnotherTransaction() {
+        when(processedMessageRepository.findById("msg-1"))
+                .thenReturn(Mono.just(ProcessedMessage.of("msg-1", history, LocalDateTime.now())));
+
+        StepVerifier.create(idempotentCancellationService.cancelTransaction("msg-1", 2L))
+                .expectError(InvalidInputException.class)
+                .verify();
+
+        verifyNoInteractions(cancellationOperations);
+    }
+
+    @Test
+    void cancelTransaction_shouldNotCacheErrors() {
+        when(processedMessageRepository.findById("msg-1")).thenReturn(Mono.empty());
+        when(cancellationOperations.changeStatus(1L, TransactionStatus.CANCELLED, "msg-1"))
+                .thenReturn(Mono.error(new ResourceNotFoundException("Transaction not found with id: 1")))
+                .thenReturn(Mono.just(history));
+
+        StepVerifier.create(idempotentCancellationService.cancelTransaction("msg-1", 1L))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+        StepVerifier.create(idempotentCancellationService.cancelTransaction("msg-1", 1L))
+                .expectNext(history)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.common.outbox.InMemoryChangeEventSink;
+import com.example.tdd.config.OutboxProperties;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.OutboxEvent;
+import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.OutboxEventRepository;
+import com.example.tdd.domain.service.ChangeEventSink;
+import com.example.tdd.domain.service.OutboxRelay;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OutboxRelay relay(ChangeEventSink sink, int batchSize) {
+        return new OutboxRelay(outboxEventRepository, sink,
+                new OutboxProperties(false, batchSize, Duration.ofMillis(200), "memory", null), meterRegistry);
+    }
+
+    private static OutboxEvent event(long id, long historyId) {
+        return new OutboxEvent(id, historyId, historyId * 100, TransactionStatus.PENDING, TransactionStatus.CANCELLED,
+                LocalDateTime.now().minusSeconds(2), "SYSTEM", LocalDateTime.now().minusSeconds(1));
+    }
+
+    @Test
+    void drain_shouldPublishInOutboxOrderAndDeleteAfterwards() {
+        InMemoryChangeEventSink sink = new InMemoryChangeEventSink();
+        when(outboxEventRepository.findPending(10)).thenReturn(Flux.just(event(1, 20), event(2, 10)));
+        when(outboxEventRepository.deleteByIds(List.of(1L, 2L))).thenReturn(Mono.just(2));
+
+        StepVerifier.create(relay(sink, 10).drain())
+                .expectNext(2)
+                .verifyComplete();
+
+        // El evento sale de la propia fila del outbox, sin leer el historial
+        assertEquals(List.of(20L, 10L), sink.getEvents().stream().map(TransactionHistory::getId).toList());
+        assertEquals(2000L, sink.getEvents().get(0).getTransactionId());
+        assertEquals(2.0, meterRegistry.get(OutboxRelay.PUBLISHED_COUNTER).counter().count());
+        assertEquals(2, meterRegistry.get(OutboxRelay.LAG_TIMER).timer().count());
+    }
+
+    @Test
+    void drain_shouldKeepPollingWhileBatchesAreFull() {
+        InMemoryChangeEventSink sink = new InMemoryChangeEventSink();
+        when(outboxEventRepository.findPending(1))
+                .thenReturn(Flux.just(event(1, 10)))
+                .thenReturn(Flux.just(event(2, 20)))
+                .thenReturn(Flux.empty());
+        when(outboxEventRepository.deleteByIds(anyCollection())).thenReturn(Mono.just(1));
+
+        StepVerifier.create(relay(sink, 1).drain())
+                .expectNext(2)
+                .verifyComplete();
+
+        verify(outboxEventRepository, times(3)).findPending(1);
+    }
+
+    @Test
+    void drain_shouldNotDeleteEvents_whenSinkFails() {
+        ChangeEventSink failingSink = events -> Mono.error(new IllegalStateException("sink unavailable"));
+        when(outboxEventRepository.findPending(10)).thenReturn(Flux.just(event(1, 10)));
+
+        StepVerifier.create(relay(failingSink, 10).drain())
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        // Al menos una vez: el evento sigue en el outbox para el siguiente sondeo
+        verify(outboxEventRepository, never()).deleteByIds(anyCollection());
+    }
+}
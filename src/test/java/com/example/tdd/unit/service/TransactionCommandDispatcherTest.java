@@ -0,0 +1,94 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.config.CommandDispatchProperties;
+import com.example.tdd.domain.service.TransactionCommandDispatcher;
+import com.example.tdd.shared.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransactionCommandDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransactionCommandDispatcher dispatcher =
+            new TransactionCommandDispatcher(new CommandDispatchProperties(8, 2, Duration.ofSeconds(3)), meterRegistry);
+
+    @Test
+    void dispatch_shouldRunCommandsForSameTransactionOneAtATime() {
+        Sinks.One<String> first = Sinks.one();
+        AtomicInteger secondSubscriptions = new AtomicInteger();
+        Mono<String> second = Mono.fromSupplier(() -> {
+            secondSubscriptions.incrementAndGet();
+            return "second";
+        });
+
+        StepVerifier.create(dispatcher.dispatch(7L, first.asMono()).zipWith(dispatcher.dispatch(7L, second)))
+                .then(() -> assertEquals(0, secondSubscriptions.get())) // Espera a que termine el primero
+                .then(() -> first.tryEmitValue("first"))
+                .assertNext(results -> {
+                    assertEquals("first", results.getT1());
+                    assertEquals("second", results.getT2());
+                })
+                .verifyComplete();
+        assertEquals(1, secondSubscriptions.get());
+    }
+
+    @Test
+    void dispatch_shouldRejectWith429_whenStripeIsFull() {
+        Sinks.One<String> blocking = Sinks.one();
+        Disposable running = dispatcher.dispatch(7L, blocking.asMono()).subscribe();
+        Disposable queued = dispatcher.dispatch(7L, Mono.just("queued")).subscribe();
+
+        StepVerifier.create(dispatcher.dispatch(7L, Mono.just("rejected")))
+                .expectErrorSatisfies(error -> {
+                    assertEquals(TooManyRequestsException.class, error.getClass());
+                    assertEquals(Duration.ofSeconds(3), ((TooManyRequestsException) error).getRetryAfter());
+                })
+                .verify();
+        assertEquals(1.0, meterRegistry.get(TransactionCommandDispatcher.REJECTED_COUNTER).counter().count());
+
+        // Al liberarse la stripe vuelve a admitir comandos
+        blocking.tryEmitValue("done");
+        StepVerifier.create(dispatcher.dispatch(7L, Mono.just("accepted")))
+                .expectNext("accepted")
+                .verifyComplete();
+        running.dispose();
+        queued.dispose();
+    }
+
+    @Test
+    void dispatch_shouldRunCommandWithCallerContext() {
+        Sinks.One<String> blocking = Sinks.one();
+        dispatcher.dispatch(7L, blocking.asMono()).subscribe();
+
+        // El comando arranca más tarde, desde el hilo que completa el anterior, pero ve el Context del llamante
+        Mono<String> command = Mono.deferContextual(context -> Mono.just(context.get("caller")));
+        StepVerifier.create(dispatcher.dispatch(7L, command).contextWrite(context -> context.put("caller", "request-1")))
+                .then(() -> blocking.tryEmitValue("done"))
+                .expectNext("request-1")
+                .verifyComplete();
+    }
+
+    @Test
+    void dispatch_shouldSkipCommand_whenCallerCancelsBeforeItsTurn() {
+        Sinks.One<String> blocking = Sinks.one();
+        dispatcher.dispatch(7L, blocking.asMono()).subscribe();
+        AtomicInteger subscriptions = new AtomicInteger();
+
+        dispatcher.dispatch(7L, Mono.fromSupplier(subscriptions::incrementAndGet)).subscribe().dispose();
+        blocking.tryEmitValue("done");
+
+        StepVerifier.create(dispatcher.dispatch(7L, Mono.just("next")))
+                .expectNext("next")
+                .verifyComplete();
+        assertEquals(0, subscriptions.get());
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.config.ImportProperties;
+import com.example.tdd.domain.enums.ImportFormat;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.ImportReport;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.service.TransactionImportService;
+import com.example.tdd.domain.service.TransactionStatisticsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionImportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionStatisticsService transactionStatisticsService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TransactionImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionImportService(transactionRepository, transactionStatisticsService, new ObjectMapper(),
+                new ImportProperties(2, 1, 1, null, null), meterRegistry);
+    }
+
+    @Test
+    void importLines_shouldDecodeLinesSplitAcrossBuffers_andInsertInBatches() {
+        when(transactionRepository.insertAll(anyList()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<Transaction>>getArgument(0).size()));
+        // Las líneas llegan partidas entre varios DataBuffer, como desde la red
+        Flux<DataBuffer> body = Flux.just(
+                        "{\"status\":\"PENDING\",\"amount\":10.50,\"curr",
+                        "ency\":\"USD\"}\n{\"status\":\"completed\"}\n\n",
+                        "{\"status\":\"FAILED\",\"amount\":\"1\",\"currency\":\"EUR\"}")
+                .map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+
+        StepVerifier.create(service.importLines(service.lines(body), ImportFormat.NDJSON))
+                .assertNext(report -> {
+                    assertEquals(3, report.accepted());
+                    assertEquals(0, report.rejected());
+                })
+                .verifyComplete();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Transaction>> batches = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository, times(2)).insertAll(batches.capture());
+        assertEquals(List.of(
+                        List.of(new Transaction(null, TransactionStatus.PENDING, new BigDecimal("10.5"), "USD"),
+                                new Transaction(null, TransactionStatus.COMPLETED, null, null)),
+                        List.of(new Transaction(null, TransactionStatus.FAILED, new BigDecimal("1"), "EUR"))),
+                batches.getAllValues());
+        verify(transactionStatisticsService, times(2)).recordInserted(anyList());
+        assertEquals(3.0, meterRegistry.counter(TransactionImportService.ROWS_COUNTER, "result", "accepted").count());
+    }
+
+    @Test
+    void importLines_shouldRejectInvalidCsvRows_andKeepOnlyFirstSamples() {
+        when(transactionRepository.insertAll(anyList()))
+                .thenAnswer(invocation -> Mono.just((long) invocation.<List<Transaction>>getArgument(0).size()));
+
+        Flux<String> lines = Flux.just(
+                "status,amount,currency",
+                "PENDING,1.234,USD",
+                "CANCELLED,5.00,usd",
+                "COMPLETED,5.00,EUR",
+                "PENDING,5.00");
+
+        StepVerifier.create(service.importLines(lines, ImportFormat.CSV))
+                .assertNext(report -> {
+                    assertEquals(1, report.accepted());
+                    assertEquals(3, report.rejected());
+                    assertEquals(List.of(new ImportReport.Rejection(2, "Field 'amount' must fit DECIMAL(19, 2).")),
+                            report.rejections());
+                })
+                .verifyComplete();
+
+        assertEquals(3.0, meterRegistry.counter(TransactionImportService.ROWS_COUNTER, "result", "rejected").count());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.config.TransactionCacheProperties;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.service.TransactionLookupService;
+import com.example.tdd.shared.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionLookupServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TransactionLookupService transactionLookupService;
+
+    private final Transaction transaction = new Transaction(1L, TransactionStatus.PENDING, null, null);
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        transactionLookupService = new TransactionLookupService(transactionRepository, meterRegistry,
+                new TransactionCacheProperties(100, Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void findById_shouldServeRepeatedReadsFromCache() {
+        when(transactionRepository.findById(1L)).thenReturn(Mono.just(transaction));
+
+        StepVerifier.create(transactionLookupService.findById(1L)).expectNext(transaction).verifyComplete();
+        StepVerifier.create(transactionLookupService.findById(1L)).expectNext(transaction).verifyComplete();
+
+        verify(transactionRepository, times(1)).findById(1L);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", TransactionLookupService.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void findById_shouldCoalesceConcurrentMisses() {
+        Sinks.One<Transaction> inFlight = Sinks.one();
+        when(transactionRepository.findById(1L)).thenReturn(inFlight.asMono());
+
+        Mono<Transaction> first = transactionLookupService.findById(1L).cache();
+        Mono<Transaction> second = transactionLookupService.findById(1L).cache();
+        first.subscribe();
+        second.subscribe();
+        inFlight.tryEmitValue(transaction);
+
+        StepVerifier.create(Mono.zip(first, second))
+                .expectNextMatches(both -> both.getT1() == transaction && both.getT2() == transaction)
+                .verifyComplete();
+
+        verify(transactionRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void findById_shouldNotCacheMissingTransactions() {
+        when(transactionRepository.findById(1L)).thenReturn(Mono.empty()).thenReturn(Mono.just(transaction));
+
+        StepVerifier.create(transactionLookupService.findById(1L))
+                .expectError(ResourceNotFoundException.class)
+                .verify();
+        StepVerifier.create(transactionLookupService.findById(1L)).expectNext(transaction).verifyComplete();
+    }
+
+    @Test
+    void evictAfterCompletion_shouldForceReload_whenOutsideTransaction() {
+        Transaction cancelled = new Transaction(1L, TransactionStatus.CANCELLED, null, null);
+        when(transactionRepository.findById(1L)).thenReturn(Mono.just(transaction)).thenReturn(Mono.just(cancelled));
+
+        transactionLookupService.findById(1L).block();
+        StepVerifier.create(transactionLookupService.evictAfterCompletion(List.of(1L))).verifyComplete();
+
+        StepVerifier.create(transactionLookupService.findById(1L)).expectNext(cancelled).verifyComplete();
+    }
+}
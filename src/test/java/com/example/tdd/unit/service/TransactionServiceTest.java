@@ -1,61 +1,133 @@
 package com.example.tdd.unit.service;
 
+import com.example.tdd.common.metrics.CancelFlowMetrics;
+import com.example.tdd.config.VersionRetryProperties;
+import com.example.tdd.domain.enums.CancellationOutcome;
 import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.CancellationResult;
 import com.example.tdd.domain.model.Transaction;
 import com.example.tdd.domain.model.TransactionHistory;
+import com.example.tdd.domain.repository.OutboxEventRepository;
+import com.example.tdd.domain.repository.ProcessedMessageRepository;
 import com.example.tdd.domain.repository.TransactionHistoryRepository;
 import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.service.TransactionLookupService;
 import com.example.tdd.domain.service.TransactionService;
+import com.example.tdd.domain.service.TransactionStateMachine;
+import com.example.tdd.domain.service.TransactionStatisticsService;
+import com.example.tdd.domain.service.TransitionGuard;
+import com.example.tdd.domain.service.VersionConflictRetry;
 import com.example.tdd.shared.exception.ResourceNotFoundException;
+import com.example.tdd.shared.exception.TransactionFailureException;
 import com.example.tdd.shared.exception.TransactionProcessingException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class TransactionServiceTest {
 
+    // Orígenes válidos para CANCELLED según la tabla de transiciones (todos salvo CANCELLED)
+    private static final List<String> CANCELLABLE_FROM = List.of("PENDING", "COMPLETED", "FAILED");
+
     @Mock
     private TransactionRepository transactionRepository;
 
     @Mock
     private TransactionHistoryRepository transactionHistoryRepository;
 
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private ProcessedMessageRepository processedMessageRepository;
+
+    @Mock
+    private TransactionLookupService transactionLookupService;
+
+    @Mock
+    private TransactionStatisticsService transactionStatisticsService;
+
+    @Spy
+    private TransactionStateMachine transactionStateMachine =
+            new TransactionStateMachine(new StaticListableBeanFactory().getBeanProvider(TransitionGuard.class));
+
+    @Spy
+    private CancelFlowMetrics cancelFlowMetrics = new CancelFlowMetrics(new SimpleMeterRegistry());
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private VersionConflictRetry versionConflictRetry = new VersionConflictRetry(
+            new VersionRetryProperties(3, Duration.ofMillis(1), Duration.ofMillis(5), 0.5), meterRegistry);
+
     @InjectMocks
     private TransactionService transactionService;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionLookupService.evictAfterCompletion(anyCollection())).thenReturn(Mono.empty());
+        lenient().when(transactionStatisticsService.recordAfterCommit(anyCollection(), any())).thenReturn(Mono.empty());
+        lenient().when(outboxEventRepository.insertForHistories(anyList())).thenReturn(Mono.just(1));
+    }
+
     @Test
     void cancelTransaction_shouldSucceed_whenTransactionExistsAndNotCancelled() {
-        Transaction transaction = new Transaction(1L, TransactionStatus.PENDING, null, null);
-        TransactionHistory history = TransactionHistory.builder().transactionId(1L).build(); // Simulación
+        // El UPDATE condicional devuelve la fila previa al cambio
+        Transaction previous = new Transaction(1L, TransactionStatus.PENDING, null, null);
 
-        when(transactionRepository.findById(1L)).thenReturn(Mono.just(transaction));
-        when(transactionHistoryRepository.save(any(TransactionHistory.class))).thenReturn(Mono.just(history));
-        when(transactionRepository.updateStatus(1L, TransactionStatus.CANCELLED)).thenReturn(Mono.just(1)); // 1 row updated
+        when(transactionRepository.compareAndSetStatus(eq(1L), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM))).thenReturn(Mono.just(previous));
+        when(transactionHistoryRepository.save(any(TransactionHistory.class)))
+                .thenAnswer(invocation -> {
+                    TransactionHistory saved = invocation.getArgument(0);
+                    saved.setId(10L); // Como la base de datos, asigna el id generado
+                    return Mono.just(saved);
+                });
 
         StepVerifier.create(transactionService.cancelTransaction(1L))
-                .expectNextMatches(savedHistory -> {
-                    // Aquí podrías hacer assertions más detalladas sobre el objeto 'savedHistory'
-                    return savedHistory.getTransactionId().equals(1L) &&
-                           savedHistory.getNewStatus().equals(TransactionStatus.CANCELLED);
-                })
+                .expectNextMatches(savedHistory -> savedHistory.getTransactionId().equals(1L) &&
+                                                   savedHistory.getPreviousStatus() == TransactionStatus.PENDING &&
+                                                   savedHistory.getNewStatus() == TransactionStatus.CANCELLED)
                 .verifyComplete();
 
-        verify(transactionRepository).findById(1L);
+        verify(transactionRepository).compareAndSetStatus(1L, TransactionStatus.CANCELLED, CANCELLABLE_FROM);
         verify(transactionHistoryRepository).save(any(TransactionHistory.class));
-        verify(transactionRepository).updateStatus(1L, TransactionStatus.CANCELLED);
+        verify(transactionLookupService).evictAfterCompletion(List.of(1L));
+        verify(transactionStatisticsService).recordAfterCommit(List.of(previous), TransactionStatus.CANCELLED);
+        verify(outboxEventRepository).insertForHistories(argThat(events -> events.size() == 1 && events.get(0).getId() == 10L));
+        // El camino feliz no necesita ninguna lectura adicional
+        verify(transactionRepository, never()).findById(anyLong());
     }
 
     @Test
     void cancelTransaction_shouldFail_whenTransactionNotFound() {
+        when(transactionRepository.compareAndSetStatus(eq(1L), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM))).thenReturn(Mono.empty());
         when(transactionRepository.findById(1L)).thenReturn(Mono.empty());
 
         StepVerifier.create(transactionService.cancelTransaction(1L))
@@ -68,8 +140,8 @@ class TransactionServiceTest {
 
     @Test
     void cancelTransaction_shouldFail_whenTransactionAlreadyCancelled() {
-        Transaction transaction = new Transaction(1L, TransactionStatus.CANCELLED, null, null);
-        when(transactionRepository.findById(1L)).thenReturn(Mono.just(transaction));
+        when(transactionRepository.compareAndSetStatus(eq(1L), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM))).thenReturn(Mono.empty());
+        when(transactionRepository.findById(1L)).thenReturn(Mono.just(new Transaction(1L, TransactionStatus.CANCELLED, null, null)));
 
         StepVerifier.create(transactionService.cancelTransaction(1L))
                 .expectErrorMatches(throwable -> throwable instanceof TransactionProcessingException &&
@@ -82,47 +154,225 @@ class TransactionServiceTest {
 
     @Test
     void cancelTransaction_shouldRollback_whenHistorySaveFails() {
-        Transaction transaction = new Transaction(1L, TransactionStatus.PENDING, null, null);
+        Transaction previous = new Transaction(1L, TransactionStatus.PENDING, null, null);
 
-        when(transactionRepository.findById(1L)).thenReturn(Mono.just(transaction));
+        when(transactionRepository.compareAndSetStatus(eq(1L), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM))).thenReturn(Mono.just(previous));
         when(transactionHistoryRepository.save(any(TransactionHistory.class)))
             .thenReturn(Mono.error(new RuntimeException("DB error on history save"))); // Simula fallo
 
         StepVerifier.create(transactionService.cancelTransaction(1L))
-            .expectErrorMatches(throwable -> throwable instanceof TransactionProcessingException &&
+            .expectErrorMatches(throwable -> throwable instanceof TransactionFailureException &&
                                             throwable.getCause().getMessage().contains("DB error on history save"))
             .verify();
 
-        verify(transactionRepository).findById(1L);
+        verify(transactionRepository).compareAndSetStatus(1L, TransactionStatus.CANCELLED, CANCELLABLE_FROM);
         verify(transactionHistoryRepository).save(any(TransactionHistory.class));
-        // En un test unitario, no podemos verificar directamente el rollback de la DB.
-        // Lo que verificamos es que no se llamó a `transactionRepository.updateStatus` si el save de historial falló ANTES.
-        // Si @Transactional está funcionando, Spring se encarga del rollback.
-        // Para este flujo específico (save history THEN update status), la verificación de no llamar a updateStatus
-        // si history save falla es una buena indicación.
-        verify(transactionRepository, never()).updateStatus(anyLong(), any(TransactionStatus.class));
+        // En un test unitario no podemos verificar el rollback de la DB: el UPDATE ya se ejecutó y
+        // es @Transactional quien lo deshace. Lo que verificamos es que el error se propaga envuelto.
     }
 
     @Test
-    void cancelTransaction_shouldRollback_whenTransactionUpdateFails() {
-        Transaction transaction = new Transaction(1L, TransactionStatus.PENDING, null, null);
-        TransactionHistory history = TransactionHistory.builder().transactionId(1L).build();
-
-        when(transactionRepository.findById(1L)).thenReturn(Mono.just(transaction));
-        when(transactionHistoryRepository.save(any(TransactionHistory.class))).thenReturn(Mono.just(history));
-        when(transactionRepository.updateStatus(1L, TransactionStatus.CANCELLED))
+    void cancelTransaction_shouldFail_whenConditionalUpdateFails() {
+        when(transactionRepository.compareAndSetStatus(eq(1L), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM)))
             .thenReturn(Mono.error(new RuntimeException("DB error on transaction update"))); // Simula fallo
 
         StepVerifier.create(transactionService.cancelTransaction(1L))
-                .expectErrorMatches(throwable -> throwable instanceof TransactionProcessingException &&
+                .expectErrorMatches(throwable -> throwable instanceof TransactionFailureException &&
                                             throwable.getCause().getMessage().contains("DB error on transaction update"))
                 .verify();
 
-        verify(transactionRepository).findById(1L);
-        verify(transactionHistoryRepository).save(any(TransactionHistory.class));
-        verify(transactionRepository).updateStatus(1L, TransactionStatus.CANCELLED);
-        // La anotación @Transactional debería manejar el rollback. En un test unitario,
-        // es difícil verificar el rollback de la base de datos directamente.
-        // Lo que probamos es que la excepción se propaga correctamente.
+        verify(transactionRepository).compareAndSetStatus(1L, TransactionStatus.CANCELLED, CANCELLABLE_FROM);
+        verify(transactionRepository, never()).findById(anyLong());
+        verifyNoInteractions(transactionHistoryRepository);
+    }
+
+    @Test
+    void changeStatus_shouldUseSourcesFromTransitionTable() {
+        Transaction previous = new Transaction(1L, TransactionStatus.PENDING, null, null);
+        when(transactionRepository.compareAndSetStatus(1L, TransactionStatus.COMPLETED, List.of("PENDING")))
+                .thenReturn(Mono.just(previous));
+        when(transactionHistoryRepository.save(any(TransactionHistory.class)))
+                .thenAnswer(invocation -> {
+                    TransactionHistory saved = invocation.getArgument(0);
+                    saved.setId(11L);
+                    return Mono.just(saved);
+                });
+
+        StepVerifier.create(transactionService.changeStatus(1L, TransactionStatus.COMPLETED))
+                .expectNextMatches(history -> history.getPreviousStatus() == TransactionStatus.PENDING &&
+                                              history.getNewStatus() == TransactionStatus.COMPLETED)
+                .verifyComplete();
+
+        verify(outboxEventRepository).insertForHistories(argThat(events -> events.size() == 1 && events.get(0).getId() == 11L));
+    }
+
+    @Test
+    void changeStatus_withIdMensaje_shouldRecordProcessedMessageWithTheChange() {
+        Transaction previous = new Transaction(1L, TransactionStatus.PENDING, null, null);
+        when(transactionRepository.compareAndSetStatus(eq(1L), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM))).thenReturn(Mono.just(previous));
+        when(transactionHistoryRepository.save(any(TransactionHistory.class)))
+                .thenAnswer(invocation -> {
+                    TransactionHistory saved = invocation.getArgument(0);
+                    saved.setId(12L);
+                    return Mono.just(saved);
+                });
+        when(processedMessageRepository.insert(eq("msg-1"), any(TransactionHistory.class), any(LocalDateTime.class)))
+                .thenReturn(Mono.just(1));
+
+        StepVerifier.create(transactionService.changeStatus(1L, TransactionStatus.CANCELLED, "msg-1"))
+                .expectNextMatches(history -> history.getId() == 12L)
+                .verifyComplete();
+
+        verify(processedMessageRepository).insert(eq("msg-1"), argThat(history -> history.getId() == 12L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void changeStatus_shouldFailWithConflict_whenTransitionIsNotAllowed() {
+        when(transactionRepository.compareAndSetStatus(1L, TransactionStatus.PENDING, List.of("FAILED")))
+                .thenReturn(Mono.empty());
+        when(transactionRepository.findById(1L)).thenReturn(Mono.just(new Transaction(1L, TransactionStatus.COMPLETED, null, null)));
+
+        StepVerifier.create(transactionService.changeStatus(1L, TransactionStatus.PENDING))
+                .expectErrorMatches(throwable -> throwable instanceof TransactionProcessingException &&
+                                                 throwable.getMessage().equals("Transition from COMPLETED to PENDING is not allowed."))
+                .verify();
+
+        verifyNoInteractions(transactionHistoryRepository);
+    }
+
+    @Test
+    void changeStatus_shouldWriteAtReadVersion_whenConcurrentChangeMadeTransitionValid() {
+        // El UPDATE condicional falla porque la fila estaba en COMPLETED, pero al leerla otro cambio ya la dejó en FAILED
+        when(transactionRepository.compareAndSetStatus(1L, TransactionStatus.PENDING, List.of("FAILED")))
+                .thenReturn(Mono.empty());
+        when(transactionRepository.findById(1L))
+                .thenReturn(Mono.just(new Transaction(1L, TransactionStatus.FAILED, BigDecimal.TEN, "USD", 7L)));
+        when(transactionRepository.compareAndSetStatusAtVersion(1L, TransactionStatus.PENDING, 7L))
+                .thenReturn(Mono.just(new Transaction(1L, TransactionStatus.FAILED, BigDecimal.TEN, "USD", 7L)));
+        when(transactionHistoryRepository.save(any(TransactionHistory.class)))
+                .thenAnswer(invocation -> Mono.just(invocation.<TransactionHistory>getArgument(0)));
+
+        StepVerifier.create(transactionService.changeStatus(1L, TransactionStatus.PENDING))
+                .expectNextMatches(history -> history.getPreviousStatus() == TransactionStatus.FAILED &&
+                                              history.getNewStatus() == TransactionStatus.PENDING)
+                .verifyComplete();
+        assertEquals(0.0, meterRegistry.get(VersionConflictRetry.CONFLICTS_COUNTER).counter().count());
+    }
+
+    @Test
+    void changeStatus_shouldRetryVersionConflicts_andAnswer409_whenAttemptsAreExhausted() {
+        // Cada intento lee una versión que otro cambio invalida antes de la escritura
+        when(transactionRepository.compareAndSetStatus(1L, TransactionStatus.PENDING, List.of("FAILED")))
+                .thenReturn(Mono.empty());
+        when(transactionRepository.findById(1L))
+                .thenReturn(Mono.just(new Transaction(1L, TransactionStatus.FAILED, BigDecimal.TEN, "USD", 7L)));
+        when(transactionRepository.compareAndSetStatusAtVersion(1L, TransactionStatus.PENDING, 7L))
+                .thenReturn(Mono.empty());
+
+        StepVerifier.create(transactionService.changeStatus(1L, TransactionStatus.PENDING))
+                .expectErrorMatches(throwable -> throwable instanceof TransactionFailureException &&
+                                                 throwable.getMessage().contains("was modified concurrently"))
+                .verify();
+
+        verify(transactionRepository, times(3)).compareAndSetStatus(1L, TransactionStatus.PENDING, List.of("FAILED"));
+        assertEquals(3.0, meterRegistry.get(VersionConflictRetry.CONFLICTS_COUNTER).counter().count());
+        assertEquals(2.0, meterRegistry.get(VersionConflictRetry.RETRIES_COUNTER).counter().count());
+        assertEquals(1.0, meterRegistry.get(VersionConflictRetry.EXHAUSTED_COUNTER).counter().count());
+        verifyNoInteractions(transactionHistoryRepository);
+    }
+
+    @Test
+    void cancelTransactions_shouldReportOutcomePerId() {
+        when(transactionRepository.compareAndSetStatusIn(anyCollection(), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM)))
+                .thenReturn(Flux.just(new Transaction(1L, TransactionStatus.PENDING, null, null)));
+        when(transactionHistoryRepository.saveAllBatched(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<TransactionHistory>>getArgument(0)));
+        when(transactionRepository.findExistingIds(List.of(2L, 3L))).thenReturn(Flux.just(2L));
+
+        // El id 1 duplicado solo debe procesarse una vez
+        StepVerifier.create(transactionService.cancelTransactions(List.of(1L, 2L, 3L, 1L)))
+                .expectNextMatches(result -> result.transactionId().equals(1L) &&
+                                             result.outcome() == CancellationOutcome.CANCELLED &&
+                                             result.history().getPreviousStatus() == TransactionStatus.PENDING)
+                .expectNext(CancellationResult.alreadyCancelled(2L))
+                .expectNext(CancellationResult.notFound(3L))
+                .verifyComplete();
+
+        verify(transactionRepository).compareAndSetStatusIn(anyCollection(), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM));
+        verify(transactionHistoryRepository).saveAllBatched(anyList());
+        verify(transactionRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void cancelTransactions_shouldReportGuardRejectionsPerId_andLeaveThoseIdsOutOfTheUpdate() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("complianceGuard", new TransitionGuard() {
+            @Override
+            public Set<TransactionStatus> targets() {
+                return Set.of(TransactionStatus.CANCELLED);
+            }
+
+            @Override
+            public Mono<Void> check(Long transactionId, TransactionStatus target) {
+                return transactionId == 2L
+                        ? Mono.error(new TransactionProcessingException("Transaction 2 is under review."))
+                        : Mono.empty();
+            }
+        });
+        ReflectionTestUtils.setField(transactionService, "transactionStateMachine",
+                new TransactionStateMachine(beanFactory.getBeanProvider(TransitionGuard.class)));
+        when(transactionRepository.compareAndSetStatusIn(List.of(1L, 3L), TransactionStatus.CANCELLED, CANCELLABLE_FROM))
+                .thenReturn(Flux.just(new Transaction(1L, TransactionStatus.PENDING, null, null)));
+        when(transactionHistoryRepository.saveAllBatched(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<TransactionHistory>>getArgument(0)));
+        when(transactionRepository.findExistingIds(List.of(3L))).thenReturn(Flux.empty());
+
+        // El guard del camino individual también se aplica a cada id del lote
+        StepVerifier.create(transactionService.cancelTransactions(List.of(1L, 2L, 3L)))
+                .expectNextMatches(result -> result.outcome() == CancellationOutcome.CANCELLED)
+                .expectNext(CancellationResult.rejected(2L, "Transaction 2 is under review."))
+                .expectNext(CancellationResult.notFound(3L))
+                .verifyComplete();
+
+        // Con todos los ids rechazados no hay UPDATE
+        StepVerifier.create(transactionService.cancelTransactions(List.of(2L)))
+                .expectNext(CancellationResult.rejected(2L, "Transaction 2 is under review."))
+                .verifyComplete();
+        verify(transactionRepository, times(1)).compareAndSetStatusIn(anyCollection(), any(), anyCollection());
+    }
+
+    @Test
+    void cancelTransactions_withIdMensajes_shouldRecordProcessedMessagesOfCancelledIdsOnly() {
+        when(transactionRepository.compareAndSetStatusIn(anyCollection(), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM)))
+                .thenReturn(Flux.just(new Transaction(1L, TransactionStatus.PENDING, null, null)));
+        when(transactionHistoryRepository.saveAllBatched(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<TransactionHistory>>getArgument(0)));
+        when(processedMessageRepository.insertAll(anyMap(), any(LocalDateTime.class))).thenReturn(Mono.just(1));
+        when(transactionRepository.findExistingIds(List.of(2L))).thenReturn(Flux.just(2L));
+
+        // Group commit: un único INSERT con los idMensaje, y solo para los ids que sí se cancelaron
+        StepVerifier.create(transactionService.cancelTransactions(List.of(1L, 2L), Map.of(1L, "msg-1", 2L, "msg-2")))
+                .expectNextMatches(result -> result.outcome() == CancellationOutcome.CANCELLED)
+                .expectNext(CancellationResult.alreadyCancelled(2L))
+                .verifyComplete();
+
+        verify(processedMessageRepository).insertAll(
+                argThat(processed -> processed.size() == 1 && processed.get("msg-1").getTransactionId().equals(1L)),
+                any(LocalDateTime.class));
+    }
+
+    @Test
+    void cancelTransactions_shouldSkipExistenceQuery_whenEveryIdIsCancelled() {
+        when(transactionRepository.compareAndSetStatusIn(anyCollection(), eq(TransactionStatus.CANCELLED), eq(CANCELLABLE_FROM)))
+                .thenReturn(Flux.just(new Transaction(1L, TransactionStatus.PENDING, null, null),
+                                      new Transaction(2L, TransactionStatus.COMPLETED, null, null)));
+        when(transactionHistoryRepository.saveAllBatched(anyList()))
+                .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<TransactionHistory>>getArgument(0)));
+
+        StepVerifier.create(transactionService.cancelTransactions(List.of(1L, 2L)))
+                .expectNextCount(2)
+                .verifyComplete();
+
+        verify(transactionRepository, never()).findExistingIds(anyCollection());
     }
-}
\ No newline at end of file
+}
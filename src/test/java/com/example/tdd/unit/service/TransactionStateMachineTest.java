@@ -0,0 +1,115 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.service.TransactionStateMachine;
+import com.example.tdd.domain.service.TransitionGuard;
+import com.example.tdd.shared.exception.TransactionProcessingException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionStateMachineTest {
+
+    private static TransactionStateMachine stateMachine(TransitionGuard... guards) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        for (int i = 0; i < guards.length; i++) {
+            beanFactory.addBean("guard" + i, guards[i]);
+        }
+        return new TransactionStateMachine(beanFactory.getBeanProvider(TransitionGuard.class));
+    }
+
+    @Test
+    void table_shouldAllowOnlyDeclaredTransitions() {
+        TransactionStateMachine stateMachine = stateMachine();
+
+        assertTrue(stateMachine.isAllowed(TransactionStatus.PENDING, TransactionStatus.COMPLETED));
+        assertTrue(stateMachine.isAllowed(TransactionStatus.FAILED, TransactionStatus.PENDING));
+        assertTrue(stateMachine.isAllowed(TransactionStatus.COMPLETED, TransactionStatus.CANCELLED));
+        assertFalse(stateMachine.isAllowed(TransactionStatus.COMPLETED, TransactionStatus.PENDING));
+        assertFalse(stateMachine.isAllowed(TransactionStatus.CANCELLED, TransactionStatus.PENDING));
+        assertFalse(stateMachine.isAllowed(TransactionStatus.PENDING, TransactionStatus.PENDING));
+
+        assertEquals(List.of("PENDING", "COMPLETED", "FAILED"), stateMachine.allowedFrom(TransactionStatus.CANCELLED));
+        assertEquals(List.of("FAILED"), stateMachine.allowedFrom(TransactionStatus.PENDING));
+    }
+
+    @Test
+    void rejection_shouldBePreallocatedPerTransition() {
+        TransactionStateMachine stateMachine = stateMachine();
+
+        TransactionProcessingException alreadyCancelled =
+                stateMachine.rejection(TransactionStatus.CANCELLED, TransactionStatus.CANCELLED);
+        assertEquals("Transaction already cancelled.", alreadyCancelled.getMessage());
+        assertSame(alreadyCancelled, stateMachine.rejection(TransactionStatus.CANCELLED, TransactionStatus.CANCELLED));
+        assertEquals("Transition from CANCELLED to COMPLETED is not allowed.",
+                stateMachine.rejection(TransactionStatus.CANCELLED, TransactionStatus.COMPLETED).getMessage());
+    }
+
+    @Test
+    void checkGuards_shouldRunOnlyGuardsForTheTarget() {
+        AtomicInteger checks = new AtomicInteger();
+        TransitionGuard completionGuard = new TransitionGuard() {
+            @Override
+            public Set<TransactionStatus> targets() {
+                return Set.of(TransactionStatus.COMPLETED);
+            }
+
+            @Override
+            public Mono<Void> check(Long transactionId, TransactionStatus target) {
+                checks.incrementAndGet();
+                return transactionId == 13L
+                        ? Mono.error(new TransactionProcessingException("Transaction 13 cannot be completed."))
+                        : Mono.empty();
+            }
+        };
+        TransactionStateMachine stateMachine = stateMachine(completionGuard);
+
+        StepVerifier.create(stateMachine.checkGuards(13L, TransactionStatus.CANCELLED)).verifyComplete();
+        assertEquals(0, checks.get());
+        StepVerifier.create(stateMachine.checkGuards(1L, TransactionStatus.COMPLETED)).verifyComplete();
+        StepVerifier.create(stateMachine.checkGuards(13L, TransactionStatus.COMPLETED))
+                .expectError(TransactionProcessingException.class)
+                .verify();
+        assertEquals(2, checks.get());
+    }
+
+    @Test
+    void guardRejections_shouldCollectBusinessRejectionsPerId_andFailOnOtherErrors() {
+        TransitionGuard cancellationGuard = new TransitionGuard() {
+            @Override
+            public Set<TransactionStatus> targets() {
+                return Set.of(TransactionStatus.CANCELLED);
+            }
+
+            @Override
+            public Mono<Void> check(Long transactionId, TransactionStatus target) {
+                if (transactionId == 13L) {
+                    return Mono.error(new TransactionProcessingException("Transaction 13 cannot be cancelled."));
+                }
+                return transactionId == 99L ? Mono.error(new IllegalStateException("guard unavailable")) : Mono.empty();
+            }
+        };
+        TransactionStateMachine stateMachine = stateMachine(cancellationGuard);
+
+        StepVerifier.create(stateMachine.guardRejections(List.of(1L, 13L, 2L), TransactionStatus.CANCELLED))
+                .expectNext(Map.of(13L, "Transaction 13 cannot be cancelled."))
+                .verifyComplete();
+        StepVerifier.create(stateMachine.guardRejections(List.of(13L), TransactionStatus.COMPLETED))
+                .expectNext(Map.of())
+                .verifyComplete();
+        StepVerifier.create(stateMachine.guardRejections(List.of(1L, 99L), TransactionStatus.CANCELLED))
+                .expectError(IllegalStateException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.tdd.unit.service;
+
+import com.example.tdd.config.StatisticsProperties;
+import com.example.tdd.domain.enums.TransactionStatus;
+import com.example.tdd.domain.model.Transaction;
+import com.example.tdd.domain.model.TransactionTotals;
+import com.example.tdd.domain.repository.TransactionRepository;
+import com.example.tdd.domain.service.TransactionStatisticsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionStatisticsServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private TransactionStatisticsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TransactionStatisticsService(transactionRepository, new StatisticsProperties(Duration.ofMinutes(5)), meterRegistry);
+    }
+
+    @Test
+    void reconcile_shouldSeedTotalsFromGroupedQuery() {
+        when(transactionRepository.aggregateByStatusAndCurrency()).thenReturn(Flux.just(
+                new TransactionTotals(TransactionStatus.PENDING, "USD", 3L, new BigDecimal("300.00")),
+                new TransactionTotals(TransactionStatus.CANCELLED, "EUR", 1L, new BigDecimal("20.50")),
+                new TransactionTotals(TransactionStatus.PENDING, null, 1L, BigDecimal.ZERO)));
+        assertNull(service.getReconciledAt());
+
+        StepVerifier.create(service.reconcile()).verifyComplete();
+
+        assertNotNull(service.getReconciledAt());
+        assertEquals(List.of(
+                        new TransactionTotals(TransactionStatus.PENDING, null, 1L, new BigDecimal("0.00")),
+                        new TransactionTotals(TransactionStatus.CANCELLED, "EUR", 1L, new BigDecimal("20.50")),
+                        new TransactionTotals(TransactionStatus.PENDING, "USD", 3L, new BigDecimal("300.00"))),
+                service.totals(null, null));
+        assertEquals(List.of(new TransactionTotals(TransactionStatus.PENDING, "USD", 3L, new BigDecimal("300.00"))),
+                service.totals(TransactionStatus.PENDING, "usd"));
+    }
+
+    @Test
+    void recordAfterCommit_shouldMoveRowFromPreviousToNewStatus_whenNoTransactionIsActive() {
+        when(transactionRepository.aggregateByStatusAndCurrency()).thenReturn(Flux.just(
+                new TransactionTotals(TransactionStatus.PENDING, "USD", 2L, new BigDecimal("150.00"))));
+        service.reconcile().block();
+
+        StepVerifier.create(service.recordAfterCommit(
+                        List.of(new Transaction(1L, TransactionStatus.PENDING, new BigDecimal("100.00"), "USD")),
+                        TransactionStatus.CANCELLED))
+                .verifyComplete();
+
+        assertEquals(List.of(
+                        new TransactionTotals(TransactionStatus.PENDING, "USD", 1L, new BigDecimal("50.00")),
+                        new TransactionTotals(TransactionStatus.CANCELLED, "USD", 1L, new BigDecimal("100.00"))),
+                service.totals(null, "USD"));
+    }
+
+    @Test
+    void totals_shouldStayExact_whenAmountsAndTotalsExceedALongOfCents() {
+        // Más de Long.MAX_VALUE céntimos (~9,2e16 unidades): el total agrupado y un importe suelto
+        BigDecimal hugeTotal = new BigDecimal("250000000000000000.00");
+        BigDecimal hugeAmount = new BigDecimal("100000000000000000.25");
+        when(transactionRepository.aggregateByStatusAndCurrency()).thenReturn(Flux.just(
+                new TransactionTotals(TransactionStatus.PENDING, "USD", 3L, hugeTotal)));
+        StepVerifier.create(service.reconcile()).verifyComplete();
+
+        StepVerifier.create(service.recordAfterCommit(List.of(
+                                new Transaction(1L, TransactionStatus.PENDING, hugeAmount, "USD"),
+                                new Transaction(2L, TransactionStatus.PENDING, new BigDecimal("10.00"), "USD")),
+                        TransactionStatus.CANCELLED))
+                .verifyComplete();
+        service.recordInserted(List.of(new Transaction(3L, TransactionStatus.CANCELLED, hugeAmount, "USD")));
+
+        assertEquals(List.of(
+                        new TransactionTotals(TransactionStatus.PENDING, "USD", 1L, new BigDecimal("149999999999999989.75")),
+                        new TransactionTotals(TransactionStatus.CANCELLED, "USD", 3L, new BigDecimal("200000000000000010.50"))),
+                service.totals(null, "USD"));
+    }
+
+    @Test
+    void reconcile_shouldKeepChangesRecordedDuringTheScan_andCountDrift() {
+        when(transactionRepository.aggregateByStatusAndCurrency()).thenReturn(Flux.just(
+                new TransactionTotals(TransactionStatus.PENDING, "USD", 2L, new BigDecimal("200.00"))));
+        service.reconcile().block();
+
+        // Segunda pasada: la consulta devuelve lo que vio la base de datos antes de un cambio que se confirma
+        // mientras la consulta sigue en curso; además faltaba una fila insertada fuera de los servicios
+        Sinks.Many<TransactionTotals> scan = Sinks.many().unicast().onBackpressureBuffer();
+        when(transactionRepository.aggregateByStatusAndCurrency()).thenReturn(scan.asFlux());
+        StepVerifier.create(service.reconcile())
+                .then(() -> {
+                    scan.tryEmitNext(new TransactionTotals(TransactionStatus.PENDING, "USD", 3L, new BigDecimal("300.00")));
+                    service.recordAfterCommit(
+                            List.of(new Transaction(1L, TransactionStatus.PENDING, new BigDecimal("100.00"), "USD")),
+                            TransactionStatus.CANCELLED).block();
+                    scan.tryEmitComplete();
+                })
+                .verifyComplete();
+
+        assertEquals(List.of(
+                        new TransactionTotals(TransactionStatus.PENDING, "USD", 2L, new BigDecimal("200.00")),
+                        new TransactionTotals(TransactionStatus.CANCELLED, "USD", 1L, new BigDecimal("100.00"))),
+                service.totals(null, null));
+        // Antes: PENDING 1 y CANCELLED 1 en memoria; después: PENDING 2 y CANCELLED 1
+        assertEquals(1.0, meterRegistry.get(TransactionStatisticsService.RECONCILE_DRIFT_COUNTER).counter().count());
+    }
+}